@@ -0,0 +1,72 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web;
+
+
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.panel.AccessDetailPanel;
+import org.apache.directory.fortress.web.panel.AccessPanel;
+import org.apache.directory.fortress.web.panel.Displayable;
+import org.apache.directory.fortress.web.panel.InfoPanel;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+
+
+/**
+ * Shows the effective access of a user, every role held by assignment or inheritance along with every permission
+ * those roles grant at the current time.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AccessPage extends FortressWebBasePage
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+
+
+    public AccessPage()
+    {
+        add( new Label( GlobalIds.PAGE_HEADER, "Effective Access" ) );
+        WebMarkupContainer container = new WebMarkupContainer( GlobalIds.LAYOUT );
+        FourWaySplitter splitter = new FourWaySplitter( "40", "60" );
+        splitter.addBorderLayout( container );
+
+        // Add the four necessary panels of Fortress Web Page: 1. Nav, 2. List, 3. Info, 4. Detail.
+
+        // 1. Nav Panel:
+        NavPanel navPanel = new NavPanel( GlobalIds.NAVPANEL );
+
+        // 2. Info Panel:
+        InfoPanel infoPanel = new InfoPanel( GlobalIds.INFOPANEL );
+        container.add( infoPanel );
+
+        // 3. Detail Panel, shows the roles and permissions of the user:
+        Displayable display = infoPanel.getDisplay();
+        AccessDetailPanel accessDetail = new AccessDetailPanel( GlobalIds.ACCESSDETAILPANEL );
+        container.add( accessDetail );
+
+        // 4. Access Panel:
+        container.add( new AccessPanel( GlobalIds.ACCESSPANEL, display, accessDetail ) );
+
+        container.add( navPanel );
+        this.add( container );
+    }
+}
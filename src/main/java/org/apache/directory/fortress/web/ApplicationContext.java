@@ -20,6 +20,15 @@
 package org.apache.directory.fortress.web;
 
 
+import org.apache.directory.fortress.web.control.CacheConsole;
+import org.apache.directory.fortress.web.control.FormState;
+import org.apache.directory.fortress.web.control.FortressSerializer;
+import org.apache.directory.fortress.web.control.OffHeapCaches;
+import org.apache.directory.fortress.web.control.Resilience;
+import org.apache.directory.fortress.web.control.StaticResources;
+import org.apache.directory.fortress.web.control.TenantCaches;
+import org.apache.directory.fortress.web.control.Tenants;
+import org.apache.directory.fortress.web.control.WarmUp;
 import org.apache.directory.fortress.web.control.WicketSession;
 import org.apache.wicket.Page;
 import org.apache.wicket.Session;
@@ -50,6 +59,8 @@ public class ApplicationContext extends WebApplication
     {
         super.init();
         getComponentInstantiationListeners().add( new SpringComponentInjector( this ) );
+        // Bind every request to its tenant ahead of the listeners below, see fortress.properties:
+        getRequestCycleListeners().add( new Tenants.Listener() );
 
         // Catch runtime exceptions this way:
         getRequestCycleListeners().add( new AbstractRequestCycleListener()
@@ -60,7 +71,37 @@ public class ApplicationContext extends WebApplication
                 return new RenderPageRequestHandler( new PageProvider( new ErrorPage( e ) ) );
             }
         } );
+        // Field changes buffered in the browser are applied before the listener of the request carrying them:
+        getRequestCycleListeners().add( new FormState.Listener() );
+        // Opt-in, see fortress.properties: tell the user when results are stale because the directory isn't answering:
+        if ( Resilience.isEnabled() )
+        {
+            getRequestCycleListeners().add( new Resilience.Listener() );
+            getAjaxRequestTargetListeners().add( new Resilience.Notice() );
+        }
         getMarkupSettings().setStripWicketTags( true );
+        // Compact page serialization, falls back to the java serializer for anything it can't handle:
+        getFrameworkSettings().setSerializer( new FortressSerializer( getApplicationKey() ) );
+        // Bundled, minified, gzipped and versioned scripts and style sheets, cached by the browser for a year:
+        StaticResources.install( this );
+        // Opt-in, see fortress.properties: large hierarchies evicted from the heap are kept in direct buffers:
+        OffHeapCaches.install();
+        // A cache partition per tenant if requests are routed to several, before fortress-core first uses them:
+        TenantCaches.install();
+        // Hit ratio, evictions and working set of each cache on the CachePage and over JMX:
+        CacheConsole.install();
+        // Opt-in, see fortress.properties: parse the markup and load the managers and caches before the first user:
+        if ( WarmUp.isEnabled() )
+        {
+            WarmUp.run( this );
+        }
+    }
+
+    @Override
+    protected void onDestroy()
+    {
+        CacheConsole.uninstall();
+        super.onDestroy();
     }
 
     public Class<? extends Page> getHomePage()
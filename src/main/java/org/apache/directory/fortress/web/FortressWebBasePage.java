@@ -24,20 +24,27 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.realm.J2eePolicyMgr;
-import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.Resilience;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.control.SecureBookmarkablePageLink;
+import org.apache.directory.fortress.web.control.SessionBootstrap;
+import org.apache.directory.fortress.web.control.StaticResources;
+import org.apache.directory.fortress.web.control.Tenants;
 import org.apache.directory.fortress.web.control.WicketSession;
 import org.apache.log4j.Logger;
+import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.markup.html.WebPage;
 import org.apache.wicket.markup.html.basic.Label;
 import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.request.http.flow.AbortWithHttpErrorCodeException;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.core.*;
 import org.apache.directory.fortress.core.model.Session;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.security.Principal;
 
 
@@ -69,8 +76,8 @@ public abstract class FortressWebBasePage extends WebPage
         // Build the title bar string.
         StringBuilder titlebuf = new StringBuilder();
         titlebuf.append( "Fortress Web Administration" );
-        String szContextId = Config.getInstance().getProperty( GlobalIds.CONTEXT_ID_PROPERTY );
-        // append the tenantId if set
+        String szContextId = Tenants.get();
+        // append the tenantId of this request if set
         if( StringUtils.isNotEmpty( szContextId ) && !szContextId.equalsIgnoreCase( org.apache.directory.fortress.core.GlobalIds.HOME ))
         {
             titlebuf.append( " : " );
@@ -140,6 +147,17 @@ public abstract class FortressWebBasePage extends WebPage
         add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.GROUP_PAGE, GroupPage.class,
             org.apache.directory.fortress.web.common.GlobalIds.ROLE_GROUPS ) );
 
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.IMPORTS_PAGE, PolicyImportPage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_IMPORTS ) );
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.ACCESS_PAGE, AccessPage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_ACCESS ) );
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.REVIEWS_PAGE, AccessReviewPage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_REVIEWS ) );
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.SSD_SCAN_PAGE, SsdScanPage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_SSDS ) );
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.CACHES_PAGE, CachePage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_CACHES ) );
+
         // The audit pages only work with OpenLDAP:
         if ( Config.getInstance().isOpenldap() )
         {
@@ -161,6 +179,12 @@ public abstract class FortressWebBasePage extends WebPage
         }
 
         add( new Label( "footer", "Copyright (c) 2003-2020, The Apache Software Foundation. All Rights Reserved." ) );
+        // Empty unless results were answered from a copy or not at all because the directory isn't answering:
+        IModel<String> notice = () -> Resilience.getNotice();
+        Label staleNotice = new Label( Resilience.Notice.MARKUP_ID, notice );
+        staleNotice.setOutputMarkupId( true );
+        staleNotice.setMarkupId( Resilience.Notice.MARKUP_ID );
+        add( staleNotice );
 
         final Link actionLink = new Link( "logout" )
         {
@@ -177,50 +201,89 @@ public abstract class FortressWebBasePage extends WebPage
         HttpServletRequest servletReq = ( HttpServletRequest ) getRequest().getContainerRequest();
 
         // RBAC Security Processing:
-        Principal principal = servletReq.getUserPrincipal();
+        final Principal principal = servletReq.getUserPrincipal();
         // Is this a Java EE secured page && has the User successfully authenticated already?
         boolean isSecured = principal != null;
         if ( isSecured && !isLoggedIn() )
         {
-            // Here the principal was created by fortress realm and is a serialized instance of {@link Session}.
-            String szPrincipal = principal.toString();
-            Session session = null;
-
-            String szIsJetty = System.getProperty( org.apache.directory.fortress.web.common.GlobalIds.IS_JETTY_SERVER );
-            boolean isJetty = false;
-            if( StringUtils.isNotEmpty( szIsJetty ))
+            // The realm authenticated the user in its own tenant, no session of the user may be loaded into another one:
+            String tenant = Tenants.get();
+            if ( !Tenants.isRealmTenant( tenant ) )
             {
-                if ( szIsJetty.equalsIgnoreCase( "true" ) )
-                {
-                    isJetty = true;
-                }
+                LOG.warn( "principal " + principal.getName() + " of tenant " + Tenants.getRealmTenant() + " refused in "
+                    + "tenant " + tenant );
+                throw new AbortWithHttpErrorCodeException( HttpServletResponse.SC_FORBIDDEN );
             }
-            if( !isJetty )
+            // Concurrent requests right after login share a single load, see SessionBootstrap:
+            try
             {
-                try
-                {
-                    // Deserialize the principal string into a fortress session:
-                    session = j2eePolicyMgr.deserialize( szPrincipal );
-                }
-                catch(SecurityException se)
+                SessionBootstrap.initialize( ( WicketSession ) WicketSession.get(), new SessionBootstrap.Loader()
                 {
-                    // Can't recover....
-                    throw new RuntimeException( se );
-                }
+                    @Override
+                    public Session load() throws SecurityException
+                    {
+                        return loadSession( principal );
+                    }
+                } );
             }
-
-            // If this is null, it means this app cannot share an rbac session with container and must now (re)create session here:
-            if ( session == null )
+            catch ( SecurityException se )
             {
-                session = SecUtils.createSession( accessMgr, principal.getName() );
+                // Can't recover....
+                throw new RuntimeException( se );
             }
+        }
+    }
 
-            // Now load the fortress session into the Wicket session and let wicket hold onto that for us.  Also retreive the arbac perms from server and cache those too.
-            synchronized ( ( WicketSession ) WicketSession.get() )
+
+    @Override
+    public void renderHead( IHeaderResponse response )
+    {
+        super.renderHead( response );
+        // served as one versioned, gzipped bundle, see ApplicationContext
+        StaticResources.renderStyleSheets( response );
+    }
+
+
+    /**
+     * Get the fortress session of the principal and load it into the Wicket session along with the arbac perms.
+     *
+     * @param principal created by the fortress realm, its string form is a serialized instance of {@link Session}.
+     * @return the fortress session.
+     * @throws SecurityException if the principal can't be deserialized.
+     */
+    private Session loadSession( Principal principal ) throws SecurityException
+    {
+        // Here the principal was created by fortress realm and is a serialized instance of {@link Session}.
+        String szPrincipal = principal.toString();
+        Session session = null;
+
+        String szIsJetty = System.getProperty( org.apache.directory.fortress.web.common.GlobalIds.IS_JETTY_SERVER );
+        boolean isJetty = false;
+        if( StringUtils.isNotEmpty( szIsJetty ))
+        {
+            if ( szIsJetty.equalsIgnoreCase( "true" ) )
             {
-                SecUtils.loadPermissionsIntoSession( delAccessMgr, session );
+                isJetty = true;
             }
         }
+        if( !isJetty )
+        {
+            // Deserialize the principal string into a fortress session:
+            session = j2eePolicyMgr.deserialize( szPrincipal );
+        }
+
+        // If this is null, it means this app cannot share an rbac session with container and must now (re)create session here:
+        if ( session == null )
+        {
+            session = SecUtils.createSession( accessMgr, principal.getName() );
+        }
+
+        // Later requests of this session stay with its tenant, see Tenants:
+        ( ( WicketSession ) WicketSession.get() ).setTenant( Tenants.get() );
+
+        // Now load the fortress session into the Wicket session and let wicket hold onto that for us.  Also retreive the arbac perms from server and cache those too.
+        SecUtils.loadPermissionsIntoSession( delAccessMgr, session );
+        return session;
     }
 
 
@@ -508,6 +508,151 @@ public class NavPanel extends FormComponentPanel
             }
             );
 
+            add( new SecureIndicatingAjaxButton( GlobalIds.IMPORTS_PAGE, GlobalIds.ROLE_IMPORTS )
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public void onSubmit( AjaxRequestTarget target )
+                {
+                    setResponsePage( PolicyImportPage.class );
+                }
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            }
+            );
+
+            add( new SecureIndicatingAjaxButton( GlobalIds.ACCESS_PAGE, GlobalIds.ROLE_ACCESS )
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public void onSubmit( AjaxRequestTarget target )
+                {
+                    setResponsePage( AccessPage.class );
+                }
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            }
+            );
+
+            add( new SecureIndicatingAjaxButton( GlobalIds.REVIEWS_PAGE, GlobalIds.ROLE_REVIEWS )
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public void onSubmit( AjaxRequestTarget target )
+                {
+                    setResponsePage( AccessReviewPage.class );
+                }
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            }
+            );
+
+            add( new SecureIndicatingAjaxButton( GlobalIds.SSD_SCAN_PAGE, GlobalIds.ROLE_SSDS )
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public void onSubmit( AjaxRequestTarget target )
+                {
+                    setResponsePage( SsdScanPage.class );
+                }
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            }
+            );
+
+            add( new SecureIndicatingAjaxButton( GlobalIds.CACHES_PAGE, GlobalIds.ROLE_CACHES )
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public void onSubmit( AjaxRequestTarget target )
+                {
+                    setResponsePage( CachePage.class );
+                }
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            }
+            );
+
             // These pages only work with OpenLDAP:
             if ( org.apache.directory.fortress.core.util.Config.getInstance().isOpenldap() )
             {
@@ -42,6 +42,10 @@ public class GlobalIds
     public static final String ROLE_AUDIT_BINDS = "ROLE_AUDIT_BINDS";
     public static final String ROLE_AUDIT_MODS = "ROLE_AUDIT_MODS";
     public static final String ROLE_GROUPS = "ROLE_GROUPS";
+    public static final String ROLE_IMPORTS = "ROLE_IMPORTS";
+    public static final String ROLE_ACCESS = "ROLE_ACCESS";
+    public static final String ROLE_REVIEWS = "ROLE_REVIEWS";
+    public static final String ROLE_CACHES = "ROLE_CACHES";
     public static final String SSD = "SSD";
     public static final String DSD = "DSD";
     public static final String PAGE_TYPE = "type";
@@ -56,6 +60,7 @@ public class GlobalIds
     public static final String ADD = "add";
     public static final String COMMIT = "commit";
     public static final String DELETE = "delete";
+    public static final String BULK_DELETE = "bulkdelete";
     public static final String CANCEL = "cancel";
     public static final String TIMEOUT_ARC = "timeoutARC";
     public static final String BEGIN_TIME_ARC = "beginTimeARC";
@@ -136,6 +141,11 @@ public class GlobalIds
     public static final String EMPLOYEE_TYPE = "employeeType";
     public static final String TITLE = "title";
     public static final String GROUP_PAGE = "groups";
+    public static final String IMPORTS_PAGE = "imports";
+    public static final String ACCESS_PAGE = "access";
+    public static final String REVIEWS_PAGE = "reviews";
+    public static final String SSD_SCAN_PAGE = "ssdscan";
+    public static final String CACHES_PAGE = "caches";
     public static final String AUDIT_AUTHZS_PAGE = "authzs";
     public static final String AUDIT_MODS_PAGE = "mods";
     public static final String AUDIT_BINDS_PAGE = "binds";
@@ -202,6 +212,16 @@ public class GlobalIds
     public static final String SDDETAILPANEL = "sddetailpanel";
     public static final String GROUPLISTPANEL = "grouplistpanel";
     public static final String GROUPDETAILPANEL = "groupdetailpanel";
+    public static final String IMPORTPANEL = "importpanel";
+    public static final String IMPORTDETAILPANEL = "importdetailpanel";
+    public static final String ACCESSPANEL = "accesspanel";
+    public static final String ACCESSDETAILPANEL = "accessdetailpanel";
+    public static final String REVIEWPANEL = "reviewpanel";
+    public static final String REVIEWDETAILPANEL = "reviewdetailpanel";
+    public static final String SSDSCANPANEL = "ssdscanpanel";
+    public static final String SSDSCANDETAILPANEL = "ssdscandetailpanel";
+    public static final String CACHEPANEL = "cachepanel";
+    public static final String CACHEDETAILPANEL = "cachedetailpanel";
     public static final String LAYOUT = "layout";
     public static final String TITLE_BAR = "titleBar";
     public static final String PAGE_HEADER = "pageHeader";
@@ -235,4 +255,10 @@ public class GlobalIds
     public static final String FIELD_1 = "field1";
     public static final String IS_JETTY_SERVER = "is-jetty-server";
     public static final String CONTEXT_ID_PROPERTY = "contextId";
+
+    /**
+     * Error id of the SecurityException thrown when a manager call can't be made or doesn't answer in time, see
+     * {@link org.apache.directory.fortress.web.control.Resilience}.  Follows the ids of the realm's GlobalIds.
+     */
+    public static final int MANAGER_UNAVAILABLE = 210;
 }
@@ -0,0 +1,219 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.apache.wicket.Application;
+import org.apache.wicket.ThreadContext;
+
+
+/**
+ * Base class for long running administrative tasks that must outlive the request that started them.  Pages are
+ * serialized between requests so they only hold on to the job id and poll its state with {@link #find(String)}.
+ * Finished jobs are dropped from the registry after {@link #RETENTION_MILLIS}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public abstract class BackgroundJob implements Runnable
+{
+    private static final Logger LOG = Logger.getLogger( BackgroundJob.class.getName() );
+    public static final long RETENTION_MILLIS = 60 * 60 * 1000L;
+    private static final Map<String, BackgroundJob> JOBS = new ConcurrentHashMap<>();
+
+    public enum State
+    {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED,
+        CANCELLED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String name;
+    private final Application application;
+    private final String tenant;
+    private volatile State state = State.PENDING;
+    private volatile String status = "";
+    private volatile boolean cancelled;
+    private volatile long startTime;
+    private volatile long endTime;
+
+
+    /**
+     * Must be constructed on a Wicket request thread so the application and the tenant are available to the job.
+     *
+     * @param name shown in the logs and in the worker thread name.
+     */
+    protected BackgroundJob( String name )
+    {
+        this.name = name;
+        this.application = Application.exists() ? Application.get() : null;
+        this.tenant = Tenants.get();
+    }
+
+
+    /**
+     * The work to be done.  Implementations should check {@link #isCancelled()} between units of work.
+     *
+     * @throws Exception on failure, the job is marked {@link State#FAILED} with the message as its status.
+     */
+    protected abstract void execute() throws Exception;
+
+
+    @Override
+    public final void run()
+    {
+        if ( application != null )
+        {
+            ThreadContext.setApplication( application );
+        }
+        Tenants.set( tenant );
+        state = State.RUNNING;
+        startTime = System.currentTimeMillis();
+        try
+        {
+            execute();
+            state = cancelled ? State.CANCELLED : State.DONE;
+        }
+        catch ( Exception e )
+        {
+            LOG.error( "BackgroundJob name=" + name + " caught Exception=" + e, e );
+            status = e.getMessage();
+            state = State.FAILED;
+        }
+        finally
+        {
+            endTime = System.currentTimeMillis();
+            ThreadContext.detach();
+            Tenants.set( null );
+        }
+    }
+
+
+    /**
+     * Register the job and start it on its own daemon thread.
+     *
+     * @param job to start.
+     * @return the id used to look up the job later.
+     */
+    public static String start( BackgroundJob job )
+    {
+        purge();
+        JOBS.put( job.getId(), job );
+        Thread thread = new Thread( job, "fortress-job-" + job.getName() );
+        thread.setDaemon( true );
+        thread.start();
+        LOG.info( "BackgroundJob started name=" + job.getName() + ", id=" + job.getId() );
+        return job.getId();
+    }
+
+
+    /**
+     * @param id returned from {@link #start(BackgroundJob)}.
+     * @return the job or null if it has never been started or has been purged.
+     */
+    public static BackgroundJob find( String id )
+    {
+        return id != null ? JOBS.get( id ) : null;
+    }
+
+
+    private static void purge()
+    {
+        long now = System.currentTimeMillis();
+        for ( Iterator<BackgroundJob> it = JOBS.values().iterator(); it.hasNext(); )
+        {
+            BackgroundJob job = it.next();
+            if ( job.isFinished() && now - job.endTime > RETENTION_MILLIS )
+            {
+                it.remove();
+            }
+        }
+    }
+
+
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+
+    public boolean isFinished()
+    {
+        return state == State.DONE || state == State.FAILED || state == State.CANCELLED;
+    }
+
+
+    public String getId()
+    {
+        return id;
+    }
+
+
+    public String getName()
+    {
+        return name;
+    }
+
+
+    public State getState()
+    {
+        return state;
+    }
+
+
+    public String getStatus()
+    {
+        return status;
+    }
+
+
+    protected void setStatus( String status )
+    {
+        this.status = status;
+    }
+
+
+    /**
+     * @return elapsed time in millis, measured to now if the job is still running.
+     */
+    public long getElapsed()
+    {
+        if ( startTime == 0 )
+        {
+            return 0;
+        }
+        return ( endTime != 0 ? endTime : System.currentTimeMillis() ) - startTime;
+    }
+}
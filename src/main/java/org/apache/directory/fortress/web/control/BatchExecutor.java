@@ -0,0 +1,228 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Application;
+import org.apache.wicket.ThreadContext;
+
+
+/**
+ * Runs a fortress operation over a list of entities using a bounded number of worker threads.  Entities are handed
+ * over one batch at a time and each batch completes before the next one is submitted so callers can control ordering
+ * between dependent groups of entities.  A failure on one entity is recorded in the {@link BatchResult} and does not
+ * stop the rest of the batch.
+ * <p>
+ * The Wicket application is bound to each worker thread so {@link org.apache.wicket.spring.injection.annot.SpringBean}
+ * proxies held by the caller can be resolved off of the request thread.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class BatchExecutor
+{
+    private static final Logger LOG = Logger.getLogger( BatchExecutor.class.getName() );
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int MAX_PARALLELISM = 32;
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+    private final ExecutorService executor;
+    private final Application application;
+    private final String tenant;
+    private final int parallelism;
+
+
+    /**
+     * The operation applied to every entity in the batch.
+     *
+     * @param <T> type of entity.
+     */
+    public interface Operation<T>
+    {
+        void execute( T entity ) throws SecurityException;
+    }
+
+
+    /**
+     * Must be called on a Wicket request thread so the current application and tenant can be handed to the workers.
+     *
+     * @param parallelism maximum number of concurrent calls to the directory, clamped to [1, {@link #MAX_PARALLELISM}].
+     */
+    public BatchExecutor( int parallelism )
+    {
+        this.parallelism = Math.max( 1, Math.min( parallelism, MAX_PARALLELISM ) );
+        this.application = Application.exists() ? Application.get() : null;
+        this.tenant = Tenants.get();
+        final String prefix = "fortress-batch-" + POOL_COUNT.incrementAndGet() + "-";
+        this.executor = Executors.newFixedThreadPool( this.parallelism, new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+
+            @Override
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, prefix + count.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+
+    /**
+     * Apply the operation to every entity in the batch and wait for all of them to complete.
+     *
+     * @param batch     entities to process.
+     * @param operation applied to each entity.
+     * @param result    receives a success or failure for every entity.
+     */
+    public <T extends Serializable> void execute( List<T> batch, final Operation<T> operation,
+        final BatchResult<T> result )
+    {
+        List<Future<?>> futures = new ArrayList<>( batch.size() );
+        for ( final T entity : batch )
+        {
+            futures.add( executor.submit( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if ( application != null )
+                    {
+                        ThreadContext.setApplication( application );
+                    }
+                    Tenants.set( tenant );
+                    try
+                    {
+                        operation.execute( entity );
+                        result.success();
+                    }
+                    catch ( SecurityException se )
+                    {
+                        LOG.debug( "execute entity=" + entity + " caught SecurityException=" + se );
+                        result.failure( entity, se.getErrorId(), se.getMessage() );
+                    }
+                    catch ( RuntimeException re )
+                    {
+                        LOG.warn( "execute entity=" + entity + " caught RuntimeException=" + re );
+                        result.failure( entity, 0, re.toString() );
+                    }
+                    finally
+                    {
+                        ThreadContext.detach();
+                        Tenants.set( null );
+                    }
+                }
+            } ) );
+        }
+        for ( Future<?> future : futures )
+        {
+            try
+            {
+                future.get();
+            }
+            catch ( InterruptedException ie )
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "execute interrupted", ie );
+            }
+            catch ( ExecutionException ee )
+            {
+                // Operation failures are recorded in the result, this only happens on an error in the runnable itself.
+                LOG.error( "execute caught ExecutionException=" + ee.getCause() );
+            }
+        }
+    }
+
+
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * Convenience for processing a list of entities in fixed size batches on a temporary pool.
+     *
+     * @param entities    all of the entities to process.
+     * @param batchSize   number of entities submitted at a time.
+     * @param parallelism maximum number of concurrent calls.
+     * @param operation   applied to each entity.
+     * @return the outcome of every entity.
+     */
+    public static <T extends Serializable> BatchResult<T> run( List<T> entities, int batchSize, int parallelism,
+        Operation<T> operation )
+    {
+        return run( entities, batchSize, parallelism, operation, new BatchResult<T>() );
+    }
+
+
+    /**
+     * Same as {@link #run(List, int, int, Operation)} filling a result the caller already holds, e.g. to report the
+     * progress of a background job while it runs.
+     *
+     * @param entities    all of the entities to process.
+     * @param batchSize   number of entities submitted at a time.
+     * @param parallelism maximum number of concurrent calls.
+     * @param operation   applied to each entity.
+     * @param result      receives a success or failure for every entity.
+     * @return the result.
+     */
+    public static <T extends Serializable> BatchResult<T> run( List<T> entities, int batchSize, int parallelism,
+        Operation<T> operation, BatchResult<T> result )
+    {
+        BatchExecutor batchExecutor = new BatchExecutor( parallelism );
+        int size = Math.max( 1, batchSize );
+        result.start();
+        try
+        {
+            for ( int i = 0; i < entities.size(); i += size )
+            {
+                batchExecutor.execute( entities.subList( i, Math.min( i + size, entities.size() ) ), operation,
+                    result );
+            }
+        }
+        finally
+        {
+            result.stop();
+            batchExecutor.shutdown();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Collects the outcome of a {@link BatchExecutor} run.  Counters are safe to update from the worker threads while the
+ * UI thread reads them for progress reporting.  Only the first {@link #MAX_FAILURES} failures are retained with their
+ * error and message so very large runs don't hold every message in memory, but every rejected entity and the number
+ * of failures of each error id are kept.
+ *
+ * @param <T> type of entity being processed.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class BatchResult<T extends Serializable> implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    public static final int MAX_FAILURES = 1000;
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final List<Failure<T>> failures = new ArrayList<>();
+    // guarded by failures, entities are compared by identity as the callers hold on to the instances they passed in
+    private final Set<T> failedEntities = Collections.newSetFromMap( new IdentityHashMap<T, Boolean>() );
+    private final Map<Integer, Integer> errorCounts = new HashMap<>();
+    private long startTime;
+    private long endTime;
+
+
+    public void start()
+    {
+        startTime = System.currentTimeMillis();
+        endTime = 0;
+    }
+
+
+    public void stop()
+    {
+        endTime = System.currentTimeMillis();
+    }
+
+
+    public void success()
+    {
+        succeeded.incrementAndGet();
+    }
+
+
+    public void failure( T entity, int errorId, String message )
+    {
+        failed.incrementAndGet();
+        synchronized ( failures )
+        {
+            failedEntities.add( entity );
+            Integer count = errorCounts.get( errorId );
+            errorCounts.put( errorId, count != null ? count + 1 : 1 );
+            if ( failures.size() < MAX_FAILURES )
+            {
+                failures.add( new Failure<>( entity, errorId, message ) );
+            }
+        }
+    }
+
+
+    public int getSucceeded()
+    {
+        return succeeded.get();
+    }
+
+
+    public int getFailed()
+    {
+        return failed.get();
+    }
+
+
+    /**
+     * @param errorId fortress error id, e.g. GlobalErrIds.SSD_VALIDATION_FAILED.
+     * @return number of entities rejected with that error, retained or not.
+     */
+    public int getFailed( int errorId )
+    {
+        synchronized ( failures )
+        {
+            Integer count = errorCounts.get( errorId );
+            return count != null ? count : 0;
+        }
+    }
+
+
+    public int getProcessed()
+    {
+        return succeeded.get() + failed.get();
+    }
+
+
+    public List<Failure<T>> getFailures()
+    {
+        synchronized ( failures )
+        {
+            return new ArrayList<>( failures );
+        }
+    }
+
+
+    /**
+     * @return every rejected entity, including those beyond {@link #MAX_FAILURES}.
+     */
+    public List<T> getFailedEntities()
+    {
+        synchronized ( failures )
+        {
+            return new ArrayList<>( failedEntities );
+        }
+    }
+
+
+    /**
+     * @param entity one of the entities that was processed.
+     * @return true if this exact instance failed, whether or not its failure is retained.
+     */
+    public boolean isFailed( T entity )
+    {
+        synchronized ( failures )
+        {
+            return failedEntities.contains( entity );
+        }
+    }
+
+
+    /**
+     * @return elapsed time in millis, measured to now if the run is still in progress.
+     */
+    public long getElapsed()
+    {
+        if ( startTime == 0 )
+        {
+            return 0;
+        }
+        return ( endTime != 0 ? endTime : System.currentTimeMillis() ) - startTime;
+    }
+
+
+    /**
+     * @return number of entities processed per second.
+     */
+    public long getThroughput()
+    {
+        long elapsed = getElapsed();
+        return elapsed > 0 ? getProcessed() * 1000L / elapsed : getProcessed();
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "processed=" + getProcessed() + ", succeeded=" + getSucceeded() + ", failed=" + getFailed() +
+            ", elapsed=" + getElapsed() + "ms, throughput=" + getThroughput() + "/s";
+    }
+
+
+    /**
+     * One rejected entity along with the fortress error id and message returned by the server.
+     */
+    public static class Failure<T extends Serializable> implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final T entity;
+        private final int errorId;
+        private final String message;
+
+
+        public Failure( T entity, int errorId, String message )
+        {
+            this.entity = entity;
+            this.errorId = errorId;
+            this.message = message;
+        }
+
+
+        public T getEntity()
+        {
+            return entity;
+        }
+
+
+        public int getErrorId()
+        {
+            return errorId;
+        }
+
+
+        public String getMessage()
+        {
+            return message;
+        }
+    }
+}
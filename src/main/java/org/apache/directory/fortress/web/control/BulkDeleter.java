@@ -0,0 +1,266 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ * Deletes many entities selected in a list panel.  Entities that take part in a hierarchy, i.e. have a parent or are
+ * the parent of another loaded entity, are deleted one at a time with the descendants ahead of their ascendants so
+ * every delete sees a consistent graph.  Everything else is deleted in batches with bounded parallelism.  A failure
+ * only affects the one entity.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class BulkDeleter
+{
+    private static final Logger LOG = Logger.getLogger( BulkDeleter.class.getName() );
+    private static final int MAX_REPORTED = 5;
+
+
+    /**
+     * Describes the hierarchy of entities such as roles or org units.
+     *
+     * @param <T> type of entity.
+     */
+    public interface Hierarchy<T>
+    {
+        String getName( T entity );
+
+
+        Set<String> getParents( T entity );
+    }
+
+
+    private BulkDeleter()
+    {
+    }
+
+
+    /**
+     * @param selected  entities to delete.
+     * @param loaded    all of the entities currently in the list, used to find the parents of selected entities.
+     * @param hierarchy null if the entities have no hierarchy.
+     * @param operation deletes one entity.
+     * @return the outcome of every entity.
+     */
+    public static <T extends Serializable> BatchResult<T> delete( List<T> selected, Collection<T> loaded,
+        Hierarchy<T> hierarchy, BatchExecutor.Operation<T> operation )
+    {
+        List<T> independent = new ArrayList<>();
+        List<T> dependent = new ArrayList<>();
+        if ( hierarchy == null )
+        {
+            independent.addAll( selected );
+        }
+        else
+        {
+            Set<String> parentNames = new HashSet<>();
+            addParents( parentNames, loaded, hierarchy );
+            addParents( parentNames, selected, hierarchy );
+            for ( T entity : selected )
+            {
+                Set<String> parents = hierarchy.getParents( entity );
+                if ( ( parents != null && !parents.isEmpty() ) || parentNames.contains( key( hierarchy.getName(
+                    entity ) ) ) )
+                {
+                    dependent.add( entity );
+                }
+                else
+                {
+                    independent.add( entity );
+                }
+            }
+            dependent = descendantsFirst( dependent, hierarchy );
+        }
+        BatchResult<T> result = new BatchResult<>();
+        BatchExecutor parallel = new BatchExecutor( BatchExecutor.DEFAULT_PARALLELISM );
+        BatchExecutor serial = new BatchExecutor( 1 );
+        result.start();
+        try
+        {
+            for ( int i = 0; i < independent.size(); i += BatchExecutor.DEFAULT_BATCH_SIZE )
+            {
+                parallel.execute( independent.subList( i, Math.min( i + BatchExecutor.DEFAULT_BATCH_SIZE,
+                    independent.size() ) ), operation, result );
+            }
+            if ( !dependent.isEmpty() )
+            {
+                serial.execute( dependent, operation, result );
+            }
+        }
+        finally
+        {
+            result.stop();
+            parallel.shutdown();
+            serial.shutdown();
+        }
+        LOG.info( "delete independent=" + independent.size() + ", dependent=" + dependent.size() + ", " + result );
+        return result;
+    }
+
+
+    /**
+     * @param result   returned from {@link #delete}.
+     * @param selected number of entities that were selected.
+     * @param type     name of the entity type used in the message, e.g. "roles".
+     * @return a message summarizing the outcome along with the first few failures.
+     */
+    public static <T extends Serializable> String getMessage( BatchResult<T> result, int selected, String type )
+    {
+        StringBuilder msg = new StringBuilder();
+        msg.append( "Deleted " ).append( result.getSucceeded() ).append( " of " ).append( selected ).append( ' ' )
+            .append( type ).append( " in " ).append( result.getElapsed() ).append( "ms" );
+        if ( result.getFailed() > 0 )
+        {
+            msg.append( ", " ).append( result.getFailed() ).append( " failed" );
+            int count = 0;
+            for ( BatchResult.Failure<T> failure : result.getFailures() )
+            {
+                if ( count++ == MAX_REPORTED )
+                {
+                    msg.append( " ..." );
+                    break;
+                }
+                msg.append( "; " ).append( failure.getMessage() );
+            }
+        }
+        return msg.toString();
+    }
+
+
+    /**
+     * Order the entities so that no entity comes before one of its descendants.  Entities that are part of a cycle
+     * are left in their original order at the end.  Each entity and parent is visited once, so thousands of selected
+     * entities are ordered in linear time.
+     */
+    private static <T> List<T> descendantsFirst( List<T> entities, Hierarchy<T> hierarchy )
+    {
+        // number of selected children of every name, an entity is a leaf once all of its children are ordered
+        Map<String, Integer> children = new HashMap<>();
+        Map<String, List<T>> byName = new LinkedHashMap<>();
+        for ( T entity : entities )
+        {
+            for ( String parent : getParents( entity, hierarchy ) )
+            {
+                Integer count = children.get( key( parent ) );
+                children.put( key( parent ), count != null ? count + 1 : 1 );
+            }
+            String name = key( hierarchy.getName( entity ) );
+            List<T> named = byName.get( name );
+            if ( named == null )
+            {
+                named = new ArrayList<>( 1 );
+                byName.put( name, named );
+            }
+            named.add( entity );
+        }
+        List<T> ordered = new ArrayList<>( entities.size() );
+        List<T> leaves = new ArrayList<>();
+        for ( T entity : entities )
+        {
+            if ( !children.containsKey( key( hierarchy.getName( entity ) ) ) )
+            {
+                leaves.add( entity );
+            }
+        }
+        while ( !leaves.isEmpty() )
+        {
+            ordered.addAll( leaves );
+            List<T> next = new ArrayList<>();
+            for ( T leaf : leaves )
+            {
+                for ( String parent : getParents( leaf, hierarchy ) )
+                {
+                    String name = key( parent );
+                    int count = children.get( name ) - 1;
+                    children.put( name, count );
+                    if ( count == 0 && byName.containsKey( name ) )
+                    {
+                        next.addAll( byName.get( name ) );
+                    }
+                }
+            }
+            leaves = next;
+        }
+        if ( ordered.size() < entities.size() )
+        {
+            Set<T> placed = Collections.newSetFromMap( new IdentityHashMap<T, Boolean>() );
+            placed.addAll( ordered );
+            for ( T entity : entities )
+            {
+                if ( !placed.contains( entity ) )
+                {
+                    ordered.add( entity );
+                }
+            }
+        }
+        return ordered;
+    }
+
+
+    private static <T> Set<String> getParents( T entity, Hierarchy<T> hierarchy )
+    {
+        Set<String> parents = hierarchy.getParents( entity );
+        return parents != null ? parents : Collections.<String>emptySet();
+    }
+
+
+    private static <T> void addParents( Set<String> parentNames, Collection<T> entities, Hierarchy<T> hierarchy )
+    {
+        if ( entities == null )
+        {
+            return;
+        }
+        for ( T entity : entities )
+        {
+            Set<String> parents = hierarchy.getParents( entity );
+            if ( parents != null )
+            {
+                for ( String parent : parents )
+                {
+                    parentNames.add( key( parent ) );
+                }
+            }
+        }
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+}
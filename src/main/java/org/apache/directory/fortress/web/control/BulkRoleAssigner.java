@@ -0,0 +1,306 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Assigns or deassigns one RBAC or administrative role to many users at once.  Every user receives a copy of the same
+ * temporal constraint.  Each assignment is its own call to the directory so a static separation of duty violation, or
+ * any other failure, only affects the one user and is reported in the result.  Large runs, e.g. every user matching a
+ * search, are started as a {@link Job} so the page can poll their progress instead of holding the request.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class BulkRoleAssigner
+{
+    private static final Logger LOG = Logger.getLogger( BulkRoleAssigner.class.getName() );
+
+
+    private BulkRoleAssigner()
+    {
+    }
+
+
+    /**
+     * @param users       to assign to, or deassign from, the role.
+     * @param constraint  contains the role name and the temporal constraint shared by every assignment.
+     * @param isAdmin     if true the role is an administrative role.
+     * @param isAssign    if true assign the role, otherwise deassign it.
+     * @param adminMgr    used for RBAC roles.
+     * @param delAdminMgr used for administrative roles.
+     * @return outcome of every user, the failures contain the {@link UserRole} that was rejected.
+     */
+    public static BatchResult<UserRole> execute( List<User> users, UserRole constraint, boolean isAdmin,
+        boolean isAssign, AdminMgr adminMgr, DelAdminMgr delAdminMgr )
+    {
+        return execute( users, constraint, isAdmin, isAssign, adminMgr, delAdminMgr, new BatchResult<UserRole>() );
+    }
+
+
+    private static BatchResult<UserRole> execute( List<User> users, UserRole constraint, final boolean isAdmin,
+        final boolean isAssign, final AdminMgr adminMgr, final DelAdminMgr delAdminMgr, BatchResult<UserRole> result )
+    {
+        List<UserRole> userRoles = new ArrayList<>( users.size() );
+        for ( User user : users )
+        {
+            UserRole userRole;
+            if ( isAdmin )
+            {
+                userRole = isAssign ? new UserAdminRole( user.getUserId(), constraint ) : new UserAdminRole( user
+                    .getUserId(), constraint.getName() );
+            }
+            else
+            {
+                userRole = isAssign ? new UserRole( user.getUserId(), constraint ) : new UserRole( user.getUserId(),
+                    constraint.getName() );
+            }
+            userRole.setName( constraint.getName() );
+            userRoles.add( userRole );
+        }
+        BatchExecutor.run( userRoles, BatchExecutor.DEFAULT_BATCH_SIZE, BatchExecutor.DEFAULT_PARALLELISM,
+            new BatchExecutor.Operation<UserRole>()
+            {
+                @Override
+                public void execute( UserRole userRole ) throws SecurityException
+                {
+                    if ( isAdmin && isAssign )
+                    {
+                        delAdminMgr.assignUser( ( UserAdminRole ) userRole );
+                    }
+                    else if ( isAdmin )
+                    {
+                        delAdminMgr.deassignUser( ( UserAdminRole ) userRole );
+                    }
+                    else if ( isAssign )
+                    {
+                        adminMgr.assignUser( userRole );
+                    }
+                    else
+                    {
+                        adminMgr.deassignUser( userRole );
+                    }
+                }
+            }, result );
+        LOG.info( "execute role=" + constraint.getName() + ", isAdmin=" + isAdmin + ", isAssign=" + isAssign + ", " +
+            result );
+        return result;
+    }
+
+
+    /**
+     * Apply the successful assignments to the cached users so the list reflects the change without another search.
+     *
+     * @param users      that were passed to {@link #execute}.
+     * @param constraint that was passed to {@link #execute}.
+     * @param isAdmin    that was passed to {@link #execute}.
+     * @param isAssign   that was passed to {@link #execute}.
+     * @param result     returned by {@link #execute}.
+     * @return one line per user describing the outcome.
+     */
+    public static List<String> apply( List<User> users, UserRole constraint, boolean isAdmin, boolean isAssign,
+        BatchResult<UserRole> result )
+    {
+        Map<String, BatchResult.Failure<UserRole>> failures = new HashMap<>();
+        for ( BatchResult.Failure<UserRole> failure : result.getFailures() )
+        {
+            failures.put( failure.getEntity().getUserId(), failure );
+        }
+        // every rejected user, the details above stop at BatchResult.MAX_FAILURES
+        Set<String> failed = new HashSet<>();
+        for ( UserRole userRole : result.getFailedEntities() )
+        {
+            failed.add( userRole.getUserId() );
+        }
+        List<String> report = new ArrayList<>( users.size() );
+        for ( User user : users )
+        {
+            if ( failed.contains( user.getUserId() ) )
+            {
+                BatchResult.Failure<UserRole> failure = failures.get( user.getUserId() );
+                if ( failure != null )
+                {
+                    String reason = isSsdViolation( failure ) ? "SSD violation" : "error " + failure.getErrorId();
+                    report.add( user.getUserId() + ": failed, " + reason + ", " + failure.getMessage() );
+                }
+                else
+                {
+                    report.add( user.getUserId() + ": failed, see log" );
+                }
+                continue;
+            }
+            if ( isAdmin )
+            {
+                UserAdminRole userAdminRole = new UserAdminRole( user.getUserId(), constraint );
+                userAdminRole.setName( constraint.getName() );
+                if ( isAssign )
+                {
+                    user.setAdminRole( userAdminRole );
+                }
+                else
+                {
+                    user.delAdminRole( userAdminRole );
+                }
+            }
+            else
+            {
+                UserRole userRole = new UserRole( user.getUserId(), constraint );
+                userRole.setName( constraint.getName() );
+                if ( isAssign )
+                {
+                    user.setRole( userRole );
+                }
+                else
+                {
+                    user.delRole( userRole );
+                }
+            }
+            report.add( user.getUserId() + ": " + ( isAssign ? "assigned" : "deassigned" ) );
+        }
+        return report;
+    }
+
+
+    /**
+     * @param result returned by {@link #execute}.
+     * @return number of assignments rejected because they would violate a static separation of duty set.
+     */
+    public static int getSsdViolations( BatchResult<UserRole> result )
+    {
+        return result.getFailed( GlobalErrIds.SSD_VALIDATION_FAILED );
+    }
+
+
+    private static boolean isSsdViolation( BatchResult.Failure<UserRole> failure )
+    {
+        return failure.getErrorId() == GlobalErrIds.SSD_VALIDATION_FAILED;
+    }
+
+
+    /**
+     * Runs {@link #execute} on its own thread.  Holds copies of the users so the page can be serialized while it runs,
+     * the page applies the outcome to its own users with {@link #apply} once the job has finished.
+     */
+    public static class Job extends BackgroundJob
+    {
+        private final List<User> users;
+        private final UserRole constraint;
+        private final boolean isAdmin;
+        private final boolean isAssign;
+        private final AdminMgr adminMgr;
+        private final DelAdminMgr delAdminMgr;
+        private final BatchResult<UserRole> result = new BatchResult<>();
+
+
+        /**
+         * Must be constructed on a Wicket request thread, see {@link BackgroundJob}.  The arguments are those of
+         * {@link #execute}.
+         */
+        public Job( List<User> users, UserRole constraint, boolean isAdmin, boolean isAssign, AdminMgr adminMgr,
+            DelAdminMgr delAdminMgr )
+        {
+            super( "bulk-role-" + constraint.getName() );
+            this.users = new ArrayList<>( users );
+            // copied, the page may edit its constraint while the job runs
+            this.constraint = new UserRole( null, constraint );
+            this.constraint.setName( constraint.getName() );
+            this.isAdmin = isAdmin;
+            this.isAssign = isAssign;
+            this.adminMgr = adminMgr;
+            this.delAdminMgr = delAdminMgr;
+        }
+
+
+        @Override
+        protected void execute() throws Exception
+        {
+            setStatus( ( isAssign ? "Assigning " : "Deassigning " ) + constraint.getName() );
+            BulkRoleAssigner.execute( users, constraint, isAdmin, isAssign, adminMgr, delAdminMgr, result );
+            setStatus( result.toString() );
+        }
+
+
+        /**
+         * @return number of users in the run.
+         */
+        public int getTotal()
+        {
+            return users.size();
+        }
+
+
+        /**
+         * @return ids of the users in the run.
+         */
+        public Set<String> getUserIds()
+        {
+            Set<String> userIds = new HashSet<>();
+            for ( User user : users )
+            {
+                userIds.add( user.getUserId() );
+            }
+            return userIds;
+        }
+
+
+        /**
+         * @return the outcome so far, complete once the job has finished.
+         */
+        public BatchResult<UserRole> getResult()
+        {
+            return result;
+        }
+
+
+        public UserRole getConstraint()
+        {
+            return constraint;
+        }
+
+
+        public boolean isAdmin()
+        {
+            return isAdmin;
+        }
+
+
+        public boolean isAssign()
+        {
+            return isAssign;
+        }
+    }
+}
@@ -0,0 +1,693 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.Statistics;
+import net.sf.ehcache.Status;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.event.CacheEventListener;
+import net.sf.ehcache.event.CacheManagerEventListener;
+import net.sf.ehcache.management.ManagementService;
+
+import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Statistics and runtime sizing of the fortress caches of ehcache.xml, shown on the CachePage and over JMX.  The
+ * limits of ehcache.xml are guesses made for a single small tenant, this shows how they hold up:
+ * <ul>
+ * <li>hits, misses and evictions are counted by ehcache, statistics are turned on for every fortress cache,</li>
+ * <li>the working set is the number of distinct keys loaded into a cache within its time to live, at least the number
+ * of entries it holds.  An entry is loaded again at least once per time to live while it is in use, so that is the
+ * number of entries the cache must hold for no entry in use to be evicted.  The suggested size adds a quarter to
+ * it.</li>
+ * </ul>
+ * The limits and time to live of a cache can be changed while it runs, as ehcache.xml allows with dynamicConfig.  A
+ * change isn't written back to ehcache.xml and is lost on restart.  Resizing the cache of the default tenant also sets
+ * the quota of the tenant partitions created after it, see {@link TenantCaches}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class CacheConsole
+{
+    private static final Logger LOG = Logger.getLogger( CacheConsole.class.getName() );
+    public static final String OBJECT_NAME = "org.apache.directory.fortress.web:type=CacheConsole";
+    private static final String CACHE_PREFIX = "fortress.";
+    private static final double HEADROOM = 1.25;
+    // the working set of a cache whose entries never expire is measured over this window
+    private static final long DEFAULT_WINDOW_SECONDS = 600;
+    private static final int MAX_TRACKED_KEYS = 100000;
+    private static final Map<String, WorkingSet> WORKING_SETS = new ConcurrentHashMap<>();
+
+
+    private CacheConsole()
+    {
+    }
+
+
+    /**
+     * Turn on the statistics of the fortress caches and register them, and this console, with the platform MBean
+     * server.  Caches added later, e.g. the partitions of a new tenant, are picked up as they are created.
+     */
+    public static void install()
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            // loads ehcache.xml
+            CacheMgr.getInstance();
+            for ( CacheManager manager : new ArrayList<>( CacheManager.ALL_CACHE_MANAGERS ) )
+            {
+                install( manager );
+                try
+                {
+                    ManagementService.registerMBeans( manager, server, true, true, true, true );
+                }
+                catch ( CacheException e )
+                {
+                    // e.g. registered already by another application of this server
+                    LOG.warn( "install ehcache MBeans of " + manager.getName() + " not registered: " + e );
+                }
+            }
+        }
+        catch ( RuntimeException e )
+        {
+            LOG.error( "install caught Exception=" + e, e );
+        }
+        try
+        {
+            ObjectName name = new ObjectName( OBJECT_NAME );
+            if ( !server.isRegistered( name ) )
+            {
+                server.registerMBean( new StandardMBean( new Management(), CacheConsoleMBean.class ), name );
+            }
+        }
+        catch ( JMException e )
+        {
+            LOG.warn( "install " + OBJECT_NAME + " not registered: " + e );
+        }
+    }
+
+
+    /**
+     * Unregister this console from the platform MBean server.
+     */
+    public static void uninstall()
+    {
+        try
+        {
+            ObjectName name = new ObjectName( OBJECT_NAME );
+            if ( ManagementFactory.getPlatformMBeanServer().isRegistered( name ) )
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean( name );
+            }
+        }
+        catch ( JMException e )
+        {
+            LOG.warn( "uninstall " + OBJECT_NAME + " not unregistered: " + e );
+        }
+    }
+
+
+    /**
+     * Track the fortress caches of a cache manager, now and as they are added.
+     *
+     * @param manager holding fortress caches.
+     */
+    static void install( final CacheManager manager )
+    {
+        for ( String name : manager.getCacheNames() )
+        {
+            track( manager, name );
+        }
+        manager.getCacheManagerEventListenerRegistry().registerListener( new CacheManagerEventListener()
+        {
+            private volatile Status status = Status.STATUS_UNINITIALISED;
+
+
+            @Override
+            public void init()
+            {
+                status = Status.STATUS_ALIVE;
+            }
+
+
+            @Override
+            public Status getStatus()
+            {
+                return status;
+            }
+
+
+            @Override
+            public void dispose()
+            {
+                status = Status.STATUS_SHUTDOWN;
+            }
+
+
+            @Override
+            public void notifyCacheAdded( String name )
+            {
+                track( manager, name );
+            }
+
+
+            @Override
+            public void notifyCacheRemoved( String name )
+            {
+                WORKING_SETS.remove( name );
+            }
+        } );
+    }
+
+
+    private static void track( CacheManager manager, String name )
+    {
+        if ( !name.startsWith( CACHE_PREFIX ) || WORKING_SETS.containsKey( name ) )
+        {
+            return;
+        }
+        Ehcache cache = manager.getEhcache( name );
+        if ( cache == null )
+        {
+            return;
+        }
+        cache.setStatisticsEnabled( true );
+        WorkingSet workingSet = new WorkingSet();
+        if ( WORKING_SETS.putIfAbsent( name, workingSet ) == null )
+        {
+            cache.getCacheEventNotificationService().registerListener( workingSet );
+        }
+    }
+
+
+    /**
+     * @return every fortress cache, tenant partitions included, by name.
+     */
+    public static List<Region> getRegions()
+    {
+        List<Region> regions = new ArrayList<>();
+        for ( CacheManager manager : new ArrayList<>( CacheManager.ALL_CACHE_MANAGERS ) )
+        {
+            if ( manager.getStatus() != Status.STATUS_ALIVE )
+            {
+                continue;
+            }
+            for ( String name : manager.getCacheNames() )
+            {
+                Ehcache cache = manager.getEhcache( name );
+                if ( name.startsWith( CACHE_PREFIX ) && cache != null )
+                {
+                    regions.add( new Region( cache, WORKING_SETS.get( name ) ) );
+                }
+            }
+        }
+        Collections.sort( regions, new Comparator<Region>()
+        {
+            @Override
+            public int compare( Region r1, Region r2 )
+            {
+                return r1.getName().compareTo( r2.getName() );
+            }
+        } );
+        return regions;
+    }
+
+
+    /**
+     * @param name of the cache.
+     * @return its current state, null if there is no fortress cache of that name.
+     */
+    public static Region getRegion( String name )
+    {
+        Ehcache cache = name != null && name.startsWith( CACHE_PREFIX ) ? find( name ) : null;
+        return cache != null ? new Region( cache, WORKING_SETS.get( name ) ) : null;
+    }
+
+
+    /**
+     * @param name       of the cache.
+     * @param maxEntries new limit of the entries held in memory, evicted down to on their next put if lowered.
+     * @throws IllegalArgumentException if there is no fortress cache of that name or the limit isn't positive.
+     */
+    public static void resize( String name, long maxEntries )
+    {
+        if ( maxEntries <= 0 )
+        {
+            throw new IllegalArgumentException( "maxEntries must be positive: " + maxEntries );
+        }
+        getConfiguration( name ).setMaxEntriesLocalHeap( maxEntries );
+        LOG.info( "resize cache " + name + " to " + maxEntries + " entries" );
+    }
+
+
+    /**
+     * @param name    of the cache.
+     * @param seconds new time to live of its entries, 0 for no limit.
+     * @throws IllegalArgumentException if there is no fortress cache of that name or the time is negative.
+     */
+    public static void setTimeToLive( String name, long seconds )
+    {
+        if ( seconds < 0 )
+        {
+            throw new IllegalArgumentException( "time to live can't be negative: " + seconds );
+        }
+        getConfiguration( name ).setTimeToLiveSeconds( seconds );
+        LOG.info( "setTimeToLive cache " + name + " to " + seconds + "s" );
+    }
+
+
+    /**
+     * @param name    of the cache.
+     * @param seconds new time to idle of its entries, 0 for no limit.
+     * @throws IllegalArgumentException if there is no fortress cache of that name or the time is negative.
+     */
+    public static void setTimeToIdle( String name, long seconds )
+    {
+        if ( seconds < 0 )
+        {
+            throw new IllegalArgumentException( "time to idle can't be negative: " + seconds );
+        }
+        getConfiguration( name ).setTimeToIdleSeconds( seconds );
+        LOG.info( "setTimeToIdle cache " + name + " to " + seconds + "s" );
+    }
+
+
+    /**
+     * Resize every cache whose suggested size differs from its limit.
+     *
+     * @return number of caches resized.
+     */
+    public static int applySuggestedSizes()
+    {
+        int resized = 0;
+        for ( Region region : getRegions() )
+        {
+            if ( region.getSuggestedSize() != region.getMaxEntries() )
+            {
+                resize( region.getName(), region.getSuggestedSize() );
+                resized++;
+            }
+        }
+        return resized;
+    }
+
+
+    /**
+     * Start counting hits, misses, evictions and the working sets anew.
+     */
+    public static void clearStatistics()
+    {
+        for ( CacheManager manager : new ArrayList<>( CacheManager.ALL_CACHE_MANAGERS ) )
+        {
+            for ( String name : manager.getCacheNames() )
+            {
+                Ehcache cache = manager.getEhcache( name );
+                if ( name.startsWith( CACHE_PREFIX ) && cache != null )
+                {
+                    cache.clearStatistics();
+                }
+            }
+        }
+        for ( WorkingSet workingSet : WORKING_SETS.values() )
+        {
+            workingSet.clear();
+        }
+    }
+
+
+    /**
+     * @param workingSet distinct keys loaded within the time to live, 0 if none were observed.
+     * @param maxEntries current limit.
+     * @return the suggested limit, the current one if nothing was observed.
+     */
+    static long suggest( long workingSet, long maxEntries )
+    {
+        if ( workingSet <= 0 )
+        {
+            return maxEntries;
+        }
+        return Math.max( 1, ( long ) Math.ceil( workingSet * HEADROOM ) );
+    }
+
+
+    private static CacheConfiguration getConfiguration( String name )
+    {
+        Ehcache cache = name != null && name.startsWith( CACHE_PREFIX ) ? find( name ) : null;
+        if ( cache == null )
+        {
+            throw new IllegalArgumentException( "No fortress cache named " + name );
+        }
+        return cache.getCacheConfiguration();
+    }
+
+
+    private static Ehcache find( String name )
+    {
+        for ( CacheManager manager : new ArrayList<>( CacheManager.ALL_CACHE_MANAGERS ) )
+        {
+            if ( manager.getStatus() == Status.STATUS_ALIVE && manager.cacheExists( name ) )
+            {
+                return manager.getEhcache( name );
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Snapshot of one cache.
+     */
+    public static final class Region implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String name;
+        private final long size;
+        private final long maxEntries;
+        private final long timeToLive;
+        private final long timeToIdle;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long workingSet;
+
+
+        Region( Ehcache cache, WorkingSet tracked )
+        {
+            CacheConfiguration configuration = cache.getCacheConfiguration();
+            Statistics statistics = cache.getStatistics();
+            name = cache.getName();
+            size = cache.getSize();
+            maxEntries = configuration.getMaxEntriesLocalHeap();
+            timeToLive = configuration.isEternal() ? 0 : configuration.getTimeToLiveSeconds();
+            timeToIdle = configuration.isEternal() ? 0 : configuration.getTimeToIdleSeconds();
+            hits = statistics.getCacheHits();
+            misses = statistics.getCacheMisses();
+            evictions = statistics.getEvictionCount();
+            // entries loaded before the statistics were last cleared are only counted once reloaded
+            workingSet = Math.max( size, tracked != null ? tracked.getSize( configuration ) : 0 );
+        }
+
+
+        public String getName()
+        {
+            return name;
+        }
+
+
+        public long getSize()
+        {
+            return size;
+        }
+
+
+        public long getMaxEntries()
+        {
+            return maxEntries;
+        }
+
+
+        public long getTimeToLive()
+        {
+            return timeToLive;
+        }
+
+
+        public long getTimeToIdle()
+        {
+            return timeToIdle;
+        }
+
+
+        public long getHits()
+        {
+            return hits;
+        }
+
+
+        public long getMisses()
+        {
+            return misses;
+        }
+
+
+        public long getEvictions()
+        {
+            return evictions;
+        }
+
+
+        /**
+         * @return percent of the reads that were hits, 0 if there were none.
+         */
+        public long getHitRatio()
+        {
+            return hits + misses > 0 ? Math.round( 100.0 * hits / ( hits + misses ) ) : 0;
+        }
+
+
+        public long getWorkingSet()
+        {
+            return workingSet;
+        }
+
+
+        public long getSuggestedSize()
+        {
+            return suggest( workingSet, maxEntries );
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return String.format( "%s: %d/%d entries, ttl %ds, tti %ds, %d hits, %d misses (%d%%), %d evictions, "
+                + "working set %d, suggested %d", name, size, maxEntries, timeToLive, timeToIdle, hits, misses,
+                getHitRatio(), evictions, workingSet, getSuggestedSize() );
+        }
+    }
+
+
+    /**
+     * Counts the distinct keys put into a cache per window of its time to live.  The size is the larger count of the
+     * current and the previous window, so it doesn't drop to nothing each time a window starts.
+     */
+    static final class WorkingSet implements CacheEventListener
+    {
+        private final Set<Object> keys = Collections.newSetFromMap( new ConcurrentHashMap<Object, Boolean>() );
+        private volatile long windowStart = System.currentTimeMillis();
+        private volatile int previous;
+
+
+        /**
+         * @param configuration of the cache, its time to live or idle is the window.
+         * @return distinct keys put within the window.
+         */
+        int getSize( CacheConfiguration configuration )
+        {
+            rotate( configuration );
+            return Math.max( previous, keys.size() );
+        }
+
+
+        synchronized void clear()
+        {
+            keys.clear();
+            previous = 0;
+            windowStart = System.currentTimeMillis();
+        }
+
+
+        private void record( Ehcache cache, Element element )
+        {
+            rotate( cache.getCacheConfiguration() );
+            // past the cap the count stops growing, the suggestion is off by far more than the keys tracked anyway
+            if ( keys.size() < MAX_TRACKED_KEYS )
+            {
+                keys.add( element.getObjectKey() );
+            }
+        }
+
+
+        private void rotate( CacheConfiguration configuration )
+        {
+            long now = System.currentTimeMillis();
+            long window = getWindowSeconds( configuration ) * 1000;
+            if ( now - windowStart < window )
+            {
+                return;
+            }
+            synchronized ( this )
+            {
+                if ( now - windowStart >= window )
+                {
+                    // a whole window without puts means nothing was loaded in the previous one either
+                    previous = now - windowStart < 2 * window ? keys.size() : 0;
+                    keys.clear();
+                    windowStart = now;
+                }
+            }
+        }
+
+
+        private static long getWindowSeconds( CacheConfiguration configuration )
+        {
+            if ( !configuration.isEternal() && configuration.getTimeToLiveSeconds() > 0 )
+            {
+                return configuration.getTimeToLiveSeconds();
+            }
+            if ( !configuration.isEternal() && configuration.getTimeToIdleSeconds() > 0 )
+            {
+                return configuration.getTimeToIdleSeconds();
+            }
+            return DEFAULT_WINDOW_SECONDS;
+        }
+
+
+        @Override
+        public void notifyElementPut( Ehcache cache, Element element )
+        {
+            record( cache, element );
+        }
+
+
+        @Override
+        public void notifyElementUpdated( Ehcache cache, Element element )
+        {
+            record( cache, element );
+        }
+
+
+        @Override
+        public void notifyElementRemoved( Ehcache cache, Element element )
+        {
+        }
+
+
+        @Override
+        public void notifyElementExpired( Ehcache cache, Element element )
+        {
+        }
+
+
+        @Override
+        public void notifyElementEvicted( Ehcache cache, Element element )
+        {
+        }
+
+
+        @Override
+        public void notifyRemoveAll( Ehcache cache )
+        {
+        }
+
+
+        @Override
+        public void dispose()
+        {
+        }
+
+
+        @Override
+        public Object clone() throws CloneNotSupportedException
+        {
+            // the counts belong to the cache the listener was registered with
+            throw new CloneNotSupportedException( "WorkingSet is bound to one cache" );
+        }
+    }
+
+
+    /**
+     * Registered with the MBean server, delegates to the console.
+     */
+    private static final class Management implements CacheConsoleMBean
+    {
+        @Override
+        public String[] getRegions()
+        {
+            List<Region> regions = CacheConsole.getRegions();
+            String[] lines = new String[regions.size()];
+            for ( int i = 0; i < lines.length; i++ )
+            {
+                lines[i] = regions.get( i ).toString();
+            }
+            return lines;
+        }
+
+
+        @Override
+        public void resize( String cache, long maxEntries )
+        {
+            CacheConsole.resize( cache, maxEntries );
+        }
+
+
+        @Override
+        public void setTimeToLive( String cache, long seconds )
+        {
+            CacheConsole.setTimeToLive( cache, seconds );
+        }
+
+
+        @Override
+        public void setTimeToIdle( String cache, long seconds )
+        {
+            CacheConsole.setTimeToIdle( cache, seconds );
+        }
+
+
+        @Override
+        public int applySuggestedSizes()
+        {
+            return CacheConsole.applySuggestedSizes();
+        }
+
+
+        @Override
+        public void clearStatistics()
+        {
+            CacheConsole.clearStatistics();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+/**
+ * JMX view of {@link CacheConsole}, registered as {@link CacheConsole#OBJECT_NAME}.  The statistics and
+ * configuration of every cache are also registered by ehcache itself under net.sf.ehcache.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public interface CacheConsoleMBean
+{
+    /**
+     * @return one line per fortress cache: size, limits, hits, misses, evictions, working set and suggested size.
+     */
+    String[] getRegions();
+
+
+    /**
+     * @param cache      name of the cache, e.g. fortress.roles or fortress.roles@ACME.
+     * @param maxEntries new limit of the entries held in memory.
+     */
+    void resize( String cache, long maxEntries );
+
+
+    /**
+     * @param cache   name of the cache.
+     * @param seconds new time to live of its entries, 0 for no limit.
+     */
+    void setTimeToLive( String cache, long seconds );
+
+
+    /**
+     * @param cache   name of the cache.
+     * @param seconds new time to idle of its entries, 0 for no limit.
+     */
+    void setTimeToIdle( String cache, long seconds );
+
+
+    /**
+     * @return number of caches resized to their suggested size.
+     */
+    int applySuggestedSizes();
+
+
+    /**
+     * Start counting hits, misses, evictions and the working sets anew.
+     */
+    void clearStatistics();
+}
@@ -0,0 +1,256 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Distinguished name held as its leaf RDN plus a reference to a suffix shared through a per tenant table.  The
+ * members of a group or the targets of audit records all live under the same few containers, e.g.
+ * ou=People,dc=example,dc=com, so a list of them keeps one copy of each suffix instead of one per entry.  The leaf is
+ * kept as UTF-8 bytes which halves it again for the usual ASCII names.
+ * <p>
+ * The full name is rebuilt by {@link #toString} when needed, nothing is cached so a large list stays compact while it
+ * sits in the page store.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class CompactDn implements Serializable, Comparable<CompactDn>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    /** Suffixes kept per tenant, beyond that a name gets a suffix of its own so odd data can't grow the table. */
+    static final int MAX_SUFFIXES = 1024;
+    private static final Map<String, Map<String, Suffix>> SUFFIXES = new ConcurrentHashMap<>();
+    private final byte[] leaf;
+    private final Suffix suffix;
+
+
+    private CompactDn( byte[] leaf, Suffix suffix )
+    {
+        this.leaf = leaf;
+        this.suffix = suffix;
+    }
+
+
+    /**
+     * @param dn distinguished name.
+     * @return the compact name with its suffix shared in the table of the current tenant, null if dn is null.
+     */
+    public static CompactDn valueOf( String dn )
+    {
+        return dn == null ? null : valueOf( getTenant(), dn );
+    }
+
+
+    /**
+     * Use this one when converting a whole list so the tenant is only looked up once.
+     *
+     * @param tenant as returned by {@link #getTenant}.
+     * @param dn     distinguished name.
+     * @return the compact name with its suffix shared in the table of the tenant, null if dn is null.
+     */
+    public static CompactDn valueOf( String tenant, String dn )
+    {
+        if ( dn == null )
+        {
+            return null;
+        }
+        int split = getLeafEnd( dn );
+        if ( split == dn.length() )
+        {
+            return new CompactDn( dn.getBytes( StandardCharsets.UTF_8 ), null );
+        }
+        return new CompactDn( dn.substring( 0, split ).getBytes( StandardCharsets.UTF_8 ), Suffix.intern( tenant,
+            dn.substring( split + 1 ) ) );
+    }
+
+
+    /**
+     * @return the id of the current tenant, the key of its suffix table.
+     */
+    public static String getTenant()
+    {
+        return Tenants.get();
+    }
+
+
+    /**
+     * @param tenant id of the tenant.
+     * @return number of suffixes shared by the tenant.
+     */
+    public static int getSuffixCount( String tenant )
+    {
+        Map<String, Suffix> table = SUFFIXES.get( tenant );
+        return table != null ? table.size() : 0;
+    }
+
+
+    /**
+     * @return the leaf RDN, e.g. uid=jdoe.
+     */
+    public String getLeaf()
+    {
+        return new String( leaf, StandardCharsets.UTF_8 );
+    }
+
+
+    /**
+     * @return the value of the leaf RDN as written in the name, e.g. jdoe, escapes are kept.
+     */
+    public String getLeafValue()
+    {
+        String rdn = getLeaf();
+        return rdn.substring( rdn.indexOf( '=' ) + 1 );
+    }
+
+
+    /**
+     * @return the name of the container, e.g. ou=People,dc=example,dc=com, null if the name has a single RDN.
+     */
+    public String getSuffix()
+    {
+        return suffix != null ? suffix.name : null;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        String rdn = getLeaf();
+        return suffix != null ? rdn + ',' + suffix.name : rdn;
+    }
+
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( !( o instanceof CompactDn ) )
+        {
+            return false;
+        }
+        CompactDn that = ( CompactDn ) o;
+        return Arrays.equals( leaf, that.leaf ) && ( suffix == null ? that.suffix == null : that.suffix != null &&
+            suffix.name.equals( that.suffix.name ) );
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Arrays.hashCode( leaf ) + ( suffix != null ? suffix.name.hashCode() : 0 );
+    }
+
+
+    /**
+     * Same order as comparing the full names ignoring case, the order the member lists are shown in.
+     */
+    @Override
+    public int compareTo( CompactDn that )
+    {
+        return toString().compareToIgnoreCase( that.toString() );
+    }
+
+
+    /**
+     * @param dn distinguished name.
+     * @return position of the comma ending the leaf RDN, the length of dn if there is none.
+     */
+    private static int getLeafEnd( String dn )
+    {
+        for ( int i = 0; i < dn.length(); i++ )
+        {
+            char c = dn.charAt( i );
+            if ( c == '\\' )
+            {
+                // an escaped comma is part of the value
+                i++;
+            }
+            else if ( c == ',' )
+            {
+                return i;
+            }
+        }
+        return dn.length();
+    }
+
+
+    /**
+     * Container name shared by every {@link CompactDn} of a tenant below it.
+     */
+    private static final class Suffix implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String tenant;
+        private final String name;
+
+
+        private Suffix( String tenant, String name )
+        {
+            this.tenant = tenant;
+            this.name = name;
+        }
+
+
+        static Suffix intern( String tenant, String name )
+        {
+            Map<String, Suffix> table = SUFFIXES.get( tenant );
+            if ( table == null )
+            {
+                table = new ConcurrentHashMap<>();
+                Map<String, Suffix> existing = SUFFIXES.putIfAbsent( tenant, table );
+                table = existing != null ? existing : table;
+            }
+            Suffix suffix = table.get( name );
+            if ( suffix == null )
+            {
+                suffix = new Suffix( tenant, name );
+                if ( table.size() < MAX_SUFFIXES )
+                {
+                    Suffix existing = table.putIfAbsent( name, suffix );
+                    suffix = existing != null ? existing : suffix;
+                }
+            }
+            return suffix;
+        }
+
+
+        /**
+         * A page read back from the store shares its suffixes again.
+         */
+        private Object readResolve() throws ObjectStreamException
+        {
+            return intern( tenant, name );
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+import org.apache.wicket.markup.head.HeaderItem;
+import org.apache.wicket.markup.head.IReferenceHeaderItem;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.resource.bundles.ConcatBundleResource;
+import org.apache.wicket.resource.bundles.ConcatResourceBundleReference;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+import org.apache.wicket.util.time.Time;
+
+
+/**
+ * Resource bundle that is sent gzipped to browsers accepting it.  The bundle is compressed once and kept until one of
+ * its resources changes, so a request costs no more than the uncompressed one.  Register it with
+ * {@link org.apache.wicket.ResourceBundles#addBundle}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class CompressedBundleReference<T extends HeaderItem & IReferenceHeaderItem> extends
+    ConcatResourceBundleReference<T>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( CompressedBundleReference.class.getName() );
+    private static final String GZIP = "gzip";
+    private transient volatile Compressed compressed;
+
+
+    /**
+     * @param scope     class the bundle's url is relative to.
+     * @param name      of the bundle, e.g. fortress.js.
+     * @param resources header items the bundle replaces, in the order they are concatenated.
+     */
+    public CompressedBundleReference( Class<?> scope, String name, List<T> resources )
+    {
+        super( scope, name, resources );
+    }
+
+
+    @Override
+    public IResource getResource()
+    {
+        ConcatBundleResource resource = new ConcatBundleResource( getProvidedResources() )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected ResourceResponse newResourceResponse( Attributes attributes )
+            {
+                ResourceResponse response = super.newResourceResponse( attributes );
+                response.getHeaders().addHeader( "Vary", "Accept-Encoding" );
+                if ( response.getWriteCallback() == null || !acceptsGzip( attributes ) )
+                {
+                    return response;
+                }
+                final byte[] data = getCompressed( this, response.getLastModified() );
+                if ( data != null )
+                {
+                    response.getHeaders().addHeader( "Content-Encoding", GZIP );
+                    response.setContentLength( data.length );
+                    response.setWriteCallback( new WriteCallback()
+                    {
+                        @Override
+                        public void writeData( Attributes attributes )
+                        {
+                            attributes.getResponse().write( data );
+                        }
+                    } );
+                }
+                return response;
+            }
+        };
+        if ( getCompressor() != null )
+        {
+            resource.setCompressor( getCompressor() );
+        }
+        return resource;
+    }
+
+
+    private static boolean acceptsGzip( IResource.Attributes attributes )
+    {
+        if ( !( attributes.getRequest() instanceof WebRequest ) )
+        {
+            return false;
+        }
+        String encodings = ( ( WebRequest ) attributes.getRequest() ).getHeader( "Accept-Encoding" );
+        return encodings != null && encodings.toLowerCase().contains( GZIP );
+    }
+
+
+    /**
+     * @return the gzipped bundle or null if it can't be read, the bundle is sent uncompressed then.
+     */
+    private byte[] getCompressed( ConcatBundleResource resource, Time lastModified )
+    {
+        Compressed current = compressed;
+        if ( current != null && ( lastModified == null || lastModified.equals( current.lastModified ) ) )
+        {
+            return current.data;
+        }
+        IResourceStream stream = resource.getResourceStream();
+        if ( stream == null )
+        {
+            return null;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try ( InputStream in = stream.getInputStream(); GZIPOutputStream out = new GZIPOutputStream( buffer ) )
+        {
+            out.write( IOUtils.toByteArray( in ) );
+        }
+        catch ( IOException | ResourceStreamNotFoundException e )
+        {
+            LOG.warn( "getCompressed sending " + getName() + " uncompressed: " + e );
+            return null;
+        }
+        finally
+        {
+            try
+            {
+                stream.close();
+            }
+            catch ( IOException e )
+            {
+                LOG.debug( "getCompressed close failed: " + e );
+            }
+        }
+        compressed = new Compressed( lastModified, buffer.toByteArray() );
+        return compressed.data;
+    }
+
+
+    private static class Compressed
+    {
+        private final Time lastModified;
+        private final byte[] data;
+
+
+        Compressed( Time lastModified, byte[] data )
+        {
+            this.lastModified = lastModified;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.resource.ContextRelativeResource;
+import org.apache.wicket.request.resource.ContextRelativeResourceReference;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+import org.apache.wicket.util.resource.StringResourceStream;
+
+
+/**
+ * Style sheet of the web application folder, i.e. src/main/webapp, that can be part of a resource bundle.  The url a
+ * bundle is served from has nothing to do with the style sheet's folder, so its relative urls are made absolute when
+ * read.  Images of the web application folder get the url of their {@link ContextRelativeResourceReference}, which
+ * carries a version and is cached by the browser for good, provided the reference is registered with the
+ * application, see {@link StaticResources}.  Comments, other than license notes, and runs of white space are removed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class ContextCssReference extends ContextRelativeResourceReference
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( ContextCssReference.class.getName() );
+    private static final String CSS = "text/css";
+    private static final Pattern URL = Pattern.compile( "url\\(\\s*(['\"]?)([^'\")]+)\\1\\s*\\)" );
+    private static final Pattern COMMENT = Pattern.compile( "/\\*.*?\\*/", Pattern.DOTALL );
+    private static final Pattern SPACE = Pattern.compile( "\\s+" );
+    private static final Pattern SPACE_AROUND = Pattern.compile( " ?([{};]) ?" );
+
+
+    /**
+     * @param path of the style sheet in the web application folder, e.g. css/camo-style.css.
+     */
+    public ContextCssReference( String path )
+    {
+        super( path, false );
+    }
+
+
+    @Override
+    protected ContextRelativeResource buildContextRelativeResource( final String path, String minPostfix )
+    {
+        return new ContextRelativeResource( path )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public IResourceStream getResourceStream()
+            {
+                IResourceStream original = super.getResourceStream();
+                if ( original == null )
+                {
+                    return null;
+                }
+                String css;
+                try ( InputStream in = original.getInputStream() )
+                {
+                    css = new String( IOUtils.toByteArray( in ), StandardCharsets.UTF_8 );
+                }
+                catch ( IOException | ResourceStreamNotFoundException e )
+                {
+                    LOG.warn( "getResourceStream can't read " + path + ": " + e );
+                    return original;
+                }
+                StringResourceStream stream = new StringResourceStream( minify( rewrite( css, path ) ), CSS );
+                stream.setCharset( StandardCharsets.UTF_8 );
+                // otherwise the bundle would look modified on every request
+                stream.setLastModified( original.lastModifiedTime() );
+                return stream;
+            }
+        };
+    }
+
+
+    /**
+     * @param css  content of the style sheet.
+     * @param path of the style sheet in the web application folder.
+     * @return the style sheet with its relative urls made absolute.
+     */
+    static String rewrite( String css, String path )
+    {
+        String folder = path.lastIndexOf( '/' ) >= 0 ? path.substring( 0, path.lastIndexOf( '/' ) + 1 ) : "";
+        Matcher matcher = URL.matcher( css );
+        StringBuffer result = new StringBuffer( css.length() );
+        while ( matcher.find() )
+        {
+            String url = matcher.group( 2 ).trim();
+            if ( url.startsWith( "/" ) || url.startsWith( "#" ) || url.contains( ":" ) )
+            {
+                continue;
+            }
+            int end = url.length();
+            for ( char c : new char[] { '?', '#' } )
+            {
+                end = url.indexOf( c ) >= 0 ? Math.min( end, url.indexOf( c ) ) : end;
+            }
+            String target = normalize( folder + url.substring( 0, end ) );
+            matcher.appendReplacement( result, Matcher.quoteReplacement( "url(" + getUrl( target ) + url.substring(
+                end ) + ")" ) );
+        }
+        matcher.appendTail( result );
+        return result.toString();
+    }
+
+
+    /**
+     * @param css content of a style sheet.
+     * @return the style sheet without comments, except license notes, and extra white space.
+     */
+    static String minify( String css )
+    {
+        Matcher matcher = COMMENT.matcher( css );
+        StringBuffer result = new StringBuffer( css.length() );
+        while ( matcher.find() )
+        {
+            String comment = matcher.group();
+            boolean keep = comment.startsWith( "/*!" ) || comment.contains( "License" ) || comment.contains(
+                "Copyright" );
+            matcher.appendReplacement( result, keep ? Matcher.quoteReplacement( comment ) : "" );
+        }
+        matcher.appendTail( result );
+        String collapsed = SPACE.matcher( result ).replaceAll( " " );
+        return SPACE_AROUND.matcher( collapsed ).replaceAll( "$1" ).trim();
+    }
+
+
+    /**
+     * @return the path with its . and .. segments resolved.
+     */
+    private static String normalize( String path )
+    {
+        Deque<String> segments = new ArrayDeque<>();
+        for ( String segment : path.split( "/" ) )
+        {
+            if ( segment.equals( ".." ) )
+            {
+                segments.pollLast();
+            }
+            else if ( !segment.isEmpty() && !segment.equals( "." ) )
+            {
+                segments.addLast( segment );
+            }
+        }
+        return String.join( "/", segments );
+    }
+
+
+    /**
+     * @param path of a file in the web application folder.
+     * @return absolute url of the file, the versioned one of its resource if the file exists and there's a request to
+     * map it with.
+     */
+    private static String getUrl( String path )
+    {
+        WebApplication application = WebApplication.get();
+        RequestCycle cycle = RequestCycle.get();
+        String contextPath = application.getServletContext().getContextPath();
+        if ( cycle != null && exists( application, path ) )
+        {
+            Request request = cycle.getRequest();
+            String filterPath = request.getFilterPath() != null ? request.getFilterPath() : "";
+            return join( request.getContextPath(), filterPath, cycle.mapUrlFor( new ContextRelativeResourceReference(
+                path, false ), null ).toString() );
+        }
+        return join( contextPath, path );
+    }
+
+
+    private static boolean exists( WebApplication application, String path )
+    {
+        try
+        {
+            return application.getServletContext().getResource( "/" + path ) != null;
+        }
+        catch ( MalformedURLException e )
+        {
+            return false;
+        }
+    }
+
+
+    private static String join( String... parts )
+    {
+        StringBuilder url = new StringBuilder();
+        for ( String part : parts )
+        {
+            String trimmed = part.replaceAll( "^/+|/+$", "" );
+            if ( !trimmed.isEmpty() )
+            {
+                url.append( '/' ).append( trimmed );
+            }
+        }
+        return url.toString();
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.time.ClockTime;
+import org.apache.directory.fortress.core.util.time.Date;
+import org.apache.directory.fortress.core.util.time.Day;
+import org.apache.directory.fortress.core.util.time.LockDate;
+import org.apache.directory.fortress.core.util.time.TUtil;
+import org.apache.directory.fortress.core.util.time.Time;
+import org.apache.directory.fortress.core.util.time.Validator;
+
+
+/**
+ * The complete set of permissions a user holds right now.  The temporal constraints of every assigned role are
+ * checked against the current time, the roles that pass are expanded with their ascendants from the
+ * {@link RoleClosure} and the materialized closures of the {@link PermissionClosure} are combined into one set.  Each
+ * permission lists the roles that grant it directly so an auditor can see where it comes from.
+ * <p>
+ * Everything except reading the user works on the cached indexes, so the cost is a handful of bit set unions even for
+ * users holding hundreds of roles.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class EffectiveAccess implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Validator[] VALIDATORS = { new LockDate(), new Date(), new Day(), new ClockTime() };
+    private static final String[] REASONS = { "locked", "outside of its date range", "not allowed today",
+        "outside of its time range" };
+    private static final String ACTIVE = "active";
+    private final String userId;
+    private final List<RoleAccess> roles = new ArrayList<>();
+    private final List<PermissionAccess> permissions = new ArrayList<>();
+    private long elapsed;
+
+
+    private EffectiveAccess( String userId )
+    {
+        this.userId = userId;
+    }
+
+
+    /**
+     * @param user        as returned by readUser, with its role assignments.
+     * @param isAdmin     if true evaluate the administrative roles and permissions.
+     * @param roleIndex   role hierarchy of the tenant.
+     * @param permIndex   permission grants of the tenant.
+     * @return the effective access of the user.
+     */
+    public static EffectiveAccess compute( User user, boolean isAdmin, RoleClosure roleIndex,
+        PermissionClosure permIndex )
+    {
+        long start = System.nanoTime();
+        EffectiveAccess access = new EffectiveAccess( user.getUserId() );
+        Time now = TUtil.getCurrentTime();
+        List<? extends UserRole> assigned = isAdmin ? user.getAdminRoles() : user.getRoles();
+        Map<String, RoleAccess> byName = new LinkedHashMap<>();
+        List<String> active = new ArrayList<>();
+        if ( assigned != null )
+        {
+            for ( UserRole userRole : assigned )
+            {
+                String reason = getInactiveReason( userRole, now );
+                byName.put( key( userRole.getName() ), new RoleAccess( userRole.getName(), true, reason == null,
+                    reason != null ? reason : ACTIVE ) );
+                if ( reason == null )
+                {
+                    active.add( userRole.getName() );
+                }
+            }
+        }
+        BitSet granted = new BitSet();
+        for ( String name : active )
+        {
+            granted.or( permIndex.getClosure( name, roleIndex ) );
+            for ( String ascendant : roleIndex.getAscendants( name ) )
+            {
+                RoleAccess role = byName.get( key( ascendant ) );
+                if ( role == null )
+                {
+                    role = new RoleAccess( ascendant, false, true, ACTIVE );
+                    byName.put( key( ascendant ), role );
+                }
+                // an assignment that is temporally inactive still counts once the role is inherited
+                role.active = true;
+                role.inheritedFrom.add( name );
+            }
+        }
+        // ids ascend, so the row of a permission is found by binary search instead of a map of boxed ids
+        Map<Integer, Permission> found = permIndex.getPermissions( granted );
+        int[] ids = new int[found.size()];
+        PermissionAccess[] rows = new PermissionAccess[found.size()];
+        int count = 0;
+        for ( Map.Entry<Integer, Permission> entry : found.entrySet() )
+        {
+            ids[count] = entry.getKey();
+            rows[count++] = new PermissionAccess( entry.getValue() );
+        }
+        for ( RoleAccess role : byName.values() )
+        {
+            if ( role.active )
+            {
+                BitSet direct = permIndex.getGrants( role.name );
+                for ( int id = direct.nextSetBit( 0 ); id >= 0; id = direct.nextSetBit( id + 1 ) )
+                {
+                    int row = Arrays.binarySearch( ids, id );
+                    if ( row >= 0 )
+                    {
+                        rows[row].grantedBy.add( role.name );
+                    }
+                }
+            }
+        }
+        access.roles.addAll( byName.values() );
+        Collections.sort( access.roles, new Comparator<RoleAccess>()
+        {
+            @Override
+            public int compare( RoleAccess r1, RoleAccess r2 )
+            {
+                if ( r1.assigned != r2.assigned )
+                {
+                    return r1.assigned ? -1 : 1;
+                }
+                return r1.sortKey.compareTo( r2.sortKey );
+            }
+        } );
+        access.permissions.addAll( Arrays.asList( rows ) );
+        Collections.sort( access.permissions, new Comparator<PermissionAccess>()
+        {
+            @Override
+            public int compare( PermissionAccess p1, PermissionAccess p2 )
+            {
+                return p1.sortKey.compareTo( p2.sortKey );
+            }
+        } );
+        access.elapsed = ( System.nanoTime() - start ) / 1000;
+        return access;
+    }
+
+
+    /**
+     * Check the temporal constraints of a role assignment against the given time.  The validators don't use the
+     * session for role constraints so none is passed.
+     *
+     * @param userRole assignment with its constraints.
+     * @param now      time to check against.
+     * @return why the assignment isn't active or null if it is.
+     */
+    public static String getInactiveReason( UserRole userRole, Time now )
+    {
+        for ( int i = 0; i < VALIDATORS.length; i++ )
+        {
+            try
+            {
+                if ( VALIDATORS[i].validate( null, userRole, now, VUtil.ConstraintType.ROLE ) != 0 )
+                {
+                    return REASONS[i];
+                }
+            }
+            catch ( SecurityException | RuntimeException e )
+            {
+                return "constraint can't be checked: " + e.getMessage();
+            }
+        }
+        return null;
+    }
+
+
+    public String getUserId()
+    {
+        return userId;
+    }
+
+
+    public List<RoleAccess> getRoles()
+    {
+        return roles;
+    }
+
+
+    public List<PermissionAccess> getPermissions()
+    {
+        return permissions;
+    }
+
+
+    /**
+     * @return time taken to compute the result in micro seconds, not including reading the user.
+     */
+    public long getElapsed()
+    {
+        return elapsed;
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+
+
+    /**
+     * One role the user holds either by assignment or by inheritance.
+     */
+    public static class RoleAccess implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String name;
+        private final boolean assigned;
+        private boolean active;
+        private final String status;
+        private final transient String sortKey;
+        private final TreeSet<String> inheritedFrom = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+
+
+        RoleAccess( String name, boolean assigned, boolean active, String status )
+        {
+            this.name = name;
+            this.assigned = assigned;
+            this.active = active;
+            this.status = status;
+            sortKey = key( name );
+        }
+
+
+        public String getName()
+        {
+            return name;
+        }
+
+
+        public boolean isAssigned()
+        {
+            return assigned;
+        }
+
+
+        public boolean isActive()
+        {
+            return active;
+        }
+
+
+        public String getStatus()
+        {
+            return status;
+        }
+
+
+        public String getInheritedFrom()
+        {
+            return String.join( ", ", inheritedFrom );
+        }
+    }
+
+
+    /**
+     * One permission the user holds along with the roles that grant it.
+     */
+    public static class PermissionAccess implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String objName;
+        private final String opName;
+        private final String objId;
+        // lower cased once, comparing it is much cheaper than three case insensitive compares per sort step
+        private final transient String sortKey;
+        private final List<String> grantedBy = new ArrayList<>( 2 );
+
+
+        PermissionAccess( Permission perm )
+        {
+            objName = perm.getObjName();
+            opName = perm.getOpName();
+            objId = perm.getObjId() != null ? perm.getObjId() : "";
+            sortKey = key( objName ) + '\u0000' + key( opName ) + '\u0000' + key( objId );
+        }
+
+
+        public String getObjName()
+        {
+            return objName;
+        }
+
+
+        public String getOpName()
+        {
+            return opName;
+        }
+
+
+        public String getObjId()
+        {
+            return objId;
+        }
+
+
+        public String getGrantedBy()
+        {
+            Collections.sort( grantedBy, String.CASE_INSENSITIVE_ORDER );
+            return String.join( ", ", grantedBy );
+        }
+    }
+}
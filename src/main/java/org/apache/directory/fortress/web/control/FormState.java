@@ -0,0 +1,241 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.Page;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.core.request.handler.ListenerRequestHandler;
+import org.apache.wicket.core.util.string.JavaScriptUtils;
+import org.apache.wicket.markup.head.HeaderItem;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.head.JavaScriptReferenceHeaderItem;
+import org.apache.wicket.markup.head.OnDomReadyHeaderItem;
+import org.apache.wicket.markup.html.form.FormComponent;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestParameters;
+import org.apache.wicket.request.component.IRequestablePage;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.resource.JavaScriptResourceReference;
+import org.apache.wicket.util.string.StringValue;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.visit.IVisit;
+import org.apache.wicket.util.visit.IVisitor;
+
+
+/**
+ * Keeps the changes made to form fields in the browser instead of sending one ajax request per field.  This replaces
+ * the {@link org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior} on blur that only existed to get a value
+ * into the model before a link, e.g. one opening a search modal, reads it.  Each of those requests locks the page and
+ * stores a new version of it, just for tabbing through a form.
+ * <p>
+ * The changes are sent in one request:
+ * <ul>
+ * <li>along with the next ajax request of the page, which is applied by the {@link Listener} before that request's
+ * own listener runs,</li>
+ * <li>or, if created with a delay, once no field changed for that long.</li>
+ * </ul>
+ * A form submit carries the values itself so the buffered changes are simply dropped.  Add this behavior to a
+ * container of the fields, e.g. the form, and tell it which fields to {@link #watch}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class FormState extends AbstractDefaultAjaxBehavior
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( FormState.class.getName() );
+    /** Names the containers whose buffered changes ride along with a request. */
+    public static final String PARAMETER = "fortressFormState";
+    private static final JavaScriptResourceReference SCRIPT = new JavaScriptResourceReference( FormState.class,
+        "FormState.js" )
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        public List<HeaderItem> getDependencies()
+        {
+            List<HeaderItem> dependencies = super.getDependencies();
+            dependencies.add( JavaScriptReferenceHeaderItem.forReference( Application.get()
+                .getJavaScriptLibrarySettings().getWicketAjaxReference() ) );
+            return dependencies;
+        }
+    };
+    private final long delay;
+    private final List<FormComponent<?>> fields = new ArrayList<>();
+
+
+    /**
+     * Send the changes only with the next ajax request of the page.
+     */
+    public FormState()
+    {
+        this( null );
+    }
+
+
+    /**
+     * @param delay after the last change to send the changes on their own, null to send them only with the next ajax
+     *              request of the page.
+     */
+    public FormState( Duration delay )
+    {
+        this.delay = delay != null ? delay.getMilliseconds() : 0;
+    }
+
+
+    /**
+     * @param components fields to buffer the changes of, they must be inside the component this behavior is added to.
+     * @return this for chaining.
+     */
+    public FormState watch( FormComponent<?>... components )
+    {
+        for ( FormComponent<?> component : components )
+        {
+            component.setOutputMarkupId( true );
+            fields.add( component );
+        }
+        return this;
+    }
+
+
+    @Override
+    protected void onBind()
+    {
+        super.onBind();
+        getComponent().setOutputMarkupId( true );
+    }
+
+
+    @Override
+    public void renderHead( Component component, IHeaderResponse response )
+    {
+        super.renderHead( component, response );
+        response.render( JavaScriptHeaderItem.forReference( SCRIPT ) );
+        StringBuilder ids = new StringBuilder();
+        for ( FormComponent<?> field : fields )
+        {
+            // hidden ones too, they may be shown by a later ajax response
+            ids.append( ids.length() > 0 ? "," : "" ).append( '\'' ).append( field.getMarkupId() ).append( '\'' );
+        }
+        response.render( OnDomReadyHeaderItem.forScript( "FortressFormState.init('" + component.getMarkupId() +
+            "','" + JavaScriptUtils.escapeQuotes( getCallbackUrl() ) + "','" + PARAMETER + "'," + delay + ",[" + ids +
+            "]);" ) );
+    }
+
+
+    @Override
+    protected void respond( AjaxRequestTarget target )
+    {
+        // the browser shows the values already, nothing to render
+        apply();
+    }
+
+
+    /**
+     * Push the values of the watched fields found in the current request into their models, validating them the way
+     * a form submit would.
+     */
+    public void apply()
+    {
+        IRequestParameters parameters = getComponent().getRequest().getRequestParameters();
+        Set<String> names = parameters.getParameterNames();
+        for ( FormComponent<?> field : fields )
+        {
+            if ( names.contains( field.getInputName() ) && field.isVisibleInHierarchy() &&
+                field.isEnabledInHierarchy() )
+            {
+                field.processInput();
+            }
+        }
+    }
+
+
+    /**
+     * Applies the changes carried by a request to the buffers they belong to before the request's listener, e.g. the
+     * onClick of a link, runs.  Register it once with the application's request cycle listeners.
+     */
+    public static class Listener implements IRequestCycleListener
+    {
+        @Override
+        public void onRequestHandlerResolved( RequestCycle cycle, IRequestHandler handler )
+        {
+            if ( !( handler instanceof ListenerRequestHandler ) )
+            {
+                return;
+            }
+            List<StringValue> values = cycle.getRequest().getRequestParameters().getParameterValues( PARAMETER );
+            if ( values == null || values.isEmpty() )
+            {
+                return;
+            }
+            final Set<String> markupIds = new HashSet<>();
+            for ( StringValue value : values )
+            {
+                markupIds.add( value.toString() );
+            }
+            IRequestablePage page;
+            try
+            {
+                page = ( ( ListenerRequestHandler ) handler ).getPage();
+            }
+            catch ( WicketRuntimeException e )
+            {
+                // the handler reports it, e.g. with the page expired page
+                LOG.debug( "onRequestHandlerResolved no page for buffered form state: " + e );
+                return;
+            }
+            if ( !( page instanceof Page ) )
+            {
+                return;
+            }
+            ( ( Page ) page ).visitChildren( new IVisitor<Component, Void>()
+            {
+                @Override
+                public void component( Component component, IVisit<Void> visit )
+                {
+                    List<FormState> states = component.getBehaviors( FormState.class );
+                    if ( !states.isEmpty() && markupIds.contains( component.getMarkupId() ) )
+                    {
+                        for ( FormState state : states )
+                        {
+                            state.apply();
+                        }
+                    }
+                }
+            } );
+        }
+    }
+}
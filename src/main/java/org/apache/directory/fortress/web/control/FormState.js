@@ -0,0 +1,149 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+/*
+ * Client side of org.apache.directory.fortress.web.control.FormState: field changes are kept here until either the
+ * debounce delay passes without further edits or the page sends any other ajax request, which then carries them.
+ */
+;(function ( $, undefined )
+{
+    'use strict';
+
+    if ( window.FortressFormState )
+    {
+        return;
+    }
+
+    var buffers = {};
+
+    function value( field )
+    {
+        if ( field.type === 'checkbox' || field.type === 'radio' )
+        {
+            return field.checked ? field.value : '';
+        }
+        return $( field ).val();
+    }
+
+    function take( buffer )
+    {
+        var params = [];
+        $.each( buffer.pending, function ( name, val )
+        {
+            params.push( { name: name, value: val } );
+        } );
+        buffer.pending = {};
+        if ( buffer.timer )
+        {
+            clearTimeout( buffer.timer );
+            buffer.timer = null;
+        }
+        return params;
+    }
+
+    function flush( id )
+    {
+        var buffer = buffers[id];
+        if ( buffer && !$.isEmptyObject( buffer.pending ) )
+        {
+            Wicket.Ajax.ajax( { u: buffer.url, m: 'POST', ep: take( buffer ) } );
+        }
+    }
+
+    function isEmpty()
+    {
+        for ( var id in buffers )
+        {
+            if ( buffers.hasOwnProperty( id ) && !$.isEmptyObject( buffers[id].pending ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    window.FortressFormState = {
+
+        /*
+         * Start buffering the changes of the given fields, flushing them delay ms after the last edit or, if delay
+         * isn't positive, only with the next ajax request.
+         */
+        init: function ( id, url, param, delay, fields )
+        {
+            var buffer = buffers[id] = { url: url, param: param, pending: {}, timer: null };
+            // delegated to the container so fields re-rendered or made visible by an ajax response stay watched
+            var events = 'change.fortressFormState input.fortressFormState';
+            $( '#' + id ).off( '.fortressFormState' ).on( events, function ( event )
+            {
+                var field = event.target;
+                if ( $.inArray( field.id, fields ) < 0 )
+                {
+                    return;
+                }
+                buffer.pending[field.name] = value( field );
+                if ( delay > 0 )
+                {
+                    clearTimeout( buffer.timer );
+                    buffer.timer = setTimeout( function ()
+                    {
+                        flush( id );
+                    }, delay );
+                }
+            } );
+        }
+    };
+
+    Wicket.Event.subscribe( Wicket.Event.Topic.AJAX_CALL_BEFORE, function ( jqEvent, attrs )
+    {
+        if ( isEmpty() )
+        {
+            return;
+        }
+        // the attributes are a shallow copy of the ones rendered with the component, so their array isn't touched
+        var dep = $.isArray( attrs.dep ) ? attrs.dep.slice() : [];
+        // evaluated once the preconditions passed, so a request that is stopped doesn't lose the changes
+        dep.push( function ( attributes )
+        {
+            var params = [];
+            $.each( buffers, function ( id, buffer )
+            {
+                if ( $.isEmptyObject( buffer.pending ) || attributes.u === buffer.url )
+                {
+                    return;
+                }
+                var container = document.getElementById( id );
+                var form = attributes.f ? document.getElementById( attributes.f ) : null;
+                if ( form && container && ( form === container || $.contains( form, container ) ||
+                    $.contains( container, form ) ) )
+                {
+                    // the form submit carries the current values of the fields already
+                    take( buffer );
+                    return;
+                }
+                params = params.concat( take( buffer ) );
+                params.push( { name: buffer.param, value: id } );
+            } );
+            return params;
+        } );
+        attrs.dep = dep;
+        // fields read their input from the post parameters, a link's request is a get by default
+        attrs.m = 'POST';
+    } );
+})( jQuery );
@@ -0,0 +1,406 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.log4j.Logger;
+import org.apache.wicket.Application;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.apache.wicket.core.util.lang.WicketObjects;
+
+
+/**
+ * Page serializer tuned for the graphs of fortress model objects our pages hold.  Compared to the
+ * {@link JavaSerializer} it extends:
+ * <ul>
+ * <li>the classes in {@link #REGISTERED} are written as a short id instead of a full class descriptor,</li>
+ * <li>the stream is deflated, which takes care of the role, ou and object names repeated all over a page.</li>
+ * </ul>
+ * Next to the id goes a fingerprint of the class, its serialVersionUID, field names and types.  A reader whose class
+ * has another fingerprint, e.g. a node running a release with an upgraded fortress-core or wicket, rejects the page
+ * the way java serialization rejects an incompatible class, instead of reading its fields with the wrong layout; the
+ * page is then treated as expired.  Classes that differ from the ones registered can't be read back either way, the
+ * fingerprint only makes sure it is noticed.
+ * <p>
+ * Any other serializable class is written with its usual descriptor.  If the compact stream fails for any reason the
+ * page is handed to the {@link JavaSerializer}, and data that doesn't start with {@link #MAGIC}, e.g. pages stored
+ * before this serializer was installed, is read by it too.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class FortressSerializer extends JavaSerializer
+{
+    private static final Logger LOG = Logger.getLogger( FortressSerializer.class.getName() );
+    private static final byte[] MAGIC = { ( byte ) 0xF0, ( byte ) 0x27 };
+    private static final int REGISTERED_CLASS = 1;
+    private static final int INLINE_CLASS = 2;
+    /**
+     * Classes written by id.  The id is the position in this list, so only ever append to it: a node must be able to
+     * read what another node running the previous release wrote.
+     */
+    private static final String[] REGISTERED = {
+        "java.lang.Boolean",
+        "java.lang.Integer",
+        "java.lang.Long",
+        "java.lang.Number",
+        "java.lang.Enum",
+        "java.util.ArrayList",
+        "java.util.LinkedList",
+        "java.util.HashMap",
+        "java.util.LinkedHashMap",
+        "java.util.TreeMap",
+        "java.util.HashSet",
+        "java.util.LinkedHashSet",
+        "java.util.TreeSet",
+        "java.util.Date",
+        "java.lang.String$CaseInsensitiveComparator",
+        "org.apache.directory.fortress.core.model.FortEntity",
+        "org.apache.directory.fortress.core.model.User",
+        "org.apache.directory.fortress.core.model.UserRole",
+        "org.apache.directory.fortress.core.model.UserAdminRole",
+        "org.apache.directory.fortress.core.model.Role",
+        "org.apache.directory.fortress.core.model.AdminRole",
+        "org.apache.directory.fortress.core.model.Permission",
+        "org.apache.directory.fortress.core.model.PermObj",
+        "org.apache.directory.fortress.core.model.OrgUnit",
+        "org.apache.directory.fortress.core.model.OrgUnit$Type",
+        "org.apache.directory.fortress.core.model.SDSet",
+        "org.apache.directory.fortress.core.model.SDSet$SDType",
+        "org.apache.directory.fortress.core.model.PwPolicy",
+        "org.apache.directory.fortress.core.model.Group",
+        "org.apache.directory.fortress.core.model.Group$Type",
+        "org.apache.directory.fortress.core.model.Address",
+        "org.apache.directory.fortress.core.model.Props",
+        "org.apache.directory.fortress.core.model.Props$Entry",
+        "org.apache.directory.fortress.core.model.RoleConstraint",
+        "org.apache.directory.fortress.core.model.RoleConstraint$RCType",
+        "org.apache.directory.fortress.core.model.Session",
+        "org.apache.directory.fortress.core.model.Warning",
+        "org.apache.directory.fortress.core.model.Warning$Type",
+        "org.apache.directory.fortress.core.model.AuthZ",
+        "org.apache.directory.fortress.core.model.Bind",
+        "org.apache.directory.fortress.core.model.Mod",
+        "org.apache.directory.fortress.core.model.UserAudit",
+        "org.apache.directory.fortress.web.model.SerializableList",
+        "org.apache.wicket.model.Model",
+        "org.apache.wicket.model.PropertyModel",
+        "org.apache.wicket.model.CompoundPropertyModel",
+        "org.apache.wicket.model.LoadableDetachableModel",
+        "org.apache.wicket.model.util.ListModel",
+        "org.apache.wicket.model.util.GenericBaseModel",
+        "org.apache.wicket.model.ChainingModel",
+        "org.apache.wicket.model.AbstractPropertyModel"
+    };
+    private static final int BUFFER_SIZE = 8192;
+    // creating a deflater allocates and clears its native buffers, which costs more than compressing a small page
+    private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<Deflater>()
+    {
+        @Override
+        protected Deflater initialValue()
+        {
+            return new Deflater( Deflater.BEST_SPEED );
+        }
+    };
+    private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>()
+    {
+        @Override
+        protected Inflater initialValue()
+        {
+            return new Inflater();
+        }
+    };
+    private static final Registry DEFAULT_REGISTRY = new Registry( REGISTERED );
+    private final String applicationKey;
+    private final Registry registry;
+
+
+    /**
+     * @param applicationKey of the application the pages belong to.
+     */
+    public FortressSerializer( String applicationKey )
+    {
+        this( applicationKey, DEFAULT_REGISTRY );
+    }
+
+
+    /**
+     * Registers other classes than {@link #REGISTERED}, for tests.
+     *
+     * @param applicationKey of the application the pages belong to.
+     * @param registered     classes written by id, the id is the position.
+     */
+    FortressSerializer( String applicationKey, String... registered )
+    {
+        this( applicationKey, new Registry( registered ) );
+    }
+
+
+    private FortressSerializer( String applicationKey, Registry registry )
+    {
+        super( applicationKey );
+        this.applicationKey = applicationKey;
+        this.registry = registry;
+    }
+
+
+    /**
+     * @return hash of the serialVersionUID and the name and type of every serialized field of the class.
+     */
+    static long fingerprint( ObjectStreamClass desc )
+    {
+        long hash = desc.getSerialVersionUID();
+        for ( ObjectStreamField field : desc.getFields() )
+        {
+            hash = hash * 31 + field.getName().hashCode();
+            hash = hash * 31 + ( field.isPrimitive() ? field.getTypeCode() : field.getTypeString().hashCode() );
+        }
+        return hash;
+    }
+
+
+    @Override
+    public byte[] serialize( Object object )
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream( BUFFER_SIZE );
+        Deflater deflater = DEFLATERS.get();
+        try
+        {
+            buffer.write( MAGIC );
+            // object streams write a few bytes at a time, each of them a native call into the deflater unless buffered
+            try ( ObjectOutputStream out = new CompactObjectOutputStream( registry, new BufferedOutputStream(
+                new DeflaterOutputStream( buffer, deflater, BUFFER_SIZE ), BUFFER_SIZE ) ) )
+            {
+                out.writeObject( applicationKey );
+                out.writeObject( object );
+            }
+            return buffer.toByteArray();
+        }
+        catch ( Exception e )
+        {
+            // the java serializer reports exactly which field isn't serializable
+            LOG.warn( "serialize falling back to java serialization for " + object.getClass().getName() + ": " +
+                e );
+            return super.serialize( object );
+        }
+        finally
+        {
+            deflater.reset();
+        }
+    }
+
+
+    @Override
+    public Object deserialize( byte[] data )
+    {
+        if ( data == null || data.length < MAGIC.length || data[0] != MAGIC[0] || data[1] != MAGIC[1] )
+        {
+            return super.deserialize( data );
+        }
+        boolean unsetApplication = false;
+        Inflater inflater = INFLATERS.get();
+        try ( ObjectInputStream in = new CompactObjectInputStream( registry, new BufferedInputStream(
+            new InflaterInputStream( new ByteArrayInputStream( data, MAGIC.length, data.length - MAGIC.length ),
+                inflater, BUFFER_SIZE ), BUFFER_SIZE ) ) )
+        {
+            String key = ( String ) in.readObject();
+            // pages may be read outside of a request, e.g. by the disk store
+            if ( !Application.exists() )
+            {
+                Application application = Application.get( key );
+                if ( application != null )
+                {
+                    ThreadContext.setApplication( application );
+                    unsetApplication = true;
+                }
+            }
+            return in.readObject();
+        }
+        catch ( IOException | ClassNotFoundException | RuntimeException e )
+        {
+            LOG.error( "deserialize caught Exception=" + e, e );
+            return null;
+        }
+        finally
+        {
+            inflater.reset();
+            if ( unsetApplication )
+            {
+                ThreadContext.setApplication( null );
+            }
+        }
+    }
+
+
+    /**
+     * Ids, descriptors and fingerprints of the registered classes.
+     */
+    private static final class Registry
+    {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<ObjectStreamClass> descriptors = new ArrayList<>();
+        private final List<Long> fingerprints = new ArrayList<>();
+
+
+        Registry( String[] registered )
+        {
+            for ( String name : registered )
+            {
+                ObjectStreamClass desc = null;
+                try
+                {
+                    desc = ObjectStreamClass.lookup( Class.forName( name, false, FortressSerializer.class
+                        .getClassLoader() ) );
+                }
+                catch ( ClassNotFoundException | LinkageError e )
+                {
+                    LOG.debug( "not registering " + name + ": " + e );
+                }
+                // the slot is kept even if the class is missing or not serializable so the ids don't shift
+                if ( desc != null )
+                {
+                    ids.put( name, descriptors.size() );
+                }
+                descriptors.add( desc );
+                fingerprints.add( desc != null ? fingerprint( desc ) : 0L );
+            }
+        }
+    }
+
+
+    /**
+     * Writes registered classes by id.
+     */
+    private static class CompactObjectOutputStream extends ObjectOutputStream
+    {
+        private final Registry registry;
+
+
+        CompactObjectOutputStream( Registry registry, OutputStream out ) throws IOException
+        {
+            super( out );
+            this.registry = registry;
+        }
+
+
+        @Override
+        protected void writeClassDescriptor( ObjectStreamClass desc ) throws IOException
+        {
+            Integer id = registry.ids.get( desc.getName() );
+            if ( id != null )
+            {
+                write( REGISTERED_CLASS );
+                writeShort( id );
+                writeLong( registry.fingerprints.get( id ) );
+            }
+            else
+            {
+                write( INLINE_CLASS );
+                super.writeClassDescriptor( desc );
+            }
+        }
+    }
+
+
+    /**
+     * Reads what {@link CompactObjectOutputStream} writes, resolving classes the way wicket does.
+     */
+    private static class CompactObjectInputStream extends ObjectInputStream
+    {
+        private final Registry registry;
+
+
+        CompactObjectInputStream( Registry registry, InputStream in ) throws IOException
+        {
+            super( in );
+            this.registry = registry;
+        }
+
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException
+        {
+            int type = read();
+            if ( type == REGISTERED_CLASS )
+            {
+                int id = readShort();
+                long fingerprint = readLong();
+                ObjectStreamClass desc = id >= 0 && id < registry.descriptors.size() ? registry.descriptors.get( id ) :
+                    null;
+                if ( desc == null )
+                {
+                    throw new ClassNotFoundException( "No class registered with id " + id );
+                }
+                if ( fingerprint != registry.fingerprints.get( id ) )
+                {
+                    throw new InvalidClassException( desc.getName(), "written with another serialVersionUID or " +
+                        "fields than the local class" );
+                }
+                return desc;
+            }
+            if ( type != INLINE_CLASS )
+            {
+                throw new IOException( "Corrupt class descriptor type " + type );
+            }
+            return super.readClassDescriptor();
+        }
+
+
+        @Override
+        protected Class<?> resolveClass( ObjectStreamClass desc ) throws IOException, ClassNotFoundException
+        {
+            try
+            {
+                return super.resolveClass( desc );
+            }
+            catch ( ClassNotFoundException e )
+            {
+                Class<?> candidate = WicketObjects.resolveClass( desc.getName() );
+                if ( candidate == null )
+                {
+                    throw e;
+                }
+                return candidate;
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.Group;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+
+import com.inmethod.grid.treegrid.TreeGrid;
+
+
+/**
+ * Applies a {@link org.apache.directory.fortress.web.event.SaveModelEvent} to the rows of a list panel's grid instead
+ * of re-rendering the grid.  The tree grid listens to its tree model, rows inserted, changed or removed through the
+ * model are marked dirty and {@link #send} only writes those into the ajax response, so the response is the size of
+ * one row however many rows the grid shows.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class GridRows
+{
+    private GridRows()
+    {
+    }
+
+
+    /**
+     * Add a row before the first child of the parent.  The tree redraws every sibling of a node inserted last, to
+     * update the junction lines, so a row appended to a flat list would send the whole list back.
+     *
+     * @param treeModel of the grid.
+     * @param parent    node to add the row to, the root for a flat list.
+     * @param entity    shown by the new row.
+     */
+    public static void prepend( DefaultTreeModel treeModel, DefaultMutableTreeNode parent, FortEntity entity )
+    {
+        treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), parent, 0 );
+    }
+
+
+    /**
+     * Show the saved entity in every row of the same entity.
+     *
+     * @param treeModel of the grid.
+     * @param root      of the tree model.
+     * @param entity    as saved.
+     * @return number of rows changed, zero if the entity isn't shown.
+     */
+    public static int replace( DefaultTreeModel treeModel, DefaultMutableTreeNode root, FortEntity entity )
+    {
+        int count = 0;
+        for ( DefaultMutableTreeNode node : find( root, entity ) )
+        {
+            node.setUserObject( entity );
+            treeModel.nodeChanged( node );
+            count++;
+        }
+        return count;
+    }
+
+
+    /**
+     * Remove every row of the entity.
+     *
+     * @param treeModel of the grid.
+     * @param root      of the tree model.
+     * @param entity    as deleted.
+     * @return number of rows removed.
+     */
+    public static int remove( DefaultTreeModel treeModel, DefaultMutableTreeNode root, FortEntity entity )
+    {
+        List<DefaultMutableTreeNode> nodes = find( root, entity );
+        for ( DefaultMutableTreeNode node : nodes )
+        {
+            treeModel.removeNodeFromParent( node );
+        }
+        return nodes.size();
+    }
+
+
+    /**
+     * Replace the entity in the list backing the grid, if it is there.
+     *
+     * @param list   backing the grid, may be null.
+     * @param entity as saved.
+     * @param <T>    type of the list elements.
+     */
+    public static <T extends FortEntity> void replace( List<T> list, T entity )
+    {
+        if ( list != null )
+        {
+            for ( int i = 0; i < list.size(); i++ )
+            {
+                if ( isSame( list.get( i ), entity ) )
+                {
+                    list.set( i, entity );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Remove the entity from the list backing the grid, if it is there.
+     *
+     * @param list   backing the grid, may be null.
+     * @param entity as deleted.
+     * @param <T>    type of the list elements.
+     */
+    public static <T extends FortEntity> void remove( List<T> list, FortEntity entity )
+    {
+        if ( list != null )
+        {
+            for ( Iterator<T> i = list.iterator(); i.hasNext(); )
+            {
+                if ( isSame( i.next(), entity ) )
+                {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Write the rows changed since the last response into the ajax response.
+     *
+     * @param grid   whose rows changed.
+     * @param target of the request.
+     */
+    public static void send( TreeGrid<?, ?, ?> grid, AjaxRequestTarget target )
+    {
+        grid.getTree().updateTree( target );
+    }
+
+
+    /**
+     * @param root   of the tree model.
+     * @param entity to look for.
+     * @return nodes showing the entity at any depth, the role list shows a role once under each expanded parent.
+     */
+    public static List<DefaultMutableTreeNode> find( DefaultMutableTreeNode root, FortEntity entity )
+    {
+        List<DefaultMutableTreeNode> nodes = new ArrayList<>();
+        Enumeration<?> children = root.breadthFirstEnumeration();
+        while ( children.hasMoreElements() )
+        {
+            DefaultMutableTreeNode node = ( DefaultMutableTreeNode ) children.nextElement();
+            if ( node != root && node.getUserObject() instanceof FortEntity && isSame( ( FortEntity ) node
+                .getUserObject(), entity ) )
+            {
+                nodes.add( node );
+            }
+        }
+        return nodes;
+    }
+
+
+    /**
+     * @param e1 first entity.
+     * @param e2 second entity.
+     * @return true if both are the same directory entry, compared by the attributes that name it.
+     */
+    public static boolean isSame( FortEntity e1, FortEntity e2 )
+    {
+        if ( e1 == e2 )
+        {
+            return true;
+        }
+        if ( e1 == null || e2 == null || e1.getClass() != e2.getClass() )
+        {
+            return false;
+        }
+        if ( e1 instanceof User )
+        {
+            return StringUtils.equalsIgnoreCase( ( ( User ) e1 ).getUserId(), ( ( User ) e2 ).getUserId() );
+        }
+        if ( e1 instanceof Role )
+        {
+            return StringUtils.equalsIgnoreCase( ( ( Role ) e1 ).getName(), ( ( Role ) e2 ).getName() );
+        }
+        if ( e1 instanceof Permission )
+        {
+            Permission p1 = ( Permission ) e1;
+            Permission p2 = ( Permission ) e2;
+            return StringUtils.equalsIgnoreCase( p1.getObjName(), p2.getObjName() ) && StringUtils
+                .equalsIgnoreCase( p1.getOpName(), p2.getOpName() ) && StringUtils.equalsIgnoreCase( p1.getObjId(),
+                p2.getObjId() );
+        }
+        if ( e1 instanceof PermObj )
+        {
+            return StringUtils.equalsIgnoreCase( ( ( PermObj ) e1 ).getObjName(), ( ( PermObj ) e2 ).getObjName() );
+        }
+        if ( e1 instanceof OrgUnit )
+        {
+            OrgUnit o1 = ( OrgUnit ) e1;
+            OrgUnit o2 = ( OrgUnit ) e2;
+            return StringUtils.equalsIgnoreCase( o1.getName(), o2.getName() ) && o1.getType() == o2.getType();
+        }
+        if ( e1 instanceof SDSet )
+        {
+            SDSet s1 = ( SDSet ) e1;
+            SDSet s2 = ( SDSet ) e2;
+            return StringUtils.equalsIgnoreCase( s1.getName(), s2.getName() ) && s1.getType() == s2.getType();
+        }
+        if ( e1 instanceof PwPolicy )
+        {
+            return StringUtils.equalsIgnoreCase( ( ( PwPolicy ) e1 ).getName(), ( ( PwPolicy ) e2 ).getName() );
+        }
+        if ( e1 instanceof Group )
+        {
+            return StringUtils.equalsIgnoreCase( ( ( Group ) e1 ).getName(), ( ( Group ) e2 ).getName() );
+        }
+        return e1.equals( e2 );
+    }
+}
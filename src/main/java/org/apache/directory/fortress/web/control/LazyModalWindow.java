@@ -0,0 +1,135 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.core.request.handler.IPartialPageRequestHandler;
+import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
+
+
+/**
+ * Modal window that creates its content the first time it is shown and drops it again once closed.  Most renders of a
+ * detail panel never open its search modals, so building their panels up front only makes the component tree and the
+ * stored page bigger.  The closed callback set by the caller still sees the content, e.g. to read the selection, it
+ * is dropped after the callback returns.
+ *
+ * @param <T> type of the content panel.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public abstract class LazyModalWindow<T extends Component> extends ModalWindow
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private T panel;
+    private WindowClosedCallback closedCallback;
+
+
+    /**
+     * @param id of the window.
+     */
+    public LazyModalWindow( String id )
+    {
+        super( id );
+        super.setWindowClosedCallback( new WindowClosedCallback()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClose( AjaxRequestTarget target )
+            {
+                try
+                {
+                    if ( closedCallback != null )
+                    {
+                        closedCallback.onClose( target );
+                    }
+                }
+                finally
+                {
+                    dropPanel();
+                }
+            }
+        } );
+    }
+
+
+    /**
+     * Called when the content is needed and doesn't exist yet.
+     *
+     * @param contentId id the content must use, see {@link #getContentId}.
+     * @return the content panel.
+     */
+    protected abstract T newPanel( String contentId );
+
+
+    /**
+     * @return the content panel, created if the window doesn't hold one.
+     */
+    public T getPanel()
+    {
+        if ( panel == null )
+        {
+            panel = newPanel( getContentId() );
+            setContent( panel );
+        }
+        return panel;
+    }
+
+
+    /**
+     * @return true if the content currently exists.
+     */
+    public boolean isLoaded()
+    {
+        return panel != null;
+    }
+
+
+    @Override
+    public ModalWindow setWindowClosedCallback( WindowClosedCallback callback )
+    {
+        closedCallback = callback;
+        return this;
+    }
+
+
+    @Override
+    public void show( IPartialPageRequestHandler target )
+    {
+        getPanel();
+        super.show( target );
+    }
+
+
+    private void dropPanel()
+    {
+        if ( panel != null )
+        {
+            // the window puts its empty placeholder back
+            remove( panel );
+            panel = null;
+        }
+    }
+}
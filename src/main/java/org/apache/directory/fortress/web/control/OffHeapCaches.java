@@ -0,0 +1,780 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.constructs.EhcacheDecoratorAdapter;
+import net.sf.ehcache.event.CacheEventListener;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.model.Relationship;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.apache.log4j.Logger;
+import org.jgrapht.graph.SimpleDirectedGraph;
+
+
+/**
+ * Optional second tier, outside of the java heap, for the fortress caches named by {@link #CACHES_PROPERTY}.  The role
+ * hierarchies of fortress.roles are jgrapht graphs of tens of megabytes for a tenant with tens of thousands of roles,
+ * held on the heap, and rebuilt from the directory every time one is evicted.  Each cache named is replaced by a
+ * {@link TieredCache}:
+ * <ul>
+ * <li>an entry evicted from the heap for lack of room is written to a direct buffer, a graph of role names in a
+ * compact form of its own, anything else serialized, both deflated,</li>
+ * <li>a get that misses the heap reads it back, decodes it and moves it onto the heap again.  Only the entries
+ * actually read are ever decoded.</li>
+ * </ul>
+ * fortress-core changes the graphs in place, without putting them again, so entries are only written when they leave
+ * the heap and are dropped from the second tier as soon as they are read or replaced.  An entry keeps the expiry it
+ * had on the heap, so changes made by other nodes still show after the time to live of ehcache.xml.
+ * <p>
+ * The buffers of a cache are limited to {@link #BYTES_PROPERTY}, the least recently written are dropped past it.  A
+ * partition of a tenant, see {@link TenantCaches}, gets a tier and a limit of its own.  Direct buffers count against
+ * -XX:MaxDirectMemorySize and are freed once collected, which costs the collector next to nothing.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class OffHeapCaches
+{
+    private static final Logger LOG = Logger.getLogger( OffHeapCaches.class.getName() );
+    public static final String CACHES_PROPERTY = "offheap.caches";
+    public static final String BYTES_PROPERTY = "offheap.bytes";
+    public static final long DEFAULT_BYTES = 64L * 1024 * 1024;
+    private static final char SEPARATOR = '@';
+    private static final int GRAPH = 1;
+    private static final int SERIALIZED = 2;
+    private static final int BUFFER_SIZE = 8192;
+    private static volatile Set<String> caches;
+    private static volatile long capacity = DEFAULT_BYTES;
+
+
+    private OffHeapCaches()
+    {
+    }
+
+
+    /**
+     * Add the second tier to the caches named by {@link #CACHES_PROPERTY}, if any.  The caches must get it before
+     * fortress-core first uses them, and before {@link TenantCaches#install()} partitions them.
+     *
+     * @return the names of the caches given a second tier.
+     */
+    public static List<String> install()
+    {
+        List<String> names = new ArrayList<>();
+        try
+        {
+            Set<String> configured = new LinkedHashSet<>();
+            String value = getProperty( CACHES_PROPERTY );
+            if ( StringUtils.isNotEmpty( value ) )
+            {
+                for ( String name : value.split( "," ) )
+                {
+                    if ( StringUtils.isNotBlank( name ) )
+                    {
+                        configured.add( name.trim() );
+                    }
+                }
+            }
+            if ( configured.isEmpty() )
+            {
+                return names;
+            }
+            String bytes = getProperty( BYTES_PROPERTY );
+            long limit = StringUtils.isNotEmpty( bytes ) ? Long.parseLong( bytes.trim() ) : DEFAULT_BYTES;
+            configure( configured, limit );
+            // loads ehcache.xml
+            CacheMgr.getInstance();
+            for ( CacheManager manager : new ArrayList<>( CacheManager.ALL_CACHE_MANAGERS ) )
+            {
+                names.addAll( install( manager ) );
+            }
+            LOG.info( "install off-heap tier of " + capacity + " bytes for " + names );
+        }
+        catch ( RuntimeException e )
+        {
+            LOG.error( "install caches left on the heap only, caught Exception=" + e, e );
+        }
+        return names;
+    }
+
+
+    /**
+     * @param names of the caches to give a second tier.
+     * @param bytes limit of each cache's buffers.
+     */
+    static void configure( Set<String> names, long bytes )
+    {
+        if ( bytes <= 0 )
+        {
+            throw new IllegalArgumentException( BYTES_PROPERTY + " must be positive: " + bytes );
+        }
+        capacity = bytes;
+        caches = new LinkedHashSet<>( names );
+    }
+
+
+    /**
+     * @param manager holding the caches.
+     * @return the names of the caches given a second tier.
+     */
+    static List<String> install( CacheManager manager )
+    {
+        List<String> names = new ArrayList<>();
+        for ( String name : manager.getCacheNames() )
+        {
+            Ehcache cache = manager.getEhcache( name );
+            if ( cache != null && install( manager, cache ) != cache )
+            {
+                names.add( name );
+            }
+        }
+        return names;
+    }
+
+
+    /**
+     * Give a cache its second tier if it, or the cache it is a tenant partition of, is named by
+     * {@link #CACHES_PROPERTY}.
+     *
+     * @param manager holding the cache.
+     * @param cache   registered with the manager.
+     * @return the tiered cache now registered in its place, the cache itself if it doesn't get a tier.
+     */
+    static Ehcache install( CacheManager manager, Ehcache cache )
+    {
+        Set<String> names = caches;
+        String name = cache.getName();
+        int separator = name.indexOf( SEPARATOR );
+        String base = separator < 0 ? name : name.substring( 0, separator );
+        if ( names == null || !names.contains( base ) || cache instanceof TieredCache )
+        {
+            return cache;
+        }
+        if ( cache instanceof EhcacheDecoratorAdapter )
+        {
+            // e.g. partitioned already, the tier belongs underneath each partition
+            LOG.warn( "install off-heap tier skipped for decorated cache " + name );
+            return cache;
+        }
+        TieredCache tiered = new TieredCache( cache, capacity );
+        manager.replaceCacheWithDecoratedCache( cache, tiered );
+        return tiered;
+    }
+
+
+    /**
+     * @param value held by a cache.
+     * @return its compact form, null if it can't be written.
+     */
+    static byte[] encode( Object value )
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+        try
+        {
+            if ( isRoleGraph( value ) )
+            {
+                buffer.write( GRAPH );
+                // data streams write a few bytes at a time, each of them a native call into the deflater unless buffered
+                try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new DeflaterOutputStream(
+                    buffer, deflater, BUFFER_SIZE ), BUFFER_SIZE ) ) )
+                {
+                    writeGraph( ( SimpleDirectedGraph<?, ?> ) value, out );
+                }
+            }
+            else if ( value instanceof Serializable )
+            {
+                buffer.write( SERIALIZED );
+                try ( ObjectOutputStream out = new ObjectOutputStream( new BufferedOutputStream(
+                    new DeflaterOutputStream( buffer, deflater, BUFFER_SIZE ), BUFFER_SIZE ) ) )
+                {
+                    out.writeObject( value );
+                }
+            }
+            else
+            {
+                return null;
+            }
+            return buffer.toByteArray();
+        }
+        catch ( IOException e )
+        {
+            LOG.warn( "encode can't write " + value.getClass().getName() + ": " + e );
+            return null;
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+
+    /**
+     * @param data written by {@link #encode(Object)}.
+     * @return the value, a copy of the one encoded.
+     * @throws IOException if the data is corrupt.
+     */
+    static Object decode( byte[] data ) throws IOException
+    {
+        if ( data[0] != GRAPH && data[0] != SERIALIZED )
+        {
+            throw new IOException( "Corrupt off-heap entry type " + data[0] );
+        }
+        Inflater inflater = new Inflater();
+        try ( InputStream inflated = new BufferedInputStream( new InflaterInputStream( new ByteArrayInputStream(
+            data, 1, data.length - 1 ), inflater, BUFFER_SIZE ), BUFFER_SIZE ) )
+        {
+            if ( data[0] == GRAPH )
+            {
+                return readGraph( new DataInputStream( inflated ) );
+            }
+            return new ObjectInputStream( inflated ).readObject();
+        }
+        catch ( ClassNotFoundException e )
+        {
+            throw new IOException( e );
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+
+    /**
+     * @return true for a hierarchy as fortress-core builds them: role or org unit names linked child to parent by
+     * relationships naming the same two.
+     */
+    private static boolean isRoleGraph( Object value )
+    {
+        if ( value == null || value.getClass() != SimpleDirectedGraph.class )
+        {
+            return false;
+        }
+        SimpleDirectedGraph<?, ?> graph = ( SimpleDirectedGraph<?, ?> ) value;
+        for ( Object vertex : graph.vertexSet() )
+        {
+            if ( !( vertex instanceof String ) )
+            {
+                return false;
+            }
+        }
+        for ( Object edge : graph.edgeSet() )
+        {
+            if ( edge == null || edge.getClass() != Relationship.class )
+            {
+                return false;
+            }
+            Relationship relationship = ( Relationship ) edge;
+            if ( !graph.getEdgeSource( cast( edge ) ).equals( relationship.getChild() ) || !graph.getEdgeTarget(
+                cast( edge ) ).equals( relationship.getParent() ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <E> E cast( Object edge )
+    {
+        return ( E ) edge;
+    }
+
+
+    /**
+     * Each name is written once, an edge is the positions of its two vertices.
+     */
+    private static void writeGraph( SimpleDirectedGraph<?, ?> graph, DataOutputStream out ) throws IOException
+    {
+        Map<Object, Integer> positions = new HashMap<>();
+        out.writeInt( graph.vertexSet().size() );
+        for ( Object vertex : graph.vertexSet() )
+        {
+            positions.put( vertex, positions.size() );
+            out.writeUTF( ( String ) vertex );
+        }
+        out.writeInt( graph.edgeSet().size() );
+        for ( Object edge : graph.edgeSet() )
+        {
+            out.writeInt( positions.get( graph.getEdgeSource( cast( edge ) ) ) );
+            out.writeInt( positions.get( graph.getEdgeTarget( cast( edge ) ) ) );
+        }
+    }
+
+
+    private static SimpleDirectedGraph<String, Relationship> readGraph( DataInputStream in ) throws IOException
+    {
+        SimpleDirectedGraph<String, Relationship> graph = new SimpleDirectedGraph<>( Relationship.class );
+        String[] vertices = new String[in.readInt()];
+        for ( int i = 0; i < vertices.length; i++ )
+        {
+            vertices[i] = in.readUTF();
+            graph.addVertex( vertices[i] );
+        }
+        int edges = in.readInt();
+        for ( int i = 0; i < edges; i++ )
+        {
+            String child = vertices[in.readInt()];
+            String parent = vertices[in.readInt()];
+            graph.addEdge( child, parent, new Relationship( child, parent ) );
+        }
+        return graph;
+    }
+
+
+    private static String getProperty( String name )
+    {
+        String value = System.getProperty( name );
+        if ( StringUtils.isEmpty( value ) )
+        {
+            value = Config.getInstance().getProperty( name );
+        }
+        return value;
+    }
+
+
+    /**
+     * Heap cache with the second tier underneath.
+     */
+    static final class TieredCache extends EhcacheDecoratorAdapter
+    {
+        private final Store store;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong spills = new AtomicLong();
+
+
+        TieredCache( Ehcache cache, long capacity )
+        {
+            super( cache );
+            store = new Store( capacity );
+            cache.getCacheEventNotificationService().registerListener( new Spill() );
+        }
+
+
+        @Override
+        public Element get( Object key ) throws CacheException
+        {
+            Element element = underlyingCache.get( key );
+            return element != null ? element : promote( key );
+        }
+
+
+        @Override
+        public Element get( Serializable key ) throws CacheException
+        {
+            return get( ( Object ) key );
+        }
+
+
+        @Override
+        public Element getQuiet( Object key ) throws CacheException
+        {
+            Element element = underlyingCache.getQuiet( key );
+            return element != null ? element : promote( key );
+        }
+
+
+        @Override
+        public Element getQuiet( Serializable key ) throws CacheException
+        {
+            return getQuiet( ( Object ) key );
+        }
+
+
+        @Override
+        public void put( Element element ) throws CacheException
+        {
+            store.remove( element.getObjectKey() );
+            underlyingCache.put( element );
+        }
+
+
+        @Override
+        public void put( Element element, boolean doNotNotifyCacheReplicators ) throws CacheException
+        {
+            store.remove( element.getObjectKey() );
+            underlyingCache.put( element, doNotNotifyCacheReplicators );
+        }
+
+
+        @Override
+        public void putQuiet( Element element ) throws CacheException
+        {
+            store.remove( element.getObjectKey() );
+            underlyingCache.putQuiet( element );
+        }
+
+
+        @Override
+        public Element putIfAbsent( Element element )
+        {
+            store.remove( element.getObjectKey() );
+            return underlyingCache.putIfAbsent( element );
+        }
+
+
+        @Override
+        public boolean remove( Object key )
+        {
+            return store.remove( key ) != null | underlyingCache.remove( key );
+        }
+
+
+        @Override
+        public boolean remove( Object key, boolean doNotNotifyCacheReplicators )
+        {
+            return store.remove( key ) != null | underlyingCache.remove( key, doNotNotifyCacheReplicators );
+        }
+
+
+        @Override
+        public boolean remove( Serializable key )
+        {
+            return remove( ( Object ) key );
+        }
+
+
+        @Override
+        public boolean remove( Serializable key, boolean doNotNotifyCacheReplicators )
+        {
+            return remove( ( Object ) key, doNotNotifyCacheReplicators );
+        }
+
+
+        @Override
+        public void removeAll()
+        {
+            store.clear();
+            underlyingCache.removeAll();
+        }
+
+
+        @Override
+        public void removeAll( boolean doNotNotifyCacheReplicators )
+        {
+            store.clear();
+            underlyingCache.removeAll( doNotNotifyCacheReplicators );
+        }
+
+
+        /**
+         * @return entries in the second tier.
+         */
+        public int getOffHeapSize()
+        {
+            return store.size();
+        }
+
+
+        /**
+         * @return bytes of direct memory held by the second tier.
+         */
+        public long getOffHeapBytes()
+        {
+            return store.used();
+        }
+
+
+        /**
+         * @return gets that missed the heap and were answered by the second tier.
+         */
+        public long getOffHeapHits()
+        {
+            return hits.get();
+        }
+
+
+        /**
+         * @return gets that missed both tiers.
+         */
+        public long getOffHeapMisses()
+        {
+            return misses.get();
+        }
+
+
+        /**
+         * @return entries written to the second tier.
+         */
+        public long getSpills()
+        {
+            return spills.get();
+        }
+
+
+        private Element promote( Object key )
+        {
+            Slot slot = store.remove( key );
+            long now = System.currentTimeMillis();
+            if ( slot == null || slot.expires > 0 && slot.expires <= now )
+            {
+                misses.incrementAndGet();
+                return null;
+            }
+            Object value;
+            try
+            {
+                value = decode( slot.read() );
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                LOG.warn( "promote dropping " + key + " of " + getName() + ": " + e );
+                misses.incrementAndGet();
+                return null;
+            }
+            Element element = new Element( key, value );
+            if ( slot.expires > 0 )
+            {
+                // what was left of its time on the heap
+                element.setTimeToLive( ( int ) Math.max( 1, ( slot.expires - now + 999 ) / 1000 ) );
+                element.setTimeToIdle( ( int ) Math.min( Integer.MAX_VALUE, getCacheConfiguration()
+                    .getTimeToIdleSeconds() ) );
+            }
+            underlyingCache.put( element );
+            hits.incrementAndGet();
+            return element;
+        }
+
+
+        /**
+         * @return when the entry would have expired had it stayed on the heap, 0 for never.
+         */
+        private long getExpiry( Element element )
+        {
+            CacheConfiguration configuration = getCacheConfiguration();
+            if ( configuration.isEternal() )
+            {
+                return 0;
+            }
+            long expires = 0;
+            if ( configuration.getTimeToLiveSeconds() > 0 )
+            {
+                expires = element.getCreationTime() + configuration.getTimeToLiveSeconds() * 1000;
+            }
+            if ( configuration.getTimeToIdleSeconds() > 0 )
+            {
+                // it's idle from the moment it was evicted
+                long idle = System.currentTimeMillis() + configuration.getTimeToIdleSeconds() * 1000;
+                expires = expires > 0 ? Math.min( expires, idle ) : idle;
+            }
+            return expires;
+        }
+
+
+        /**
+         * Writes the entries evicted from the heap to the second tier.
+         */
+        private final class Spill implements CacheEventListener
+        {
+            @Override
+            public void notifyElementEvicted( Ehcache cache, Element element )
+            {
+                Object value = element.getObjectValue();
+                byte[] data = value != null ? encode( value ) : null;
+                if ( data != null && store.put( element.getObjectKey(), data, getExpiry( element ) ) )
+                {
+                    spills.incrementAndGet();
+                }
+            }
+
+
+            @Override
+            public void notifyElementPut( Ehcache cache, Element element )
+            {
+            }
+
+
+            @Override
+            public void notifyElementUpdated( Ehcache cache, Element element )
+            {
+            }
+
+
+            @Override
+            public void notifyElementRemoved( Ehcache cache, Element element )
+            {
+            }
+
+
+            @Override
+            public void notifyElementExpired( Ehcache cache, Element element )
+            {
+            }
+
+
+            @Override
+            public void notifyRemoveAll( Ehcache cache )
+            {
+            }
+
+
+            @Override
+            public void dispose()
+            {
+                store.clear();
+            }
+
+
+            @Override
+            public Object clone() throws CloneNotSupportedException
+            {
+                throw new CloneNotSupportedException( "Spill is bound to one cache" );
+            }
+        }
+    }
+
+
+    /**
+     * Direct buffers by key, the least recently written dropped once the limit is reached.
+     */
+    private static final class Store
+    {
+        private final long capacity;
+        private final Map<Object, Slot> slots = new LinkedHashMap<>();
+        private long used;
+
+
+        Store( long capacity )
+        {
+            this.capacity = capacity;
+        }
+
+
+        /**
+         * @return false if the data alone is larger than the limit.
+         */
+        boolean put( Object key, byte[] data, long expires )
+        {
+            if ( data.length > capacity )
+            {
+                return false;
+            }
+            // copied outside of the lock, allocating direct memory may wait for the collector to free some
+            ByteBuffer buffer = ByteBuffer.allocateDirect( data.length );
+            buffer.put( data );
+            buffer.flip();
+            synchronized ( this )
+            {
+                remove( key );
+                Iterator<Slot> eldest = slots.values().iterator();
+                while ( used + data.length > capacity && eldest.hasNext() )
+                {
+                    used -= eldest.next().buffer.capacity();
+                    eldest.remove();
+                }
+                slots.put( key, new Slot( buffer, expires ) );
+                used += data.length;
+            }
+            return true;
+        }
+
+
+        synchronized Slot remove( Object key )
+        {
+            Slot slot = slots.remove( key );
+            if ( slot != null )
+            {
+                used -= slot.buffer.capacity();
+            }
+            return slot;
+        }
+
+
+        synchronized void clear()
+        {
+            slots.clear();
+            used = 0;
+        }
+
+
+        synchronized int size()
+        {
+            return slots.size();
+        }
+
+
+        synchronized long used()
+        {
+            return used;
+        }
+    }
+
+
+    /**
+     * One entry of the second tier.
+     */
+    private static final class Slot
+    {
+        private final ByteBuffer buffer;
+        private final long expires;
+
+
+        Slot( ByteBuffer buffer, long expires )
+        {
+            this.buffer = buffer;
+            this.expires = expires;
+        }
+
+
+        byte[] read()
+        {
+            byte[] data = new byte[buffer.capacity()];
+            buffer.duplicate().get( data );
+            return data;
+        }
+    }
+}
@@ -0,0 +1,528 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Materialized role to permission closure of one tenant.  Every permission is numbered with an int id and the
+ * permissions granted directly to a role are kept as a {@link BitSet}.  The closure of a role, its own grants along
+ * with the grants of all of its ascendants in the {@link RoleClosure}, is computed the first time it is asked for and
+ * kept until a grant or hierarchy edge that affects it changes.  Changes only discard the closures of the role
+ * concerned and its descendants, everything else stays materialized.
+ * <p>
+ * One index is cached per tenant and permission type.  It is kept current by the permission and role panels and
+ * rebuilt after {@link RoleGraph#TTL} millis to pick up changes made outside of this application.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class PermissionClosure
+{
+    private static final Logger LOG = Logger.getLogger( PermissionClosure.class.getName() );
+    private static final Map<String, PermissionClosure> INDEXES = new ConcurrentHashMap<>();
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<Permission> perms = new ArrayList<>();
+    private final Map<String, BitSet> grants = new HashMap<>();
+    private final Map<String, BitSet> closures = new ConcurrentHashMap<>();
+    private final long created;
+    private volatile long generation = GENERATIONS.incrementAndGet();
+
+
+    /**
+     * Build the index from a complete list of permissions.
+     *
+     * @param list every permission of the tenant along with the roles it is granted to.
+     */
+    public PermissionClosure( Collection<Permission> list )
+    {
+        for ( Permission perm : list )
+        {
+            int id = newId( perm );
+            for ( String role : getRoles( perm ) )
+            {
+                getGrants( role, true ).set( id );
+            }
+        }
+        created = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Return the cached index for the current tenant, loading it if missing or expired.
+     *
+     * @param isAdmin   if true return the administrative permission index.
+     * @param reviewMgr used to load the permissions.
+     * @return the index.
+     * @throws SecurityException if the permissions can't be loaded.
+     */
+    public static PermissionClosure getInstance( boolean isAdmin, ReviewMgr reviewMgr ) throws SecurityException
+    {
+        String cacheKey = getCacheKey( isAdmin );
+        PermissionClosure index = INDEXES.get( cacheKey );
+        if ( index == null || index.isExpired() )
+        {
+            synchronized ( INDEXES )
+            {
+                index = INDEXES.get( cacheKey );
+                if ( index == null || index.isExpired() )
+                {
+                    long start = System.currentTimeMillis();
+                    Permission search = new Permission( "", "" );
+                    search.setAdmin( isAdmin );
+                    List<Permission> list = reviewMgr.findPermissions( search );
+                    index = new PermissionClosure( list != null ? list : new ArrayList<Permission>() );
+                    INDEXES.put( cacheKey, index );
+                    LOG.info( "getInstance loaded " + cacheKey + " perms=" + index.size() + " in " + ( System
+                        .currentTimeMillis() - start ) + "ms" );
+                }
+            }
+        }
+        return index;
+    }
+
+
+    /**
+     * @param isAdmin if true return the administrative permission index.
+     * @return the cached index of the current tenant or null if it hasn't been loaded, used to apply changes without
+     * forcing a load.
+     */
+    public static PermissionClosure getLoaded( boolean isAdmin )
+    {
+        return INDEXES.get( getCacheKey( isAdmin ) );
+    }
+
+
+    /**
+     * Discard the cached index of the current tenant so the next call to {@link #getInstance} reloads it.
+     *
+     * @param isAdmin if true discard the administrative permission index.
+     */
+    public static void invalidate( boolean isAdmin )
+    {
+        INDEXES.remove( getCacheKey( isAdmin ) );
+    }
+
+
+    /**
+     * @return number of permissions indexed.
+     */
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return ids.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @param id of a permission, taken from one of the sets returned by this index.
+     * @return the permission or null if it has been deleted.
+     */
+    public Permission getPermission( int id )
+    {
+        lock.readLock().lock();
+        try
+        {
+            return id < perms.size() ? perms.get( id ) : null;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @param set of permission ids taken from one of the sets returned by this index.
+     * @return the permissions by id, deleted ones are left out.
+     */
+    public Map<Integer, Permission> getPermissions( BitSet set )
+    {
+        lock.readLock().lock();
+        try
+        {
+            Map<Integer, Permission> result = new LinkedHashMap<>( set.cardinality() * 2 );
+            for ( int id = set.nextSetBit( 0 ); id >= 0 && id < perms.size(); id = set.nextSetBit( id + 1 ) )
+            {
+                Permission perm = perms.get( id );
+                if ( perm != null )
+                {
+                    result.put( id, perm );
+                }
+            }
+            return result;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @param objNames names of the permission objects, case insensitive.
+     * @return every operation of the objects by id, in id order.
+     */
+    public Map<Integer, Permission> findPermissions( Collection<String> objNames )
+    {
+        Set<String> keys = new HashSet<>();
+        for ( String objName : objNames )
+        {
+            keys.add( key( objName ) );
+        }
+        lock.readLock().lock();
+        try
+        {
+            Map<Integer, Permission> result = new LinkedHashMap<>();
+            for ( int id = 0; id < perms.size(); id++ )
+            {
+                Permission perm = perms.get( id );
+                if ( perm != null && keys.contains( key( perm.getObjName() ) ) )
+                {
+                    result.put( id, perm );
+                }
+            }
+            return result;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @param role name of the role.
+     * @return copy of the ids of the permissions granted directly to the role.
+     */
+    public BitSet getGrants( String role )
+    {
+        lock.readLock().lock();
+        try
+        {
+            BitSet direct = getGrants( role, false );
+            return direct != null ? ( BitSet ) direct.clone() : new BitSet();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Return the ids of the permissions granted to a role either directly or through one of its ascendants.
+     *
+     * @param role  name of the role.
+     * @param roles hierarchy of the same tenant and role type.
+     * @return the materialized closure, shared with other callers so it must not be modified.
+     */
+    public BitSet getClosure( String role, RoleClosure roles )
+    {
+        String key = key( role );
+        BitSet closure = closures.get( key );
+        if ( closure != null )
+        {
+            return closure;
+        }
+        lock.readLock().lock();
+        try
+        {
+            closure = new BitSet();
+            BitSet direct = getGrants( role, false );
+            if ( direct != null )
+            {
+                closure.or( direct );
+            }
+            for ( String ascendant : roles.getAscendants( role ) )
+            {
+                direct = getGrants( ascendant, false );
+                if ( direct != null )
+                {
+                    closure.or( direct );
+                }
+            }
+            // computed under the read lock so a concurrent change can't slip in between the read and the put
+            closures.put( key, closure );
+            return closure;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Apply an added or updated permission.  Only the roles whose grant changed and their descendants are affected.
+     *
+     * @param perm  with the complete set of roles it is granted to.
+     * @param roles hierarchy of the same tenant, null if it isn't loaded in which case every closure is discarded.
+     */
+    public void setPermission( Permission perm, RoleClosure roles )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            generation = GENERATIONS.incrementAndGet();
+            Integer id = ids.get( key( perm ) );
+            Set<String> before = new HashSet<>();
+            if ( id == null )
+            {
+                id = newId( perm );
+            }
+            else
+            {
+                before.addAll( getRoles( perms.get( id ) ) );
+                perms.set( id, perm );
+            }
+            Set<String> after = getRoles( perm );
+            for ( String role : before )
+            {
+                if ( !after.contains( role ) )
+                {
+                    getGrants( role, true ).clear( id );
+                    discard( role, roles );
+                }
+            }
+            for ( String role : after )
+            {
+                if ( !before.contains( role ) )
+                {
+                    getGrants( role, true ).set( id );
+                    discard( role, roles );
+                }
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * @param perm that was deleted.
+     */
+    public void deletePermission( Permission perm )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Integer id = ids.remove( key( perm ) );
+            if ( id == null )
+            {
+                return;
+            }
+            generation = GENERATIONS.incrementAndGet();
+            // the id is left unused, materialized closures are shared with readers so those holding it are dropped
+            perms.set( id, null );
+            for ( BitSet direct : grants.values() )
+            {
+                direct.clear( id );
+            }
+            Iterator<BitSet> iterator = closures.values().iterator();
+            while ( iterator.hasNext() )
+            {
+                if ( iterator.next().get( id ) )
+                {
+                    iterator.remove();
+                }
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Discard the closures that depend on the parents of a role.  Call after the role was added or its parents
+     * changed in the {@link RoleClosure}.
+     *
+     * @param role  name of the role.
+     * @param roles hierarchy of the same tenant, null if it isn't loaded in which case every closure is discarded.
+     */
+    public void updateRole( String role, RoleClosure roles )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            generation = GENERATIONS.incrementAndGet();
+            discard( role, roles );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Drop the grants of a role.  Call before the role is removed from the {@link RoleClosure} so its descendants can
+     * still be found.
+     *
+     * @param role  name of the role.
+     * @param roles hierarchy of the same tenant, null if it isn't loaded in which case every closure is discarded.
+     */
+    public void deleteRole( String role, RoleClosure roles )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            generation = GENERATIONS.incrementAndGet();
+            discard( role, roles );
+            grants.remove( key( role ) );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Callers hold the write lock.
+     */
+    private void discard( String role, RoleClosure roles )
+    {
+        if ( roles == null )
+        {
+            closures.clear();
+            return;
+        }
+        closures.remove( key( role ) );
+        for ( String descendant : roles.getDescendants( role ) )
+        {
+            closures.remove( key( descendant ) );
+        }
+    }
+
+
+    /**
+     * Callers hold the write lock or are the constructor.
+     */
+    private int newId( Permission perm )
+    {
+        int id = perms.size();
+        perms.add( perm );
+        ids.put( key( perm ), id );
+        return id;
+    }
+
+
+    private BitSet getGrants( String role, boolean create )
+    {
+        String key = key( role );
+        BitSet direct = grants.get( key );
+        if ( direct == null && create )
+        {
+            direct = new BitSet();
+            grants.put( key, direct );
+        }
+        return direct;
+    }
+
+
+    private static Set<String> getRoles( Permission perm )
+    {
+        Set<String> roles = perm.getRoles();
+        if ( roles == null || roles.isEmpty() )
+        {
+            return Collections.emptySet();
+        }
+        Set<String> keys = new HashSet<>( roles.size() * 2 );
+        for ( String role : roles )
+        {
+            keys.add( key( role ) );
+        }
+        return keys;
+    }
+
+
+    /**
+     * @return a number that changes whenever the index does, loaded or changed by this application, never 0.  A list
+     * of permissions read while the index had this number is in step with it as long as it stays the same.
+     */
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+
+    private boolean isExpired()
+    {
+        return System.currentTimeMillis() - created > RoleGraph.TTL;
+    }
+
+
+    private static String getCacheKey( boolean isAdmin )
+    {
+        return Tenants.get() + ( isAdmin ? ":admin" : ":rbac" );
+    }
+
+
+    /**
+     * @param perm permission.
+     * @return the key the permission is indexed by, case insensitive.
+     */
+    static String key( Permission perm )
+    {
+        return key( perm.getObjName() ) + '#' + key( perm.getOpName() ) + '#' + key( perm.getObjId() );
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Immutable set of session permissions shared by every session of the same tenant with the same active roles.  A
+ * help desk of hundreds of administrators holding the same roles ends up with a single copy of their permissions
+ * and each {@link WicketSession} only keeps a reference to it.
+ * <p>
+ * Sets are interned by {@link #intern} under the tenant plus the sorted names of the active roles.  The registry only
+ * holds weak references, a set goes away with the last session pointing at it.  Permissions granted to a user
+ * directly make the content differ for the same roles, so a set is only shared when its content matches too,
+ * otherwise the session gets a private one.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class PermissionSet implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( PermissionSet.class.getName() );
+    private static final Map<String, Entry> REGISTRY = new HashMap<>();
+    private static final ReferenceQueue<PermissionSet> QUEUE = new ReferenceQueue<>();
+    private final String key;
+    private final List<Permission> permissions;
+    private final transient String[] signature;
+    private final transient Map<String, List<Permission>> byObjOp;
+    // shared by every session holding the set, so it is encoded once
+    private transient volatile byte[] encoded;
+
+
+    private PermissionSet( String key, List<Permission> list )
+    {
+        this.key = key;
+        permissions = Collections.unmodifiableList( new ArrayList<>( list ) );
+        signature = getSignature( list );
+        byObjOp = new HashMap<>( list.size() * 2 );
+        for ( Permission perm : list )
+        {
+            String objOp = key( perm.getObjName() ) + '#' + key( perm.getOpName() );
+            List<Permission> candidates = byObjOp.get( objOp );
+            if ( candidates == null )
+            {
+                candidates = new ArrayList<>( 1 );
+                byObjOp.put( objOp, candidates );
+            }
+            candidates.add( perm );
+        }
+    }
+
+
+    /**
+     * Return the shared set holding the given permissions, registering a new one if there is none yet.
+     *
+     * @param key         as returned by {@link #getKey(Session)}.
+     * @param permissions of the session.
+     * @return the shared set, or a private one if a different set is already registered under the key.
+     */
+    public static PermissionSet intern( String key, List<Permission> permissions )
+    {
+        String[] signature = getSignature( permissions );
+        synchronized ( REGISTRY )
+        {
+            expunge();
+            Entry entry = REGISTRY.get( key );
+            PermissionSet shared = entry != null ? entry.get() : null;
+            if ( shared != null )
+            {
+                if ( Arrays.equals( shared.signature, signature ) )
+                {
+                    return shared;
+                }
+                LOG.debug( "intern content differs for " + key + ", not shared" );
+                return new PermissionSet( key, permissions );
+            }
+            shared = new PermissionSet( key, permissions );
+            REGISTRY.put( key, new Entry( key, shared ) );
+            return shared;
+        }
+    }
+
+
+    /**
+     * @param session fortress session.
+     * @return the tenant followed by the sorted names of the active RBAC and administrative roles.
+     */
+    public static String getKey( Session session )
+    {
+        return Tenants.get() + '|' + getRoleNames( session.getRoles() ) + '|' + getRoleNames( session.getAdminRoles() );
+    }
+
+
+    /**
+     * @return number of sets currently shared, for monitoring.
+     */
+    public static int getRegistered()
+    {
+        synchronized ( REGISTRY )
+        {
+            expunge();
+            return REGISTRY.size();
+        }
+    }
+
+
+    /**
+     * @return the permissions, unmodifiable.
+     */
+    public List<Permission> getPermissions()
+    {
+        return permissions;
+    }
+
+
+    /**
+     * Same result as {@code getPermissions().contains( permission )} without the scan.
+     *
+     * @param permission requires objName and opName.
+     * @return true if found.
+     */
+    public boolean contains( Permission permission )
+    {
+        List<Permission> candidates = byObjOp.get( key( permission.getObjName() ) + '#' + key( permission
+            .getOpName() ) );
+        if ( candidates != null )
+        {
+            for ( Permission candidate : candidates )
+            {
+                if ( permission.equals( candidate ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    public int size()
+    {
+        return permissions.size();
+    }
+
+
+    /**
+     * Compact form used to replicate a session: the key followed by objName, opName and objId of each permission,
+     * each distinct string written once and referred to by index after that, deflated.  Only the fields that identify
+     * a permission are kept.
+     *
+     * @return the encoded set, computed once and shared, must not be modified.
+     */
+    byte[] encode()
+    {
+        byte[] bytes = encoded;
+        if ( bytes == null )
+        {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+            try ( DataOutputStream out = new DataOutputStream( new DeflaterOutputStream( buffer, deflater ) ) )
+            {
+                Map<String, Integer> strings = new HashMap<>();
+                out.writeUTF( key );
+                out.writeInt( permissions.size() );
+                for ( Permission perm : permissions )
+                {
+                    writeString( out, perm.getObjName(), strings );
+                    writeString( out, perm.getOpName(), strings );
+                    writeString( out, perm.getObjId(), strings );
+                }
+            }
+            catch ( IOException e )
+            {
+                // can't happen writing to memory
+                throw new IllegalStateException( e );
+            }
+            finally
+            {
+                deflater.end();
+            }
+            bytes = buffer.toByteArray();
+            encoded = bytes;
+        }
+        return bytes;
+    }
+
+
+    /**
+     * @param bytes as returned by {@link #encode()}.
+     * @return the shared set with the same key and content, interned if there is none yet.
+     * @throws IOException if the bytes are corrupt.
+     */
+    static PermissionSet decode( byte[] bytes ) throws IOException
+    {
+        try ( DataInputStream in = new DataInputStream( new InflaterInputStream( new ByteArrayInputStream(
+            bytes ) ) ) )
+        {
+            List<String> strings = new ArrayList<>();
+            String key = in.readUTF();
+            int size = in.readInt();
+            List<Permission> list = new ArrayList<>( size );
+            for ( int i = 0; i < size; i++ )
+            {
+                Permission perm = new Permission( readString( in, strings ), readString( in, strings ) );
+                perm.setObjId( readString( in, strings ) );
+                list.add( perm );
+            }
+            return intern( key, list );
+        }
+    }
+
+
+    private static void writeString( DataOutputStream out, String value, Map<String, Integer> strings )
+        throws IOException
+    {
+        if ( value == null )
+        {
+            out.writeInt( -1 );
+            return;
+        }
+        Integer index = strings.get( value );
+        if ( index != null )
+        {
+            out.writeInt( index );
+        }
+        else
+        {
+            // the next index, written before the string on its first use
+            strings.put( value, strings.size() );
+            out.writeInt( strings.size() - 1 );
+            out.writeUTF( value );
+        }
+    }
+
+
+    private static String readString( DataInputStream in, List<String> strings ) throws IOException
+    {
+        int index = in.readInt();
+        if ( index < 0 )
+        {
+            return null;
+        }
+        if ( index == strings.size() )
+        {
+            strings.add( in.readUTF() );
+        }
+        return strings.get( index );
+    }
+
+
+    /**
+     * A replicated session shares the set of the receiving node instead of keeping its own copy.
+     */
+    private Object readResolve() throws ObjectStreamException
+    {
+        return intern( key, permissions );
+    }
+
+
+    private static void expunge()
+    {
+        Entry stale;
+        while ( ( stale = ( Entry ) QUEUE.poll() ) != null )
+        {
+            // the key may have been registered again since
+            if ( REGISTRY.get( stale.key ) == stale )
+            {
+                REGISTRY.remove( stale.key );
+            }
+        }
+    }
+
+
+    private static String[] getSignature( List<Permission> list )
+    {
+        String[] signature = new String[list.size()];
+        for ( int i = 0; i < signature.length; i++ )
+        {
+            signature[i] = PermissionClosure.key( list.get( i ) );
+        }
+        Arrays.sort( signature );
+        return signature;
+    }
+
+
+    private static String getRoleNames( Collection<? extends UserRole> roles )
+    {
+        TreeSet<String> names = new TreeSet<>();
+        if ( roles != null )
+        {
+            for ( UserRole role : roles )
+            {
+                names.add( key( role.getName() ) );
+            }
+        }
+        return StringUtils.join( names, ',' );
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+
+
+    private static class Entry extends WeakReference<PermissionSet>
+    {
+        private final String key;
+
+
+        Entry( String key, PermissionSet set )
+        {
+            super( set, QUEUE );
+            this.key = key;
+        }
+    }
+}
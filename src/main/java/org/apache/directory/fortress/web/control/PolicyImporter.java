@@ -0,0 +1,782 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.ant.AdminRoleAnt;
+import org.apache.directory.fortress.core.ant.OrgUnitAnt;
+import org.apache.directory.fortress.core.ant.PermAnt;
+import org.apache.directory.fortress.core.ant.SDSetAnt;
+import org.apache.directory.fortress.core.ant.UserAnt;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermGrant;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Relationship;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Imports a Fortress ant load file, i.e. the same xml consumed by FortressAntTask, from within the web app.  The file
+ * is read with StAX so only one batch of entities is held in memory at a time regardless of the size of the file.
+ * <p>
+ * The file is read once to count and validate every entity, then once per {@link Phase}.  Phases are applied in
+ * dependency order, e.g. org units before the users that reference them and roles, with their hierarchies and
+ * constraints, before the users and assignments that reference them, so the order of the sections within the file
+ * does not matter.  Within a phase entities are sent to the directory in batches of {@link #getBatchSize()} using up
+ * to {@link #getParallelism()} concurrent calls.  Hierarchy phases are applied one entity at a time since every edge
+ * updates the same graph.
+ * <p>
+ * A dry run stops after the validation pass and makes no changes to the directory.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PolicyImporter extends BackgroundJob
+{
+    private static final Logger LOG = Logger.getLogger( PolicyImporter.class.getName() );
+    public static final int MAX_ERRORS = 100;
+    private static final Map<Class<?>, Map<String, Method>> SETTERS = new ConcurrentHashMap<>();
+
+    /**
+     * The sections of the load file that may be imported, listed in the order they are applied.
+     */
+    public enum Phase
+    {
+        ORGUNITS( "addorgunit", "orgunit", OrgUnitAnt.class, true, "name", "typename" ),
+        USER_ORGUNIT_INHERITANCE( "adduserorgunitinheritance", "relationship", Relationship.class, false, "child",
+            "parent" ),
+        PERM_ORGUNIT_INHERITANCE( "addpermorgunitinheritance", "relationship", Relationship.class, false, "child",
+            "parent" ),
+        POLICIES( "addpwpolicy", "policy", PwPolicy.class, true, "name" ),
+        ROLES( "addrole", "role", Role.class, true, "name" ),
+        ADMIN_ROLES( "addadminrole", "role", AdminRoleAnt.class, true, "name" ),
+        ROLE_INHERITANCE( "addroleinheritance", "relationship", Relationship.class, false, "child", "parent" ),
+        ADMIN_ROLE_INHERITANCE( "addadminroleinheritance", "relationship", Relationship.class, false, "child",
+            "parent" ),
+        SDSETS( "addsdset", "sdset", SDSetAnt.class, true, "name", "setmembers" ),
+        // after the roles, their hierarchies and constraints: a user's roles are assigned along with the user
+        USERS( "adduser", "user", UserAnt.class, true, "userid", "ou" ),
+        PERM_OBJS( "addpermobj", "permobj", PermObj.class, true, "objname", "ou" ),
+        PERM_OPS( "addpermop", "permop", PermAnt.class, true, "objname", "opname" ),
+        PERM_GRANTS( "addpermgrant", "permgrant", PermGrant.class, true, "objname", "opname" ),
+        USER_ROLES( "adduserrole", "userrole", UserRole.class, true, "userid", "name" ),
+        USER_ADMIN_ROLES( "adduseradminrole", "userrole", UserAdminRole.class, true, "userid", "name" );
+
+        private final String section;
+        private final String element;
+        private final Class<? extends Serializable> type;
+        private final boolean parallel;
+        private final String[] required;
+
+
+        Phase( String section, String element, Class<? extends Serializable> type, boolean parallel,
+            String... required )
+        {
+            this.section = section;
+            this.element = element;
+            this.type = type;
+            this.parallel = parallel;
+            this.required = required;
+        }
+
+
+        public String getSection()
+        {
+            return section;
+        }
+
+
+        static Phase fromSection( String name )
+        {
+            for ( Phase phase : values() )
+            {
+                if ( phase.section.equalsIgnoreCase( name ) )
+                {
+                    return phase;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final File file;
+    private final boolean dryRun;
+    private final int batchSize;
+    private final int parallelism;
+    private final AdminMgr adminMgr;
+    private final DelAdminMgr delAdminMgr;
+    private final PwPolicyMgr pwPolicyMgr;
+    private final Map<Phase, Integer> totals = Collections.synchronizedMap( new EnumMap<Phase, Integer>( Phase.class ) );
+    private final Map<Phase, BatchResult<Serializable>> results = Collections.synchronizedMap(
+        new EnumMap<Phase, BatchResult<Serializable>>( Phase.class ) );
+    private final List<String> errors = Collections.synchronizedList( new ArrayList<String>() );
+    private final Set<String> skipped = Collections.synchronizedSet( new LinkedHashSet<String>() );
+    private volatile Phase currentPhase;
+    private volatile int errorCount;
+
+
+    /**
+     * @param file        the load file, deleted once the import finishes.
+     * @param dryRun      if true the file is validated but nothing is written to the directory.
+     * @param batchSize   number of entities sent to the directory at a time.
+     * @param parallelism maximum number of concurrent calls to the directory.
+     * @param adminMgr    used for users, roles, permissions and sd sets.
+     * @param delAdminMgr used for org units and admin roles.
+     * @param pwPolicyMgr used for password policies.
+     */
+    public PolicyImporter( File file, boolean dryRun, int batchSize, int parallelism, AdminMgr adminMgr,
+        DelAdminMgr delAdminMgr, PwPolicyMgr pwPolicyMgr )
+    {
+        super( "import-" + file.getName() );
+        this.file = file;
+        this.dryRun = dryRun;
+        this.batchSize = Math.max( 1, batchSize );
+        this.parallelism = Math.max( 1, Math.min( parallelism, BatchExecutor.MAX_PARALLELISM ) );
+        this.adminMgr = adminMgr;
+        this.delAdminMgr = delAdminMgr;
+        this.pwPolicyMgr = pwPolicyMgr;
+    }
+
+
+    @Override
+    protected void execute() throws Exception
+    {
+        try
+        {
+            setStatus( "Validating" );
+            validate();
+            if ( errorCount > 0 )
+            {
+                setStatus( "Validation found " + errorCount + " errors" + ( dryRun ? "" : ", nothing imported" ) );
+                return;
+            }
+            if ( dryRun )
+            {
+                setStatus( "Validation passed, " + getTotal() + " entities ready to import" );
+                return;
+            }
+            BatchExecutor parallelExecutor = new BatchExecutor( parallelism );
+            BatchExecutor serialExecutor = new BatchExecutor( 1 );
+            try
+            {
+                for ( Phase phase : Phase.values() )
+                {
+                    if ( isCancelled() )
+                    {
+                        break;
+                    }
+                    Integer total = totals.get( phase );
+                    if ( total == null || total == 0 )
+                    {
+                        continue;
+                    }
+                    currentPhase = phase;
+                    setStatus( "Importing " + phase.section );
+                    load( phase, phase.parallel ? parallelExecutor : serialExecutor );
+                    LOG.info( "execute phase=" + phase + " " + results.get( phase ) );
+                }
+            }
+            finally
+            {
+                parallelExecutor.shutdown();
+                serialExecutor.shutdown();
+            }
+            currentPhase = null;
+            setStatus( isCancelled() ? "Import cancelled" : "Import complete" );
+        }
+        finally
+        {
+            if ( !file.delete() )
+            {
+                LOG.warn( "execute could not delete file=" + file.getPath() );
+            }
+        }
+    }
+
+
+    /**
+     * Read the whole file, counting the entities of each phase and checking that every attribute maps to a property
+     * of the target entity and that the required attributes are present.
+     */
+    private void validate() throws IOException, XMLStreamException
+    {
+        InputStream in = new FileInputStream( file );
+        XMLStreamReader reader = newReader( in );
+        try
+        {
+            Phase section = null;
+            while ( reader.hasNext() )
+            {
+                int event = reader.next();
+                if ( event == XMLStreamConstants.START_ELEMENT )
+                {
+                    String name = reader.getLocalName();
+                    if ( section != null && section.element.equalsIgnoreCase( name ) )
+                    {
+                        Integer count = totals.get( section );
+                        totals.put( section, count == null ? 1 : count + 1 );
+                        bind( section, reader );
+                    }
+                    else if ( isSection( name ) )
+                    {
+                        section = Phase.fromSection( name );
+                        if ( section == null )
+                        {
+                            skipped.add( name );
+                        }
+                    }
+                }
+                else if ( event == XMLStreamConstants.END_ELEMENT && section != null &&
+                    section.section.equalsIgnoreCase( reader.getLocalName() ) )
+                {
+                    section = null;
+                }
+            }
+        }
+        finally
+        {
+            close( reader, in );
+        }
+    }
+
+
+    /**
+     * Stream the entities for a single phase and apply them in batches.
+     */
+    private void load( final Phase phase, BatchExecutor executor ) throws IOException, XMLStreamException
+    {
+        BatchResult<Serializable> result = new BatchResult<>();
+        results.put( phase, result );
+        BatchExecutor.Operation<Serializable> operation = new BatchExecutor.Operation<Serializable>()
+        {
+            @Override
+            public void execute( Serializable entity ) throws SecurityException
+            {
+                apply( phase, entity );
+            }
+        };
+        List<Serializable> batch = new ArrayList<>( batchSize );
+        InputStream in = new FileInputStream( file );
+        XMLStreamReader reader = newReader( in );
+        result.start();
+        try
+        {
+            boolean inSection = false;
+            while ( reader.hasNext() && !isCancelled() )
+            {
+                int event = reader.next();
+                if ( event == XMLStreamConstants.START_ELEMENT )
+                {
+                    String name = reader.getLocalName();
+                    if ( inSection && phase.element.equalsIgnoreCase( name ) )
+                    {
+                        Serializable entity = bind( phase, reader );
+                        if ( entity != null )
+                        {
+                            batch.add( entity );
+                        }
+                        if ( batch.size() >= batchSize )
+                        {
+                            executor.execute( batch, operation, result );
+                            batch = new ArrayList<>( batchSize );
+                        }
+                    }
+                    else if ( phase.section.equalsIgnoreCase( name ) )
+                    {
+                        inSection = true;
+                    }
+                }
+                else if ( event == XMLStreamConstants.END_ELEMENT && phase.section.equalsIgnoreCase( reader
+                    .getLocalName() ) )
+                {
+                    inSection = false;
+                }
+            }
+            if ( !batch.isEmpty() && !isCancelled() )
+            {
+                executor.execute( batch, operation, result );
+            }
+        }
+        finally
+        {
+            result.stop();
+            close( reader, in );
+        }
+    }
+
+
+    /**
+     * Send one entity to the directory.  Mirrors what FortressAntTask does for the same section.
+     */
+    private void apply( Phase phase, Serializable entity ) throws SecurityException
+    {
+        switch ( phase )
+        {
+            case ORGUNITS:
+                delAdminMgr.add( ( OrgUnit ) entity );
+                break;
+            case USER_ORGUNIT_INHERITANCE:
+                Relationship userOu = ( Relationship ) entity;
+                delAdminMgr.addInheritance( new OrgUnit( userOu.getParent(), OrgUnit.Type.USER ), new OrgUnit(
+                    userOu.getChild(), OrgUnit.Type.USER ) );
+                break;
+            case PERM_ORGUNIT_INHERITANCE:
+                Relationship permOu = ( Relationship ) entity;
+                delAdminMgr.addInheritance( new OrgUnit( permOu.getParent(), OrgUnit.Type.PERM ), new OrgUnit(
+                    permOu.getChild(), OrgUnit.Type.PERM ) );
+                break;
+            case POLICIES:
+                pwPolicyMgr.add( ( PwPolicy ) entity );
+                break;
+            case USERS:
+                addUser( ( User ) entity );
+                break;
+            case ROLES:
+                adminMgr.addRole( ( Role ) entity );
+                break;
+            case ADMIN_ROLES:
+                delAdminMgr.addRole( ( AdminRole ) entity );
+                break;
+            case ROLE_INHERITANCE:
+                Relationship role = ( Relationship ) entity;
+                adminMgr.addInheritance( new Role( role.getParent() ), new Role( role.getChild() ) );
+                break;
+            case ADMIN_ROLE_INHERITANCE:
+                Relationship adminRole = ( Relationship ) entity;
+                delAdminMgr.addInheritance( new AdminRole( adminRole.getParent() ), new AdminRole( adminRole
+                    .getChild() ) );
+                break;
+            case SDSETS:
+                SDSet sdSet = ( SDSet ) entity;
+                if ( sdSet.getType() == SDSet.SDType.DYNAMIC )
+                {
+                    adminMgr.createDsdSet( sdSet );
+                }
+                else
+                {
+                    adminMgr.createSsdSet( sdSet );
+                }
+                break;
+            case PERM_OBJS:
+                try
+                {
+                    adminMgr.addPermObj( ( PermObj ) entity );
+                }
+                catch ( SecurityException se )
+                {
+                    if ( se.getErrorId() != GlobalErrIds.PERM_DUPLICATE )
+                    {
+                        throw se;
+                    }
+                    adminMgr.updatePermObj( ( PermObj ) entity );
+                }
+                break;
+            case PERM_OPS:
+                try
+                {
+                    adminMgr.addPermission( ( Permission ) entity );
+                }
+                catch ( SecurityException se )
+                {
+                    if ( se.getErrorId() != GlobalErrIds.PERM_DUPLICATE )
+                    {
+                        throw se;
+                    }
+                    adminMgr.updatePermission( ( Permission ) entity );
+                }
+                break;
+            case PERM_GRANTS:
+                PermGrant grant = ( PermGrant ) entity;
+                Permission perm = new Permission( grant.getObjName(), grant.getOpName(), grant.isAdmin() );
+                perm.setObjId( grant.getObjId() );
+                if ( StringUtils.isNotEmpty( grant.getRoleNm() ) )
+                {
+                    adminMgr.grantPermission( perm, new Role( grant.getRoleNm() ) );
+                }
+                else
+                {
+                    adminMgr.grantPermission( perm, new User( grant.getUserId() ) );
+                }
+                break;
+            case USER_ROLES:
+                adminMgr.assignUser( ( UserRole ) entity );
+                break;
+            case USER_ADMIN_ROLES:
+                delAdminMgr.assignUser( ( UserAdminRole ) entity );
+                break;
+            default:
+                throw new IllegalStateException( "unsupported phase " + phase );
+        }
+    }
+
+
+    private void addUser( User user ) throws SecurityException
+    {
+        try
+        {
+            adminMgr.addUser( user );
+        }
+        catch ( SecurityException se )
+        {
+            if ( se.getErrorId() != GlobalErrIds.USER_ID_DUPLICATE )
+            {
+                throw se;
+            }
+            adminMgr.updateUser( user );
+        }
+        for ( UserRole userRole : user.getRoles() )
+        {
+            userRole.setUserId( user.getUserId() );
+            adminMgr.assignUser( userRole );
+        }
+        for ( UserAdminRole userAdminRole : user.getAdminRoles() )
+        {
+            userAdminRole.setUserId( user.getUserId() );
+            delAdminMgr.assignUser( userAdminRole );
+        }
+    }
+
+
+    /**
+     * Create the entity for the current element and set its properties from the element's attributes, the same way
+     * ant binds attributes, i.e. a case insensitive match on the name of the setter.
+     *
+     * @return the entity or null if the element is invalid, in which case the reason is added to {@link #getErrors()}.
+     */
+    private Serializable bind( Phase phase, XMLStreamReader reader )
+    {
+        Serializable entity;
+        try
+        {
+            entity = phase.type.getDeclaredConstructor().newInstance();
+        }
+        catch ( ReflectiveOperationException e )
+        {
+            throw new IllegalStateException( "cannot create " + phase.type.getName(), e );
+        }
+        Map<String, Method> setters = setters( phase.type );
+        Set<String> found = new LinkedHashSet<>();
+        boolean valid = true;
+        for ( int i = 0; i < reader.getAttributeCount(); i++ )
+        {
+            String attribute = reader.getAttributeLocalName( i ).toLowerCase( Locale.ENGLISH );
+            String value = reader.getAttributeValue( i );
+            Method setter = setters.get( attribute );
+            if ( setter == null )
+            {
+                valid = error( reader, phase, "unknown attribute '" + attribute + "'" );
+                continue;
+            }
+            try
+            {
+                setter.invoke( entity, convert( value, setter.getParameterTypes()[0] ) );
+                found.add( attribute );
+            }
+            catch ( IllegalArgumentException | IllegalAccessException e )
+            {
+                valid = error( reader, phase, "invalid value for '" + attribute + "': " + value );
+            }
+            catch ( InvocationTargetException e )
+            {
+                valid = error( reader, phase, "invalid value for '" + attribute + "': " + e.getCause() );
+            }
+        }
+        for ( String required : phase.required )
+        {
+            if ( !found.contains( required ) )
+            {
+                valid = error( reader, phase, "missing required attribute '" + required + "'" );
+            }
+        }
+        if ( phase == Phase.PERM_GRANTS && !found.contains( "rolenm" ) && !found.contains( "userid" ) )
+        {
+            valid = error( reader, phase, "requires either 'roleNm' or 'userId'" );
+        }
+        return valid ? entity : null;
+    }
+
+
+    private boolean error( XMLStreamReader reader, Phase phase, String message )
+    {
+        errorCount++;
+        if ( errors.size() < MAX_ERRORS )
+        {
+            errors.add( "line " + reader.getLocation().getLineNumber() + ", " + phase.section + "/" + phase.element +
+                ": " + message );
+        }
+        return false;
+    }
+
+
+    private static Map<String, Method> setters( Class<?> type )
+    {
+        Map<String, Method> setters = SETTERS.get( type );
+        if ( setters == null )
+        {
+            setters = new HashMap<>();
+            for ( Method method : type.getMethods() )
+            {
+                if ( method.getName().startsWith( "set" ) && method.getParameterTypes().length == 1 && isSupported(
+                    method.getParameterTypes()[0] ) )
+                {
+                    String key = method.getName().substring( 3 ).toLowerCase( Locale.ENGLISH );
+                    Method existing = setters.get( key );
+                    // Ant prefers the String flavor when a setter is overloaded.
+                    if ( existing == null || method.getParameterTypes()[0] == String.class )
+                    {
+                        setters.put( key, method );
+                    }
+                }
+            }
+            SETTERS.put( type, setters );
+        }
+        return setters;
+    }
+
+
+    private static boolean isSupported( Class<?> type )
+    {
+        return type == String.class || type == boolean.class || type == Boolean.class || type == int.class ||
+            type == Integer.class || type == long.class || type == Long.class || type == short.class ||
+            type == Short.class || type == char[].class;
+    }
+
+
+    private static Object convert( String value, Class<?> type )
+    {
+        if ( type == String.class )
+        {
+            return value;
+        }
+        else if ( type == boolean.class || type == Boolean.class )
+        {
+            return "true".equalsIgnoreCase( value ) || "yes".equalsIgnoreCase( value ) || "on".equalsIgnoreCase(
+                value );
+        }
+        else if ( type == int.class || type == Integer.class )
+        {
+            return Integer.valueOf( value.trim() );
+        }
+        else if ( type == long.class || type == Long.class )
+        {
+            return Long.valueOf( value.trim() );
+        }
+        else if ( type == short.class || type == Short.class )
+        {
+            return Short.valueOf( value.trim() );
+        }
+        return value.toCharArray();
+    }
+
+
+    private static boolean isSection( String name )
+    {
+        String lower = name.toLowerCase( Locale.ENGLISH );
+        return lower.startsWith( "add" ) || lower.startsWith( "del" ) || lower.startsWith( "upd" );
+    }
+
+
+    private static XMLStreamReader newReader( InputStream in ) throws XMLStreamException
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty( XMLInputFactory.SUPPORT_DTD, false );
+        factory.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+        return factory.createXMLStreamReader( in );
+    }
+
+
+    private static void close( XMLStreamReader reader, InputStream in )
+    {
+        try
+        {
+            reader.close();
+        }
+        catch ( XMLStreamException e )
+        {
+            LOG.warn( "close caught XMLStreamException=" + e );
+        }
+        try
+        {
+            in.close();
+        }
+        catch ( IOException e )
+        {
+            LOG.warn( "close caught IOException=" + e );
+        }
+    }
+
+
+    public boolean isDryRun()
+    {
+        return dryRun;
+    }
+
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+
+    public Phase getCurrentPhase()
+    {
+        return currentPhase;
+    }
+
+
+    /**
+     * @return number of entities found in the file for each phase, populated by the validation pass.
+     */
+    public Map<Phase, Integer> getTotals()
+    {
+        synchronized ( totals )
+        {
+            return new EnumMap<>( totals );
+        }
+    }
+
+
+    /**
+     * @return outcome of each phase that has been started.
+     */
+    public Map<Phase, BatchResult<Serializable>> getResults()
+    {
+        synchronized ( results )
+        {
+            return new EnumMap<>( results );
+        }
+    }
+
+
+    public int getTotal()
+    {
+        int total = 0;
+        for ( Integer count : getTotals().values() )
+        {
+            total += count;
+        }
+        return total;
+    }
+
+
+    public int getProcessed()
+    {
+        int processed = 0;
+        for ( BatchResult<Serializable> result : getResults().values() )
+        {
+            processed += result.getProcessed();
+        }
+        return processed;
+    }
+
+
+    public int getFailed()
+    {
+        int failed = 0;
+        for ( BatchResult<Serializable> result : getResults().values() )
+        {
+            failed += result.getFailed();
+        }
+        return failed;
+    }
+
+
+    /**
+     * @return number of entities processed per second across all phases.
+     */
+    public long getThroughput()
+    {
+        long elapsed = getElapsed();
+        return elapsed > 0 ? getProcessed() * 1000L / elapsed : getProcessed();
+    }
+
+
+    /**
+     * @return the first {@link #MAX_ERRORS} validation errors.
+     */
+    public List<String> getErrors()
+    {
+        synchronized ( errors )
+        {
+            return new ArrayList<>( errors );
+        }
+    }
+
+
+    public int getErrorCount()
+    {
+        return errorCount;
+    }
+
+
+    /**
+     * @return sections found in the file that are not supported by the import, e.g. groups or config.
+     */
+    public Set<String> getSkipped()
+    {
+        synchronized ( skipped )
+        {
+            return new LinkedHashSet<>( skipped );
+        }
+    }
+}
@@ -0,0 +1,996 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AccessMgr;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.AuditMgr;
+import org.apache.directory.fortress.core.BaseException;
+import org.apache.directory.fortress.core.DelAccessMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.GroupMgr;
+import org.apache.directory.fortress.core.Manageable;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.realm.J2eePolicyMgr;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.core.util.string.JavaScriptUtils;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+
+
+/**
+ * Keeps a slow or failing directory from stalling every page: when it stops answering, each model's getList would
+ * hold its request thread until the LDAP timeouts give up, and the request threads run out.  Set
+ * {@link #ENABLE_PROPERTY} and every manager of applicationContext.xml is wrapped, see {@link TenantManagers}.  Each
+ * operation, i.e. method of a manager interface, e.g. ReviewMgr.findUsers, gets:
+ * <ul>
+ * <li>a deadline, {@link #TIMEOUT_PROPERTY}: the call runs on a worker thread and the request stops waiting for it
+ * once it passes.  The call itself isn't interrupted, so the writes, those of the admin managers and of the group
+ * and password policy managers, get no deadline: they run on the request thread until the LDAP timeouts give up,
+ * rather than being reported as failed while they may still complete.  Neither do the calls of the access managers
+ * and the J2EE policy manager, which check and change the user's own session, e.g. AccessMgr.addActiveRole: a call
+ * abandoned at its deadline could still change that session after the failure was shown,</li>
+ * <li>a bulkhead, {@link #BULKHEAD_PROPERTY}: the calls of an operation in progress at a time, abandoned ones
+ * included, so a slow search can't take every thread.  The worker threads are bounded too, by
+ * {@link #WORKERS_PROPERTY},</li>
+ * <li>a circuit breaker, {@link #FAILURES_PROPERTY}: that many failures in a row and the operation isn't called for
+ * {@link #OPEN_PROPERTY} milliseconds, after which a single call tries again.  A failure is a missed deadline, an
+ * unchecked exception, or a fortress exception caused by something other than fortress, e.g. the LDAP connection.
+ * A user or role that doesn't exist is an answer, not a failure.</li>
+ * </ul>
+ * The read-only operations, those of the review and audit managers and the reads of the group and password policy
+ * managers, keep a copy of their results by tenant, admin and arguments, taken again once older than
+ * {@link #STALE_REFRESH_PROPERTY} seconds rather than on every call.  When the breaker is open or the call fails they
+ * return that copy, if no older than {@link #STALE_PROPERTY} seconds, and the page tells the user the results are
+ * stale and from when.  Anything else fails with a SecurityException of error {@link GlobalIds#MANAGER_UNAVAILABLE},
+ * which the models already handle.  Access checks are never answered from a copy.
+ * <p>
+ * Logging in, i.e. createSession, authenticate and deserialize of the access and J2EE policy managers, is called as
+ * is, with no breaker: a directory failing at login fails that login only, it can't keep the next one from trying.
+ * <p>
+ * The deadline of an operation can be set apart from the rest, e.g. resilience.timeout.AuditMgr.searchBinds=60000,
+ * or for all of a manager, e.g. resilience.timeout.AuditMgr=60000.  All properties are read from the system properties
+ * first, then fortress.properties.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class Resilience
+{
+    private static final Logger LOG = Logger.getLogger( Resilience.class.getName() );
+    public static final String ENABLE_PROPERTY = "enable.resilience";
+    public static final String TIMEOUT_PROPERTY = "resilience.timeout";
+    public static final String BULKHEAD_PROPERTY = "resilience.bulkhead";
+    public static final String BULKHEAD_WAIT_PROPERTY = "resilience.bulkhead.wait";
+    public static final String WORKERS_PROPERTY = "resilience.workers";
+    public static final String FAILURES_PROPERTY = "resilience.breaker.failures";
+    public static final String OPEN_PROPERTY = "resilience.breaker.open";
+    public static final String STALE_PROPERTY = "resilience.stale";
+    public static final String STALE_REFRESH_PROPERTY = "resilience.stale.refresh";
+    public static final String STALE_BYTES_PROPERTY = "resilience.stale.bytes";
+    private static final Set<Class<?>> READ_ONLY_MANAGERS = new HashSet<Class<?>>( Arrays.asList( ReviewMgr.class,
+        DelReviewMgr.class, AuditMgr.class ) );
+    private static final Set<Class<?>> READING_MANAGERS = new HashSet<Class<?>>( Arrays.asList( GroupMgr.class,
+        PwPolicyMgr.class ) );
+    private static final Set<Class<?>> WRITING_MANAGERS = new HashSet<Class<?>>( Arrays.asList( AdminMgr.class,
+        DelAdminMgr.class ) );
+    private static final Set<String> READ_METHODS = new HashSet<>( Arrays.asList( "read", "find", "search",
+        "groupRoles", "roleGroups" ) );
+    private static final Set<Class<?>> SESSION_MANAGERS = new HashSet<Class<?>>( Arrays.asList( AccessMgr.class,
+        DelAccessMgr.class, J2eePolicyMgr.class ) );
+    private static final Set<String> LOGIN_METHODS = new HashSet<>( Arrays.asList( "createSession", "authenticate",
+        "deserialize" ) );
+    private static final ThreadLocal<Outcome> OUTCOME = new ThreadLocal<>();
+    private static final ThreadLocal<Long> STALE_SINCE = new ThreadLocal<>();
+    private static final Map<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+    private static final AtomicInteger WORKER_COUNT = new AtomicInteger();
+    private static volatile Settings settings;
+    private static volatile StaleResults staleResults;
+    private static volatile ExecutorService workers;
+
+
+    /**
+     * What the manager calls of the current request came to, the worst of them.
+     */
+    public enum Outcome
+    {
+        /** every call answered */
+        FRESH,
+        /** some results were copies */
+        STALE,
+        /** a call failed with nothing to fall back on */
+        UNAVAILABLE
+    }
+
+
+    private Resilience()
+    {
+    }
+
+
+    /**
+     * @return true if {@link #ENABLE_PROPERTY} is set to true.
+     */
+    public static boolean isEnabled()
+    {
+        return getSettings().enabled;
+    }
+
+
+    /**
+     * Wrap a manager, if enabled.
+     *
+     * @param type    interface of the manager.
+     * @param manager to call.
+     * @param <T>     the interface.
+     * @return the wrapped manager, the manager itself if not enabled.
+     */
+    public static <T> T wrap( Class<T> type, T manager )
+    {
+        if ( !isEnabled() || manager == null )
+        {
+            return manager;
+        }
+        return type.cast( Proxy.newProxyInstance( type.getClassLoader(), new Class<?>[] { type }, new Handler( type,
+            manager ) ) );
+    }
+
+
+    /**
+     * @return the outcome of the calls made by the current request, null if it made none.
+     */
+    public static Outcome getOutcome()
+    {
+        return OUTCOME.get();
+    }
+
+
+    /**
+     * @return the message telling the user some results of the current request are stale or missing, empty if none.
+     */
+    public static String getNotice()
+    {
+        Outcome outcome = OUTCOME.get();
+        if ( outcome == Outcome.STALE )
+        {
+            Long since = STALE_SINCE.get();
+            return "The directory isn't answering, the results shown are from " + new SimpleDateFormat( "HH:mm:ss" )
+                .format( new Date( since != null ? since : System.currentTimeMillis() ) ) + " and may be out of date";
+        }
+        if ( outcome == Outcome.UNAVAILABLE )
+        {
+            return "The directory isn't answering, try again later";
+        }
+        return "";
+    }
+
+
+    /**
+     * @param operation e.g. ReviewMgr.findUsers.
+     * @return its breaker state, CLOSED if it wasn't called yet.
+     */
+    public static String getState( String operation )
+    {
+        Operation tracked = OPERATIONS.get( operation );
+        return tracked != null ? tracked.getState() : Operation.CLOSED;
+    }
+
+
+    /**
+     * Clear the outcome of the current thread, e.g. before a request.
+     */
+    public static void clear()
+    {
+        OUTCOME.remove();
+        STALE_SINCE.remove();
+    }
+
+
+    /**
+     * Read the properties again and forget the operations and results, for tests.
+     */
+    static void reset()
+    {
+        ExecutorService current = workers;
+        if ( current != null )
+        {
+            current.shutdown();
+        }
+        workers = null;
+        settings = null;
+        staleResults = null;
+        OPERATIONS.clear();
+        clear();
+    }
+
+
+    private static void record( Outcome outcome, long staleSince )
+    {
+        Outcome current = OUTCOME.get();
+        if ( current == null || outcome.ordinal() > current.ordinal() )
+        {
+            OUTCOME.set( outcome );
+        }
+        if ( outcome == Outcome.STALE )
+        {
+            Long since = STALE_SINCE.get();
+            if ( since == null || staleSince < since )
+            {
+                STALE_SINCE.set( staleSince );
+            }
+        }
+    }
+
+
+    private static Settings getSettings()
+    {
+        Settings current = settings;
+        if ( current == null )
+        {
+            current = new Settings();
+            settings = current;
+        }
+        return current;
+    }
+
+
+    private static StaleResults getStaleResults()
+    {
+        StaleResults current = staleResults;
+        if ( current == null )
+        {
+            synchronized ( Resilience.class )
+            {
+                current = staleResults;
+                if ( current == null )
+                {
+                    current = new StaleResults( getSettings().staleBytes );
+                    staleResults = current;
+                }
+            }
+        }
+        return current;
+    }
+
+
+    /**
+     * @return the worker threads, at most {@link #WORKERS_PROPERTY}, none kept while idle.
+     */
+    private static ExecutorService getWorkers()
+    {
+        ExecutorService current = workers;
+        if ( current == null )
+        {
+            synchronized ( Resilience.class )
+            {
+                current = workers;
+                if ( current == null )
+                {
+                    current = new ThreadPoolExecutor( 0, getSettings().workers, 60, TimeUnit.SECONDS,
+                        new SynchronousQueue<Runnable>(), new ThreadFactory()
+                    {
+                        @Override
+                        public Thread newThread( Runnable runnable )
+                        {
+                            Thread thread = new Thread( runnable, "fortress-manager-" + WORKER_COUNT
+                                .incrementAndGet() );
+                            thread.setDaemon( true );
+                            return thread;
+                        }
+                    } );
+                    workers = current;
+                }
+            }
+        }
+        return current;
+    }
+
+
+    private static Operation getOperation( Class<?> type, Method method )
+    {
+        String name = type.getSimpleName() + "." + method.getName();
+        Operation operation = OPERATIONS.get( name );
+        if ( operation == null )
+        {
+            Settings current = getSettings();
+            long timeout = getLong( TIMEOUT_PROPERTY + "." + name, getLong( TIMEOUT_PROPERTY + "." + type
+                .getSimpleName(), current.timeout ) );
+            Operation created = new Operation( name, timeout, current );
+            operation = OPERATIONS.putIfAbsent( name, created );
+            operation = operation != null ? operation : created;
+        }
+        return operation;
+    }
+
+
+    private static boolean isReadOnly( Class<?> type, Method method )
+    {
+        return READ_ONLY_MANAGERS.contains( type ) || READING_MANAGERS.contains( type ) && READ_METHODS.contains(
+            method.getName() );
+    }
+
+
+    /**
+     * @return true if the call is run on the request thread with no deadline, its outcome known once it returns.
+     */
+    private static boolean isInline( Class<?> type, Method method )
+    {
+        return WRITING_MANAGERS.contains( type ) || SESSION_MANAGERS.contains( type ) || READING_MANAGERS.contains(
+            type ) && !READ_METHODS.contains( method.getName() );
+    }
+
+
+    private static boolean isLogin( Class<?> type, Method method )
+    {
+        return SESSION_MANAGERS.contains( type ) && LOGIN_METHODS.contains( method.getName() );
+    }
+
+
+    /**
+     * @return true if the exception means the directory, or fortress, isn't working rather than the request being
+     * wrong.
+     */
+    private static boolean isFailure( Throwable e )
+    {
+        if ( !( e instanceof BaseException ) )
+        {
+            return true;
+        }
+        Throwable cause = e.getCause();
+        return cause != null && !( cause instanceof BaseException );
+    }
+
+
+    private static byte[] serialize( Object value )
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream( buffer ) )
+        {
+            out.writeObject( value );
+        }
+        catch ( IOException e )
+        {
+            LOG.debug( "serialize no copy of " + value.getClass().getName() + " kept: " + e );
+            return null;
+        }
+        return buffer.toByteArray();
+    }
+
+
+    private static Object deserialize( byte[] data ) throws IOException
+    {
+        try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( data ) ) )
+        {
+            return in.readObject();
+        }
+        catch ( ClassNotFoundException e )
+        {
+            throw new IOException( e );
+        }
+    }
+
+
+    private static String getProperty( String name )
+    {
+        String value = System.getProperty( name );
+        if ( StringUtils.isEmpty( value ) )
+        {
+            try
+            {
+                value = Config.getInstance().getProperty( name );
+            }
+            catch ( RuntimeException e )
+            {
+                LOG.warn( "getProperty can't read " + name + ": " + e );
+            }
+        }
+        return value;
+    }
+
+
+    private static long getLong( String name, long defaultValue )
+    {
+        String value = getProperty( name );
+        if ( StringUtils.isBlank( value ) )
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Long.parseLong( value.trim() );
+        }
+        catch ( NumberFormatException e )
+        {
+            LOG.warn( "getLong ignoring " + name + "=" + value );
+            return defaultValue;
+        }
+    }
+
+
+    /**
+     * Clears the outcome of the calls before and after each request.
+     */
+    public static class Listener implements IRequestCycleListener
+    {
+        @Override
+        public void onBeginRequest( RequestCycle cycle )
+        {
+            clear();
+        }
+
+
+        @Override
+        public void onDetach( RequestCycle cycle )
+        {
+            clear();
+        }
+    }
+
+
+    /**
+     * Updates the notice of {@link org.apache.directory.fortress.web.FortressWebBasePage} at the end of an ajax
+     * response, once the components updated have read their models.
+     */
+    public static class Notice implements AjaxRequestTarget.IListener
+    {
+        /** Markup id of the notice. */
+        public static final String MARKUP_ID = "staleNotice";
+
+
+        @Override
+        public void onAfterRespond( Map<String, Component> map, AjaxRequestTarget.IJavaScriptResponse response )
+        {
+            // a request that called no manager leaves the notice as it is
+            if ( OUTCOME.get() != null )
+            {
+                response.addJavaScript( "jQuery('#" + MARKUP_ID + "').text('" + JavaScriptUtils.escapeQuotes(
+                    getNotice() ) + "');" );
+            }
+        }
+    }
+
+
+    private static final class Settings
+    {
+        private final boolean enabled;
+        private final long timeout;
+        private final int bulkhead;
+        private final long bulkheadWait;
+        private final int workers;
+        private final int failures;
+        private final long open;
+        private final long stale;
+        private final long staleRefresh;
+        private final long staleBytes;
+
+
+        Settings()
+        {
+            enabled = "true".equalsIgnoreCase( getProperty( ENABLE_PROPERTY ) );
+            timeout = getLong( TIMEOUT_PROPERTY, 15000 );
+            bulkhead = ( int ) Math.max( 1, getLong( BULKHEAD_PROPERTY, 10 ) );
+            bulkheadWait = getLong( BULKHEAD_WAIT_PROPERTY, 500 );
+            // room for that many operations with every permit of their bulkheads taken
+            workers = ( int ) Math.max( bulkhead, getLong( WORKERS_PROPERTY, 10L * bulkhead ) );
+            failures = ( int ) Math.max( 1, getLong( FAILURES_PROPERTY, 5 ) );
+            open = getLong( OPEN_PROPERTY, 30000 );
+            stale = getLong( STALE_PROPERTY, 900 );
+            staleRefresh = getLong( STALE_REFRESH_PROPERTY, 60 );
+            staleBytes = getLong( STALE_BYTES_PROPERTY, 32L * 1024 * 1024 );
+        }
+    }
+
+
+    /**
+     * Deadline, bulkhead and breaker of one operation.
+     */
+    private static final class Operation
+    {
+        private static final String CLOSED = "CLOSED";
+        private static final String OPEN = "OPEN";
+        private static final String HALF_OPEN = "HALF_OPEN";
+        private final String name;
+        private final long timeout;
+        private final long bulkheadWait;
+        private final int threshold;
+        private final long openMillis;
+        private final Semaphore permits;
+        private String state = CLOSED;
+        private int failures;
+        private long openUntil;
+
+
+        Operation( String name, long timeout, Settings settings )
+        {
+            this.name = name;
+            this.timeout = timeout;
+            this.bulkheadWait = settings.bulkheadWait;
+            this.threshold = settings.failures;
+            this.openMillis = settings.open;
+            this.permits = new Semaphore( settings.bulkhead );
+        }
+
+
+        /**
+         * @return true if the breaker lets the call through, once open only a single trial call until it is over.
+         */
+        synchronized boolean allow()
+        {
+            if ( state == CLOSED )
+            {
+                return true;
+            }
+            if ( state == OPEN && System.currentTimeMillis() >= openUntil )
+            {
+                state = HALF_OPEN;
+                return true;
+            }
+            return false;
+        }
+
+
+        boolean acquire() throws InterruptedException
+        {
+            return permits.tryAcquire( bulkheadWait, TimeUnit.MILLISECONDS );
+        }
+
+
+        void release()
+        {
+            permits.release();
+        }
+
+
+        synchronized void succeeded()
+        {
+            failures = 0;
+            if ( state != CLOSED )
+            {
+                LOG.info( "succeeded " + name + " breaker closed" );
+                state = CLOSED;
+            }
+        }
+
+
+        synchronized void failed()
+        {
+            failures++;
+            if ( state == HALF_OPEN || state == CLOSED && failures >= threshold )
+            {
+                LOG.warn( "failed " + name + " " + failures + " times in a row, breaker open for " + openMillis +
+                    "ms" );
+                state = OPEN;
+                openUntil = System.currentTimeMillis() + openMillis;
+            }
+        }
+
+
+        /**
+         * The trial call let through didn't happen, the next one is tried instead.
+         */
+        synchronized void abandoned()
+        {
+            if ( state == HALF_OPEN )
+            {
+                state = OPEN;
+                openUntil = 0;
+            }
+        }
+
+
+        synchronized String getState()
+        {
+            return state;
+        }
+    }
+
+
+    /**
+     * Copies of the latest results of the read-only operations, the least recently used dropped past the limit.
+     */
+    private static final class StaleResults
+    {
+        private final long capacity;
+        private final Map<Key, Copy> copies = new LinkedHashMap<>( 16, 0.75f, true );
+        private long used;
+
+
+        StaleResults( long capacity )
+        {
+            this.capacity = capacity;
+        }
+
+
+        synchronized void put( Key key, byte[] data )
+        {
+            Copy previous = copies.remove( key );
+            if ( previous != null )
+            {
+                used -= previous.data.length;
+            }
+            if ( data.length > capacity )
+            {
+                return;
+            }
+            Iterator<Copy> eldest = copies.values().iterator();
+            while ( used + data.length > capacity && eldest.hasNext() )
+            {
+                used -= eldest.next().data.length;
+                eldest.remove();
+            }
+            copies.put( key, new Copy( data, System.currentTimeMillis() ) );
+            used += data.length;
+        }
+
+
+        synchronized Copy get( Key key )
+        {
+            return copies.get( key );
+        }
+
+
+        /**
+         * @return true if the call has a copy taken no longer than the given millis ago.
+         */
+        synchronized boolean isRecent( Key key, long millis )
+        {
+            Copy copy = copies.get( key );
+            return copy != null && System.currentTimeMillis() - copy.time < millis;
+        }
+    }
+
+
+    private static final class Copy
+    {
+        private final byte[] data;
+        private final long time;
+
+
+        Copy( byte[] data, long time )
+        {
+            this.data = data;
+            this.time = time;
+        }
+    }
+
+
+    /**
+     * Tenant, admin, method and serialized arguments of a call.
+     */
+    private static final class Key
+    {
+        private final String tenant;
+        private final String admin;
+        private final String method;
+        private final byte[] arguments;
+        private final int hash;
+
+
+        Key( String tenant, String admin, String method, byte[] arguments )
+        {
+            this.tenant = tenant;
+            this.admin = admin;
+            this.method = method;
+            this.arguments = arguments;
+            this.hash = ( ( tenant.hashCode() * 31 + ( admin != null ? admin.hashCode() : 0 ) ) * 31 + method
+                .hashCode() ) * 31 + Arrays.hashCode( arguments );
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( !( o instanceof Key ) )
+            {
+                return false;
+            }
+            Key key = ( Key ) o;
+            return hash == key.hash && tenant.equals( key.tenant ) && StringUtils.equals( admin, key.admin ) && method
+                .equals( key.method ) && Arrays.equals( arguments, key.arguments );
+        }
+    }
+
+
+    /**
+     * Calls the manager for the proxy.
+     */
+    private static final class Handler implements InvocationHandler
+    {
+        private final Class<?> type;
+        private final Object manager;
+        // results depend on the admin under ARBAC, so do the copies
+        private volatile String admin;
+
+
+        Handler( Class<?> type, Object manager )
+        {
+            this.type = type;
+            this.manager = manager;
+        }
+
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+        {
+            if ( method.getDeclaringClass() == Object.class || method.getDeclaringClass() == Manageable.class )
+            {
+                if ( "setAdmin".equals( method.getName() ) )
+                {
+                    Session session = ( Session ) args[0];
+                    admin = session != null ? session.getUserId() : null;
+                }
+                return callDirect( method, args );
+            }
+            if ( isLogin( type, method ) )
+            {
+                return callDirect( method, args );
+            }
+            final Operation operation = getOperation( type, method );
+            Key key = null;
+            if ( isReadOnly( type, method ) && getSettings().stale > 0 )
+            {
+                byte[] arguments = serialize( args != null ? args : new Object[0] );
+                key = arguments != null ? new Key( Tenants.get(), admin, method.toString(), arguments ) : null;
+            }
+            if ( !operation.allow() )
+            {
+                return fallBack( operation, key, method, "its breaker is open", null );
+            }
+            if ( !operation.acquire() )
+            {
+                operation.abandoned();
+                return fallBack( operation, key, method, "too many calls of it are in progress", null );
+            }
+            if ( isInline( type, method ) )
+            {
+                return callInline( operation, method, args );
+            }
+            // most reads keep the copy they have, copying every result would cost every healthy call
+            boolean copy = key != null && !getStaleResults().isRecent( key, getSettings().staleRefresh * 1000 );
+            Future<Result> future;
+            try
+            {
+                future = getWorkers().submit( new Call( method, args, copy, operation ) );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                operation.release();
+                operation.abandoned();
+                return fallBack( operation, key, method, "no worker thread is left", e );
+            }
+            try
+            {
+                Result result = operation.timeout > 0 ? future.get( operation.timeout, TimeUnit.MILLISECONDS ) :
+                    future.get();
+                operation.succeeded();
+                if ( key != null && result.copy != null )
+                {
+                    getStaleResults().put( key, result.copy );
+                }
+                record( Outcome.FRESH, 0 );
+                return result.value;
+            }
+            catch ( TimeoutException e )
+            {
+                operation.failed();
+                return fallBack( operation, key, method, "it didn't answer within " + operation.timeout + "ms",
+                    null );
+            }
+            catch ( ExecutionException e )
+            {
+                Throwable cause = e.getCause() instanceof InvocationTargetException ? e.getCause().getCause() : e
+                    .getCause();
+                if ( !isFailure( cause ) )
+                {
+                    operation.succeeded();
+                    throw cause;
+                }
+                operation.failed();
+                return fallBack( operation, key, method, "it failed: " + cause, cause );
+            }
+        }
+
+
+        /**
+         * Call a write, or a call on the user's session, on the request thread with no deadline, its outcome is known
+         * once it returns.
+         */
+        private Object callInline( Operation operation, Method method, Object[] args ) throws Throwable
+        {
+            try
+            {
+                Object value = method.invoke( manager, args );
+                operation.succeeded();
+                record( Outcome.FRESH, 0 );
+                return value;
+            }
+            catch ( InvocationTargetException e )
+            {
+                Throwable cause = e.getCause();
+                if ( isFailure( cause ) )
+                {
+                    operation.failed();
+                    record( Outcome.UNAVAILABLE, 0 );
+                }
+                else
+                {
+                    operation.succeeded();
+                }
+                throw cause;
+            }
+            finally
+            {
+                operation.release();
+            }
+        }
+
+
+        private Object callDirect( Method method, Object[] args ) throws Throwable
+        {
+            try
+            {
+                return method.invoke( manager, args );
+            }
+            catch ( InvocationTargetException e )
+            {
+                throw e.getCause();
+            }
+        }
+
+
+        /**
+         * @return the copy of the latest results of the call if it is read-only and has one recent enough.
+         * @throws Throwable a SecurityException of error {@link GlobalIds#MANAGER_UNAVAILABLE} otherwise.
+         */
+        private Object fallBack( Operation operation, Key key, Method method, String reason, Throwable cause )
+            throws Throwable
+        {
+            Copy copy = key != null ? getStaleResults().get( key ) : null;
+            if ( copy != null && System.currentTimeMillis() - copy.time <= getSettings().stale * 1000 )
+            {
+                try
+                {
+                    Object value = deserialize( copy.data );
+                    LOG.debug( "fallBack " + operation.name + " answered from a copy of " + new Date( copy.time ) +
+                        ", " + reason );
+                    record( Outcome.STALE, copy.time );
+                    return value;
+                }
+                catch ( IOException e )
+                {
+                    LOG.warn( "fallBack " + operation.name + " copy unreadable: " + e );
+                }
+            }
+            record( Outcome.UNAVAILABLE, 0 );
+            String message = operation.name + " is unavailable, " + reason;
+            for ( Class<?> declared : method.getExceptionTypes() )
+            {
+                if ( declared.isAssignableFrom( SecurityException.class ) )
+                {
+                    throw cause instanceof Exception ? new SecurityException( GlobalIds.MANAGER_UNAVAILABLE, message,
+                        ( Exception ) cause ) : new SecurityException( GlobalIds.MANAGER_UNAVAILABLE, message );
+                }
+            }
+            throw new IllegalStateException( message, cause );
+        }
+
+
+        /**
+         * The call on the worker thread, bound to the tenant of the caller.
+         */
+        private final class Call implements Callable<Result>
+        {
+            private final Method method;
+            private final Object[] args;
+            private final boolean copy;
+            private final Operation operation;
+            private final String tenant = Tenants.get();
+
+
+            Call( Method method, Object[] args, boolean copy, Operation operation )
+            {
+                this.method = method;
+                this.args = args;
+                this.copy = copy;
+                this.operation = operation;
+            }
+
+
+            @Override
+            public Result call() throws Exception
+            {
+                String previous = Tenants.set( tenant );
+                try
+                {
+                    Object value = method.invoke( manager, args );
+                    // copied here, before the caller gets to sort or edit the results
+                    return new Result( value, copy ? serialize( value ) : null );
+                }
+                finally
+                {
+                    Tenants.set( previous );
+                    operation.release();
+                }
+            }
+        }
+    }
+
+
+    private static final class Result
+    {
+        private final Object value;
+        private final byte[] copy;
+
+
+        Result( Object value, byte[] copy )
+        {
+            this.value = value;
+            this.copy = copy;
+        }
+    }
+}
@@ -0,0 +1,782 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Transitive closure of the RBAC or administrative role hierarchy of one tenant.  Every role is numbered with an int
+ * id, the immediate parents and children are kept as int arrays and the ascendants and descendants of each role are
+ * kept as id sets.  An id set is a sorted int array while it is small and switches to a {@link BitSet} once that is
+ * more compact, so a flat hierarchy costs a few bytes per role while the top of a deep one costs one bit per role.
+ * <p>
+ * Ascendant, descendant and cycle checks are a lookup in one id set.  Adding a role or an edge updates the closure of
+ * the affected roles only.  Removing an edge walks the ascendants of the roles below it again and drops the roles
+ * that are no longer reachable from the descendant sets above it.
+ * <p>
+ * One index is cached per tenant and role type.  It is kept current by the role panels and rebuilt after
+ * {@link RoleGraph#TTL} millis to pick up changes made outside of this application.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class RoleClosure
+{
+    private static final Logger LOG = Logger.getLogger( RoleClosure.class.getName() );
+    private static final Map<String, RoleClosure> INDEXES = new ConcurrentHashMap<>();
+    private static final int[] EMPTY = new int[0];
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names;
+    private int[][] parents;
+    private int[][] children;
+    private IdSet[] ascendants;
+    private IdSet[] descendants;
+    private int next;
+    private final long created;
+    private volatile long generation = GENERATIONS.incrementAndGet();
+
+
+    /**
+     * Build the index from a complete list of roles.
+     *
+     * @param roles every role of the tenant along with its parents.
+     */
+    public RoleClosure( Collection<? extends Role> roles )
+    {
+        int capacity = Math.max( 16, roles.size() );
+        names = new String[capacity];
+        parents = new int[capacity][];
+        children = new int[capacity][];
+        ascendants = new IdSet[capacity];
+        descendants = new IdSet[capacity];
+        for ( Role role : roles )
+        {
+            newId( role.getName() );
+        }
+        int[] childCounts = new int[next];
+        for ( Role role : roles )
+        {
+            int id = ids.get( key( role.getName() ) );
+            parents[id] = toIds( role.getParents() );
+            for ( int parent : parents[id] )
+            {
+                childCounts[parent]++;
+            }
+        }
+        for ( int id = 0; id < next; id++ )
+        {
+            children[id] = new int[childCounts[id]];
+            childCounts[id] = 0;
+        }
+        for ( int id = 0; id < next; id++ )
+        {
+            for ( int parent : parents[id] )
+            {
+                children[parent][childCounts[parent]++] = id;
+            }
+        }
+        for ( int id = 0; id < next; id++ )
+        {
+            ascendants[id] = closure( id, parents );
+            descendants[id] = closure( id, children );
+        }
+        created = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Return the cached index for the current tenant, loading it if missing or expired.
+     *
+     * @param isAdmin      if true return the administrative role index.
+     * @param reviewMgr    used to load RBAC roles.
+     * @param delReviewMgr used to load administrative roles.
+     * @return the index.
+     * @throws SecurityException if the roles can't be loaded.
+     */
+    public static RoleClosure getInstance( boolean isAdmin, ReviewMgr reviewMgr, DelReviewMgr delReviewMgr )
+        throws SecurityException
+    {
+        String cacheKey = getCacheKey( isAdmin );
+        RoleClosure index = INDEXES.get( cacheKey );
+        if ( index == null || index.isExpired() )
+        {
+            synchronized ( INDEXES )
+            {
+                index = INDEXES.get( cacheKey );
+                if ( index == null || index.isExpired() )
+                {
+                    long start = System.currentTimeMillis();
+                    List<? extends Role> list = isAdmin ? delReviewMgr.findRoles( "" ) : reviewMgr.findRoles( "" );
+                    index = new RoleClosure( list != null ? list : new ArrayList<Role>() );
+                    INDEXES.put( cacheKey, index );
+                    LOG.info( "getInstance loaded " + cacheKey + " roles=" + index.size() + " in " + ( System
+                        .currentTimeMillis() - start ) + "ms" );
+                }
+            }
+        }
+        return index;
+    }
+
+
+    /**
+     * @param isAdmin if true return the administrative role index.
+     * @return the cached index of the current tenant or null if it hasn't been loaded, used to apply changes without
+     * forcing a load.
+     */
+    public static RoleClosure getLoaded( boolean isAdmin )
+    {
+        return INDEXES.get( getCacheKey( isAdmin ) );
+    }
+
+
+    /**
+     * Discard the cached index of the current tenant so the next call to {@link #getInstance} reloads it.
+     *
+     * @param isAdmin if true discard the administrative role index.
+     */
+    public static void invalidate( boolean isAdmin )
+    {
+        INDEXES.remove( getCacheKey( isAdmin ) );
+    }
+
+
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return ids.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    public boolean contains( String name )
+    {
+        lock.readLock().lock();
+        try
+        {
+            return ids.containsKey( key( name ) );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @param ascendant  name of the candidate ascendant.
+     * @param descendant name of the candidate descendant.
+     * @return true if ascendant is a parent of descendant, directly or through other roles.
+     */
+    public boolean isAscendant( String ascendant, String descendant )
+    {
+        lock.readLock().lock();
+        try
+        {
+            Integer asc = ids.get( key( ascendant ) );
+            Integer desc = ids.get( key( descendant ) );
+            return asc != null && desc != null && ascendants[desc].contains( asc );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @param child  name of the role that would get the new parent.
+     * @param parent name of the new parent.
+     * @return true if making parent a parent of child would create a cycle in the hierarchy.
+     */
+    public boolean createsCycle( String child, String parent )
+    {
+        if ( key( child ).equals( key( parent ) ) )
+        {
+            return true;
+        }
+        lock.readLock().lock();
+        try
+        {
+            Integer childId = ids.get( key( child ) );
+            Integer parentId = ids.get( key( parent ) );
+            return childId != null && parentId != null && descendants[childId].contains( parentId );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    public Set<String> getParents( String name )
+    {
+        return getNames( name, true, false );
+    }
+
+
+    public Set<String> getChildren( String name )
+    {
+        return getNames( name, false, false );
+    }
+
+
+    public Set<String> getAscendants( String name )
+    {
+        return getNames( name, true, true );
+    }
+
+
+    public Set<String> getDescendants( String name )
+    {
+        return getNames( name, false, true );
+    }
+
+
+    /**
+     * Add a new role along with its parents.  If the role is already indexed its parents are replaced.
+     *
+     * @param name        of the role.
+     * @param parentNames of the role, may be null.
+     */
+    public void addRole( String name, Set<String> parentNames )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if ( !ids.containsKey( key( name ) ) )
+            {
+                generation = GENERATIONS.incrementAndGet();
+                int id = newId( name );
+                parents[id] = EMPTY;
+                children[id] = EMPTY;
+                ascendants[id] = new IdSet();
+                descendants[id] = new IdSet();
+            }
+            // the write lock is reentrant
+            setParents( name, parentNames );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Remove a role along with every edge to its parents and children.
+     *
+     * @param name of the role.
+     */
+    public void deleteRole( String name )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Integer id = ids.get( key( name ) );
+            if ( id == null )
+            {
+                return;
+            }
+            generation = GENERATIONS.incrementAndGet();
+            for ( int parent : parents[id] )
+            {
+                removeEdge( id, parent );
+            }
+            for ( int child : children[id] )
+            {
+                removeEdge( child, id );
+            }
+            ids.remove( key( name ) );
+            names[id] = null;
+            ascendants[id] = new IdSet();
+            descendants[id] = new IdSet();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Replace the parents of a role, adding and removing only the edges that changed.
+     *
+     * @param name        of the role.
+     * @param parentNames new parents of the role, may be null.
+     * @return false if the role isn't indexed or one of the new parents would create a cycle, in which case that
+     * edge is skipped.
+     */
+    public boolean setParents( String name, Set<String> parentNames )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Integer id = ids.get( key( name ) );
+            if ( id == null )
+            {
+                return false;
+            }
+            int[] wanted = toIds( parentNames );
+            for ( int parent : parents[id] )
+            {
+                if ( indexOf( wanted, parent ) < 0 )
+                {
+                    removeEdge( id, parent );
+                }
+            }
+            boolean added = true;
+            for ( int parent : wanted )
+            {
+                if ( indexOf( parents[id], parent ) < 0 )
+                {
+                    added &= addEdge( id, parent );
+                }
+            }
+            return added;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Add one child to parent edge.
+     *
+     * @return false if either role isn't indexed or the edge would create a cycle.
+     */
+    public boolean addParent( String child, String parent )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Integer childId = ids.get( key( child ) );
+            Integer parentId = ids.get( key( parent ) );
+            return childId != null && parentId != null && addEdge( childId, parentId );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Remove one child to parent edge, a no-op if it doesn't exist.
+     */
+    public void removeParent( String child, String parent )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Integer childId = ids.get( key( child ) );
+            Integer parentId = ids.get( key( parent ) );
+            if ( childId != null && parentId != null )
+            {
+                removeEdge( childId, parentId );
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    private Set<String> getNames( String name, boolean up, boolean transitive )
+    {
+        lock.readLock().lock();
+        try
+        {
+            Integer id = ids.get( key( name ) );
+            if ( id == null )
+            {
+                return Collections.emptySet();
+            }
+            int[] members;
+            if ( transitive )
+            {
+                members = up ? ascendants[id].toArray() : descendants[id].toArray();
+            }
+            else
+            {
+                members = up ? parents[id] : children[id];
+            }
+            Set<String> result = new LinkedHashSet<>( members.length * 2 );
+            for ( int member : members )
+            {
+                if ( member != id )
+                {
+                    result.add( names[member] );
+                }
+            }
+            return result;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Callers hold the write lock.
+     */
+    private boolean addEdge( int child, int parent )
+    {
+        if ( child == parent || descendants[child].contains( parent ) )
+        {
+            LOG.debug( "addEdge rejected cycle " + names[child] + " -> " + names[parent] );
+            return false;
+        }
+        if ( indexOf( parents[child], parent ) >= 0 )
+        {
+            return true;
+        }
+        generation = GENERATIONS.incrementAndGet();
+        parents[child] = append( parents[child], parent );
+        children[parent] = append( children[parent], child );
+        // everything at or below child gains parent and its ascendants, everything at or above parent gains child
+        // and its descendants.
+        IdSet up = new IdSet();
+        up.add( parent, next );
+        up.addAll( ascendants[parent], next );
+        IdSet down = new IdSet();
+        down.add( child, next );
+        down.addAll( descendants[child], next );
+        for ( int member : down.toArray() )
+        {
+            ascendants[member].addAll( up, next );
+        }
+        for ( int member : up.toArray() )
+        {
+            descendants[member].addAll( down, next );
+        }
+        return true;
+    }
+
+
+    /**
+     * Callers hold the write lock.
+     */
+    private void removeEdge( int child, int parent )
+    {
+        int index = indexOf( parents[child], parent );
+        if ( index < 0 )
+        {
+            return;
+        }
+        generation = GENERATIONS.incrementAndGet();
+        parents[child] = remove( parents[child], index );
+        children[parent] = remove( children[parent], indexOf( children[parent], child ) );
+        // only roles at or below child can lose ascendants, their ascendant sets are small so walk them again.
+        int[] below = append( descendants[child].toArray(), child );
+        for ( int member : below )
+        {
+            ascendants[member] = closure( member, parents );
+        }
+        // only roles at or above parent can lose descendants, and only the ones that no longer list them as ascendant.
+        int[] above = append( ascendants[parent].toArray(), parent );
+        for ( int member : above )
+        {
+            for ( int lost : below )
+            {
+                if ( !ascendants[lost].contains( member ) )
+                {
+                    descendants[member].remove( lost );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Walk the edges from one role collecting every role reached.
+     */
+    private IdSet closure( int id, int[][] edges )
+    {
+        IdSet set = new IdSet();
+        int[] stack = new int[16];
+        int top = 0;
+        for ( int edge : edges[id] )
+        {
+            stack = push( stack, top++, edge );
+        }
+        while ( top > 0 )
+        {
+            int member = stack[--top];
+            if ( !set.contains( member ) )
+            {
+                set.add( member, next );
+                for ( int edge : edges[member] )
+                {
+                    stack = push( stack, top++, edge );
+                }
+            }
+        }
+        return set;
+    }
+
+
+    private int newId( String name )
+    {
+        String key = key( name );
+        Integer existing = ids.get( key );
+        if ( existing != null )
+        {
+            return existing;
+        }
+        if ( next == names.length )
+        {
+            int capacity = names.length * 2;
+            names = Arrays.copyOf( names, capacity );
+            parents = Arrays.copyOf( parents, capacity );
+            children = Arrays.copyOf( children, capacity );
+            ascendants = Arrays.copyOf( ascendants, capacity );
+            descendants = Arrays.copyOf( descendants, capacity );
+        }
+        names[next] = name;
+        ids.put( key, next );
+        return next++;
+    }
+
+
+    /**
+     * @return ids of the named roles, names that aren't indexed are skipped.
+     */
+    private int[] toIds( Set<String> roleNames )
+    {
+        if ( roleNames == null || roleNames.isEmpty() )
+        {
+            return EMPTY;
+        }
+        int[] result = new int[roleNames.size()];
+        int count = 0;
+        for ( String roleName : roleNames )
+        {
+            Integer id = ids.get( key( roleName ) );
+            if ( id != null && indexOf( result, count, id ) < 0 )
+            {
+                result[count++] = id;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf( result, count );
+    }
+
+
+    /**
+     * @return a number that changes whenever the index does, loaded or changed by this application, never 0.
+     */
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+
+    private boolean isExpired()
+    {
+        return System.currentTimeMillis() - created > RoleGraph.TTL;
+    }
+
+
+    private static int indexOf( int[] array, int value )
+    {
+        return indexOf( array, array.length, value );
+    }
+
+
+    private static int indexOf( int[] array, int length, int value )
+    {
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( array[i] == value )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    private static int[] append( int[] array, int value )
+    {
+        int[] result = Arrays.copyOf( array, array.length + 1 );
+        result[array.length] = value;
+        return result;
+    }
+
+
+    private static int[] remove( int[] array, int index )
+    {
+        int[] result = new int[array.length - 1];
+        System.arraycopy( array, 0, result, 0, index );
+        System.arraycopy( array, index + 1, result, index, array.length - index - 1 );
+        return result;
+    }
+
+
+    private static int[] push( int[] stack, int top, int value )
+    {
+        int[] result = top == stack.length ? Arrays.copyOf( stack, stack.length * 2 ) : stack;
+        result[top] = value;
+        return result;
+    }
+
+
+    private static String getCacheKey( boolean isAdmin )
+    {
+        return Tenants.get() + ( isAdmin ? ":admin" : ":rbac" );
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+
+
+    /**
+     * Set of role ids.  Held as a sorted int array until a bitset over every id would take less memory.
+     */
+    private static final class IdSet
+    {
+        private int[] members = EMPTY;
+        private int count;
+        private BitSet bits;
+
+
+        boolean contains( int id )
+        {
+            if ( bits != null )
+            {
+                return bits.get( id );
+            }
+            return Arrays.binarySearch( members, 0, count, id ) >= 0;
+        }
+
+
+        /**
+         * @param id       to add.
+         * @param universe number of ids currently allocated, used to pick the representation.
+         */
+        void add( int id, int universe )
+        {
+            if ( bits != null )
+            {
+                bits.set( id );
+                return;
+            }
+            int index = Arrays.binarySearch( members, 0, count, id );
+            if ( index >= 0 )
+            {
+                return;
+            }
+            index = -index - 1;
+            if ( count == members.length )
+            {
+                members = Arrays.copyOf( members, Math.max( 4, count * 2 ) );
+            }
+            System.arraycopy( members, index, members, index + 1, count - index );
+            members[index] = id;
+            count++;
+            // an int costs 32 bits, a bitset costs one bit per id.
+            if ( count * 32L > universe )
+            {
+                bits = new BitSet( universe );
+                for ( int i = 0; i < count; i++ )
+                {
+                    bits.set( members[i] );
+                }
+                members = null;
+            }
+        }
+
+
+        void remove( int id )
+        {
+            if ( bits != null )
+            {
+                bits.clear( id );
+                return;
+            }
+            int index = Arrays.binarySearch( members, 0, count, id );
+            if ( index >= 0 )
+            {
+                System.arraycopy( members, index + 1, members, index, count - index - 1 );
+                count--;
+            }
+        }
+
+
+        void addAll( IdSet other, int universe )
+        {
+            if ( bits != null && other.bits != null )
+            {
+                bits.or( other.bits );
+                return;
+            }
+            for ( int member : other.toArray() )
+            {
+                add( member, universe );
+            }
+        }
+
+
+        int[] toArray()
+        {
+            if ( bits != null )
+            {
+                return bits.stream().toArray();
+            }
+            return Arrays.copyOf( members, count );
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Read only snapshot of the RBAC or administrative role hierarchy of one tenant.  Every role is loaded with a single
+ * search and indexed by parent so the children of a node can be served without going back to the directory.  One
+ * graph is cached per tenant and role type, it is rebuilt after {@link #TTL} millis or once {@link #invalidate} is
+ * called following a change to the roles.
+ * <p>
+ * The graph holds every role of the tenant whatever the user expands: fortress has no search for the children of a
+ * role, so they can't be fetched one node at a time.  Only the tree model of the page grows with the nodes expanded.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class RoleGraph
+{
+    private static final Logger LOG = Logger.getLogger( RoleGraph.class.getName() );
+    public static final long TTL = 5 * 60 * 1000L;
+    private static final Map<String, RoleGraph> GRAPHS = new ConcurrentHashMap<>();
+    private static final Comparator<Role> BY_NAME = new Comparator<Role>()
+    {
+        @Override
+        public int compare( Role r1, Role r2 )
+        {
+            return r1.getName().compareToIgnoreCase( r2.getName() );
+        }
+    };
+    private final Map<String, Role> roles;
+    private final Map<String, List<Role>> children;
+    private final List<Role> roots;
+    private final long created;
+
+
+    private RoleGraph( List<? extends Role> list )
+    {
+        roles = new HashMap<>( list.size() * 2 );
+        for ( Role role : list )
+        {
+            roles.put( key( role.getName() ), role );
+        }
+        children = new HashMap<>();
+        List<Role> top = new ArrayList<>();
+        for ( Role role : list )
+        {
+            boolean hasParent = false;
+            Set<String> parents = role.getParents();
+            if ( parents != null )
+            {
+                for ( String parent : parents )
+                {
+                    String parentKey = key( parent );
+                    if ( roles.containsKey( parentKey ) )
+                    {
+                        List<Role> siblings = children.get( parentKey );
+                        if ( siblings == null )
+                        {
+                            siblings = new ArrayList<>();
+                            children.put( parentKey, siblings );
+                        }
+                        siblings.add( role );
+                        hasParent = true;
+                    }
+                }
+            }
+            if ( !hasParent )
+            {
+                top.add( role );
+            }
+        }
+        for ( List<Role> siblings : children.values() )
+        {
+            Collections.sort( siblings, BY_NAME );
+        }
+        Collections.sort( top, BY_NAME );
+        roots = Collections.unmodifiableList( top );
+        created = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Return the cached graph for the current tenant, loading it if missing or expired.
+     *
+     * @param isAdmin      if true return the administrative role graph.
+     * @param reviewMgr    used to load RBAC roles.
+     * @param delReviewMgr used to load administrative roles.
+     * @return the role graph.
+     * @throws SecurityException if the roles can't be loaded.
+     */
+    public static RoleGraph getInstance( boolean isAdmin, ReviewMgr reviewMgr, DelReviewMgr delReviewMgr )
+        throws SecurityException
+    {
+        String cacheKey = getCacheKey( isAdmin );
+        RoleGraph graph = GRAPHS.get( cacheKey );
+        if ( graph == null || graph.isExpired() )
+        {
+            synchronized ( GRAPHS )
+            {
+                graph = GRAPHS.get( cacheKey );
+                if ( graph == null || graph.isExpired() )
+                {
+                    long start = System.currentTimeMillis();
+                    List<? extends Role> list = isAdmin ? delReviewMgr.findRoles( "" ) : reviewMgr.findRoles( "" );
+                    graph = new RoleGraph( list != null ? list : new ArrayList<Role>() );
+                    GRAPHS.put( cacheKey, graph );
+                    LOG.info( "getInstance loaded " + cacheKey + " roles=" + graph.size() + " roots=" + graph.roots
+                        .size() + " in " + ( System.currentTimeMillis() - start ) + "ms" );
+                }
+            }
+        }
+        return graph;
+    }
+
+
+    /**
+     * Discard the cached graph of the current tenant so the next call to {@link #getInstance} reloads it.
+     *
+     * @param isAdmin if true discard the administrative role graph.
+     */
+    public static void invalidate( boolean isAdmin )
+    {
+        GRAPHS.remove( getCacheKey( isAdmin ) );
+    }
+
+
+    /**
+     * @return roles without a parent, sorted by name.
+     */
+    public List<Role> getRoots()
+    {
+        return roots;
+    }
+
+
+    /**
+     * @param name of the parent role.
+     * @return the immediate children of the role sorted by name, empty if none.
+     */
+    public List<Role> getChildren( String name )
+    {
+        List<Role> list = children.get( key( name ) );
+        return list != null ? Collections.unmodifiableList( list ) : Collections.<Role>emptyList();
+    }
+
+
+    /**
+     * @param name of the role.
+     * @return the role or null if it isn't in the graph.
+     */
+    public Role getRole( String name )
+    {
+        return roles.get( key( name ) );
+    }
+
+
+    public boolean hasChildren( String name )
+    {
+        return children.containsKey( key( name ) );
+    }
+
+
+    /**
+     * @param prefix of the role name, case insensitive.
+     * @return matching roles sorted by name.
+     */
+    public List<Role> find( String prefix )
+    {
+        String search = key( prefix );
+        List<Role> list = new ArrayList<>();
+        for ( Map.Entry<String, Role> entry : roles.entrySet() )
+        {
+            if ( entry.getKey().startsWith( search ) )
+            {
+                list.add( entry.getValue() );
+            }
+        }
+        Collections.sort( list, BY_NAME );
+        return list;
+    }
+
+
+    public int size()
+    {
+        return roles.size();
+    }
+
+
+    private boolean isExpired()
+    {
+        return System.currentTimeMillis() - created > TTL;
+    }
+
+
+    private static String getCacheKey( boolean isAdmin )
+    {
+        return Tenants.get() + ( isAdmin ? ":admin" : ":rbac" );
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+}
@@ -37,7 +37,11 @@ import org.apache.wicket.ajax.AjaxRequestTarget;
 
 import javax.servlet.http.HttpServletRequest;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Common static utils and wrappers used by Wicket web apps to make fortress style security calls.
@@ -104,8 +108,10 @@ public class SecUtils
         {
             // Retrieve user permissions and attach fortress session to Wicket session:
             ( ( WicketSession ) WicketSession.get() ).setSession( session );
+            long[] generations = getIndexGenerations();
             List<Permission> permissions = delAccessMgr.sessionPermissions( session );
             ( ( WicketSession ) WicketSession.get() ).setPermissions( permissions );
+            ( ( WicketSession ) WicketSession.get() ).setIndexGenerations( generations[0], generations[1] );
             String message = "Session successfully created for userId: " + session.getUserId();
             LOG.debug( message );
         }
@@ -121,7 +127,8 @@ public class SecUtils
      * Returns the fortress arbac perms that are cashed in the wicket session.
      *
      * @param component needed to get a handle on the wicket session object.
-     * @return collection of fortress admin perms.
+     * @return collection of fortress admin perms, a copy the caller may change.  The permissions in it are shared
+     * between sessions with the same roles and must not be changed.
      */
     public static List<Permission> getPermissions(Component component)
     {
@@ -150,8 +157,10 @@ public class SecUtils
             if ( IS_PERM_CACHED )
             {
                 WicketSession session = ( WicketSession ) component.getSession();
+                long[] generations = getIndexGenerations();
                 List<Permission> permissions = accessMgr.sessionPermissions( session.getSession() );
                 ( ( WicketSession ) WicketSession.get() ).setPermissions( permissions );
+                ( ( WicketSession ) WicketSession.get() ).setIndexGenerations( generations[0], generations[1] );
             }
         }
         catch ( org.apache.directory.fortress.core.SecurityException se )
@@ -162,6 +171,101 @@ public class SecUtils
         }
     }
 
+    /**
+     * Apply the change of one activated or dropped role to the permissions cached in the wicket session.  The delta
+     * is the closure of the role, its grants and those of its ascendants, taken from the cached
+     * {@link PermissionClosure}; on drop the permissions still granted by the remaining active roles are kept.  Falls
+     * back to reloading every session permission when the indexes haven't been loaded, or changed since the session's
+     * permissions were read, i.e. their generations differ from those recorded with the permissions: applying a
+     * changed index to permissions read before the change could grant, or keep, the wrong ones.  The reload records
+     * the new generations, so the toggles after it take the delta again.
+     *
+     * @param component contains handle to wicket session.
+     * @param accessMgr used for the fallback.
+     * @param roleName  of the role that was activated or dropped.
+     * @param isAdd     true if the role was activated.
+     */
+    private static void refreshPermissions( Component component, AccessMgr accessMgr, String roleName, boolean isAdd )
+    {
+        if ( !IS_PERM_CACHED )
+        {
+            return;
+        }
+        WicketSession session = ( WicketSession ) component.getSession();
+        PermissionClosure permIndex = PermissionClosure.getLoaded( false );
+        RoleClosure roleIndex = RoleClosure.getLoaded( false );
+        PermissionSet current = session.getPermissionSet();
+        if ( permIndex == null || roleIndex == null || current == null || permIndex.getGeneration() != session
+            .getPermissionGeneration() || roleIndex.getGeneration() != session.getRoleGeneration() )
+        {
+            LOG.debug( "refreshPermissions role=" + roleName + " reloading, indexes missing or changed since the " +
+                "session's permissions were read" );
+            getPermissions( component, accessMgr );
+            return;
+        }
+        BitSet delta = ( BitSet ) permIndex.getClosure( roleName, roleIndex ).clone();
+        List<UserRole> active = session.getSession().getRoles();
+        if ( !isAdd && active != null )
+        {
+            for ( UserRole userRole : active )
+            {
+                delta.andNot( permIndex.getClosure( userRole.getName(), roleIndex ) );
+            }
+        }
+        Map<String, Permission> changed = new HashMap<>();
+        for ( Permission perm : permIndex.getPermissions( delta ).values() )
+        {
+            changed.put( PermissionClosure.key( perm ), perm );
+        }
+        String userId = session.getSession().getUserId();
+        List<Permission> permissions = new ArrayList<>( current.getPermissions().size() + changed.size() );
+        for ( Permission perm : current.getPermissions() )
+        {
+            Permission match = changed.remove( PermissionClosure.key( perm ) );
+            // on drop a permission also granted to the user directly stays
+            if ( isAdd || match == null || isGrantedTo( match, userId ) )
+            {
+                permissions.add( perm );
+            }
+        }
+        if ( isAdd )
+        {
+            permissions.addAll( changed.values() );
+        }
+        // replaced rather than modified so a concurrent request never sees a half updated list
+        session.setPermissions( permissions );
+        LOG.debug( "refreshPermissions role=" + roleName + " isAdd=" + isAdd + " delta=" + delta.cardinality() +
+            " perms=" + permissions.size() );
+    }
+
+
+    /**
+     * @return generations of the permission and role indexes of the current tenant, 0 for one that isn't loaded.
+     */
+    private static long[] getIndexGenerations()
+    {
+        PermissionClosure permIndex = PermissionClosure.getLoaded( false );
+        RoleClosure roleIndex = RoleClosure.getLoaded( false );
+        return new long[]
+            { permIndex != null ? permIndex.getGeneration() : 0, roleIndex != null ? roleIndex.getGeneration() : 0 };
+    }
+
+
+    private static boolean isGrantedTo( Permission perm, String userId )
+    {
+        if ( perm.getUsers() != null )
+        {
+            for ( String user : perm.getUsers() )
+            {
+                if ( user.equalsIgnoreCase( userId ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Wrapper for the httpservlet isUserInRole api.
      *
@@ -189,8 +293,8 @@ public class SecUtils
      */
     public static boolean isFound( Permission permission, Component component )
     {
-        List<Permission> permissions = SecUtils.getPermissions( component );
-        return CollectionUtils.isNotEmpty( permissions ) && permissions.contains( permission );
+        PermissionSet permissions = ( ( WicketSession ) component.getSession() ).getPermissionSet();
+        return permissions != null && permissions.contains( permission );
     }
 
     /**
@@ -219,36 +323,47 @@ public class SecUtils
      * @param accessMgr used to call fortress api for role op
      * @param szPrincipal contains the instance of fortress session deserialized.
      */
-    public static void initializeSession(Component component, J2eePolicyMgr j2eePolicyMgr, AccessMgr accessMgr, String szPrincipal ) throws SecurityException
+    public static void initializeSession( final Component component, final J2eePolicyMgr j2eePolicyMgr, final AccessMgr accessMgr, final String szPrincipal ) throws SecurityException
     {
-        Session realmSession = null;
-
         if(j2eePolicyMgr == null || accessMgr == null)
         {
             throw new SecurityException( GlobalIds.SESSION_INITIALIZATION_FAILED, "initializeSession failed - verify the injection of fortress spring beans into your application" );
         }
-        try
+        if( StringUtils.isEmpty( szPrincipal ))
         {
-            if( StringUtils.isNotEmpty( szPrincipal ))
-                realmSession = j2eePolicyMgr.deserialize( szPrincipal );
+            return;
         }
-        catch( SecurityException se )
+        // The realm authenticated the user in its own tenant only, see Tenants:
+        if ( !Tenants.isRealmTenant( Tenants.get() ) )
         {
-            throw new RuntimeException( se );
+            throw new SecurityException( GlobalIds.SESSION_INITIALIZATION_FAILED, "initializeSession principal of tenant "
+                + Tenants.getRealmTenant() + " can't be used in tenant " + Tenants.get() );
         }
-        if(realmSession != null)
+        // Concurrent requests of the same wicket session share a single deserialize and permission load:
+        SessionBootstrap.initialize( ( WicketSession ) WicketSession.get(), new SessionBootstrap.Loader()
         {
-            synchronized ( ( WicketSession ) WicketSession.get() )
+            @Override
+            public Session load() throws SecurityException
             {
-                if ( SecUtils.getSession( component ) == null )
+                Session realmSession;
+                try
+                {
+                    realmSession = j2eePolicyMgr.deserialize( szPrincipal );
+                }
+                catch( SecurityException se )
+                {
+                    throw new RuntimeException( se );
+                }
+                if ( realmSession != null )
                 {
                     LOG.info( "realmSession user: " + realmSession.getUserId() );
                     // Retrieve user permissions and attach RBAC session to Wicket session:
                     ( ( WicketSession ) WicketSession.get() ).setSession( realmSession );
                     getPermissions( component, accessMgr );
                 }
+                return realmSession;
             }
-        }
+        } );
     }
 
     /**
@@ -256,7 +371,7 @@ public class SecUtils
      * This routine must first retrieves the wicket session.
      * It is needed because it contains the fortress session which is required for api.
      * Next it invokes the fortress addActiveRole method.
-     * If all successful refresh user's perms cached as they've changed.
+     * If all successful the permissions of the role are merged into the user's cached perms.
      *
      * @param component contains handle to wicket session.
      * @param target used to display modal if something goes wrong
@@ -289,8 +404,8 @@ public class SecUtils
                 }
             }
 
-            // User's active role set changed so refresh their permissions:
-            SecUtils.getPermissions( component, accessMgr );
+            // User's active role set changed so merge in the permissions of the role:
+            SecUtils.refreshPermissions( component, accessMgr, roleName, true );
             isSuccessful = true;
             String message = "Activate role name: " + roleName + " successful";
             LOG.info( message );
@@ -321,7 +436,7 @@ public class SecUtils
      * This routine must first retrieves the wicket session.
      * It is needed because it contains the fortress session which is required for api.
      * Next it invokes the fortress dropActiveRole method.
-     * If all successful refresh user's perms cached as they've changed.
+     * If all successful the permissions only that role granted are removed from the user's cached perms.
      *
      * @param component contains handle to wicket session.
      * @param target used to display modal if something goes wrong
@@ -336,8 +451,8 @@ public class SecUtils
         {
             WicketSession session = ( WicketSession ) component.getSession();
             accessMgr.dropActiveRole( session.getSession(), new UserRole( roleName ) );
-            // User's active role set changed so refresh their permissions:
-            SecUtils.getPermissions( component, accessMgr );
+            // User's active role set changed so take out the permissions only that role granted:
+            SecUtils.refreshPermissions( component, accessMgr, roleName, false );
             isSuccessful = true;
             LOG.info( "Fortress dropActiveRole roleName: " + roleName + " was successful" );
         }
@@ -0,0 +1,184 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Single flight initialization of the fortress session held by a {@link WicketSession}.  The AJAX and resource
+ * requests that arrive right after login all find the wicket session empty; the first one to swap its future into
+ * the session runs the {@link Loader}, the others wait on that future instead of deserializing the principal and
+ * loading the permissions again.  No lock is held while the directory is called.
+ * <p>
+ * The counters are application wide and meant for monitoring: how many loads ran, how many requests waited on a load
+ * already under way and how many found it already completed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class SessionBootstrap
+{
+    private static final Logger LOG = Logger.getLogger( SessionBootstrap.class.getName() );
+    public static final long TIMEOUT_SECONDS = 60;
+    private static final LongAdder LOADS = new LongAdder();
+    private static final LongAdder WAITS = new LongAdder();
+    private static final LongAdder AVOIDED = new LongAdder();
+    private static final LongAdder FAILURES = new LongAdder();
+
+
+    /**
+     * Loads the fortress session and its permissions into the wicket session.
+     */
+    public interface Loader
+    {
+        /**
+         * @return the fortress session, already set on the wicket session along with its permissions.
+         * @throws SecurityException if the session can't be established.
+         */
+        Session load() throws SecurityException;
+    }
+
+
+    private SessionBootstrap()
+    {
+    }
+
+
+    /**
+     * Run the loader unless another request of the same wicket session already has, or is doing so.
+     *
+     * @param wicketSession to initialize.
+     * @param loader        called at most once per wicket session unless it fails or loads no session.
+     * @return the fortress session.
+     * @throws SecurityException from the loader, also rethrown to the requests that waited on it.
+     */
+    public static Session initialize( WicketSession wicketSession, Loader loader ) throws SecurityException
+    {
+        CompletableFuture<Session> future = wicketSession.getBootstrap();
+        if ( future == null )
+        {
+            CompletableFuture<Session> mine = new CompletableFuture<>();
+            if ( wicketSession.casBootstrap( null, mine ) )
+            {
+                return load( wicketSession, loader, mine );
+            }
+            future = wicketSession.getBootstrap();
+        }
+        if ( future.isDone() )
+        {
+            AVOIDED.increment();
+        }
+        else
+        {
+            WAITS.increment();
+            LOG.debug( "initialize waiting on the load of another request" );
+        }
+        return await( future );
+    }
+
+
+    public static long getLoads()
+    {
+        return LOADS.sum();
+    }
+
+
+    public static long getWaits()
+    {
+        return WAITS.sum();
+    }
+
+
+    public static long getAvoided()
+    {
+        return AVOIDED.sum();
+    }
+
+
+    public static long getFailures()
+    {
+        return FAILURES.sum();
+    }
+
+
+    private static Session load( WicketSession wicketSession, Loader loader, CompletableFuture<Session> mine )
+        throws SecurityException
+    {
+        LOADS.increment();
+        long start = System.currentTimeMillis();
+        try
+        {
+            Session session = loader.load();
+            if ( session == null )
+            {
+                // nothing loaded yet, e.g. no realm session, so the next request tries again
+                wicketSession.casBootstrap( mine, null );
+            }
+            mine.complete( session );
+            LOG.debug( "load took " + ( System.currentTimeMillis() - start ) + "ms, loads=" + getLoads() +
+                " waits=" + getWaits() + " avoided=" + getAvoided() );
+            return session;
+        }
+        catch ( SecurityException | RuntimeException e )
+        {
+            FAILURES.increment();
+            // let the next request try again
+            wicketSession.casBootstrap( mine, null );
+            mine.completeExceptionally( e );
+            throw e;
+        }
+    }
+
+
+    private static Session await( CompletableFuture<Session> future ) throws SecurityException
+    {
+        try
+        {
+            return future.get( TIMEOUT_SECONDS, TimeUnit.SECONDS );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof SecurityException )
+            {
+                throw ( SecurityException ) e.getCause();
+            }
+            throw new RuntimeException( "Session initialization failed", e.getCause() );
+        }
+        catch ( TimeoutException e )
+        {
+            throw new RuntimeException( "Session initialization timed out after " + TIMEOUT_SECONDS + "s", e );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Session initialization interrupted", e );
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Inverted index from role to the static separation of duty sets it is a member of, for one tenant.  It lets a role
+ * assignment be checked against the user's current roles before it is sent to the directory, using the same rule as
+ * fortress: for every set the new role belongs to, the members already held by the user, directly or inherited, must
+ * number less than the cardinality minus one.
+ * <p>
+ * The index is an immutable snapshot.  A change to a set made through {@link #setSet} or {@link #deleteSet} replaces
+ * the cached snapshot, sets changed elsewhere are picked up after {@link RoleGraph#TTL} millis.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class SsdIndex
+{
+    private static final Logger LOG = Logger.getLogger( SsdIndex.class.getName() );
+    private static final Map<String, SsdIndex> INDEXES = new ConcurrentHashMap<>();
+    private final Map<String, Entry> sets;
+    private final Map<String, List<Entry>> setsOfRole;
+    private final long created;
+
+
+    private SsdIndex( Collection<Entry> entries, long created )
+    {
+        sets = new LinkedHashMap<>();
+        setsOfRole = new HashMap<>();
+        for ( Entry entry : entries )
+        {
+            sets.put( key( entry.name ), entry );
+            for ( String member : entry.members )
+            {
+                List<Entry> list = setsOfRole.get( member );
+                if ( list == null )
+                {
+                    list = new ArrayList<>( 1 );
+                    setsOfRole.put( member, list );
+                }
+                list.add( entry );
+            }
+        }
+        this.created = created;
+    }
+
+
+    /**
+     * Return the cached index of the current tenant, loading it if missing or expired.
+     *
+     * @param reviewMgr used to load the SSD sets.
+     * @return the index.
+     * @throws SecurityException if the sets can't be loaded.
+     */
+    public static SsdIndex getInstance( ReviewMgr reviewMgr ) throws SecurityException
+    {
+        String cacheKey = getCacheKey();
+        SsdIndex index = INDEXES.get( cacheKey );
+        if ( index == null || index.isExpired() )
+        {
+            synchronized ( INDEXES )
+            {
+                index = INDEXES.get( cacheKey );
+                if ( index == null || index.isExpired() )
+                {
+                    long start = System.currentTimeMillis();
+                    SDSet search = new SDSet();
+                    search.setName( "" );
+                    search.setType( SDSet.SDType.STATIC );
+                    List<SDSet> list = reviewMgr.ssdSets( search );
+                    List<Entry> entries = new ArrayList<>();
+                    if ( list != null )
+                    {
+                        for ( SDSet set : list )
+                        {
+                            entries.add( new Entry( set ) );
+                        }
+                    }
+                    index = new SsdIndex( entries, System.currentTimeMillis() );
+                    INDEXES.put( cacheKey, index );
+                    LOG.info( "getInstance loaded " + cacheKey + " sets=" + index.size() + " in " + ( System
+                        .currentTimeMillis() - start ) + "ms" );
+                }
+            }
+        }
+        return index;
+    }
+
+
+    /**
+     * Add or replace a set in the cached index of the current tenant after it has been saved.  Nothing is done if the
+     * index isn't loaded.
+     *
+     * @param set as saved, it is copied so later changes to the instance don't leak into the index.
+     */
+    public static void setSet( SDSet set )
+    {
+        synchronized ( INDEXES )
+        {
+            SsdIndex index = INDEXES.get( getCacheKey() );
+            if ( index != null && ( set.getCardinality() == null || set.getMembers() == null ) )
+            {
+                // not the complete set, reload it rather than guess
+                INDEXES.remove( getCacheKey() );
+            }
+            else if ( index != null )
+            {
+                Map<String, Entry> entries = new LinkedHashMap<>( index.sets );
+                entries.put( key( set.getName() ), new Entry( set ) );
+                INDEXES.put( getCacheKey(), new SsdIndex( entries.values(), index.created ) );
+            }
+        }
+    }
+
+
+    /**
+     * Remove a set from the cached index of the current tenant after it has been deleted.
+     *
+     * @param name of the set.
+     */
+    public static void deleteSet( String name )
+    {
+        synchronized ( INDEXES )
+        {
+            SsdIndex index = INDEXES.get( getCacheKey() );
+            if ( index != null && index.sets.containsKey( key( name ) ) )
+            {
+                Map<String, Entry> entries = new LinkedHashMap<>( index.sets );
+                entries.remove( key( name ) );
+                INDEXES.put( getCacheKey(), new SsdIndex( entries.values(), index.created ) );
+            }
+        }
+    }
+
+
+    /**
+     * Discard the cached index of the current tenant so the next call to {@link #getInstance} reloads it.
+     */
+    public static void invalidate()
+    {
+        INDEXES.remove( getCacheKey() );
+    }
+
+
+    /**
+     * Check a proposed role assignment against the roles the user already holds.
+     *
+     * @param assigned current role assignments of the user.
+     * @param roleName role to be assigned.
+     * @param roles    role hierarchy used to add the inherited roles, may be null to check direct assignments only.
+     * @return a description of each set the assignment would violate, empty if none.
+     */
+    public List<String> check( Collection<? extends UserRole> assigned, String roleName, RoleClosure roles )
+    {
+        List<Entry> candidates = setsOfRole.get( key( roleName ) );
+        if ( candidates == null || assigned == null || assigned.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
+        Map<String, String> held = new HashMap<>();
+        for ( UserRole userRole : assigned )
+        {
+            held.put( key( userRole.getName() ), userRole.getName() );
+            if ( roles != null )
+            {
+                for ( String ascendant : roles.getAscendants( userRole.getName() ) )
+                {
+                    held.put( key( ascendant ), ascendant );
+                }
+            }
+        }
+        List<String> conflicts = new ArrayList<>();
+        for ( Entry entry : candidates )
+        {
+            Set<String> matched = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+            for ( String member : entry.members )
+            {
+                String name = held.get( member );
+                if ( name != null )
+                {
+                    matched.add( name );
+                }
+            }
+            if ( !matched.isEmpty() && matched.size() >= entry.cardinality - 1 )
+            {
+                conflicts.add( "SSD set " + entry.name + " allows fewer than " + entry.cardinality +
+                    " of its roles, already held: " + StringUtils.join( matched, ", " ) );
+            }
+        }
+        return conflicts;
+    }
+
+
+    /**
+     * @param roleName name of the role.
+     * @return true if the role is a member of at least one set.
+     */
+    public boolean isConstrained( String roleName )
+    {
+        return setsOfRole.containsKey( key( roleName ) );
+    }
+
+
+    public int size()
+    {
+        return sets.size();
+    }
+
+
+    private boolean isExpired()
+    {
+        return System.currentTimeMillis() - created > RoleGraph.TTL;
+    }
+
+
+    private static String getCacheKey()
+    {
+        return Tenants.get();
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+
+
+    /**
+     * Copy of the parts of a set the check needs.
+     */
+    private static class Entry
+    {
+        private final String name;
+        private final int cardinality;
+        private final Set<String> members = new HashSet<>();
+
+
+        Entry( SDSet set )
+        {
+            name = set.getName();
+            cardinality = set.getCardinality() != null ? set.getCardinality() : 0;
+            if ( set.getMembers() != null )
+            {
+                for ( String member : set.getMembers() )
+                {
+                    members.add( key( member ) );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,544 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Finds the users whose current role assignments already violate a static separation of duty set, e.g. after the
+ * cardinality of a set has been lowered.  Like the fortress check made on assignment a user violates a set when the
+ * roles it is authorized for, assigned plus inherited, include at least cardinality members of the set.
+ * <p>
+ * Every role that is a member of some set gets a bit, each role held by a user is mapped once to the bits of itself
+ * and its ascendants, and an inverted index from bit to sets lets the members of every set be counted in one pass
+ * over the user's bits.  Users are evaluated in parallel with fork/join.
+ * <p>
+ * The directory is read one userId prefix at a time with a pause in between so a million user directory is scanned
+ * without a single huge search.  After every prefix the completed prefixes and the violations found so far are
+ * written to a checkpoint file, a cancelled or failed scan started again with resume picks up where it left off as
+ * long as the SSD sets haven't changed.  UserIds must start with one of the {@link #PARTITIONS} characters.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class SsdScanner extends BackgroundJob
+{
+    private static final Logger LOG = Logger.getLogger( SsdScanner.class.getName() );
+    public static final String PARTITIONS = "abcdefghijklmnopqrstuvwxyz0123456789";
+    public static final int MAX_VIOLATIONS = 10000;
+    public static final long DEFAULT_PAUSE_MILLIS = 200;
+    /** Number of users below which a fork/join task evaluates its range itself instead of splitting it. */
+    public static final int THRESHOLD = 256;
+    private static final int[] NO_SETS = new int[0];
+    private final boolean resume;
+    private final long pauseMillis;
+    private final int parallelism;
+    private final ReviewMgr reviewMgr;
+    private final DelReviewMgr delReviewMgr;
+    private final AtomicInteger scanned = new AtomicInteger();
+    private final AtomicInteger violationCount = new AtomicInteger();
+    private final List<Violation> violations = Collections.synchronizedList( new ArrayList<Violation>() );
+    private volatile int partitionsDone;
+    private volatile int setCount;
+    private List<SDSet> sets;
+    private Map<String, Integer> bitOf;
+    private int[][] setsOfBit;
+    private String[] roleOfBit;
+
+
+    /**
+     * @param resume       if true continue from the checkpoint of a previous scan of the same sets.
+     * @param pauseMillis  to wait between userId prefixes, limits the load put on the directory.
+     * @param parallelism  number of fork/join workers.
+     * @param reviewMgr    used to load the users and sets.
+     * @param delReviewMgr used along with reviewMgr to load the role hierarchy.
+     */
+    public SsdScanner( boolean resume, long pauseMillis, int parallelism, ReviewMgr reviewMgr,
+        DelReviewMgr delReviewMgr )
+    {
+        super( "ssd-scan" );
+        this.resume = resume;
+        this.pauseMillis = pauseMillis;
+        this.parallelism = parallelism;
+        this.reviewMgr = reviewMgr;
+        this.delReviewMgr = delReviewMgr;
+    }
+
+
+    @Override
+    protected void execute() throws Exception
+    {
+        setStatus( "Loading SSD sets and role hierarchy" );
+        SDSet search = new SDSet();
+        search.setName( "" );
+        search.setType( SDSet.SDType.STATIC );
+        List<SDSet> list = reviewMgr.ssdSets( search );
+        RoleClosure roles = RoleClosure.getInstance( false, reviewMgr, delReviewMgr );
+        index( list != null ? list : new ArrayList<SDSet>() );
+        String fingerprint = getFingerprint( sets );
+        File file = getCheckpointFile();
+        Checkpoint checkpoint = resume ? readCheckpoint( file, fingerprint ) : null;
+        if ( checkpoint == null )
+        {
+            checkpoint = new Checkpoint( fingerprint );
+        }
+        else
+        {
+            scanned.set( checkpoint.scanned );
+            violationCount.set( checkpoint.violationCount );
+            violations.addAll( checkpoint.violations );
+            LOG.info( "execute resuming from " + file + ", done=" + checkpoint.done );
+        }
+        if ( sets.isEmpty() )
+        {
+            setStatus( "No SSD sets defined" );
+            return;
+        }
+        Map<String, BitSet> roleBits = new HashMap<>();
+        ForkJoinPool pool = new ForkJoinPool( parallelism );
+        try
+        {
+            for ( int i = 0; i < PARTITIONS.length() && !isCancelled(); i++ )
+            {
+                String prefix = String.valueOf( PARTITIONS.charAt( i ) );
+                if ( !checkpoint.done.contains( prefix ) )
+                {
+                    setStatus( "Scanning userIds starting with " + prefix );
+                    List<User> users = reviewMgr.findUsers( new User( prefix ) );
+                    if ( users != null && !users.isEmpty() )
+                    {
+                        addRoleBits( users, roleBits, roles );
+                        pool.invoke( new UserTask( users, roleBits, 0, users.size() ) );
+                    }
+                    if ( isCancelled() )
+                    {
+                        break;
+                    }
+                    checkpoint.done.add( prefix );
+                    checkpoint.scanned = scanned.get();
+                    checkpoint.violationCount = violationCount.get();
+                    checkpoint.violations = new ArrayList<>( violations );
+                    writeCheckpoint( file, checkpoint );
+                    if ( pauseMillis > 0 )
+                    {
+                        Thread.sleep( pauseMillis );
+                    }
+                }
+                partitionsDone = i + 1;
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        if ( !isCancelled() && !file.delete() && file.exists() )
+        {
+            LOG.warn( "execute could not delete checkpoint " + file );
+        }
+        setStatus( ( isCancelled() ? "Cancelled after " : "Scanned " ) + scanned.get() + " users against " +
+            setCount + " SSD sets, " + violationCount.get() + " violations" );
+        LOG.info( getStatus() );
+    }
+
+
+    /**
+     * Number the roles that are members of some set and build the inverted index from role bit to sets.
+     */
+    private void index( List<SDSet> list )
+    {
+        sets = new ArrayList<>();
+        bitOf = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        Map<Integer, List<Integer>> setsByBit = new HashMap<>();
+        for ( SDSet set : list )
+        {
+            if ( set.getMembers() == null || set.getCardinality() == null || set.getCardinality() < 2 )
+            {
+                continue;
+            }
+            int setId = sets.size();
+            sets.add( set );
+            for ( String member : set.getMembers() )
+            {
+                String key = key( member );
+                Integer bit = bitOf.get( key );
+                if ( bit == null )
+                {
+                    bit = names.size();
+                    bitOf.put( key, bit );
+                    names.add( member );
+                    setsByBit.put( bit, new ArrayList<Integer>() );
+                }
+                setsByBit.get( bit ).add( setId );
+            }
+        }
+        setsOfBit = new int[names.size()][];
+        for ( int bit = 0; bit < names.size(); bit++ )
+        {
+            List<Integer> ids = setsByBit.get( bit );
+            setsOfBit[bit] = new int[ids.size()];
+            for ( int i = 0; i < ids.size(); i++ )
+            {
+                setsOfBit[bit][i] = ids.get( i );
+            }
+        }
+        roleOfBit = names.toArray( new String[names.size()] );
+        setCount = sets.size();
+    }
+
+
+    /**
+     * Map each role held by one of the users, that hasn't been seen yet, to the bits of itself and its ascendants.
+     */
+    private void addRoleBits( List<User> users, Map<String, BitSet> roleBits, RoleClosure roles )
+    {
+        for ( User user : users )
+        {
+            if ( user.getRoles() == null )
+            {
+                continue;
+            }
+            for ( UserRole userRole : user.getRoles() )
+            {
+                String key = key( userRole.getName() );
+                if ( !roleBits.containsKey( key ) )
+                {
+                    BitSet bits = new BitSet( roleOfBit.length );
+                    setBit( bits, userRole.getName() );
+                    for ( String ascendant : roles.getAscendants( userRole.getName() ) )
+                    {
+                        setBit( bits, ascendant );
+                    }
+                    roleBits.put( key, bits );
+                }
+            }
+        }
+    }
+
+
+    private void setBit( BitSet bits, String role )
+    {
+        Integer bit = bitOf.get( key( role ) );
+        if ( bit != null )
+        {
+            bits.set( bit );
+        }
+    }
+
+
+    private void evaluate( User user, Map<String, BitSet> roleBits )
+    {
+        // a single assignment can still conflict with one of its own ascendants
+        if ( user.getRoles() == null || user.getRoles().isEmpty() )
+        {
+            return;
+        }
+        BitSet held = new BitSet( roleOfBit.length );
+        for ( UserRole userRole : user.getRoles() )
+        {
+            held.or( roleBits.get( key( userRole.getName() ) ) );
+        }
+        if ( held.cardinality() < 2 )
+        {
+            return;
+        }
+        int[] counts = new int[sets.size()];
+        for ( int bit = held.nextSetBit( 0 ); bit >= 0; bit = held.nextSetBit( bit + 1 ) )
+        {
+            for ( int setId : setsOfBit[bit] )
+            {
+                counts[setId]++;
+            }
+        }
+        for ( int setId = 0; setId < counts.length; setId++ )
+        {
+            SDSet set = sets.get( setId );
+            if ( counts[setId] >= set.getCardinality() )
+            {
+                Set<String> conflicting = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+                for ( int bit = held.nextSetBit( 0 ); bit >= 0; bit = held.nextSetBit( bit + 1 ) )
+                {
+                    for ( int member : setsOfBit[bit] )
+                    {
+                        if ( member == setId )
+                        {
+                            conflicting.add( roleOfBit[bit] );
+                        }
+                    }
+                }
+                if ( violationCount.incrementAndGet() <= MAX_VIOLATIONS )
+                {
+                    violations.add( new Violation( user.getUserId(), set.getName(), set.getCardinality(),
+                        StringUtils.join( conflicting, ", " ) ) );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @return a value that changes whenever a set, its members or its cardinality change.
+     */
+    private static String getFingerprint( List<SDSet> sets )
+    {
+        StringBuilder fingerprint = new StringBuilder();
+        for ( SDSet set : sets )
+        {
+            fingerprint.append( key( set.getName() ) ).append( ':' ).append( set.getCardinality() ).append( ':' )
+                .append( new TreeSet<>( set.getMembers() ) ).append( ';' );
+        }
+        return Integer.toHexString( fingerprint.toString().hashCode() ) + "-" + sets.size();
+    }
+
+
+    private static File getCheckpointFile()
+    {
+        return new File( System.getProperty( "java.io.tmpdir" ), "fortress-ssd-scan-" + Tenants.get() + ".ser" );
+    }
+
+
+    private static Checkpoint readCheckpoint( File file, String fingerprint )
+    {
+        if ( !file.exists() )
+        {
+            return null;
+        }
+        try ( ObjectInputStream in = new ObjectInputStream( new FileInputStream( file ) ) )
+        {
+            Checkpoint checkpoint = ( Checkpoint ) in.readObject();
+            if ( fingerprint.equals( checkpoint.fingerprint ) )
+            {
+                return checkpoint;
+            }
+            LOG.info( "readCheckpoint SSD sets changed since " + file + " was written, starting over" );
+        }
+        catch ( IOException | ClassNotFoundException | ClassCastException e )
+        {
+            LOG.warn( "readCheckpoint ignoring unreadable " + file + ": " + e );
+        }
+        return null;
+    }
+
+
+    private static void writeCheckpoint( File file, Checkpoint checkpoint ) throws IOException
+    {
+        File temp = new File( file.getPath() + ".tmp" );
+        try ( ObjectOutputStream out = new ObjectOutputStream( new FileOutputStream( temp ) ) )
+        {
+            out.writeObject( checkpoint );
+        }
+        if ( !temp.renameTo( file ) )
+        {
+            // renameTo doesn't replace an existing file on every platform
+            if ( !file.delete() || !temp.renameTo( file ) )
+            {
+                throw new IOException( "Unable to write checkpoint " + file );
+            }
+        }
+    }
+
+
+    private static String key( String name )
+    {
+        return name == null ? "" : name.toLowerCase( Locale.ENGLISH );
+    }
+
+
+    public int getScanned()
+    {
+        return scanned.get();
+    }
+
+
+    public int getViolationCount()
+    {
+        return violationCount.get();
+    }
+
+
+    /**
+     * @return the violations found so far, only the first {@link #MAX_VIOLATIONS} are retained.
+     */
+    public List<Violation> getViolations()
+    {
+        synchronized ( violations )
+        {
+            return new ArrayList<>( violations );
+        }
+    }
+
+
+    public int getSetCount()
+    {
+        return setCount;
+    }
+
+
+    /**
+     * @return percent of the userId prefixes completed.
+     */
+    public int getPercent()
+    {
+        return partitionsDone * 100 / PARTITIONS.length();
+    }
+
+
+    /**
+     * Evaluates a range of users, splitting it in half until it is below {@link #THRESHOLD}.
+     */
+    private final class UserTask extends RecursiveAction
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final List<User> users;
+        private final Map<String, BitSet> roleBits;
+        private final int from;
+        private final int to;
+
+
+        private UserTask( List<User> users, Map<String, BitSet> roleBits, int from, int to )
+        {
+            this.users = users;
+            this.roleBits = roleBits;
+            this.from = from;
+            this.to = to;
+        }
+
+
+        @Override
+        protected void compute()
+        {
+            // ForkJoinTask has an isCancelled of its own
+            if ( SsdScanner.this.isCancelled() )
+            {
+                return;
+            }
+            if ( to - from > THRESHOLD )
+            {
+                int middle = ( from + to ) >>> 1;
+                invokeAll( new UserTask( users, roleBits, from, middle ), new UserTask( users, roleBits, middle,
+                    to ) );
+                return;
+            }
+            for ( int i = from; i < to; i++ )
+            {
+                evaluate( users.get( i ), roleBits );
+            }
+            scanned.addAndGet( to - from );
+        }
+    }
+
+
+    /**
+     * One user holding too many roles of one SSD set.
+     */
+    public static class Violation implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String userId;
+        private final String setName;
+        private final int cardinality;
+        private final String roles;
+
+
+        Violation( String userId, String setName, int cardinality, String roles )
+        {
+            this.userId = userId;
+            this.setName = setName;
+            this.cardinality = cardinality;
+            this.roles = roles;
+        }
+
+
+        public String getUserId()
+        {
+            return userId;
+        }
+
+
+        public String getSetName()
+        {
+            return setName;
+        }
+
+
+        public int getCardinality()
+        {
+            return cardinality;
+        }
+
+
+        public String getRoles()
+        {
+            return roles;
+        }
+    }
+
+
+    /**
+     * State written after every completed userId prefix.
+     */
+    private static final class Checkpoint implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String fingerprint;
+        private final Set<String> done = new LinkedHashSet<>();
+        private int scanned;
+        private int violationCount;
+        private List<Violation> violations = new ArrayList<>();
+
+
+        private Checkpoint( String fingerprint )
+        {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
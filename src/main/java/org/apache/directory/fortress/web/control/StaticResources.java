@@ -0,0 +1,168 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.wicket.javascript.DefaultJavaScriptCompressor;
+import org.apache.wicket.markup.head.CssHeaderItem;
+import org.apache.wicket.markup.head.CssReferenceHeaderItem;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.head.JavaScriptReferenceHeaderItem;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.request.resource.ContextRelativeResourceReference;
+import org.apache.wicket.request.resource.JavaScriptResourceReference;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.request.resource.caching.FilenameWithVersionResourceCachingStrategy;
+import org.apache.wicket.request.resource.caching.version.CachingResourceVersion;
+import org.apache.wicket.request.resource.caching.version.MessageDigestResourceVersion;
+import org.apache.wicket.settings.ResourceSettings;
+
+import com.googlecode.wicket.jquery.ui.settings.JQueryUILibrarySettings;
+import com.googlecode.wicket.kendo.ui.settings.KendoUILibrarySettings;
+
+
+/**
+ * Cuts the requests and bytes of a page load:
+ * <ul>
+ * <li>jQuery, the wicket ajax scripts, jQuery UI and Kendo UI are sent as one script and the style sheets of the web
+ * application folder as one style sheet, both gzipped, see {@link CompressedBundleReference},</li>
+ * <li>the minified variant of every library script is used,</li>
+ * <li>resource urls carry a digest of the content so browsers can keep them for a year, which wicket does for
+ * versioned urls,</li>
+ * <li>images of the web application folder used by the style sheets are served the same way.</li>
+ * </ul>
+ * The digests are computed once per resource, so a changed file in the web application folder needs a restart.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class StaticResources
+{
+    /** Style sheets every page uses, in the order they're applied. */
+    private static final String[] STYLE_SHEETS = {
+        "css/camo-style.css",
+        "css/ui-lightness/jquery-ui-1.10.2.custom.min.css",
+        "css/kendo.common.min.css",
+        "css/kendo.uniform.min.css",
+        "css/splitter-style.css"
+    };
+    /** Folders of the web application folder whose images the style sheets use. */
+    private static final String[] IMAGE_FOLDERS = { "/css/", "/images/" };
+    private static final List<CssReferenceHeaderItem> STYLE_SHEET_ITEMS;
+
+    static
+    {
+        List<CssReferenceHeaderItem> items = new ArrayList<>();
+        for ( String path : STYLE_SHEETS )
+        {
+            items.add( CssHeaderItem.forReference( new ContextCssReference( path ) ) );
+        }
+        STYLE_SHEET_ITEMS = Collections.unmodifiableList( items );
+    }
+
+
+    /**
+     * Configure the resource settings and register the bundles, call once from the application's init.
+     *
+     * @param application to configure.
+     */
+    public static void install( WebApplication application )
+    {
+        ResourceSettings settings = application.getResourceSettings();
+        settings.setUseMinifiedResources( true );
+        // our own scripts don't come with a minified variant
+        settings.setJavaScriptCompressor( new DefaultJavaScriptCompressor() );
+        settings.setCachingStrategy( new FilenameWithVersionResourceCachingStrategy( new CachingResourceVersion(
+            new MessageDigestResourceVersion() ) ) );
+        for ( String folder : IMAGE_FOLDERS )
+        {
+            registerImages( application, folder );
+        }
+
+        List<JavaScriptReferenceHeaderItem> scripts = new ArrayList<>();
+        addScript( scripts, application.getJavaScriptLibrarySettings().getJQueryReference() );
+        addScript( scripts, application.getJavaScriptLibrarySettings().getWicketAjaxReference() );
+        addScript( scripts, JQueryUILibrarySettings.get().getJavaScriptReference() );
+        addScript( scripts, KendoUILibrarySettings.get().getJavaScriptReference() );
+        // the scripts are minified already, so the bundle doesn't get a compressor
+        application.getResourceBundles().addBundle( JavaScriptHeaderItem.forReference( new CompressedBundleReference<>(
+            StaticResources.class, "fortress.js", scripts ) ) );
+        application.getResourceBundles().addBundle( CssHeaderItem.forReference( new CompressedBundleReference<>(
+            StaticResources.class, "fortress.css", STYLE_SHEET_ITEMS ) ) );
+    }
+
+
+    /**
+     * Render the style sheets every page uses, they are replaced by their bundle.
+     *
+     * @param response of the page.
+     */
+    public static void renderStyleSheets( IHeaderResponse response )
+    {
+        for ( CssReferenceHeaderItem item : STYLE_SHEET_ITEMS )
+        {
+            response.render( item );
+        }
+    }
+
+
+    /**
+     * Only packaged scripts can be bundled, e.g. a library served from a CDN is left out.
+     */
+    private static void addScript( List<JavaScriptReferenceHeaderItem> scripts, ResourceReference reference )
+    {
+        if ( reference instanceof JavaScriptResourceReference )
+        {
+            scripts.add( JavaScriptHeaderItem.forReference( reference ) );
+        }
+    }
+
+
+    /**
+     * Versioned urls of images are requested before the style sheet using them is read again after a restart, so
+     * their references are registered up front.
+     */
+    private static void registerImages( WebApplication application, String folder )
+    {
+        Set<String> paths = application.getServletContext().getResourcePaths( folder );
+        if ( paths == null )
+        {
+            return;
+        }
+        for ( String path : paths )
+        {
+            if ( path.endsWith( "/" ) )
+            {
+                registerImages( application, path );
+            }
+            else if ( !path.endsWith( ".css" ) )
+            {
+                application.getResourceReferenceRegistry().registerResourceReference(
+                    new ContextRelativeResourceReference( path.substring( 1 ), false ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.constructs.EhcacheDecoratorAdapter;
+import net.sf.ehcache.search.Attribute;
+import net.sf.ehcache.search.Query;
+
+import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Splits the fortress caches of ehcache.xml by tenant when requests are routed to more than one, see {@link Tenants}.
+ * fortress-core keeps a single cache of each kind for the whole process, so the busiest tenant would evict the role
+ * hierarchies, org units and policies of all the others.  Each cache is replaced by a {@link PartitionedCache} that
+ * hands every call to the partition of the current tenant:
+ * <ul>
+ * <li>the default tenant keeps the cache declared in ehcache.xml,</li>
+ * <li>any other tenant gets a copy of it named cache@tenant, created on first use and registered with the cache
+ * manager.</li>
+ * </ul>
+ * The size declared in ehcache.xml is the quota of every tenant: a tenant only ever evicts its own entries.  Only
+ * tenants requests can be routed to get a partition, so the number of partitions is bounded by the configuration.
+ * The caches must be partitioned before fortress-core first uses them, it holds on to what it got.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class TenantCaches
+{
+    private static final Logger LOG = Logger.getLogger( TenantCaches.class.getName() );
+    private static final String CACHE_PREFIX = "fortress.";
+    private static final char SEPARATOR = '@';
+
+
+    private TenantCaches()
+    {
+    }
+
+
+    /**
+     * Replace the fortress caches with partitioned ones, if requests are routed to more than one tenant.  Caches
+     * partitioned already are left as they are.
+     *
+     * @return the names of the caches partitioned.
+     */
+    public static List<String> install()
+    {
+        List<String> names = new ArrayList<>();
+        if ( !Tenants.isRouted() )
+        {
+            return names;
+        }
+        try
+        {
+            // loads ehcache.xml
+            CacheMgr.getInstance();
+            for ( CacheManager manager : new ArrayList<>( CacheManager.ALL_CACHE_MANAGERS ) )
+            {
+                names.addAll( install( manager ) );
+            }
+            LOG.info( "install partitioned caches " + names + " by tenant " + Tenants.getTenants() );
+        }
+        catch ( RuntimeException e )
+        {
+            LOG.error( "install caches left shared by all tenants, caught Exception=" + e, e );
+        }
+        return names;
+    }
+
+
+    /**
+     * @param manager whose fortress caches are to be partitioned.
+     * @return the names of the caches partitioned.
+     */
+    static List<String> install( CacheManager manager )
+    {
+        List<String> names = new ArrayList<>();
+        for ( String name : manager.getCacheNames() )
+        {
+            Ehcache cache = manager.getEhcache( name );
+            if ( name.startsWith( CACHE_PREFIX ) && name.indexOf( SEPARATOR ) < 0 && !( cache instanceof
+                PartitionedCache ) )
+            {
+                manager.replaceCacheWithDecoratedCache( cache, new PartitionedCache( cache ) );
+                names.add( name );
+            }
+        }
+        return names;
+    }
+
+
+    /**
+     * @param cache  name of a fortress cache.
+     * @param tenant contextId of the tenant.
+     * @return the name of the tenant's partition of the cache.
+     */
+    public static String getPartitionName( String cache, String tenant )
+    {
+        return tenant.equals( Tenants.getDefault() ) ? cache : cache + SEPARATOR + tenant;
+    }
+
+
+    /**
+     * Routes every call to the partition of the current tenant.  fortress-core wraps it in a blocking cache whose
+     * locks are shared by the partitions, they only serialize loads of the same key.
+     */
+    static final class PartitionedCache extends EhcacheDecoratorAdapter
+    {
+        private final Map<String, Ehcache> partitions = new ConcurrentHashMap<>();
+
+
+        PartitionedCache( Ehcache cache )
+        {
+            super( cache );
+        }
+
+
+        /**
+         * @return the partition of the current tenant, created if it's the first time the tenant uses the cache.
+         */
+        Ehcache getPartition()
+        {
+            String tenant = Tenants.get();
+            if ( tenant.equals( Tenants.getDefault() ) )
+            {
+                return underlyingCache;
+            }
+            Ehcache partition = partitions.get( tenant );
+            return partition != null ? partition : createPartition( tenant );
+        }
+
+
+        private synchronized Ehcache createPartition( String tenant )
+        {
+            Ehcache partition = partitions.get( tenant );
+            if ( partition == null )
+            {
+                CacheConfiguration configuration = underlyingCache.getCacheConfiguration().clone();
+                configuration.setName( getPartitionName( underlyingCache.getName(), tenant ) );
+                CacheManager manager = underlyingCache.getCacheManager();
+                // with a second tier of its own if the cache has one, see OffHeapCaches
+                partition = OffHeapCaches.install( manager, manager.addCacheIfAbsent( new Cache(
+                    configuration ) ) );
+                partitions.put( tenant, partition );
+                LOG.info( "createPartition " + partition.getName() + " of " + configuration
+                    .getMaxEntriesLocalHeap() + " entries" );
+            }
+            return partition;
+        }
+
+
+        @Override
+        public Element get( Object key ) throws CacheException
+        {
+            return getPartition().get( key );
+        }
+
+
+        @Override
+        public Element get( Serializable key ) throws CacheException
+        {
+            return getPartition().get( key );
+        }
+
+
+        @Override
+        public Element getQuiet( Object key ) throws CacheException
+        {
+            return getPartition().getQuiet( key );
+        }
+
+
+        @Override
+        public Element getQuiet( Serializable key ) throws CacheException
+        {
+            return getPartition().getQuiet( key );
+        }
+
+
+        @Override
+        public void put( Element element ) throws CacheException
+        {
+            getPartition().put( element );
+        }
+
+
+        @Override
+        public void put( Element element, boolean doNotNotifyCacheReplicators ) throws CacheException
+        {
+            getPartition().put( element, doNotNotifyCacheReplicators );
+        }
+
+
+        @Override
+        public void putQuiet( Element element ) throws CacheException
+        {
+            getPartition().putQuiet( element );
+        }
+
+
+        @Override
+        public Element putIfAbsent( Element element )
+        {
+            return getPartition().putIfAbsent( element );
+        }
+
+
+        @Override
+        public boolean remove( Object key )
+        {
+            return getPartition().remove( key );
+        }
+
+
+        @Override
+        public boolean remove( Object key, boolean doNotNotifyCacheReplicators )
+        {
+            return getPartition().remove( key, doNotNotifyCacheReplicators );
+        }
+
+
+        @Override
+        public boolean remove( Serializable key )
+        {
+            return getPartition().remove( key );
+        }
+
+
+        @Override
+        public boolean remove( Serializable key, boolean doNotNotifyCacheReplicators )
+        {
+            return getPartition().remove( key, doNotNotifyCacheReplicators );
+        }
+
+
+        @Override
+        public boolean removeQuiet( Object key )
+        {
+            return getPartition().removeQuiet( key );
+        }
+
+
+        @Override
+        public boolean removeQuiet( Serializable key )
+        {
+            return getPartition().removeQuiet( key );
+        }
+
+
+        /**
+         * Clears the entries of the current tenant only, the other partitions are registered with the cache manager
+         * and cleared along with this one by {@link CacheManager#clearAll()}.
+         */
+        @Override
+        public void removeAll() throws CacheException
+        {
+            getPartition().removeAll();
+        }
+
+
+        @Override
+        public void removeAll( boolean doNotNotifyCacheReplicators ) throws CacheException
+        {
+            getPartition().removeAll( doNotNotifyCacheReplicators );
+        }
+
+
+        /**
+         * @return the keys of the current tenant's partition, ehcache declares them as a raw list of objects.
+         */
+        @Override
+        @SuppressWarnings( "unchecked" )
+        public List<Object> getKeys() throws CacheException
+        {
+            return getPartition().getKeys();
+        }
+
+
+        @Override
+        public int getSize() throws CacheException
+        {
+            return getPartition().getSize();
+        }
+
+
+        @Override
+        public boolean isKeyInCache( Object key )
+        {
+            return getPartition().isKeyInCache( key );
+        }
+
+
+        @Override
+        public Query createQuery()
+        {
+            return getPartition().createQuery();
+        }
+
+
+        @Override
+        public <T> Attribute<T> getSearchAttribute( String attributeName ) throws CacheException
+        {
+            return getPartition().getSearchAttribute( attributeName );
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.directory.fortress.core.AccessMgr;
+import org.apache.directory.fortress.core.AccessMgrFactory;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.AdminMgrFactory;
+import org.apache.directory.fortress.core.AuditMgr;
+import org.apache.directory.fortress.core.AuditMgrFactory;
+import org.apache.directory.fortress.core.DelAccessMgr;
+import org.apache.directory.fortress.core.DelAccessMgrFactory;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgrFactory;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.DelReviewMgrFactory;
+import org.apache.directory.fortress.core.GroupMgr;
+import org.apache.directory.fortress.core.GroupMgrFactory;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.PwPolicyMgrFactory;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgrFactory;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.realm.J2eePolicyMgr;
+import org.apache.directory.fortress.realm.J2eePolicyMgrFactory;
+
+
+/**
+ * Factory methods of the manager beans of applicationContext.xml.  The beans are prototypes, every page, panel or
+ * model they are injected into gets its own instance created for the tenant of the request, see {@link Tenants}.
+ * The instances are not shared between tenants or users: under ARBAC each one holds the session of its user.  If
+ * enabled, {@link Resilience} guards the calls of each.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class TenantManagers
+{
+    private TenantManagers()
+    {
+    }
+
+
+    public static ReviewMgr createReviewMgr() throws SecurityException
+    {
+        return Resilience.wrap( ReviewMgr.class, ReviewMgrFactory.createInstance( Tenants.get() ) );
+    }
+
+
+    public static AdminMgr createAdminMgr() throws SecurityException
+    {
+        return Resilience.wrap( AdminMgr.class, AdminMgrFactory.createInstance( Tenants.get() ) );
+    }
+
+
+    public static AccessMgr createAccessMgr() throws SecurityException
+    {
+        return Resilience.wrap( AccessMgr.class, AccessMgrFactory.createInstance( Tenants.get() ) );
+    }
+
+
+    public static DelReviewMgr createDelReviewMgr() throws SecurityException
+    {
+        return Resilience.wrap( DelReviewMgr.class, DelReviewMgrFactory.createInstance( Tenants.get() ) );
+    }
+
+
+    public static DelAdminMgr createDelAdminMgr() throws SecurityException
+    {
+        return Resilience.wrap( DelAdminMgr.class, DelAdminMgrFactory.createInstance( Tenants.get() ) );
+    }
+
+
+    public static DelAccessMgr createDelAccessMgr() throws SecurityException
+    {
+        return Resilience.wrap( DelAccessMgr.class, DelAccessMgrFactory.createInstance( Tenants.get() ) );
+    }
+
+
+    public static AuditMgr createAuditMgr() throws SecurityException
+    {
+        return Resilience.wrap( AuditMgr.class, AuditMgrFactory.createInstance( Tenants.get() ) );
+    }
+
+
+    public static PwPolicyMgr createPwPolicyMgr() throws SecurityException
+    {
+        return Resilience.wrap( PwPolicyMgr.class, PwPolicyMgrFactory.createInstance( Tenants.get() ) );
+    }
+
+
+    public static GroupMgr createGroupMgr() throws SecurityException
+    {
+        return Resilience.wrap( GroupMgr.class, GroupMgrFactory.createInstance( Tenants.get() ) );
+    }
+
+
+    public static J2eePolicyMgr createJ2eePolicyMgr() throws SecurityException
+    {
+        return Resilience.wrap( J2eePolicyMgr.class, J2eePolicyMgrFactory.createInstance( Tenants.get() ) );
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Application;
+import org.apache.wicket.Session;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+
+
+/**
+ * Routes each request to a tenant, so one deployment can serve several of them.  The tenant, a fortress contextId,
+ * is resolved once per request by the {@link Listener} and read by everything keyed on it: the managers created by
+ * {@link TenantManagers}, the partitions of {@link TenantCaches} and the indexes of this package.  In order:
+ * <ol>
+ * <li>the tenant the wicket session is pinned to, set once its fortress session is loaded,</li>
+ * <li>the tenant mapped to the host name of the request by {@link #HOSTS_PROPERTY},</li>
+ * <li>the {@link #PARAMETER} query parameter, if it names one of the {@link #TENANTS_PROPERTY},</li>
+ * <li>the contextId of fortress.properties, HOME if not set.</li>
+ * </ol>
+ * <p>
+ * Logged in users are served in one tenant only.  The fortress realm of the container authenticates every principal
+ * in the tenant of {@link #REALM_PROPERTY}, and a principal is never loaded into any other, see
+ * {@link #isRealmTenant(String)}: the first request of a wicket session routed elsewhere is refused with a 403, the
+ * later ones stay with the realm's tenant the session is pinned to.  Every page of this application needs a login, so
+ * one deployment serves its users in the realm's tenant whatever the routing; the other tenants are only loaded by
+ * the warm-up, see {@link WarmUp}.  Serving users in several tenants takes a deployment per tenant, each with a realm
+ * authenticating in it.
+ * Without either property there is a single tenant, the configured one, and nothing is resolved per request.  Work
+ * handed to other threads, see {@link BackgroundJob} and {@link BatchExecutor}, carries the tenant of the request that
+ * started it.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class Tenants
+{
+    private static final Logger LOG = Logger.getLogger( Tenants.class.getName() );
+    public static final String TENANTS_PROPERTY = "tenants";
+    public static final String HOSTS_PROPERTY = "tenant.hosts";
+    public static final String REALM_PROPERTY = "tenant.realm";
+    public static final String PARAMETER = "tenant";
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+    private static volatile Routing routing;
+
+
+    private Tenants()
+    {
+    }
+
+
+    /**
+     * @return contextId of the tenant the current thread works for, the default one outside of a routed request.
+     */
+    public static String get()
+    {
+        String tenant = CURRENT.get();
+        return tenant != null ? tenant : getRouting().defaultTenant;
+    }
+
+
+    /**
+     * Bind the current thread to a tenant, e.g. on a worker thread.
+     *
+     * @param tenant contextId of the tenant, null to fall back to the default one.
+     * @return the tenant bound before, null if none, to be handed back here when done.
+     */
+    public static String set( String tenant )
+    {
+        String previous = CURRENT.get();
+        if ( tenant != null )
+        {
+            CURRENT.set( tenant );
+        }
+        else
+        {
+            CURRENT.remove();
+        }
+        return previous;
+    }
+
+
+    /**
+     * @return contextId of fortress.properties, HOME if not set.
+     */
+    public static String getDefault()
+    {
+        return getRouting().defaultTenant;
+    }
+
+
+    /**
+     * @return contextIds of every tenant a request can be routed to, the default one first.
+     */
+    public static List<String> getTenants()
+    {
+        return getRouting().tenants;
+    }
+
+
+    /**
+     * @return true if requests may be routed to more than one tenant.
+     */
+    public static boolean isRouted()
+    {
+        return getRouting().tenants.size() > 1;
+    }
+
+
+    /**
+     * @return contextId of the tenant the fortress realm authenticates principals in, the default one unless set by
+     * {@link #REALM_PROPERTY}.
+     */
+    public static String getRealmTenant()
+    {
+        return getRouting().realmTenant;
+    }
+
+
+    /**
+     * @param tenant contextId of a tenant, null if none.
+     * @return true if principals authenticated by the fortress realm may be loaded in the tenant.
+     */
+    public static boolean isRealmTenant( String tenant )
+    {
+        return tenant != null && tenant.equalsIgnoreCase( getRouting().realmTenant );
+    }
+
+
+    /**
+     * Resolve the tenant of a request, see the class comment for the order.
+     *
+     * @param request to resolve the tenant of.
+     * @param pinned  tenant of the wicket session, null if none.
+     * @return contextId of the tenant.
+     */
+    public static String resolve( Request request, String pinned )
+    {
+        Routing current = getRouting();
+        if ( pinned != null && current.tenants.contains( pinned ) )
+        {
+            return pinned;
+        }
+        Object containerRequest = request.getContainerRequest();
+        if ( !current.hosts.isEmpty() && containerRequest instanceof HttpServletRequest )
+        {
+            String host = ( ( HttpServletRequest ) containerRequest ).getServerName();
+            String tenant = host != null ? current.hosts.get( host.toLowerCase( Locale.ENGLISH ) ) : null;
+            if ( tenant != null )
+            {
+                return tenant;
+            }
+        }
+        String parameter = request.getQueryParameters().getParameterValue( PARAMETER ).toOptionalString();
+        if ( StringUtils.isNotEmpty( parameter ) )
+        {
+            String tenant = current.byName.get( parameter.toLowerCase( Locale.ENGLISH ) );
+            if ( tenant != null )
+            {
+                return tenant;
+            }
+            LOG.debug( "resolve ignoring unknown tenant=" + parameter );
+        }
+        return current.defaultTenant;
+    }
+
+
+    /**
+     * Forget the routing read from the properties, it is read again on next use.
+     */
+    static void reset()
+    {
+        routing = null;
+    }
+
+
+    private static Routing getRouting()
+    {
+        Routing current = routing;
+        if ( current == null )
+        {
+            current = new Routing();
+            routing = current;
+        }
+        return current;
+    }
+
+
+    /**
+     * @param name of the property, read from the system properties first.
+     * @return its value, null if not set or the configuration can't be read.
+     */
+    private static String getProperty( String name )
+    {
+        String value = System.getProperty( name );
+        if ( StringUtils.isEmpty( value ) )
+        {
+            try
+            {
+                value = Config.getInstance().getProperty( name );
+            }
+            catch ( RuntimeException e )
+            {
+                LOG.warn( "getProperty can't read " + name + ": " + e );
+            }
+        }
+        return StringUtils.isNotBlank( value ) ? value.trim() : null;
+    }
+
+
+    /**
+     * Binds each request to its tenant and unbinds it when the request is done.  Register it with the application's
+     * request cycle listeners ahead of any listener that calls fortress.
+     */
+    public static class Listener implements IRequestCycleListener
+    {
+        @Override
+        public void onBeginRequest( RequestCycle cycle )
+        {
+            if ( !isRouted() )
+            {
+                return;
+            }
+            // looked up rather than created, requests without a session don't get one here
+            Session session = Session.exists() ? Session.get() : Application.get().getSessionStore().lookup( cycle
+                .getRequest() );
+            String pinned = session instanceof WicketSession ? ( ( WicketSession ) session ).getTenant() : null;
+            CURRENT.set( resolve( cycle.getRequest(), pinned ) );
+        }
+
+
+        @Override
+        public void onDetach( RequestCycle cycle )
+        {
+            CURRENT.remove();
+        }
+    }
+
+
+    /**
+     * Tenants and host names as configured.
+     */
+    private static final class Routing
+    {
+        private final String defaultTenant;
+        private final String realmTenant;
+        private final List<String> tenants;
+        // lower case name or host to the tenant as configured
+        private final Map<String, String> byName = new LinkedHashMap<>();
+        private final Map<String, String> hosts = new LinkedHashMap<>();
+
+
+        Routing()
+        {
+            String contextId = getProperty( GlobalIds.CONTEXT_ID_PROPERTY );
+            defaultTenant = contextId != null ? contextId : org.apache.directory.fortress.core.GlobalIds.HOME;
+            add( defaultTenant );
+            String names = getProperty( TENANTS_PROPERTY );
+            if ( names != null )
+            {
+                for ( String name : names.split( "," ) )
+                {
+                    add( name.trim() );
+                }
+            }
+            String pairs = getProperty( HOSTS_PROPERTY );
+            if ( pairs != null )
+            {
+                for ( String pair : pairs.split( "," ) )
+                {
+                    int split = pair.indexOf( '=' );
+                    if ( split <= 0 || split == pair.length() - 1 )
+                    {
+                        LOG.warn( "Routing ignoring " + HOSTS_PROPERTY + " entry " + pair );
+                        continue;
+                    }
+                    String tenant = add( pair.substring( split + 1 ).trim() );
+                    hosts.put( pair.substring( 0, split ).trim().toLowerCase( Locale.ENGLISH ), tenant );
+                }
+            }
+            tenants = Collections.unmodifiableList( new ArrayList<>( byName.values() ) );
+            String realm = getProperty( REALM_PROPERTY );
+            String configured = realm != null ? byName.get( realm.toLowerCase( Locale.ENGLISH ) ) : defaultTenant;
+            realmTenant = configured != null ? configured : realm;
+            if ( tenants.size() > 1 )
+            {
+                LOG.info( "Routing requests to tenants " + tenants + ", hosts " + hosts + ", realm " + realmTenant );
+            }
+        }
+
+
+        /**
+         * @return the tenant as first configured, names differing in case only are one tenant.
+         */
+        private String add( String name )
+        {
+            if ( name.isEmpty() )
+            {
+                return defaultTenant;
+            }
+            String key = name.toLowerCase( Locale.ENGLISH );
+            String tenant = byName.get( key );
+            if ( tenant == null )
+            {
+                tenant = name;
+                byName.put( key, tenant );
+            }
+            return tenant;
+        }
+    }
+}
@@ -0,0 +1,764 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.lang.LocaleUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AccessMgrFactory;
+import org.apache.directory.fortress.core.AdminMgrFactory;
+import org.apache.directory.fortress.core.AuditMgrFactory;
+import org.apache.directory.fortress.core.DelAdminMgrFactory;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.DelReviewMgrFactory;
+import org.apache.directory.fortress.core.GroupMgrFactory;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.PwPolicyMgrFactory;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgrFactory;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.realm.J2eePolicyMgrFactory;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.Page;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.markup.Markup;
+import org.apache.wicket.markup.MarkupFactory;
+import org.apache.wicket.markup.MarkupType;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.protocol.http.WebSession;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.objenesis.Objenesis;
+import org.springframework.objenesis.ObjenesisStd;
+
+
+/**
+ * Optional warm-up run while the application starts.  Without it, the first user after a deploy pays for work that
+ * every later request finds already done:
+ * <ul>
+ * <li>the markup of every page and panel is parsed into wicket's markup cache,</li>
+ * <li>the fortress managers of every tenant are created and called once, which opens the ldap connection pools and
+ * loads the password policy and role hierarchy caches of ehcache.xml,</li>
+ * <li>the role, permission and separation of duty indexes of every tenant are loaded.</li>
+ * </ul>
+ * Set {@link #ENABLE_PROPERTY} to true, as a system property or in fortress.properties, to turn it on.
+ * {@link #TENANTS_PROPERTY} lists the tenants by contextId and defaults to those requests are routed to, see
+ * {@link Tenants},
+ * {@link #LOCALES_PROPERTY} the locales of the users and defaults to the one of the JVM.  The markup is parsed
+ * on the starting thread while the tenants are warmed on their own threads.  Every step is timed and the timeline is
+ * logged when the warm-up ends.  A step that fails is logged and the rest go on, the application starts either way.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class WarmUp
+{
+    private static final Logger LOG = Logger.getLogger( WarmUp.class.getName() );
+    public static final String ENABLE_PROPERTY = "enable.warmup";
+    public static final String TENANTS_PROPERTY = "warmup.tenants";
+    public static final String LOCALES_PROPERTY = "warmup.locales";
+    private static final String MARKUP_PACKAGE = "org/apache/directory/fortress/web/";
+    private static final int MAX_THREADS = 4;
+    // users assigned to the first few roles are tried for one that loads the role hierarchy
+    private static final int MAX_ROLE_TRIES = 5;
+    private static final Objenesis OBJENESIS = new ObjenesisStd();
+    private static volatile List<Step> lastTimeline = Collections.emptyList();
+
+
+    /**
+     * One timed step of the warm-up.
+     */
+    public static final class Step implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String name;
+        private final long start;
+        private final long elapsed;
+        private final String result;
+        private final boolean failed;
+
+
+        Step( String name, long start, long elapsed, String result, boolean failed )
+        {
+            this.name = name;
+            this.start = start;
+            this.elapsed = elapsed;
+            this.result = result;
+            this.failed = failed;
+        }
+
+
+        public String getName()
+        {
+            return name;
+        }
+
+
+        /**
+         * @return millis from the start of the warm-up to the start of the step.
+         */
+        public long getStart()
+        {
+            return start;
+        }
+
+
+        public long getElapsed()
+        {
+            return elapsed;
+        }
+
+
+        /**
+         * @return what the step loaded or, if it failed, the exception.
+         */
+        public String getResult()
+        {
+            return result;
+        }
+
+
+        public boolean isFailed()
+        {
+            return failed;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return String.format( "%6dms %+6dms  %s: %s%s", start, elapsed, name, failed ? "FAILED " : "", result );
+        }
+    }
+
+
+    private WarmUp()
+    {
+    }
+
+
+    /**
+     * @return true if {@link #ENABLE_PROPERTY} is set to true.  The system property is checked first so the warm-up
+     * can be turned on without touching fortress.properties.
+     */
+    public static boolean isEnabled()
+    {
+        String value = System.getProperty( ENABLE_PROPERTY );
+        if ( StringUtils.isEmpty( value ) )
+        {
+            try
+            {
+                value = Config.getInstance().getProperty( ENABLE_PROPERTY );
+            }
+            catch ( RuntimeException e )
+            {
+                LOG.warn( "isEnabled can't read the fortress configuration, no warm-up: " + e );
+                return false;
+            }
+        }
+        return "true".equalsIgnoreCase( value );
+    }
+
+
+    /**
+     * Run the warm-up and wait for it to finish, e.g. from {@link Application#init()}.
+     *
+     * @param application whose markup cache is filled, attached to the thread for the warm-up if it isn't already.
+     * @return the timeline, also logged.
+     */
+    public static List<Step> run( Application application )
+    {
+        boolean attached = Application.exists();
+        if ( !attached )
+        {
+            ThreadContext.setApplication( application );
+        }
+        try
+        {
+            return run();
+        }
+        finally
+        {
+            if ( !attached )
+            {
+                ThreadContext.setApplication( null );
+            }
+        }
+    }
+
+
+    private static List<Step> run()
+    {
+        final Timeline timeline = new Timeline();
+        List<String> tenants = getTenants();
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( tenants.size(), MAX_THREADS ),
+            new ThreadFactory()
+            {
+                private int count;
+
+
+                @Override
+                public synchronized Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-warmup-" + ++count );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+        List<Future<?>> futures = new ArrayList<>();
+        for ( final String tenant : tenants )
+        {
+            futures.add( executor.submit( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    // the indexes are kept per tenant, the one the thread is bound to
+                    String previous = Tenants.set( tenant );
+                    try
+                    {
+                        loadTenant( tenant, timeline );
+                    }
+                    finally
+                    {
+                        Tenants.set( previous );
+                    }
+                }
+            } ) );
+        }
+        executor.shutdown();
+        loadMarkup( getLocales(), timeline );
+        for ( Future<?> future : futures )
+        {
+            try
+            {
+                future.get();
+            }
+            catch ( ExecutionException e )
+            {
+                LOG.error( "run caught Exception=" + e.getCause(), e.getCause() );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                LOG.warn( "run interrupted, not waiting for the tenants" );
+                break;
+            }
+        }
+        List<Step> steps = timeline.getSteps();
+        lastTimeline = steps;
+        StringBuilder report = new StringBuilder( "warm-up took " ).append( timeline.getElapsed() ).append( "ms:" );
+        for ( Step step : steps )
+        {
+            report.append( System.lineSeparator() ).append( step );
+        }
+        LOG.info( report );
+        return steps;
+    }
+
+
+    /**
+     * @return the steps of the last warm-up, empty if none ran.
+     */
+    public static List<Step> getTimeline()
+    {
+        return lastTimeline;
+    }
+
+
+    /**
+     * Parse the markup of every page and panel of this application into the markup cache.  The classes are found by
+     * their markup files.  Markup is parsed once per file, but wicket remembers which file serves a class per locale:
+     * the lookup for a locale that wasn't warmed up still probes for the localized variants of every file.
+     *
+     * @param locales  of the users, the markup is looked up in each.
+     * @param timeline to add the steps to.
+     */
+    static void loadMarkup( List<Locale> locales, Timeline timeline )
+    {
+        final Set<Class<?>> classes = new LinkedHashSet<>();
+        timeline.time( "markup: find pages and panels", new Callable<String>()
+        {
+            @Override
+            public String call() throws IOException
+            {
+                classes.addAll( findMarkupContainers() );
+                return classes.size() + " classes";
+            }
+        } );
+        for ( final Locale locale : locales )
+        {
+            timeline.time( "markup: " + locale, new Callable<String>()
+            {
+                @Override
+                public String call() throws ReflectiveOperationException
+                {
+                    // the locale and style are the session's
+                    Session previous = ThreadContext.getSession();
+                    ThreadContext.setSession( new WebSession( new LocaleRequest( locale ) ) );
+                    try
+                    {
+                        int count = 0;
+                        for ( Class<?> clazz : classes )
+                        {
+                            Markup markup = getMarkup( clazz );
+                            if ( markup != null && markup != Markup.NO_MARKUP )
+                            {
+                                count++;
+                            }
+                        }
+                        return count + " found, " + MarkupFactory.get().getMarkupCache().size() + " cached";
+                    }
+                    finally
+                    {
+                        ThreadContext.setSession( previous );
+                    }
+                }
+            } );
+        }
+    }
+
+
+    /**
+     * Create the managers of one tenant, call each of them once and load its indexes.  The thread must be bound to
+     * the tenant, see {@link Tenants#set(String)}.
+     *
+     * @param tenant   contextId of the tenant.
+     * @param timeline to add the steps to.
+     */
+    static void loadTenant( final String tenant, Timeline timeline )
+    {
+        final String prefix = "tenant " + tenant + ": ";
+        final ReviewMgr reviewMgr = timeline.time( prefix + "review manager", new Callable<ReviewMgr>()
+        {
+            @Override
+            public ReviewMgr call() throws Exception
+            {
+                return ReviewMgrFactory.createInstance( tenant );
+            }
+        } );
+        final DelReviewMgr delReviewMgr = timeline.time( prefix + "delegated review manager",
+            new Callable<DelReviewMgr>()
+            {
+                @Override
+                public DelReviewMgr call() throws Exception
+                {
+                    return DelReviewMgrFactory.createInstance( tenant );
+                }
+            } );
+        timeline.time( prefix + "other managers", new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                AdminMgrFactory.createInstance( tenant );
+                DelAdminMgrFactory.createInstance( tenant );
+                AccessMgrFactory.createInstance( tenant );
+                AuditMgrFactory.createInstance( tenant );
+                GroupMgrFactory.createInstance( tenant );
+                J2eePolicyMgrFactory.createInstance( tenant );
+                return "6 created";
+            }
+        } );
+        // creating the manager loads every password policy into its cache
+        timeline.time( prefix + "password policies", new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                PwPolicyMgr pwPolicyMgr = PwPolicyMgrFactory.createInstance( tenant );
+                return pwPolicyMgr.search( "" ).size() + " policies";
+            }
+        } );
+        if ( reviewMgr != null && delReviewMgr != null )
+        {
+            loadIndexes( prefix, reviewMgr, delReviewMgr, timeline );
+        }
+    }
+
+
+    /**
+     * Read the roles and ous of one tenant, which loads the role hierarchy cache of fortress, and load the role,
+     * permission and separation of duty indexes of this application.  The thread must be bound to the tenant.
+     *
+     * @param prefix       of the step names.
+     * @param reviewMgr    of the tenant.
+     * @param delReviewMgr of the tenant.
+     * @param timeline     to add the steps to.
+     */
+    static void loadIndexes( String prefix, final ReviewMgr reviewMgr, final DelReviewMgr delReviewMgr,
+        Timeline timeline )
+    {
+        final List<Role> roles = new ArrayList<>();
+        timeline.time( prefix + "roles", new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                roles.addAll( reviewMgr.findRoles( "" ) );
+                return roles.size() + " roles, " + delReviewMgr.findRoles( "" ).size() + " admin roles";
+            }
+        } );
+        timeline.time( prefix + "role hierarchy", new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                // fortress loads the hierarchy into its cache the first time it resolves a user's inherited roles
+                for ( int i = 0; i < roles.size() && i < MAX_ROLE_TRIES; i++ )
+                {
+                    List<String> users = reviewMgr.assignedUsers( roles.get( i ), 1 );
+                    if ( users != null && !users.isEmpty() )
+                    {
+                        return reviewMgr.authorizedRoles( new User( users.get( 0 ) ) ).size() +
+                            " roles authorized for " + users.get( 0 );
+                    }
+                }
+                return "no user assigned to the first " + MAX_ROLE_TRIES + " roles";
+            }
+        } );
+        timeline.time( prefix + "ous", new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                return delReviewMgr.search( OrgUnit.Type.USER, "" ).size() + " user ous, " + delReviewMgr.search(
+                    OrgUnit.Type.PERM, "" ).size() + " perm ous";
+            }
+        } );
+        timeline.time( prefix + "role indexes", new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                RoleGraph.getInstance( false, reviewMgr, delReviewMgr );
+                RoleGraph.getInstance( true, reviewMgr, delReviewMgr );
+                return RoleClosure.getInstance( false, reviewMgr, delReviewMgr ).size() + " roles, " + RoleClosure
+                    .getInstance( true, reviewMgr, delReviewMgr ).size() + " admin roles";
+            }
+        } );
+        timeline.time( prefix + "permission indexes", new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                return PermissionClosure.getInstance( false, reviewMgr ).size() + " perms, " + PermissionClosure
+                    .getInstance( true, reviewMgr ).size() + " admin perms";
+            }
+        } );
+        timeline.time( prefix + "ssd index", new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                return SsdIndex.getInstance( reviewMgr ).size() + " ssd sets";
+            }
+        } );
+    }
+
+
+    /**
+     * Look up the markup of a page or panel the way its rendering does, loading it into the markup cache if missing.
+     * Wicket only looks up markup for an instance of the class, and ours can't be created before a user logs in, so
+     * the lookup is done for a stand-in: an instance whose constructors didn't run.  The lookup only asks it for its
+     * class, locale, style and markup type, a panel answers the last through the parent it is given.  A session must
+     * be attached to the thread.
+     *
+     * @param clazz of the page or panel.
+     * @return the markup, {@link Markup#NO_MARKUP} if there is none.
+     * @throws ReflectiveOperationException if the parent of a panel can't be set.
+     */
+    static Markup getMarkup( Class<?> clazz ) throws ReflectiveOperationException
+    {
+        MarkupContainer standIn = ( MarkupContainer ) OBJENESIS.newInstance( clazz );
+        if ( !( standIn instanceof Page ) )
+        {
+            Field parent = Component.class.getDeclaredField( "parent" );
+            parent.setAccessible( true );
+            parent.set( standIn, new MarkupHost() );
+        }
+        return MarkupFactory.get().getMarkup( standIn, clazz, false );
+    }
+
+
+    /**
+     * @return the pages and panels of this application, found by their markup files.
+     * @throws IOException if the class path can't be searched.
+     */
+    static List<Class<?>> findMarkupContainers() throws IOException
+    {
+        List<Class<?>> classes = new ArrayList<>();
+        ClassLoader loader = WarmUp.class.getClassLoader();
+        Resource[] resources = new PathMatchingResourcePatternResolver( loader ).getResources( "classpath*:" +
+            MARKUP_PACKAGE + "**/*.html" );
+        for ( Resource resource : resources )
+        {
+            String path = resource.getURL().toString();
+            int start = path.lastIndexOf( MARKUP_PACKAGE );
+            // locale and style variants, e.g. UserPage_de.html, belong to the class without the suffix
+            if ( start < 0 || path.indexOf( '_', start ) >= 0 )
+            {
+                continue;
+            }
+            String name = path.substring( start, path.length() - ".html".length() ).replace( '/', '.' );
+            try
+            {
+                Class<?> clazz = Class.forName( name, false, loader );
+                // the markup of an abstract base, e.g. FortressWebBasePage, is loaded with that of its subclasses
+                if ( MarkupContainer.class.isAssignableFrom( clazz ) && !Modifier.isAbstract( clazz
+                    .getModifiers() ) )
+                {
+                    classes.add( clazz );
+                }
+            }
+            catch ( ClassNotFoundException | LinkageError e )
+            {
+                LOG.debug( "findMarkupContainers no class for " + path + ": " + e );
+            }
+        }
+        return classes;
+    }
+
+
+    private static List<String> getTenants()
+    {
+        List<String> tenants = getList( TENANTS_PROPERTY );
+        return tenants.isEmpty() ? new ArrayList<>( Tenants.getTenants() ) : tenants;
+    }
+
+
+    private static List<Locale> getLocales()
+    {
+        List<Locale> locales = new ArrayList<>();
+        for ( String name : getList( LOCALES_PROPERTY ) )
+        {
+            try
+            {
+                locales.add( LocaleUtils.toLocale( name ) );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                LOG.warn( "getLocales ignoring " + name + ": " + e.getMessage() );
+            }
+        }
+        if ( locales.isEmpty() )
+        {
+            locales.add( Locale.getDefault() );
+        }
+        return locales;
+    }
+
+
+    /**
+     * @param name of a comma separated property, read from the system properties first.
+     * @return its distinct values.
+     */
+    private static List<String> getList( String name )
+    {
+        Set<String> values = new LinkedHashSet<>();
+        String value = System.getProperty( name );
+        if ( StringUtils.isEmpty( value ) )
+        {
+            value = Config.getInstance().getProperty( name );
+        }
+        if ( StringUtils.isNotEmpty( value ) )
+        {
+            for ( String element : value.split( "," ) )
+            {
+                if ( StringUtils.isNotBlank( element ) )
+                {
+                    values.add( element.trim() );
+                }
+            }
+        }
+        return new ArrayList<>( values );
+    }
+
+
+    /**
+     * Steps recorded from several threads, timed from the creation of the timeline.
+     */
+    static final class Timeline
+    {
+        private final long origin = System.currentTimeMillis();
+        private final List<Step> steps = new ArrayList<>();
+
+
+        /**
+         * Run and record one step.
+         *
+         * @param name of the step.
+         * @param work returns the result, its string form is recorded.
+         * @param <T>  type of the result.
+         * @return the result or null if the step failed.
+         */
+        <T> T time( String name, Callable<T> work )
+        {
+            long start = System.currentTimeMillis();
+            T result = null;
+            String outcome;
+            boolean failed = false;
+            try
+            {
+                result = work.call();
+                outcome = result instanceof String ? ( String ) result : "ok";
+            }
+            catch ( Exception | LinkageError e )
+            {
+                LOG.warn( "warm-up step " + name + " caught Exception=" + e, e );
+                outcome = e.toString();
+                failed = true;
+            }
+            long end = System.currentTimeMillis();
+            synchronized ( steps )
+            {
+                steps.add( new Step( name, start - origin, end - start, outcome, failed ) );
+            }
+            return result;
+        }
+
+
+        long getElapsed()
+        {
+            return System.currentTimeMillis() - origin;
+        }
+
+
+        List<Step> getSteps()
+        {
+            synchronized ( steps )
+            {
+                List<Step> sorted = new ArrayList<>( steps );
+                Collections.sort( sorted, new Comparator<Step>()
+                {
+                    @Override
+                    public int compare( Step a, Step b )
+                    {
+                        return Long.compare( a.getStart(), b.getStart() );
+                    }
+                } );
+                return Collections.unmodifiableList( sorted );
+            }
+        }
+    }
+
+
+    /**
+     * Parent of the panels whose markup is looked up, a panel's markup type is that of its parent.
+     */
+    private static final class MarkupHost extends WebMarkupContainer
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        MarkupHost()
+        {
+            super( "warmup" );
+        }
+
+
+        @Override
+        public MarkupType getMarkupType()
+        {
+            return MarkupType.HTML_MARKUP_TYPE;
+        }
+    }
+
+
+    /**
+     * Request of the session attached while the markup is parsed, only its locale is used.
+     */
+    private static final class LocaleRequest extends Request
+    {
+        private final Locale locale;
+
+
+        LocaleRequest( Locale locale )
+        {
+            this.locale = locale;
+        }
+
+
+        @Override
+        public Url getUrl()
+        {
+            return Url.parse( "" );
+        }
+
+
+        @Override
+        public Url getClientUrl()
+        {
+            return getUrl();
+        }
+
+
+        @Override
+        public Locale getLocale()
+        {
+            return locale;
+        }
+
+
+        @Override
+        public Charset getCharset()
+        {
+            return StandardCharsets.UTF_8;
+        }
+
+
+        @Override
+        public Object getContainerRequest()
+        {
+            return null;
+        }
+    }
+}
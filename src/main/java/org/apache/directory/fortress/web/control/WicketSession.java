@@ -20,16 +20,33 @@
 package org.apache.directory.fortress.web.control;
 
 
+import org.apache.log4j.Logger;
 import org.apache.wicket.protocol.http.WebSession;
 import org.apache.wicket.request.Request;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.Session;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 
 /**
- * This object is managed by wicket framework.  It is used to cache a copy of a user's session and permissions.
+ * This object is managed by wicket framework.  It is used to cache a copy of a user's session and permissions.  The
+ * permissions are a {@link PermissionSet} shared with the other sessions holding the same active roles.
+ * <p>
+ * For replication and persistent session stores both are written in a compact form: the fortress session deflated
+ * and the permissions as encoded by {@link PermissionSet}.  A deserialized session keeps the bytes and only decodes
+ * them the first time they're asked for, a session that is passed on again untouched is written out as is.
  *
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -39,8 +56,22 @@ public class WicketSession extends WebSession
 {
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
-    private Session session;
-    private List<Permission> permissions;
+    @SuppressWarnings( "rawtypes" )
+    private static final AtomicReferenceFieldUpdater<WicketSession, CompletableFuture> BOOTSTRAP =
+        AtomicReferenceFieldUpdater.newUpdater( WicketSession.class, CompletableFuture.class, "bootstrap" );
+    private static final Logger LOG = Logger.getLogger( WicketSession.class.getName() );
+    private transient Session session;
+    private transient PermissionSet permissions;
+    // compact form read from the stream, decoded on first use
+    private transient volatile byte[] encodedSession;
+    private transient volatile byte[] encodedPermissions;
+    // only needed while the session is initialized, see SessionBootstrap
+    private transient volatile CompletableFuture<Session> bootstrap;
+    // contextId the session is pinned to once the fortress session is loaded, see Tenants
+    private volatile String tenant;
+    // generations of the permission and role indexes the permissions are in step with, 0 if none
+    private volatile long permissionGeneration;
+    private volatile long roleGeneration;
 
 
     /**
@@ -57,24 +88,241 @@ public class WicketSession extends WebSession
 
     public Session getSession()
     {
+        if ( encodedSession != null )
+        {
+            rehydrate();
+        }
         return session;
     }
 
 
     public void setSession(Session session)
     {
-        this.session = session;
+        synchronized ( this )
+        {
+            this.session = session;
+            encodedSession = null;
+        }
     }
 
 
+    /**
+     * @return contextId of the tenant this session belongs to, null until its fortress session is loaded.
+     */
+    public String getTenant()
+    {
+        return tenant;
+    }
+
+
+    /**
+     * @param tenant contextId of the tenant the fortress session was loaded from, later requests are routed to it.
+     */
+    public void setTenant( String tenant )
+    {
+        this.tenant = tenant;
+    }
+
+
+    /**
+     * @return a copy of the permissions the caller may change, null if not loaded yet.  The permissions in it are
+     * shared with every session holding the same roles, so they must not be changed; read
+     * {@link #getPermissionSet()} instead to avoid the copy.
+     */
     public List<Permission> getPermissions()
     {
+        PermissionSet set = getPermissionSet();
+        return set != null ? new ArrayList<>( set.getPermissions() ) : null;
+    }
+
+
+    /**
+     * @return the shared set behind {@link #getPermissions()}, null if not loaded yet.
+     */
+    public PermissionSet getPermissionSet()
+    {
+        if ( encodedPermissions != null )
+        {
+            rehydrate();
+        }
         return permissions;
     }
 
 
+    /**
+     * Intern the permissions under the active roles of the fortress session, so sessions holding the same roles
+     * share one copy.  The fortress session must be set first.
+     *
+     * @param permissions of the fortress session.
+     */
     public void setPermissions( List<Permission> permissions )
     {
-        this.permissions = permissions;
+        Session current = getSession();
+        PermissionSet set = null;
+        if ( permissions != null )
+        {
+            set = PermissionSet.intern( current != null ? PermissionSet.getKey( current ) : "", permissions );
+        }
+        synchronized ( this )
+        {
+            this.permissions = set;
+            encodedPermissions = null;
+        }
+    }
+
+
+    /**
+     * @return generation of the {@link PermissionClosure} the permissions are in step with, 0 if none.
+     */
+    public long getPermissionGeneration()
+    {
+        return permissionGeneration;
+    }
+
+
+    /**
+     * @return generation of the {@link RoleClosure} the permissions are in step with, 0 if none.
+     */
+    public long getRoleGeneration()
+    {
+        return roleGeneration;
+    }
+
+
+    /**
+     * @param permissionGeneration of the permission index when the permissions just set were read, i.e. before the
+     *                             call, 0 if it wasn't loaded.
+     * @param roleGeneration       of the role index at the same time, 0 if it wasn't loaded.
+     */
+    public void setIndexGenerations( long permissionGeneration, long roleGeneration )
+    {
+        this.permissionGeneration = permissionGeneration;
+        this.roleGeneration = roleGeneration;
+    }
+
+
+    private void writeObject( ObjectOutputStream out ) throws IOException
+    {
+        out.defaultWriteObject();
+        byte[] sessionBytes;
+        byte[] permissionBytes;
+        synchronized ( this )
+        {
+            sessionBytes = encodedSession != null ? encodedSession : encodeSession( session );
+            permissionBytes = encodedPermissions != null ? encodedPermissions : permissions != null ? permissions
+                .encode() : null;
+        }
+        writeBytes( out, sessionBytes );
+        writeBytes( out, permissionBytes );
+    }
+
+
+    private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        encodedSession = readBytes( in );
+        encodedPermissions = readBytes( in );
+    }
+
+
+    /**
+     * Decode whatever is still in compact form.  A session that can't be decoded is dropped, it is then bootstrapped
+     * again from the principal like a new one.
+     */
+    private synchronized void rehydrate()
+    {
+        if ( encodedSession != null )
+        {
+            try
+            {
+                session = decodeSession( encodedSession );
+            }
+            catch ( IOException | ClassNotFoundException e )
+            {
+                LOG.error( "rehydrate dropping undecodable fortress session: " + e );
+            }
+            encodedSession = null;
+        }
+        if ( encodedPermissions != null )
+        {
+            try
+            {
+                permissions = PermissionSet.decode( encodedPermissions );
+            }
+            catch ( IOException e )
+            {
+                LOG.error( "rehydrate dropping undecodable permissions: " + e );
+            }
+            encodedPermissions = null;
+        }
+    }
+
+
+    /**
+     * @param session fortress session, may be null.
+     * @return the session serialized and deflated, null if none.
+     */
+    static byte[] encodeSession( Session session ) throws IOException
+    {
+        if ( session == null )
+        {
+            return null;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+        try ( ObjectOutputStream out = new ObjectOutputStream( new DeflaterOutputStream( buffer, deflater ) ) )
+        {
+            out.writeObject( session );
+        }
+        finally
+        {
+            deflater.end();
+        }
+        return buffer.toByteArray();
+    }
+
+
+    static Session decodeSession( byte[] bytes ) throws IOException, ClassNotFoundException
+    {
+        try ( ObjectInputStream in = new ObjectInputStream( new InflaterInputStream( new ByteArrayInputStream(
+            bytes ) ) ) )
+        {
+            return ( Session ) in.readObject();
+        }
+    }
+
+
+    private static void writeBytes( ObjectOutputStream out, byte[] bytes ) throws IOException
+    {
+        out.writeInt( bytes != null ? bytes.length : -1 );
+        if ( bytes != null )
+        {
+            out.write( bytes );
+        }
+    }
+
+
+    private static byte[] readBytes( ObjectInputStream in ) throws IOException
+    {
+        int length = in.readInt();
+        if ( length < 0 )
+        {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully( bytes );
+        return bytes;
+    }
+
+
+    CompletableFuture<Session> getBootstrap()
+    {
+        return bootstrap;
+    }
+
+
+    boolean casBootstrap( CompletableFuture<Session> expect, CompletableFuture<Session> update )
+    {
+        return BOOTSTRAP.compareAndSet( this, expect, update );
     }
 }
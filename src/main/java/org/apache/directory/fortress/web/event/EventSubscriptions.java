@@ -0,0 +1,176 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.event;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Page;
+import org.apache.wicket.event.Broadcast;
+
+
+/**
+ * Page level registry of the panels listening to {@link SaveModelEvent} and {@link SelectModelEvent}.  A panel
+ * subscribes once it is part of the page, usually from onInitialize, for the event type and the entity class it
+ * handles, and {@link #send} delivers the event to the matching panels only.  A breadth first broadcast visits every
+ * component of the page to find the two or three listeners, on a page like UserPage that is every grid cell, modal
+ * and constraint panel.
+ * <p>
+ * The registry is kept as meta data of the page, so it is stored and restored along with it.  Panels that left the
+ * page are dropped the next time the registry is used.  A page without any subscription still gets the broadcast.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class EventSubscriptions implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final MetaDataKey<EventSubscriptions> KEY = new MetaDataKey<EventSubscriptions>()
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+    };
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+
+    private EventSubscriptions()
+    {
+    }
+
+
+    /**
+     * Deliver events of the given type about entities of the given class to the listener.  Must be called once the
+     * listener is part of a page.
+     *
+     * @param listener   whose onEvent handles the event.
+     * @param eventType  class of the event payload.
+     * @param entityType class of the entities the listener handles, null for any.
+     */
+    public static void subscribe( Component listener, Class<? extends AjaxUpdateEvent> eventType,
+        Class<?> entityType )
+    {
+        Page page = listener.getPage();
+        EventSubscriptions registry = page.getMetaData( KEY );
+        if ( registry == null )
+        {
+            registry = new EventSubscriptions();
+            page.setMetaData( KEY, registry );
+        }
+        registry.prune( page );
+        for ( Subscription subscription : registry.subscriptions )
+        {
+            if ( subscription.listener == listener && subscription.eventType == eventType && subscription
+                .entityType == entityType )
+            {
+                return;
+            }
+        }
+        registry.subscriptions.add( new Subscription( listener, eventType, entityType ) );
+    }
+
+
+    /**
+     * Deliver the event to the panels of the page that subscribed to it.
+     *
+     * @param page   the event is for.
+     * @param source component sending the event.
+     * @param event  payload.
+     * @param entity the event is about, matched against the entity class of each subscription, null matches all.
+     * @return number of listeners the event was delivered to, -1 if it was broadcast.
+     */
+    public static int send( Page page, Component source, AjaxUpdateEvent event, Object entity )
+    {
+        EventSubscriptions registry = page.getMetaData( KEY );
+        if ( registry == null )
+        {
+            source.send( page, Broadcast.BREADTH, event );
+            return -1;
+        }
+        registry.prune( page );
+        // a listener may add or replace components while it handles the event
+        List<Component> listeners = new ArrayList<>();
+        for ( Subscription subscription : registry.subscriptions )
+        {
+            if ( subscription.matches( event, entity ) && !listeners.contains( subscription.listener ) )
+            {
+                listeners.add( subscription.listener );
+            }
+        }
+        for ( Component listener : listeners )
+        {
+            source.send( listener, Broadcast.EXACT, event );
+        }
+        return listeners.size();
+    }
+
+
+    /**
+     * @param page to check.
+     * @return number of subscriptions of the page.
+     */
+    public static int size( Page page )
+    {
+        EventSubscriptions registry = page.getMetaData( KEY );
+        return registry != null ? registry.subscriptions.size() : 0;
+    }
+
+
+    private void prune( Page page )
+    {
+        for ( Iterator<Subscription> i = subscriptions.iterator(); i.hasNext(); )
+        {
+            if ( i.next().listener.findParent( Page.class ) != page )
+            {
+                i.remove();
+            }
+        }
+    }
+
+
+    private static class Subscription implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final Component listener;
+        private final Class<? extends AjaxUpdateEvent> eventType;
+        private final Class<?> entityType;
+
+
+        Subscription( Component listener, Class<? extends AjaxUpdateEvent> eventType, Class<?> entityType )
+        {
+            this.listener = listener;
+            this.eventType = eventType;
+            this.entityType = entityType;
+        }
+
+
+        boolean matches( AjaxUpdateEvent event, Object entity )
+        {
+            return eventType.isInstance( event ) && ( entityType == null || entity == null || entityType
+                .isInstance( entity ) );
+        }
+    }
+}
@@ -23,7 +23,6 @@ import org.apache.wicket.Component;
 import org.apache.wicket.MarkupContainer;
 import org.apache.wicket.Page;
 import org.apache.wicket.ajax.AjaxRequestTarget;
-import org.apache.wicket.event.Broadcast;
 import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.request.ILogData;
 import org.apache.wicket.request.IRequestCycle;
@@ -109,12 +108,12 @@ public class SaveModelEvent extends AjaxUpdateEvent
 
     public static void send(Page page, Component component, FortEntity entity, AjaxRequestTarget target, Operations operation)
     {
-        component.send(page, Broadcast.BREADTH, new SaveModelEvent(target, entity, operation));
+        EventSubscriptions.send(page, component, new SaveModelEvent(target, entity, operation), entity);
     }
 
     public static void send(Page page, Component component, FortEntity entity, AjaxRequestTarget target)
     {
-        component.send(page, Broadcast.BREADTH, new SaveModelEvent(target, entity));
+        EventSubscriptions.send(page, component, new SaveModelEvent(target, entity), entity);
     }
 
     public static void send(Page page, Component component, FortEntity entity)
@@ -230,6 +229,6 @@ public class SaveModelEvent extends AjaxUpdateEvent
                 target.addComponent(myComponent);
         }
 */
-        component.send(page, Broadcast.BREADTH, new SaveModelEvent(target, entity));
+        EventSubscriptions.send(page, component, new SaveModelEvent(target, entity), entity);
     }
 }
\ No newline at end of file
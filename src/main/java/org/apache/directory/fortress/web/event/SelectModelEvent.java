@@ -23,7 +23,6 @@ import org.apache.wicket.Component;
 import org.apache.wicket.MarkupContainer;
 import org.apache.wicket.Page;
 import org.apache.wicket.ajax.AjaxRequestTarget;
-import org.apache.wicket.event.Broadcast;
 import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.request.ILogData;
 import org.apache.wicket.request.IRequestCycle;
@@ -186,11 +185,11 @@ public class SelectModelEvent extends AjaxUpdateEvent
                 //To change body of implemented methods use File | Settings | File Templates.
             }
         };
-        component.send(page, Broadcast.BREADTH, new SelectModelEvent(target, entity));
+        EventSubscriptions.send(page, component, new SelectModelEvent(target, entity), entity);
     }
 
     public static void send(Page page, Component component, FortEntity entity, AjaxRequestTarget target)
     {
-        component.send(page, Broadcast.BREADTH, new SaveModelEvent(target, entity));
+        EventSubscriptions.send(page, component, new SaveModelEvent(target, entity), entity);
     }
 }
\ No newline at end of file
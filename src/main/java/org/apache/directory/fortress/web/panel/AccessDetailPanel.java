@@ -0,0 +1,132 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directory.fortress.web.control.EffectiveAccess;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.markup.html.navigation.paging.AjaxPagingNavigator;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.PageableListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.PropertyModel;
+
+
+/**
+ * Shows the result of an {@link EffectiveAccess} lookup, the roles of the user with their temporal status and every
+ * permission along with the roles that grant it.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AccessDetailPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final int ROWS_PER_PAGE = 25;
+    private final WebMarkupContainer container;
+    private final PageableListView<EffectiveAccess.RoleAccess> roleView;
+    private final PageableListView<EffectiveAccess.PermissionAccess> permView;
+    private EffectiveAccess access;
+
+
+    public AccessDetailPanel( String id )
+    {
+        super( id );
+        container = new WebMarkupContainer( "access" );
+        container.setOutputMarkupId( true );
+        container.add( new Label( "summary", new PropertyModel<String>( this, "summary" ) ) );
+        roleView = new PageableListView<EffectiveAccess.RoleAccess>( "roles",
+            new PropertyModel<List<EffectiveAccess.RoleAccess>>( this, "roles" ), ROWS_PER_PAGE )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<EffectiveAccess.RoleAccess> item )
+            {
+                EffectiveAccess.RoleAccess role = item.getModelObject();
+                item.add( new Label( "name", role.getName() ) );
+                item.add( new Label( "type", role.isAssigned() ? "assignment" : "inheritance" ) );
+                item.add( new Label( "status", role.getStatus() ) );
+                item.add( new Label( "inheritedFrom", role.getInheritedFrom() ) );
+            }
+        };
+        container.add( roleView );
+        container.add( new AjaxPagingNavigator( "rolesNavigator", roleView ) );
+        permView = new PageableListView<EffectiveAccess.PermissionAccess>( "permissions",
+            new PropertyModel<List<EffectiveAccess.PermissionAccess>>( this, "permissions" ), ROWS_PER_PAGE )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<EffectiveAccess.PermissionAccess> item )
+            {
+                EffectiveAccess.PermissionAccess perm = item.getModelObject();
+                item.add( new Label( "objName", perm.getObjName() ) );
+                item.add( new Label( "opName", perm.getOpName() ) );
+                item.add( new Label( "objId", perm.getObjId() ) );
+                item.add( new Label( "grantedBy", perm.getGrantedBy() ) );
+            }
+        };
+        container.add( permView );
+        container.add( new AjaxPagingNavigator( "permissionsNavigator", permView ) );
+        add( container );
+    }
+
+
+    /**
+     * @param access result to show.
+     * @param target ajax target of the request that computed it.
+     */
+    public void setAccess( EffectiveAccess access, AjaxRequestTarget target )
+    {
+        this.access = access;
+        roleView.setCurrentPage( 0 );
+        permView.setCurrentPage( 0 );
+        target.add( container );
+    }
+
+
+    public String getSummary()
+    {
+        return access != null ? "Effective access of " + access.getUserId() : "";
+    }
+
+
+    public List<EffectiveAccess.RoleAccess> getRoles()
+    {
+        return access != null ? access.getRoles() : Collections.<EffectiveAccess.RoleAccess>emptyList();
+    }
+
+
+    public List<EffectiveAccess.PermissionAccess> getPermissions()
+    {
+        return access != null ? access.getPermissions() : Collections.<EffectiveAccess.PermissionAccess>emptyList();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.EffectiveAccess;
+import org.apache.directory.fortress.web.control.PermissionClosure;
+import org.apache.directory.fortress.web.control.RoleClosure;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxCallListener;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.markup.html.form.CheckBox;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.FormComponentPanel;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+
+/**
+ * Looks up the effective access of one user and hands it to the {@link AccessDetailPanel}.  The role hierarchy and
+ * the permission grants come from the cached {@link RoleClosure} and {@link PermissionClosure} of the tenant, so
+ * only the user itself is read from the directory.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AccessPanel extends FormComponentPanel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( AccessPanel.class.getName() );
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
+    private final Displayable display;
+    private final AccessDetailPanel detailPanel;
+
+
+    public AccessPanel( String id, Displayable display, AccessDetailPanel detailPanel )
+    {
+        super( id );
+        this.display = display;
+        this.detailPanel = detailPanel;
+        add( new AccessForm( GlobalIds.EDIT_FIELDS ) );
+    }
+
+
+    public class AccessForm extends Form
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private String userId;
+        private boolean admin;
+
+
+        public AccessForm( String id )
+        {
+            super( id );
+            add( new TextField<String>( GlobalIds.USER_ID, new PropertyModel<String>( this, "userId" ) ).setRequired(
+                true ) );
+            add( new CheckBox( "admin", new PropertyModel<Boolean>( this, "admin" ) ) );
+            addButtons();
+        }
+
+
+        private void addButtons()
+        {
+            add( new SecureIndicatingAjaxButton( "explore", GlobalIds.REVIEW_MGR, "userPermissions" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target )
+                {
+                    String msg;
+                    try
+                    {
+                        if ( Config.getInstance().getBoolean( org.apache.directory.fortress.core.GlobalIds
+                            .IS_ARBAC02 ) )
+                        {
+                            reviewMgr.setAdmin( SecUtils.getSession( this ) );
+                            delReviewMgr.setAdmin( SecUtils.getSession( this ) );
+                        }
+                        User user = reviewMgr.readUser( new User( userId ) );
+                        EffectiveAccess access = EffectiveAccess.compute( user, admin, RoleClosure.getInstance(
+                            admin, reviewMgr, delReviewMgr ), PermissionClosure.getInstance( admin, reviewMgr ) );
+                        detailPanel.setAccess( access, target );
+                        msg = "User " + userId + " holds " + access.getPermissions().size() + ( admin ? " admin" :
+                            "" ) + " permissions through " + access.getRoles().size() + " roles, computed in " + access
+                            .getElapsed() + "µs";
+                        LOG.debug( msg );
+                    }
+                    catch ( SecurityException se )
+                    {
+                        msg = "Effective access of " + userId + " failed: " + se.getMessage();
+                        LOG.warn( msg );
+                    }
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+
+
+                @Override
+                public void onError( AjaxRequestTarget target )
+                {
+                    LOG.warn( "explore.onError" );
+                    display.setMessage( "Enter the userId to explore" );
+                    display.display( target );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            } );
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.web.control.AccessMatrix;
+import org.apache.directory.fortress.web.control.BackgroundJob;
+import org.apache.log4j.Logger;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
+import org.apache.wicket.ajax.markup.html.navigation.paging.AjaxPagingNavigator;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.markup.repeater.Item;
+import org.apache.wicket.markup.repeater.data.DataView;
+import org.apache.wicket.markup.repeater.data.IDataProvider;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.request.handler.resource.ResourceStreamRequestHandler;
+import org.apache.wicket.request.resource.ContentDisposition;
+import org.apache.wicket.util.resource.AbstractResourceStreamWriter;
+import org.apache.wicket.util.time.Duration;
+
+
+/**
+ * Shows the progress of a running {@link AccessMatrix} and, once it completes, the matrix a page of users at a time
+ * along with a link that streams all of it as CSV.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AccessReviewDetailPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( AccessReviewDetailPanel.class.getName() );
+    private static final int POLL_SECONDS = 2;
+    private static final int ROWS_PER_PAGE = 25;
+    private static final int MAX_LISTED = 20;
+    private final Displayable display;
+    private final WebMarkupContainer progress;
+    private final DataView<Integer> rowView;
+    private AjaxSelfUpdatingTimerBehavior timer;
+    private String jobId;
+
+
+    public AccessReviewDetailPanel( String id, Displayable display )
+    {
+        super( id );
+        this.display = display;
+        progress = new WebMarkupContainer( "progress" );
+        progress.setOutputMarkupId( true );
+        progress.add( new Label( "status", new PropertyModel<String>( this, "status" ) ) );
+        progress.add( new Label( "counts", new PropertyModel<String>( this, "counts" ) ) );
+        progress.add( new Link<Void>( "csv" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClick()
+            {
+                final AccessMatrix job = getJob();
+                if ( job == null || job.getState() != BackgroundJob.State.DONE )
+                {
+                    return;
+                }
+                AbstractResourceStreamWriter stream = new AbstractResourceStreamWriter()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public void write( OutputStream output ) throws IOException
+                    {
+                        Writer writer = new OutputStreamWriter( output, StandardCharsets.UTF_8 );
+                        job.writeCsv( writer );
+                    }
+
+
+                    @Override
+                    public String getContentType()
+                    {
+                        return "text/csv";
+                    }
+                };
+                ResourceStreamRequestHandler handler = new ResourceStreamRequestHandler( stream,
+                    "access-review.csv" );
+                handler.setContentDisposition( ContentDisposition.ATTACHMENT );
+                getRequestCycle().scheduleRequestHandlerAfterCurrent( handler );
+            }
+
+
+            @Override
+            public boolean isVisible()
+            {
+                AccessMatrix job = getJob();
+                return job != null && job.getState() == BackgroundJob.State.DONE;
+            }
+        } );
+        rowView = new DataView<Integer>( "rows", new IDataProvider<Integer>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public Iterator<? extends Integer> iterator( long first, long count )
+            {
+                List<Integer> page = new ArrayList<>();
+                for ( long row = first; row < first + count; row++ )
+                {
+                    page.add( ( int ) row );
+                }
+                return page.iterator();
+            }
+
+
+            @Override
+            public long size()
+            {
+                AccessMatrix job = getJob();
+                return job != null && job.getState() == BackgroundJob.State.DONE ? job.getRowCount() : 0;
+            }
+
+
+            @Override
+            public IModel<Integer> model( Integer row )
+            {
+                return Model.of( row );
+            }
+        }, ROWS_PER_PAGE )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( Item<Integer> item )
+            {
+                AccessMatrix job = getJob();
+                int row = item.getModelObject();
+                BitSet granted = job.getRow( row );
+                List<Permission> columns = job.getColumns();
+                List<String> labels = new ArrayList<>();
+                for ( int col = granted.nextSetBit( 0 ); col >= 0 && labels.size() < MAX_LISTED; col = granted
+                    .nextSetBit( col + 1 ) )
+                {
+                    labels.add( AccessMatrix.getLabel( columns.get( col ) ) );
+                }
+                int total = granted.cardinality();
+                item.add( new Label( "userId", job.getUserId( row ) ) );
+                item.add( new Label( "granted", total ) );
+                item.add( new Label( "permissions", String.join( ", ", labels ) + ( total > labels.size() ? ", ..." :
+                    "" ) ) );
+            }
+        };
+        progress.add( rowView );
+        progress.add( new AjaxPagingNavigator( "navigator", rowView ) );
+        add( progress );
+    }
+
+
+    /**
+     * Begin polling the given review job.
+     *
+     * @param jobId  returned by {@link BackgroundJob#start(BackgroundJob)}.
+     * @param target ajax target of the request that started the job.
+     */
+    public void start( String jobId, AjaxRequestTarget target )
+    {
+        this.jobId = jobId;
+        rowView.setCurrentPage( 0 );
+        if ( timer != null )
+        {
+            progress.remove( timer );
+        }
+        timer = new AjaxSelfUpdatingTimerBehavior( Duration.seconds( POLL_SECONDS ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onPostProcessTarget( AjaxRequestTarget target )
+            {
+                AccessMatrix job = getJob();
+                if ( job == null || job.isFinished() )
+                {
+                    stop( target );
+                    String msg = job != null ? "Review " + job.getState() + ": " + job.getStatus() :
+                        "Review job no longer available";
+                    LOG.info( msg );
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+            }
+        };
+        progress.add( timer );
+        target.add( progress );
+    }
+
+
+    public AccessMatrix getJob()
+    {
+        return ( AccessMatrix ) BackgroundJob.find( jobId );
+    }
+
+
+    public String getStatus()
+    {
+        AccessMatrix job = getJob();
+        if ( job == null )
+        {
+            return "No review running";
+        }
+        return job.getState() + ": " + job.getStatus();
+    }
+
+
+    public String getCounts()
+    {
+        AccessMatrix job = getJob();
+        if ( job == null )
+        {
+            return "";
+        }
+        if ( job.getState() != BackgroundJob.State.DONE )
+        {
+            return job.getEvaluated() + " users evaluated, elapsed=" + job.getElapsed() + "ms";
+        }
+        return job.getRowCount() + " users x " + job.getColumns().size() + " permissions, load=" + job.getLoadTime() +
+            "ms, evaluate=" + job.getEvaluateTime() + "ms";
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AccessMatrix;
+import org.apache.directory.fortress.web.control.BackgroundJob;
+import org.apache.directory.fortress.web.control.BatchExecutor;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxCallListener;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.FormComponentPanel;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.validation.validator.RangeValidator;
+
+
+/**
+ * Starts an {@link AccessMatrix} for the selected permission objects or perm OU and optional user OU.  Progress and
+ * the result are shown on the {@link AccessReviewDetailPanel}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AccessReviewPanel extends FormComponentPanel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( AccessReviewPanel.class.getName() );
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
+    private final Displayable display;
+    private final AccessReviewDetailPanel detailPanel;
+
+
+    public AccessReviewPanel( String id, Displayable display, AccessReviewDetailPanel detailPanel )
+    {
+        super( id );
+        this.display = display;
+        this.detailPanel = detailPanel;
+        add( new AccessReviewForm( GlobalIds.EDIT_FIELDS ) );
+    }
+
+
+    public class AccessReviewForm extends Form
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private String objNames;
+        private String permOu;
+        private String userOu;
+        private Integer parallelism = BatchExecutor.DEFAULT_PARALLELISM;
+        private String jobId;
+
+
+        public AccessReviewForm( String id )
+        {
+            super( id );
+            add( new TextField<String>( "objNames", new PropertyModel<String>( this, "objNames" ) ) );
+            add( new TextField<String>( "permOu", new PropertyModel<String>( this, "permOu" ) ) );
+            add( new TextField<String>( "userOu", new PropertyModel<String>( this, "userOu" ) ) );
+            add( new TextField<Integer>( "parallelism", new PropertyModel<Integer>( this, "parallelism" ) )
+                .setRequired( true ).add( new RangeValidator<>( 1, BatchExecutor.MAX_PARALLELISM ) ) );
+            addButtons();
+        }
+
+
+        private void addButtons()
+        {
+            add( new SecureIndicatingAjaxButton( "review", GlobalIds.REVIEW_MGR, "userPermissions" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target )
+                {
+                    String msg;
+                    BackgroundJob running = BackgroundJob.find( jobId );
+                    if ( running != null && !running.isFinished() )
+                    {
+                        msg = "A review is already running, cancel it or wait for it to finish";
+                    }
+                    else if ( StringUtils.isBlank( objNames ) && StringUtils.isBlank( permOu ) )
+                    {
+                        msg = "Enter the permission objects or the perm OU to review";
+                    }
+                    else
+                    {
+                        if ( Config.getInstance().getBoolean( org.apache.directory.fortress.core.GlobalIds
+                            .IS_ARBAC02 ) )
+                        {
+                            reviewMgr.setAdmin( SecUtils.getSession( this ) );
+                            delReviewMgr.setAdmin( SecUtils.getSession( this ) );
+                        }
+                        jobId = BackgroundJob.start( new AccessMatrix( objNames, permOu, userOu, parallelism,
+                            reviewMgr, delReviewMgr ) );
+                        detailPanel.start( jobId, target );
+                        msg = "Access review started";
+                    }
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+
+
+                @Override
+                public void onError( AjaxRequestTarget target )
+                {
+                    LOG.warn( "review.onError" );
+                    display.setMessage( "Enter a parallelism between 1 and " + BatchExecutor.MAX_PARALLELISM );
+                    display.display( target );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            } );
+            add( new SecureIndicatingAjaxButton( GlobalIds.CANCEL, GlobalIds.ROLE_REVIEWS )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target )
+                {
+                    BackgroundJob job = BackgroundJob.find( jobId );
+                    String msg;
+                    if ( job != null && !job.isFinished() )
+                    {
+                        job.cancel();
+                        msg = "Review cancel requested";
+                    }
+                    else
+                    {
+                        msg = "No review running";
+                    }
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            }.setDefaultFormProcessing( false ) );
+        }
+    }
+}
@@ -23,6 +23,7 @@ package org.apache.directory.fortress.web.panel;
 import org.apache.commons.lang.StringUtils;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
@@ -101,6 +102,13 @@ public class AuditAuthzDetailPanel extends FormComponentPanel
         }
 
 
+        @Override
+        protected void onInitialize()
+        {
+            super.onInitialize();
+            EventSubscriptions.subscribe( this, SelectModelEvent.class, AuthZ.class );
+        }
+
         @Override
         public void onEvent( final IEvent event )
         {
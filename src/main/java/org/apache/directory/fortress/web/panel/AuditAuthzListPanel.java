@@ -32,7 +32,6 @@ import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.CheckBox;
@@ -43,6 +42,7 @@ import org.apache.wicket.model.IModel;
 import org.apache.directory.fortress.web.model.AuditAuthzListModel;
 import org.apache.directory.fortress.web.AuditAuthzPage;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.FormState;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
@@ -60,7 +60,9 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -110,90 +112,25 @@ public class AuditAuthzListPanel extends FormComponentPanel
     {
         userFld = new TextField( GlobalIds.USER_ID );
         userFld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( userFld );
-            }
-        };
-        userFld.add( ajaxUpdater );
         this.listForm.add( userFld );
         addUserSearchModal();
 
         objFld = new TextField( GlobalIds.OBJ_NAME );
         objFld.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( objFld );
-            }
-        };
-        objFld.add( ajaxUpdater );
         this.listForm.add( objFld );
 
         opFld = new TextField( GlobalIds.OP_NAME );
         opFld.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( opFld );
-            }
-        };
-        opFld.add( ajaxUpdater );
         this.listForm.add( opFld );
 
         final CheckBox isAdminCB = new CheckBox( GlobalIds.ADMIN );
         isAdminCB.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( isAdminCB );
-            }
-        };
-        isAdminCB.add( ajaxUpdater );
         isAdminCB.setRequired( false );
         this.listForm.add( isAdminCB );
         addPermSearchModal();
 
         final CheckBox failedOnlyCB = new CheckBox( GlobalIds.FAILED_ONLY );
         failedOnlyCB.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( failedOnlyCB );
-            }
-        };
-        failedOnlyCB.add( ajaxUpdater );
         failedOnlyCB.setRequired( false );
         this.listForm.add( failedOnlyCB );
 
@@ -203,40 +140,15 @@ public class AuditAuthzListPanel extends FormComponentPanel
         // Begin Date
         beginDateDP = new DatePicker( GlobalIds.BEGIN_DATE );
         beginDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( beginDateDP );
-            }
-        };
-        beginDateDP.add( ajaxUpdater );
         beginDateDP.setRequired( false );
         this.listForm.add( beginDateDP );
 
         // End Date
         endDateDP = new DatePicker( GlobalIds.END_DATE );
         endDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( endDateDP );
-            }
-        };
-        endDateDP.add( ajaxUpdater );
         endDateDP.setRequired( false );
         this.listForm.add( endDateDP );
+        this.listForm.add( new FormState().watch( userFld, objFld, opFld, isAdminCB, failedOnlyCB, beginDateDP, endDateDP ) );
     }
 
 
@@ -580,6 +492,9 @@ public class AuditAuthzListPanel extends FormComponentPanel
 
     private void loadTree( List<AuthZ> authZs )
     {
+        // the same users and permissions repeat on every page, their records share the decoded names
+        Map<String, String> userIds = new HashMap<>();
+        Map<String, AuthZ> perms = new HashMap<>();
         for ( AuthZ authZ : authZs )
         {
             Date start = null;
@@ -609,8 +524,8 @@ public class AuditAuthzListPanel extends FormComponentPanel
                             authZ.setReqResult( GlobalIds.SUCCESS );
                         }
             */
-            authZ.setReqAuthzID( AuditUtils.getAuthZId( authZ.getReqAuthzID() ) );
-            AuditUtils.mapAuthZPerm( authZ );
+            authZ.setReqAuthzID( AuditUtils.getAuthZId( authZ.getReqAuthzID(), userIds ) );
+            AuditUtils.mapAuthZPerm( authZ, perms );
             rootNode.add( new DefaultMutableTreeNode( authZ ) );
         }
     }
@@ -24,6 +24,7 @@ package org.apache.directory.fortress.web.panel;
 import org.apache.commons.lang.StringUtils;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
@@ -100,6 +101,13 @@ public class AuditBindDetailPanel extends FormComponentPanel
         }
 
 
+        @Override
+        protected void onInitialize()
+        {
+            super.onInitialize();
+            EventSubscriptions.subscribe( this, SelectModelEvent.class, Bind.class );
+        }
+
         @Override
         public void onEvent( final IEvent event )
         {
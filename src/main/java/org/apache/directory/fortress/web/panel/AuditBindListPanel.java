@@ -33,7 +33,6 @@ import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.CheckBox;
@@ -44,6 +43,7 @@ import org.apache.wicket.model.IModel;
 import org.apache.directory.fortress.web.model.AuditBindListModel;
 import org.apache.directory.fortress.web.AuditBindPage;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.FormState;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
@@ -62,7 +62,9 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -110,77 +112,26 @@ public class AuditBindListPanel extends FormComponentPanel
     {
         userFld = new TextField( GlobalIds.USER_ID );
         userFld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( userFld );
-            }
-        };
-        userFld.add( ajaxUpdater );
         this.listForm.add( userFld );
         addUserSearchModal();
 
         final CheckBox failedOnlyCB = new CheckBox( GlobalIds.FAILED_ONLY );
         failedOnlyCB.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( failedOnlyCB );
-            }
-        };
-        failedOnlyCB.add( ajaxUpdater );
         failedOnlyCB.setRequired( false );
         this.listForm.add( failedOnlyCB );
 
         // Begin Date
         beginDateDP = new DatePicker( GlobalIds.BEGIN_DATE );
         beginDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( beginDateDP );
-            }
-        };
-        beginDateDP.add( ajaxUpdater );
         beginDateDP.setRequired( false );
         this.listForm.add( beginDateDP );
 
         // End Date
         endDateDP = new DatePicker( GlobalIds.END_DATE );
         endDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( endDateDP );
-            }
-        };
-        endDateDP.add( ajaxUpdater );
         endDateDP.setRequired( false );
         this.listForm.add( endDateDP );
+        this.listForm.add( new FormState().watch( userFld, failedOnlyCB, beginDateDP, endDateDP ) );
     }
 
 
@@ -424,6 +375,8 @@ public class AuditBindListPanel extends FormComponentPanel
 
     private void loadTree( List<Bind> binds )
     {
+        // the same users bind over and over, their records share the decoded names
+        Map<String, String> userIds = new HashMap<>();
         for ( Bind bind : binds )
         {
             Date start = null;
@@ -449,7 +402,7 @@ public class AuditBindListPanel extends FormComponentPanel
             {
                 bind.setReqResult( GlobalIds.FAILURE );
             }
-            bind.setReqDN( AuditUtils.getAuthZId( bind.getReqDN() ) );
+            bind.setReqDN( AuditUtils.getAuthZId( bind.getReqDN(), userIds ) );
             rootNode.add( new DefaultMutableTreeNode( bind ) );
         }
     }
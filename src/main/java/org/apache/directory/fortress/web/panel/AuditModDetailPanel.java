@@ -46,6 +46,7 @@ import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.core.model.Mod;
 import org.apache.directory.fortress.core.model.User;
@@ -154,6 +155,13 @@ public class AuditModDetailPanel extends FormComponentPanel
             addOrReplace( view );
         }
 
+        @Override
+        protected void onInitialize()
+        {
+            super.onInitialize();
+            EventSubscriptions.subscribe( this, SelectModelEvent.class, Mod.class );
+        }
+
         @Override
         public void onEvent( final IEvent event )
         {
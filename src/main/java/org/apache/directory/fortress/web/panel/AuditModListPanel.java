@@ -33,7 +33,6 @@ import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
@@ -43,6 +42,7 @@ import org.apache.wicket.model.IModel;
 import org.apache.directory.fortress.web.model.AuditModListModel;
 import org.apache.directory.fortress.web.AuditModPage;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.FormState;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
@@ -62,7 +62,9 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -112,94 +114,30 @@ public class AuditModListPanel extends FormComponentPanel
     {
         userFld = new TextField( GlobalIds.USER_ID );
         userFld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( userFld );
-            }
-        };
-        userFld.add( ajaxUpdater );
         this.listForm.add( userFld );
         addUserSearchModal();
 
         objFld = new TextField( GlobalIds.OBJ_NAME );
         objFld.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( objFld );
-            }
-        };
-        objFld.add( ajaxUpdater );
         this.listForm.add( objFld );
 
         opFld = new TextField( GlobalIds.OP_NAME );
         opFld.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( opFld );
-            }
-        };
-        opFld.add( ajaxUpdater );
         this.listForm.add( opFld );
         addPermSearchModal();
 
         // Begin Date
         beginDateDP = new DatePicker( GlobalIds.BEGIN_DATE );
         beginDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( beginDateDP );
-            }
-        };
-        beginDateDP.add( ajaxUpdater );
         beginDateDP.setRequired( false );
         this.listForm.add( beginDateDP );
 
         // End Date
         endDateDP = new DatePicker( GlobalIds.END_DATE );
         endDateDP.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( endDateDP );
-            }
-        };
-        endDateDP.add( ajaxUpdater );
         endDateDP.setRequired( false );
         this.listForm.add( endDateDP );
+        this.listForm.add( new FormState().watch( userFld, objFld, opFld, beginDateDP, endDateDP ) );
     }
 
 
@@ -520,6 +458,8 @@ public class AuditModListPanel extends FormComponentPanel
 
     private void loadTree( List<Mod> mods )
     {
+        // the same admins modify the same entries, their records share one copy of each name
+        Map<String, String> names = new HashMap<>();
         for ( Mod mod : mods )
         {
             Date start = null;
@@ -537,6 +477,8 @@ public class AuditModListPanel extends FormComponentPanel
                 String formattedDate = formatter.format( start );
                 mod.setReqStart( formattedDate );
             }
+            mod.setReqDN( AuditUtils.share( mod.getReqDN(), names ) );
+            mod.setReqAuthzID( AuditUtils.share( mod.getReqAuthzID(), names ) );
             rootNode.add( new DefaultMutableTreeNode( mod ) );
         }
     }
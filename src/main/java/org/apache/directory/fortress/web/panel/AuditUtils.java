@@ -29,6 +29,7 @@ import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.log4j.Logger;
 
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 /**
@@ -133,6 +134,75 @@ final class AuditUtils
         }
     }
 
+    /**
+     * Same as {@link #mapAuthZPerm(AuthZ)} but records with the same reqDN share the decoded strings, an audit page
+     * holds thousands of records for the same few permissions.
+     *
+     * @param authZ
+     * @param decoded first record decoded for each reqDN of the page.
+     */
+    static void mapAuthZPerm( AuthZ authZ, Map<String, AuthZ> decoded )
+    {
+        AuthZ first = authZ.getReqDN() != null ? decoded.get( authZ.getReqDN() ) : null;
+        if ( first == null )
+        {
+            mapAuthZPerm( authZ );
+            if ( authZ.getReqDN() != null )
+            {
+                decoded.put( authZ.getReqDN(), authZ );
+            }
+        }
+        else
+        {
+            authZ.setReqDN( first.getReqDN() );
+            authZ.setReqDerefAliases( first.getReqDerefAliases() );
+            authZ.setReqAttr( first.getReqAttr() );
+            authZ.setReqAttrsOnly( first.getReqAttrsOnly() );
+        }
+    }
+
+    /**
+     * Same as {@link #getAuthZId(String)} but equal names share one result.
+     *
+     * @param inputString
+     * @param decoded userId already found for each name of the page.
+     * @return
+     */
+    static String getAuthZId( String inputString, Map<String, String> decoded )
+    {
+        if ( inputString == null )
+        {
+            return null;
+        }
+        String userId = decoded.get( inputString );
+        if ( userId == null && !decoded.containsKey( inputString ) )
+        {
+            userId = getAuthZId( inputString );
+            decoded.put( inputString, userId );
+        }
+        return userId;
+    }
+
+    /**
+     * @param value
+     * @param shared first instance of each value seen on the page.
+     * @return the instance of value already held by the page.
+     */
+    static String share( String value, Map<String, String> shared )
+    {
+        if ( value == null )
+        {
+            return null;
+        }
+        String first = shared.get( value );
+        if ( first == null )
+        {
+            shared.put( value, value );
+            return value;
+        }
+        return first;
+    }
+
     /**
      *
      * @param inputString
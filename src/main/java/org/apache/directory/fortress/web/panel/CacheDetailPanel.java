@@ -0,0 +1,106 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import java.util.List;
+
+import org.apache.directory.fortress.web.control.CacheConsole;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.util.time.Duration;
+
+
+/**
+ * Lists the statistics of every fortress cache, refreshed while the page is open.  Selecting a cache loads it into
+ * the {@link CachePanel}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class CacheDetailPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final int POLL_SECONDS = 5;
+
+
+    public CacheDetailPanel( String id, final CachePanel cachePanel )
+    {
+        super( id );
+        WebMarkupContainer statistics = new WebMarkupContainer( "statistics" );
+        statistics.setOutputMarkupId( true );
+        statistics.add( new AjaxSelfUpdatingTimerBehavior( Duration.seconds( POLL_SECONDS ) ) );
+        statistics.add( new ListView<CacheConsole.Region>( "regions",
+            new LoadableDetachableModel<List<CacheConsole.Region>>()
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected List<CacheConsole.Region> load()
+                {
+                    return CacheConsole.getRegions();
+                }
+            } )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<CacheConsole.Region> item )
+            {
+                final CacheConsole.Region region = item.getModelObject();
+                AjaxLink<Void> select = new AjaxLink<Void>( "select" )
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public void onClick( AjaxRequestTarget target )
+                    {
+                        cachePanel.select( region.getName(), target );
+                    }
+                };
+                select.add( new Label( "name", region.getName() ) );
+                item.add( select );
+                item.add( new Label( "size", region.getSize() + " / " + region.getMaxEntries() ) );
+                item.add( new Label( "hits", region.getHits() ) );
+                item.add( new Label( "misses", region.getMisses() ) );
+                item.add( new Label( "hitRatio", region.getHitRatio() + "%" ) );
+                item.add( new Label( "evictions", region.getEvictions() ) );
+                item.add( new Label( "timeToLive", region.getTimeToLive() ) );
+                item.add( new Label( "workingSet", region.getWorkingSet() ) );
+                item.add( new Label( "suggestedSize", region.getSuggestedSize() ) );
+            }
+        } );
+        add( statistics );
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.CacheConsole;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxCallListener;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.FormComponentPanel;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.validation.validator.RangeValidator;
+
+
+/**
+ * Changes the size and time to live of the cache selected on the {@link CacheDetailPanel}, or resizes every cache to
+ * its suggested size.  The changes last until the application is restarted, ehcache.xml is left as is.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class CachePanel extends FormComponentPanel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( CachePanel.class.getName() );
+    private static final long MAX_ENTRIES = 10000000L;
+    private static final long MAX_SECONDS = 86400L;
+    private final Displayable display;
+    private final CacheForm form;
+
+
+    public CachePanel( String id, Displayable display )
+    {
+        super( id );
+        this.display = display;
+        form = new CacheForm( GlobalIds.EDIT_FIELDS );
+        form.setOutputMarkupId( true );
+        add( form );
+    }
+
+
+    /**
+     * Load a cache into the form.
+     *
+     * @param name   of the cache.
+     * @param target ajax target of the request that selected it.
+     */
+    public void select( String name, AjaxRequestTarget target )
+    {
+        CacheConsole.Region region = CacheConsole.getRegion( name );
+        if ( region == null )
+        {
+            display.setMessage( "Cache " + name + " no longer exists" );
+            display.display( target );
+            return;
+        }
+        form.load( region );
+        target.add( form );
+    }
+
+
+    public class CacheForm extends Form
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private String name;
+        private Long maxEntries;
+        private Long timeToLive;
+        private Long timeToIdle;
+
+
+        public CacheForm( String id )
+        {
+            super( id );
+            add( new Label( "name", new PropertyModel<String>( this, "name" ) ) );
+            add( new TextField<Long>( "maxEntries", new PropertyModel<Long>( this, "maxEntries" ) ).setRequired(
+                true ).add( new RangeValidator<>( 1L, MAX_ENTRIES ) ) );
+            add( new TextField<Long>( "timeToLive", new PropertyModel<Long>( this, "timeToLive" ) ).setRequired(
+                true ).add( new RangeValidator<>( 0L, MAX_SECONDS ) ) );
+            add( new TextField<Long>( "timeToIdle", new PropertyModel<Long>( this, "timeToIdle" ) ).setRequired(
+                true ).add( new RangeValidator<>( 0L, MAX_SECONDS ) ) );
+            addButtons();
+        }
+
+
+        void load( CacheConsole.Region region )
+        {
+            name = region.getName();
+            maxEntries = region.getMaxEntries();
+            timeToLive = region.getTimeToLive();
+            timeToIdle = region.getTimeToIdle();
+            clearInput();
+        }
+
+
+        private void addButtons()
+        {
+            add( new SecureIndicatingAjaxButton( "apply", GlobalIds.ROLE_CACHES )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target )
+                {
+                    String msg;
+                    if ( name == null )
+                    {
+                        msg = "Select a cache first";
+                    }
+                    else
+                    {
+                        try
+                        {
+                            CacheConsole.resize( name, maxEntries );
+                            CacheConsole.setTimeToLive( name, timeToLive );
+                            CacheConsole.setTimeToIdle( name, timeToIdle );
+                            msg = "Cache " + name + " now holds up to " + maxEntries + " entries, ttl=" + timeToLive +
+                                "s, tti=" + timeToIdle + "s";
+                        }
+                        catch ( IllegalArgumentException e )
+                        {
+                            msg = e.getMessage();
+                        }
+                    }
+                    LOG.info( msg );
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+
+
+                @Override
+                public void onError( AjaxRequestTarget target )
+                {
+                    LOG.warn( "apply.onError" );
+                    display.setMessage( "Enter the maximum entries and the time to live and idle in seconds" );
+                    display.display( target );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    attributes.getAjaxCallListeners().add( new FailureListener() );
+                }
+            } );
+            add( new SecureIndicatingAjaxButton( "suggest", GlobalIds.ROLE_CACHES )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target )
+                {
+                    int resized = CacheConsole.applySuggestedSizes();
+                    String msg = resized + " caches resized to their suggested size";
+                    LOG.info( msg );
+                    if ( name != null )
+                    {
+                        select( name, target );
+                    }
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    attributes.getAjaxCallListeners().add( new FailureListener() );
+                }
+            }.setDefaultFormProcessing( false ) );
+            add( new SecureIndicatingAjaxButton( "clear", GlobalIds.ROLE_CACHES )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target )
+                {
+                    CacheConsole.clearStatistics();
+                    display.setMessage( "Cache statistics cleared" );
+                    display.display( target );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    attributes.getAjaxCallListeners().add( new FailureListener() );
+                }
+            }.setDefaultFormProcessing( false ) );
+        }
+    }
+
+
+    /**
+     * Sends the browser home if the session timed out.
+     */
+    private static class FailureListener extends AjaxCallListener
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        public CharSequence getFailureHandler( Component component )
+        {
+            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+        }
+    }
+}
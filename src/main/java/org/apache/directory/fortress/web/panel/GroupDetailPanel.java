@@ -55,7 +55,9 @@ import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.CompactDn;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
@@ -718,11 +720,12 @@ public class GroupDetailPanel extends FormComponentPanel
                 } );
 
                 int ctr = 0;
-                List<Member> tableMembers = new ArrayList<>();
+                String tenant = CompactDn.getTenant();
+                List<Member> tableMembers = new ArrayList<>( members.size() );
                 for ( String member : members )
                 {
                     Member tableMember = new Member();
-                    tableMember.setUserDn( member );
+                    tableMember.setDn( CompactDn.valueOf( tenant, member ) );
                     tableMember.setIndex( ++ctr );
                     tableMembers.add( tableMember );
                 }
@@ -808,6 +811,13 @@ public class GroupDetailPanel extends FormComponentPanel
         }
 
 
+        @Override
+        protected void onInitialize()
+        {
+            super.onInitialize();
+            EventSubscriptions.subscribe( this, SelectModelEvent.class, Group.class );
+        }
+
         @Override
         public void onEvent( final IEvent event )
         {
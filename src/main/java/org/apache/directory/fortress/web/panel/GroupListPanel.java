@@ -31,7 +31,6 @@ import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.event.IEvent;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
@@ -41,8 +40,11 @@ import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.FormState;
+import org.apache.directory.fortress.web.control.GridRows;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.GroupListModel;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
@@ -100,20 +102,8 @@ public class GroupListPanel extends FormComponentPanel
         radioGroup.setRenderBodyOnly( false );
         searchValFld = new TextField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this, GlobalIds.SEARCH_VAL ) );
         searchValFld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( searchValFld );
-            }
-        };
-        searchValFld.add( ajaxUpdater );
         radioGroup.add( searchValFld );
+        this.listForm.add( new FormState().watch( searchValFld ) );
 
         this.listForm.add( radioGroup );
         selectedRadioButton = NAMES;
@@ -195,6 +185,13 @@ public class GroupListPanel extends FormComponentPanel
     }
 
 
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+        EventSubscriptions.subscribe( this, SaveModelEvent.class, Group.class );
+    }
+
     @Override
     public void onEvent( IEvent event )
     {
@@ -207,17 +204,18 @@ public class GroupListPanel extends FormComponentPanel
                     add( modelEvent.getEntity() );
                     break;
                 case UPDATE:
-                    //modelEvent.
-                    modelChanged();
+                    update( modelEvent.getEntity() );
                     break;
                 case DELETE:
-                    prune();
+                    prune( modelEvent.getEntity() );
                     break;
                 default:
                     log.error( "onEvent caught invalid operation" );
                     break;
             }
             AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
+            // only the rows touched above
+            GridRows.send( grid, target );
             log.debug( ".onEvent AJAX - GroupListPanel - SaveModelEvent: " + target.toString() );
         }
     }
@@ -389,6 +387,18 @@ public class GroupListPanel extends FormComponentPanel
     }
 
 
+    /**
+     * Show the saved entity in its rows, only those are sent back.
+     *
+     * @param entity as saved.
+     */
+    public void update( FortEntity entity )
+    {
+        GridRows.replace( ( List<Group> ) getDefaultModelObject(), ( Group ) entity );
+        GridRows.replace( treeModel, rootNode, entity );
+    }
+
+
     public void add( FortEntity entity )
     {
         if ( getDefaultModelObject() != null )
@@ -404,4 +414,16 @@ public class GroupListPanel extends FormComponentPanel
     {
         removeSelectedItems( grid );
     }
+
+
+    /**
+     * Remove the rows of a deleted entity, other rows may be selected too.
+     *
+     * @param entity as deleted.
+     */
+    public void prune( FortEntity entity )
+    {
+        GridRows.remove( treeModel, rootNode, entity );
+        GridRows.remove( ( List<Group> ) getDefaultModelObject(), entity );
+    }
 }
\ No newline at end of file
@@ -23,6 +23,8 @@ package org.apache.directory.fortress.web.panel;
 
 import java.io.Serializable;
 
+import org.apache.directory.fortress.web.control.CompactDn;
+
 
 /**
  * Created with IntelliJ IDEA.
@@ -35,17 +37,30 @@ public class Member implements Serializable
 {
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
-    private String userDn;
+    // a large group holds thousands of members below the same suffix
+    private CompactDn userDn;
     private int index;
 
 
     public String getUserDn()
     {
-        return userDn;
+        return userDn != null ? userDn.toString() : null;
     }
 
 
     public void setUserDn( String userDn )
+    {
+        this.userDn = CompactDn.valueOf( userDn );
+    }
+
+
+    public CompactDn getDn()
+    {
+        return userDn;
+    }
+
+
+    public void setDn( CompactDn userDn )
     {
         this.userDn = userDn;
     }
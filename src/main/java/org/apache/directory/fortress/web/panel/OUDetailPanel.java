@@ -43,7 +43,9 @@ import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.LazyModalWindow;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
@@ -424,11 +426,19 @@ public class OUDetailPanel extends FormComponentPanel
 
         private void addParentSearchModal()
         {
-            final ModalWindow parentsModalWindow;
-            add( parentsModalWindow = new ModalWindow( "ouparentsmodal" ) );
-            final OUSearchModalPanel parentSearchModalPanel = new OUSearchModalPanel(
-                parentsModalWindow.getContentId(), parentsModalWindow, isUser );
-            parentsModalWindow.setContent( parentSearchModalPanel );
+            final LazyModalWindow<OUSearchModalPanel> parentsModalWindow;
+            add( parentsModalWindow = new LazyModalWindow<OUSearchModalPanel>( "ouparentsmodal" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected OUSearchModalPanel newPanel( String contentId )
+                {
+                    return new OUSearchModalPanel( contentId, this, isUser );
+                }
+            } );
             parentsModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
             {
                 /** Default serialVersionUID */
@@ -438,7 +448,7 @@ public class OUDetailPanel extends FormComponentPanel
                 @Override
                 public void onClose( AjaxRequestTarget target )
                 {
-                    parent = parentSearchModalPanel.getSelection();
+                    parent = parentsModalWindow.getPanel().getSelection();
                     if ( parent != null )
                     {
                         parentsSelection = parent.getName();
@@ -457,7 +467,7 @@ public class OUDetailPanel extends FormComponentPanel
                 {
                     String msg = "clicked on parents search";
                     msg += parentsSelection != null ? ": " + parentsSelection : "";
-                    parentSearchModalPanel.setSearchVal( parentsSelection );
+                    parentsModalWindow.getPanel().setSearchVal( parentsSelection );
                     display.setMessage( msg );
                     log.debug( msg );
                     target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
@@ -502,6 +512,13 @@ public class OUDetailPanel extends FormComponentPanel
         }
 
 
+        @Override
+        protected void onInitialize()
+        {
+            super.onInitialize();
+            EventSubscriptions.subscribe( this, SelectModelEvent.class, OrgUnit.class );
+        }
+
         @Override
         public void onEvent( final IEvent event )
         {
@@ -22,10 +22,14 @@ package org.apache.directory.fortress.web.panel;
 
 
 import com.inmethod.grid.IGridColumn;
+import com.inmethod.grid.column.CheckBoxColumn;
 import com.inmethod.grid.column.PropertyColumn;
 import com.inmethod.grid.treegrid.TreeGrid;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.util.Config;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
@@ -36,9 +40,15 @@ import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.BatchExecutor;
+import org.apache.directory.fortress.web.control.BatchResult;
+import org.apache.directory.fortress.web.control.BulkDeleter;
+import org.apache.directory.fortress.web.control.GridRows;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.OUListModel;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
@@ -52,6 +62,7 @@ import javax.swing.tree.DefaultTreeModel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -69,11 +80,20 @@ public class OUListPanel extends FormComponentPanel
     private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
     private DefaultMutableTreeNode rootNode;
     private String searchVal;
+    private boolean isUser;
+    private boolean selectingAll;
+    @SpringBean
+    private DelAdminMgr delAdminMgr;
 
 
     public OUListPanel( String id, final boolean isUser )
     {
         super( id );
+        this.isUser = isUser;
+        if ( Config.getInstance().getBoolean( org.apache.directory.fortress.core.GlobalIds.IS_ARBAC02 ) )
+        {
+            delAdminMgr.setAdmin( SecUtils.getSession( this ) );
+        }
         OrgUnit orgUnit = new OrgUnit();
         orgUnit.setName( "" );
         String searchLabel;
@@ -91,6 +111,7 @@ public class OUListPanel extends FormComponentPanel
         OUListModel ouListModel = new OUListModel( orgUnit, SecUtils.getSession( this ) );
         setDefaultModel( ouListModel );
         List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns = new ArrayList<>();
+        columns.add( new CheckBoxColumn<DefaultTreeModel, DefaultMutableTreeNode, String>( "select" ) );
         PropertyColumn name = new PropertyColumn<>( Model.of( searchLabel ), "userObject.name" );
         name.setInitialSize( 400 );
         columns.add( name );
@@ -120,23 +141,33 @@ public class OUListPanel extends FormComponentPanel
                 {
                     OrgUnit orgUnit1 = ( OrgUnit ) node.getUserObject();
                     log.debug( "TreeGrid.addGrid.selectItem selected sdSet =" + orgUnit1.getName() );
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        log.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
+                    super.selectItem( itemModel, selected );
+                    if ( selected && !selectingAll )
                     {
-                        super.selectItem( itemModel, true );
                         SelectModelEvent.send( getPage(), this, orgUnit1 );
                     }
                 }
             }
+
+
+            @Override
+            public void selectAllVisibleItems()
+            {
+                selectingAll = true;
+                try
+                {
+                    super.selectAllVisibleItems();
+                }
+                finally
+                {
+                    selectingAll = false;
+                }
+            }
         };
         //grid.setContentHeight( 50, SizeUnit.EM );
-        grid.setAllowSelectMultiple( false );
+        grid.setAllowSelectMultiple( true );
         grid.setClickRowToSelect( true );
-        grid.setClickRowToDeselect( false );
+        grid.setClickRowToDeselect( true );
         grid.setSelectToEdit( false );
         // expand the root node
         grid.getTreeState().expandAll();
@@ -221,10 +252,51 @@ public class OUListPanel extends FormComponentPanel
                 attributes.getAjaxCallListeners().add( ajaxCallListener );
             }
         } );
+        listForm.add( new SecureIndicatingAjaxButton( GlobalIds.BULK_DELETE, GlobalIds.DEL_ADMIN_MGR, "deleteOU" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target )
+            {
+                log.debug( ".bulkdelete onSubmit" );
+                deleteSelectedItems();
+                target.add( grid );
+            }
+
+
+            @Override
+            protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+            {
+                super.updateAjaxAttributes( attributes );
+                AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public CharSequence getFailureHandler( Component component )
+                    {
+                        return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                    }
+                };
+                attributes.getAjaxCallListeners().add( ajaxCallListener );
+            }
+        } );
         add( listForm );
     }
 
 
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+        EventSubscriptions.subscribe( this, SaveModelEvent.class, OrgUnit.class );
+    }
+
     @Override
     public void onEvent( IEvent event )
     {
@@ -237,16 +309,17 @@ public class OUListPanel extends FormComponentPanel
                     add( modelEvent.getEntity() );
                     break;
                 case UPDATE:
-                    modelChanged();
+                    update( modelEvent.getEntity() );
                     break;
                 case DELETE:
-                    prune();
+                    prune( modelEvent.getEntity() );
                     break;
                 default:
                     break;
             }
             AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
-            target.add( grid );
+            // only the rows touched above
+            GridRows.send( grid, target );
             log.debug( ".onEvent SaveModelEvent: " + target.toString() );
         }
     }
@@ -288,13 +361,25 @@ public class OUListPanel extends FormComponentPanel
     }
 
 
+    /**
+     * Show the saved entity in its rows, only those are sent back.
+     *
+     * @param entity as saved.
+     */
+    public void update( FortEntity entity )
+    {
+        GridRows.replace( ( List<OrgUnit> ) getDefaultModelObject(), ( OrgUnit ) entity );
+        GridRows.replace( treeModel, rootNode, entity );
+    }
+
+
     public void add( FortEntity entity )
     {
         if ( getDefaultModelObject() != null )
         {
             List<OrgUnit> orgUnits = ( ( List<OrgUnit> ) getDefaultModelObject() );
             orgUnits.add( ( OrgUnit ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, orgUnits.size() );
+            GridRows.prepend( treeModel, rootNode, entity );
         }
     }
 
@@ -303,4 +388,88 @@ public class OUListPanel extends FormComponentPanel
     {
         removeSelectedItems( grid );
     }
+
+
+    /**
+     * Remove a single org unit from the list.  Used instead of {@link #prune()} since other rows may also be selected.
+     *
+     * @param entity the org unit that was deleted.
+     */
+    public void prune( FortEntity entity )
+    {
+        String name = ( ( OrgUnit ) entity ).getName();
+        for ( int i = 0; i < rootNode.getChildCount(); i++ )
+        {
+            DefaultMutableTreeNode child = ( DefaultMutableTreeNode ) rootNode.getChildAt( i );
+            OrgUnit orgUnit = ( OrgUnit ) child.getUserObject();
+            if ( orgUnit != null && orgUnit.getName().equalsIgnoreCase( name ) )
+            {
+                log.debug( ".prune ou node: " + name );
+                treeModel.removeNodeFromParent( child );
+                ( ( List<OrgUnit> ) getDefaultModel().getObject() ).remove( orgUnit );
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Delete every selected org unit.  Org units in a hierarchy are deleted descendants first, the rest in parallel
+     * batches.  Org units that could not be deleted stay in the list, the grid is refreshed once by the caller.
+     */
+    private void deleteSelectedItems()
+    {
+        List<DefaultMutableTreeNode> nodes = new ArrayList<>();
+        List<OrgUnit> selected = new ArrayList<>();
+        for ( IModel<DefaultMutableTreeNode> model : grid.getSelectedItems() )
+        {
+            nodes.add( model.getObject() );
+            selected.add( ( OrgUnit ) model.getObject().getUserObject() );
+        }
+        if ( selected.isEmpty() )
+        {
+            info( "Select one or more org units to delete" );
+            return;
+        }
+        List<OrgUnit> loaded = new ArrayList<>();
+        for ( int i = 0; i < rootNode.getChildCount(); i++ )
+        {
+            loaded.add( ( OrgUnit ) ( ( DefaultMutableTreeNode ) rootNode.getChildAt( i ) ).getUserObject() );
+        }
+        final OrgUnit.Type type = isUser ? OrgUnit.Type.USER : OrgUnit.Type.PERM;
+        BatchResult<OrgUnit> result = BulkDeleter.delete( selected, loaded, new BulkDeleter.Hierarchy<OrgUnit>()
+        {
+            @Override
+            public String getName( OrgUnit orgUnit )
+            {
+                return orgUnit.getName();
+            }
+
+
+            @Override
+            public Set<String> getParents( OrgUnit orgUnit )
+            {
+                return orgUnit.getParents();
+            }
+        }, new BatchExecutor.Operation<OrgUnit>()
+        {
+            @Override
+            public void execute( OrgUnit orgUnit ) throws SecurityException
+            {
+                orgUnit.setType( type );
+                delAdminMgr.delete( orgUnit );
+            }
+        } );
+        for ( DefaultMutableTreeNode selectedNode : nodes )
+        {
+            OrgUnit orgUnit = ( OrgUnit ) selectedNode.getUserObject();
+            if ( !result.isFailed( orgUnit ) )
+            {
+                treeModel.removeNodeFromParent( selectedNode );
+                ( ( List<OrgUnit> ) getDefaultModel().getObject() ).remove( orgUnit );
+            }
+        }
+        grid.resetSelectedItems();
+        info( BulkDeleter.getMessage( result, selected.size(), "org units" ) );
+    }
 }
@@ -22,16 +22,19 @@ package org.apache.directory.fortress.web.panel;
 
 
 import com.inmethod.grid.IGridColumn;
+import com.inmethod.grid.column.CheckBoxColumn;
 import com.inmethod.grid.column.PropertyColumn;
 import com.inmethod.grid.treegrid.TreeGrid;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.util.Config;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.event.IEvent;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
@@ -40,9 +43,17 @@ import org.apache.wicket.markup.html.form.RadioGroup;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.BatchExecutor;
+import org.apache.directory.fortress.web.control.BatchResult;
+import org.apache.directory.fortress.web.control.BulkDeleter;
+import org.apache.directory.fortress.web.control.FormState;
+import org.apache.directory.fortress.web.control.GridRows;
+import org.apache.directory.fortress.web.control.PermissionClosure;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.ObjectListModel;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
@@ -81,11 +92,20 @@ public class ObjectListPanel extends FormComponentPanel
     private char selectedRadioButton;
     private static final char NAMES = 'N';
     private static final char OUS = 'O';
+    private boolean isAdmin;
+    private boolean selectingAll;
+    @SpringBean
+    private AdminMgr adminMgr;
 
 
     public ObjectListPanel( String id, final boolean isAdmin )
     {
         super( id );
+        this.isAdmin = isAdmin;
+        if ( Config.getInstance().getBoolean( org.apache.directory.fortress.core.GlobalIds.IS_ARBAC02 ) )
+        {
+            adminMgr.setAdmin( SecUtils.getSession( this ) );
+        }
         ObjectListModel objectListModel = new ObjectListModel( new PermObj( "" ), isAdmin,
             SecUtils.getSession( this ) );
         setDefaultModel( objectListModel );
@@ -101,20 +121,8 @@ public class ObjectListPanel extends FormComponentPanel
         radioGroup.setRenderBodyOnly( false );
         searchValFld = new TextField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this, GlobalIds.SEARCH_VAL ) );
         searchValFld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( searchValFld );
-            }
-        };
-        searchValFld.add( ajaxUpdater );
         radioGroup.add( searchValFld );
+        this.listForm.add( new FormState().watch( searchValFld ) );
 
         this.listForm.add( radioGroup );
         selectedRadioButton = NAMES;
@@ -173,6 +181,42 @@ public class ObjectListPanel extends FormComponentPanel
             }
 
 
+            @Override
+            protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+            {
+                super.updateAjaxAttributes( attributes );
+                AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public CharSequence getFailureHandler( Component component )
+                    {
+                        return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                    }
+                };
+                attributes.getAjaxCallListeners().add( ajaxCallListener );
+            }
+        } );
+
+        this.listForm.add( new SecureIndicatingAjaxButton( GlobalIds.BULK_DELETE, GlobalIds.ADMIN_MGR,
+            "deletePermObj" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target )
+            {
+                log.debug( ".bulkdelete.onSubmit" );
+                deleteSelectedItems();
+                target.add( grid );
+            }
+
+
             @Override
             protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
             {
@@ -195,6 +239,13 @@ public class ObjectListPanel extends FormComponentPanel
     }
 
 
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+        EventSubscriptions.subscribe( this, SaveModelEvent.class, PermObj.class );
+    }
+
     @Override
     public void onEvent( IEvent event )
     {
@@ -207,16 +258,20 @@ public class ObjectListPanel extends FormComponentPanel
                     add( modelEvent.getEntity() );
                     break;
                 case UPDATE:
-                    modelChanged();
+                    update( modelEvent.getEntity() );
                     break;
                 case DELETE:
-                    prune();
+                    // the operations of the object went with it
+                    PermissionClosure.invalidate( isAdmin );
+                    prune( modelEvent.getEntity() );
                     break;
                 default:
                     log.error( "onEvent caught invalid operation" );
                     break;
             }
             AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
+            // only the rows touched above
+            GridRows.send( grid, target );
             log.debug( ".onEvent AJAX - ObjectListPanel - SaveModelEvent: " + target.toString() );
         }
     }
@@ -259,6 +314,8 @@ public class ObjectListPanel extends FormComponentPanel
         List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
             new ArrayList<>();
 
+        columns.add( new CheckBoxColumn<DefaultTreeModel, DefaultMutableTreeNode, String>( "select" ) );
+
         PropertyColumn objName = new PropertyColumn<>(
             Model.of( "Object Name" ), "userObject.ObjName" );
         objName.setInitialSize( 300 );
@@ -294,23 +351,33 @@ public class ObjectListPanel extends FormComponentPanel
                 {
                     PermObj permObj = ( PermObj ) node.getUserObject();
                     log.debug( "TreeGrid.addGrid.selectItem selected permission object =" + permObj.getObjName() );
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        log.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
+                    super.selectItem( itemModel, selected );
+                    if ( selected && !selectingAll )
                     {
-                        super.selectItem( itemModel, true );
                         SelectModelEvent.send( getPage(), this, permObj );
                     }
                 }
             }
+
+
+            @Override
+            public void selectAllVisibleItems()
+            {
+                selectingAll = true;
+                try
+                {
+                    super.selectAllVisibleItems();
+                }
+                finally
+                {
+                    selectingAll = false;
+                }
+            }
         };
         //grid.setContentHeight( 50, SizeUnit.EM );
-        grid.setAllowSelectMultiple( false );
+        grid.setAllowSelectMultiple( true );
         grid.setClickRowToSelect( true );
-        grid.setClickRowToDeselect( false );
+        grid.setClickRowToDeselect( true );
         grid.setSelectToEdit( false );
         // expand the root node
         grid.getTreeState().expandAll();
@@ -391,6 +458,18 @@ public class ObjectListPanel extends FormComponentPanel
     }
 
 
+    /**
+     * Show the saved entity in its rows, only those are sent back.
+     *
+     * @param entity as saved.
+     */
+    public void update( FortEntity entity )
+    {
+        GridRows.replace( ( List<PermObj> ) getDefaultModelObject(), ( PermObj ) entity );
+        GridRows.replace( treeModel, rootNode, entity );
+    }
+
+
     public void add( FortEntity entity )
     {
         if ( getDefaultModelObject() != null )
@@ -407,4 +486,74 @@ public class ObjectListPanel extends FormComponentPanel
     {
         removeSelectedItems( grid );
     }
+
+
+    /**
+     * Remove a single permission object from the list.  Used instead of {@link #prune()} since other rows may also be
+     * selected.
+     *
+     * @param entity the permission object that was deleted.
+     */
+    public void prune( FortEntity entity )
+    {
+        String objName = ( ( PermObj ) entity ).getObjName();
+        for ( int i = 0; i < rootNode.getChildCount(); i++ )
+        {
+            DefaultMutableTreeNode child = ( DefaultMutableTreeNode ) rootNode.getChildAt( i );
+            PermObj permObj = ( PermObj ) child.getUserObject();
+            if ( permObj != null && permObj.getObjName().equalsIgnoreCase( objName ) )
+            {
+                log.debug( ".prune permission object node: " + objName );
+                treeModel.removeNodeFromParent( child );
+                ( ( List<PermObj> ) getDefaultModel().getObject() ).remove( permObj );
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Delete every selected permission object in parallel batches.  Objects that could not be deleted stay in the
+     * list, the grid is refreshed once by the caller.
+     */
+    private void deleteSelectedItems()
+    {
+        List<DefaultMutableTreeNode> nodes = new ArrayList<>();
+        List<PermObj> selected = new ArrayList<>();
+        for ( IModel<DefaultMutableTreeNode> model : grid.getSelectedItems() )
+        {
+            nodes.add( model.getObject() );
+            selected.add( ( PermObj ) model.getObject().getUserObject() );
+        }
+        if ( selected.isEmpty() )
+        {
+            info( "Select one or more permission objects to delete" );
+            return;
+        }
+        BatchResult<PermObj> result = BulkDeleter.delete( selected, null, null,
+            new BatchExecutor.Operation<PermObj>()
+            {
+                @Override
+                public void execute( PermObj permObj ) throws SecurityException
+                {
+                    permObj.setAdmin( isAdmin );
+                    adminMgr.deletePermObj( permObj );
+                }
+            } );
+        for ( DefaultMutableTreeNode selectedNode : nodes )
+        {
+            PermObj permObj = ( PermObj ) selectedNode.getUserObject();
+            if ( !result.isFailed( permObj ) )
+            {
+                treeModel.removeNodeFromParent( selectedNode );
+                ( ( List<PermObj> ) getDefaultModel().getObject() ).remove( permObj );
+            }
+        }
+        if ( result.getSucceeded() > 0 )
+        {
+            PermissionClosure.invalidate( isAdmin );
+        }
+        grid.resetSelectedItems();
+        info( BulkDeleter.getMessage( result, selected.size(), "permission objects" ) );
+    }
 }
\ No newline at end of file
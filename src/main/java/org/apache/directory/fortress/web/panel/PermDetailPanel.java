@@ -43,7 +43,9 @@ import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.LazyModalWindow;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
@@ -444,11 +446,19 @@ public class PermDetailPanel extends FormComponentPanel
 
         private void addObjectSearchModal()
         {
-            final ModalWindow objectsModalWindow;
-            add( objectsModalWindow = new ModalWindow( "objectsmodal" ) );
-            final ObjectSearchModalPanel objectSearchModalPanel = new ObjectSearchModalPanel(
-                objectsModalWindow.getContentId(), objectsModalWindow, isAdmin );
-            objectsModalWindow.setContent( objectSearchModalPanel );
+            final LazyModalWindow<ObjectSearchModalPanel> objectsModalWindow;
+            add( objectsModalWindow = new LazyModalWindow<ObjectSearchModalPanel>( "objectsmodal" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected ObjectSearchModalPanel newPanel( String contentId )
+                {
+                    return new ObjectSearchModalPanel( contentId, this, isAdmin );
+                }
+            } );
             objectsModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
             {
                 /** Default serialVersionUID */
@@ -458,7 +468,7 @@ public class PermDetailPanel extends FormComponentPanel
                 @Override
                 public void onClose( AjaxRequestTarget target )
                 {
-                    PermObj permObj = objectSearchModalPanel.getSelection();
+                    PermObj permObj = objectsModalWindow.getPanel().getSelection();
                     if ( permObj != null )
                     {
                         Permission perm = ( Permission ) editForm.getModel().getObject();
@@ -479,8 +489,8 @@ public class PermDetailPanel extends FormComponentPanel
                     String msg = "clicked on ObjectNames search";
                     Permission perm = ( Permission ) editForm.getModel().getObject();
                     msg += perm.getObjName() != null ? ": " + perm.getObjName() : "";
-                    objectSearchModalPanel.setSearchVal( perm.getObjName() );
-                    objectSearchModalPanel.setAdmin( isAdmin );
+                    objectsModalWindow.getPanel().setSearchVal( perm.getObjName() );
+                    objectsModalWindow.getPanel().setAdmin( isAdmin );
                     display.setMessage( msg );
                     log.debug( msg );
                     target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
@@ -526,11 +536,19 @@ public class PermDetailPanel extends FormComponentPanel
 
         private void addRoleSearchModal()
         {
-            final ModalWindow rolesModalWindow;
-            add( rolesModalWindow = new ModalWindow( "permrolesmodal" ) );
-            final RoleSearchModalPanel roleSearchModalPanel = new RoleSearchModalPanel(
-                rolesModalWindow.getContentId(), rolesModalWindow, isAdmin );
-            rolesModalWindow.setContent( roleSearchModalPanel );
+            final LazyModalWindow<RoleSearchModalPanel> rolesModalWindow;
+            add( rolesModalWindow = new LazyModalWindow<RoleSearchModalPanel>( "permrolesmodal" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected RoleSearchModalPanel newPanel( String contentId )
+                {
+                    return new RoleSearchModalPanel( contentId, this, isAdmin );
+                }
+            } );
             rolesModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
             {
                 /** Default serialVersionUID */
@@ -540,7 +558,7 @@ public class PermDetailPanel extends FormComponentPanel
                 @Override
                 public void onClose( AjaxRequestTarget target )
                 {
-                    roleConstraint = roleSearchModalPanel.getRoleSelection();
+                    roleConstraint = rolesModalWindow.getPanel().getRoleSelection();
                     if ( roleConstraint != null )
                     {
                         rolesSelection = roleConstraint.getName();
@@ -559,7 +577,7 @@ public class PermDetailPanel extends FormComponentPanel
                 {
                     String msg = "clicked on roles search";
                     msg += rolesSelection != null ? ": " + rolesSelection : "";
-                    roleSearchModalPanel.setRoleSearchVal( rolesSelection );
+                    rolesModalWindow.getPanel().setRoleSearchVal( rolesSelection );
                     display.setMessage( msg );
                     log.debug( msg );
                     target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
@@ -613,6 +631,13 @@ public class PermDetailPanel extends FormComponentPanel
         }
 
 
+        @Override
+        protected void onInitialize()
+        {
+            super.onInitialize();
+            EventSubscriptions.subscribe( this, SelectModelEvent.class, Permission.class );
+        }
+
         @Override
         public void onEvent( final IEvent event )
         {
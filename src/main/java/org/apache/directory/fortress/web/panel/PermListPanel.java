@@ -22,25 +22,37 @@ package org.apache.directory.fortress.web.panel;
 
 
 import com.inmethod.grid.IGridColumn;
+import com.inmethod.grid.column.CheckBoxColumn;
 import com.inmethod.grid.column.PropertyColumn;
 import com.inmethod.grid.treegrid.TreeGrid;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.util.Config;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
-import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.event.IEvent;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.BatchExecutor;
+import org.apache.directory.fortress.web.control.BatchResult;
+import org.apache.directory.fortress.web.control.BulkDeleter;
+import org.apache.directory.fortress.web.control.FormState;
+import org.apache.directory.fortress.web.control.GridRows;
+import org.apache.directory.fortress.web.control.PermissionClosure;
+import org.apache.directory.fortress.web.control.RoleClosure;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.PermListModel;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
@@ -77,6 +89,9 @@ public class PermListPanel extends FormComponentPanel
     private String permObject;
     private TextField permObjectFld;
     private boolean isAdmin;
+    private boolean selectingAll;
+    @SpringBean
+    private AdminMgr adminMgr;
 
 
     public PermListPanel( String id, final boolean isAdmin )
@@ -84,11 +99,16 @@ public class PermListPanel extends FormComponentPanel
         super( id );
 
         this.isAdmin = isAdmin;
+        if ( Config.getInstance().getBoolean( org.apache.directory.fortress.core.GlobalIds.IS_ARBAC02 ) )
+        {
+            adminMgr.setAdmin( SecUtils.getSession( this ) );
+        }
         PermListModel permListModel = new PermListModel( new Permission( "", "" ),
             isAdmin, SecUtils.getSession( this ) );
         setDefaultModel( permListModel );
         List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
             new ArrayList<>();
+        columns.add( new CheckBoxColumn<DefaultTreeModel, DefaultMutableTreeNode, String>( "select" ) );
         PropertyColumn objName = new PropertyColumn( new Model( "Object Name" ), "userObject.ObjName" );
         objName.setInitialSize( 350 );
         columns.add( objName );
@@ -133,24 +153,34 @@ public class PermListPanel extends FormComponentPanel
                     log.debug( "TreeGrid.addGrid.selectItem selected perm objNm: " + perm.getObjName() + " opNm: "
                         + perm.getOpName() );
 
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        log.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
+                    super.selectItem( itemModel, selected );
+                    if ( selected && !selectingAll )
                     {
-                        super.selectItem( itemModel, true );
                         SelectModelEvent.send( getPage(), this, perm );
                     }
                 }
             }
+
+
+            @Override
+            public void selectAllVisibleItems()
+            {
+                selectingAll = true;
+                try
+                {
+                    super.selectAllVisibleItems();
+                }
+                finally
+                {
+                    selectingAll = false;
+                }
+            }
         };
 
         //grid.setContentHeight( 50, SizeUnit.EM );
-        grid.setAllowSelectMultiple( false );
+        grid.setAllowSelectMultiple( true );
         grid.setClickRowToSelect( true );
-        grid.setClickRowToDeselect( false );
+        grid.setClickRowToDeselect( true );
         grid.setSelectToEdit( false );
         // expand the root node
         grid.getTreeState().expandAll();
@@ -161,21 +191,8 @@ public class PermListPanel extends FormComponentPanel
         permObjectFld = new TextField( "permObject", new PropertyModel<String>( this, "permObject" ) );
         permObjectFld.setOutputMarkupId( true );
 
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( permObjectFld );
-            }
-        };
-
-        permObjectFld.add( ajaxUpdater );
         this.listForm.add( permObjectFld );
+        this.listForm.add( new FormState().watch( permObjectFld ) );
         TextField permOperationFld = new TextField( "permOperation", new PropertyModel<String>( this, "permOperation" ) );
         this.listForm.add( permOperationFld );
         addObjectSearchModal();
@@ -235,6 +252,44 @@ public class PermListPanel extends FormComponentPanel
             }
 
 
+            @Override
+            protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+            {
+                super.updateAjaxAttributes( attributes );
+
+                AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public CharSequence getFailureHandler( Component component )
+                    {
+                        return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                    }
+                };
+
+                attributes.getAjaxCallListeners().add( ajaxCallListener );
+            }
+        } );
+
+        this.listForm.add( new SecureIndicatingAjaxButton( GlobalIds.BULK_DELETE, GlobalIds.ADMIN_MGR,
+            "deletePermission" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target )
+            {
+                log.debug( ".bulkdelete onSubmit" );
+                deleteSelectedItems();
+                target.add( grid );
+            }
+
+
             @Override
             protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
             {
@@ -344,12 +399,23 @@ public class PermListPanel extends FormComponentPanel
     }
 
 
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+        EventSubscriptions.subscribe( this, SaveModelEvent.class, Permission.class );
+    }
+
     @Override
     public void onEvent( IEvent event )
     {
         if ( event.getPayload() instanceof SaveModelEvent )
         {
             SaveModelEvent modelEvent = ( SaveModelEvent ) event.getPayload();
+            if ( modelEvent.getEntity() instanceof Permission )
+            {
+                updateClosure( ( Permission ) modelEvent.getEntity(), modelEvent.getOperation() );
+            }
 
             switch ( modelEvent.getOperation() )
             {
@@ -358,15 +424,11 @@ public class PermListPanel extends FormComponentPanel
                     break;
 
                 case UPDATE:
-                    /*
-                    grid.markItemDirty(itemThatHasChanged);
-                    grid.update();
-                     */
-                    modelChanged();
+                    update( modelEvent.getEntity() );
                     break;
 
                 case DELETE:
-                    prune();
+                    prune( modelEvent.getEntity() );
                     break;
 
                 case SEARCH:
@@ -387,12 +449,45 @@ public class PermListPanel extends FormComponentPanel
             }
 
             AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
-            target.add( grid );
+            if ( modelEvent.getOperation() == SaveModelEvent.Operations.SEARCH )
+            {
+                target.add( grid );
+            }
+            else
+            {
+                // only the rows touched above
+                GridRows.send( grid, target );
+            }
             log.debug( ".onEvent SaveModelEvent: " + target.toString() );
         }
     }
 
 
+    /**
+     * Keep the cached permission closure of the tenant in step with a change made on the detail panel.
+     */
+    private void updateClosure( Permission perm, SaveModelEvent.Operations operation )
+    {
+        PermissionClosure closure = PermissionClosure.getLoaded( isAdmin );
+        if ( closure == null )
+        {
+            return;
+        }
+        switch ( operation )
+        {
+            case ADD:
+            case UPDATE:
+                closure.setPermission( perm, RoleClosure.getLoaded( isAdmin ) );
+                break;
+            case DELETE:
+                closure.deletePermission( perm );
+                break;
+            default:
+                break;
+        }
+    }
+
+
     private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
     {
         Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
@@ -433,6 +528,18 @@ public class PermListPanel extends FormComponentPanel
     }
 
 
+    /**
+     * Show the saved entity in its rows, only those are sent back.
+     *
+     * @param entity as saved.
+     */
+    public void update( FortEntity entity )
+    {
+        GridRows.replace( ( List<Permission> ) getDefaultModelObject(), ( Permission ) entity );
+        GridRows.replace( treeModel, rootNode, entity );
+    }
+
+
     public void add( FortEntity entity )
     {
         if ( getDefaultModelObject() != null )
@@ -448,4 +555,73 @@ public class PermListPanel extends FormComponentPanel
     {
         removeSelectedItems( grid );
     }
+
+
+    /**
+     * Remove a single permission from the list.  Used instead of {@link #prune()} since other rows may also be
+     * selected.
+     *
+     * @param entity the permission that was deleted.
+     */
+    public void prune( FortEntity entity )
+    {
+        Permission deleted = ( Permission ) entity;
+        for ( int i = 0; i < rootNode.getChildCount(); i++ )
+        {
+            DefaultMutableTreeNode child = ( DefaultMutableTreeNode ) rootNode.getChildAt( i );
+            Permission perm = ( Permission ) child.getUserObject();
+            if ( perm != null && perm.getObjName().equalsIgnoreCase( deleted.getObjName() ) && perm.getOpName()
+                .equalsIgnoreCase( deleted.getOpName() ) && StringUtils.equalsIgnoreCase( perm.getObjId(), deleted
+                .getObjId() ) )
+            {
+                log.debug( ".prune perm objNm: " + perm.getObjName() + " opNm: " + perm.getOpName() );
+                treeModel.removeNodeFromParent( child );
+                ( ( List<Permission> ) getDefaultModel().getObject() ).remove( perm );
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Delete every selected permission in parallel batches.  Permissions that could not be deleted stay in the list,
+     * the grid is refreshed once by the caller.
+     */
+    private void deleteSelectedItems()
+    {
+        List<DefaultMutableTreeNode> nodes = new ArrayList<>();
+        List<Permission> selected = new ArrayList<>();
+        for ( IModel<DefaultMutableTreeNode> model : grid.getSelectedItems() )
+        {
+            nodes.add( model.getObject() );
+            selected.add( ( Permission ) model.getObject().getUserObject() );
+        }
+        if ( selected.isEmpty() )
+        {
+            info( "Select one or more permissions to delete" );
+            return;
+        }
+        BatchResult<Permission> result = BulkDeleter.delete( selected, null, null,
+            new BatchExecutor.Operation<Permission>()
+            {
+                @Override
+                public void execute( Permission perm ) throws SecurityException
+                {
+                    perm.setAdmin( isAdmin );
+                    adminMgr.deletePermission( perm );
+                }
+            } );
+        for ( DefaultMutableTreeNode selectedNode : nodes )
+        {
+            Permission perm = ( Permission ) selectedNode.getUserObject();
+            if ( !result.isFailed( perm ) )
+            {
+                updateClosure( perm, SaveModelEvent.Operations.DELETE );
+                treeModel.removeNodeFromParent( selectedNode );
+                ( ( List<Permission> ) getDefaultModel().getObject() ).remove( perm );
+            }
+        }
+        grid.resetSelectedItems();
+        info( BulkDeleter.getMessage( result, selected.size(), "permissions" ) );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,220 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directory.fortress.web.control.BackgroundJob;
+import org.apache.directory.fortress.web.control.BatchResult;
+import org.apache.directory.fortress.web.control.PolicyImporter;
+import org.apache.log4j.Logger;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.util.time.Duration;
+
+
+/**
+ * Shows the progress of a running {@link PolicyImporter} and the per section summary once it completes.  The panel
+ * polls the job every couple of seconds while it runs and stops polling once it has finished.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PolicyImportDetailPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( PolicyImportDetailPanel.class.getName() );
+    private static final int POLL_SECONDS = 2;
+    private final Displayable display;
+    private final WebMarkupContainer progress;
+    private AjaxSelfUpdatingTimerBehavior timer;
+    private String jobId;
+
+
+    public PolicyImportDetailPanel( String id, Displayable display )
+    {
+        super( id );
+        this.display = display;
+        progress = new WebMarkupContainer( "progress" );
+        progress.setOutputMarkupId( true );
+        progress.add( new Label( "status", new PropertyModel<String>( this, "status" ) ) );
+        progress.add( new Label( "counts", new PropertyModel<String>( this, "counts" ) ) );
+        progress.add( new Label( "summary", new PropertyModel<String>( this, "summary" ) ) );
+        progress.add( new ListView<PolicyImporter.Phase>( "phases", Arrays.asList( PolicyImporter.Phase.values() ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<PolicyImporter.Phase> item )
+            {
+                PolicyImporter.Phase phase = item.getModelObject();
+                PolicyImporter job = getJob();
+                Integer total = job != null ? job.getTotals().get( phase ) : null;
+                BatchResult<Serializable> result = job != null ? job.getResults().get( phase ) : null;
+                item.add( new Label( "section", phase.getSection() ) );
+                item.add( new Label( "total", total != null ? total : 0 ) );
+                item.add( new Label( "succeeded", result != null ? result.getSucceeded() : 0 ) );
+                item.add( new Label( "failed", result != null ? result.getFailed() : 0 ) );
+                item.add( new Label( "elapsed", result != null ? result.getElapsed() : 0 ) );
+                item.add( new Label( "throughput", result != null ? result.getThroughput() : 0 ) );
+                item.setVisible( total != null && total > 0 );
+            }
+        } );
+        progress.add( new ListView<String>( "errors", new PropertyModel<List<String>>( this, "errors" ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<String> item )
+            {
+                item.add( new Label( "error", item.getModelObject() ) );
+            }
+        } );
+        add( progress );
+    }
+
+
+    /**
+     * Begin polling the given import job.
+     *
+     * @param jobId  returned by {@link BackgroundJob#start(BackgroundJob)}.
+     * @param target ajax target of the request that started the job.
+     */
+    public void start( String jobId, AjaxRequestTarget target )
+    {
+        this.jobId = jobId;
+        if ( timer != null )
+        {
+            progress.remove( timer );
+        }
+        timer = new AjaxSelfUpdatingTimerBehavior( Duration.seconds( POLL_SECONDS ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onPostProcessTarget( AjaxRequestTarget target )
+            {
+                PolicyImporter job = getJob();
+                if ( job == null || job.isFinished() )
+                {
+                    stop( target );
+                    String msg = job != null ? "Import " + job.getState() + ": " + job.getStatus() :
+                        "Import job no longer available";
+                    LOG.info( msg );
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+            }
+        };
+        progress.add( timer );
+        target.add( progress );
+    }
+
+
+    public PolicyImporter getJob()
+    {
+        return ( PolicyImporter ) BackgroundJob.find( jobId );
+    }
+
+
+    public String getStatus()
+    {
+        PolicyImporter job = getJob();
+        if ( job == null )
+        {
+            return "No import running";
+        }
+        return job.getState() + ( job.isDryRun() ? " (dry run)" : "" ) + ": " + job.getStatus();
+    }
+
+
+    public String getCounts()
+    {
+        PolicyImporter job = getJob();
+        if ( job == null )
+        {
+            return "";
+        }
+        int total = job.getTotal();
+        int processed = job.getProcessed();
+        int percent = total > 0 ? processed * 100 / total : 0;
+        return processed + " of " + total + " entities processed (" + percent + "%), " + job.getFailed() +
+            " failed, " + job.getErrorCount() + " validation errors";
+    }
+
+
+    public String getSummary()
+    {
+        PolicyImporter job = getJob();
+        if ( job == null )
+        {
+            return "";
+        }
+        String summary = "elapsed=" + job.getElapsed() + "ms, throughput=" + job.getThroughput() + "/s, batchSize=" +
+            job.getBatchSize() + ", parallelism=" + job.getParallelism();
+        if ( !job.getSkipped().isEmpty() )
+        {
+            summary += ", skipped unsupported sections=" + job.getSkipped();
+        }
+        return summary;
+    }
+
+
+    public List<String> getErrors()
+    {
+        List<String> errors = new ArrayList<>();
+        PolicyImporter job = getJob();
+        if ( job != null )
+        {
+            errors.addAll( job.getErrors() );
+            for ( Map.Entry<PolicyImporter.Phase, BatchResult<Serializable>> entry : job.getResults().entrySet() )
+            {
+                for ( BatchResult.Failure<Serializable> failure : entry.getValue().getFailures() )
+                {
+                    if ( errors.size() >= PolicyImporter.MAX_ERRORS )
+                    {
+                        return errors;
+                    }
+                    errors.add( entry.getKey().getSection() + ": " + failure.getEntity() + ", error=" + failure
+                        .getErrorId() + ", " + failure.getMessage() );
+                }
+            }
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import java.io.File;
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.BackgroundJob;
+import org.apache.directory.fortress.web.control.BatchExecutor;
+import org.apache.directory.fortress.web.control.PolicyImporter;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxCallListener;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.markup.html.form.CheckBox;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.FormComponentPanel;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.html.form.upload.FileUpload;
+import org.apache.wicket.markup.html.form.upload.FileUploadField;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.validation.validator.RangeValidator;
+
+
+/**
+ * Uploads a Fortress ant load file and starts a {@link PolicyImporter} for it.  Progress is reported on the
+ * {@link PolicyImportDetailPanel}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PolicyImportPanel extends FormComponentPanel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( PolicyImportPanel.class.getName() );
+    @SpringBean
+    private AdminMgr adminMgr;
+    @SpringBean
+    private DelAdminMgr delAdminMgr;
+    @SpringBean
+    private PwPolicyMgr pwPolicyMgr;
+    private final Displayable display;
+    private final PolicyImportDetailPanel detailPanel;
+
+
+    public PolicyImportPanel( String id, Displayable display, PolicyImportDetailPanel detailPanel )
+    {
+        super( id );
+        this.display = display;
+        this.detailPanel = detailPanel;
+        add( new PolicyImportForm( GlobalIds.EDIT_FIELDS ) );
+    }
+
+
+    public class PolicyImportForm extends Form
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private static final String UPLOAD = "upload";
+        private final FileUploadField upload;
+        private boolean dryRun = true;
+        private Integer batchSize = BatchExecutor.DEFAULT_BATCH_SIZE;
+        private Integer parallelism = BatchExecutor.DEFAULT_PARALLELISM;
+        private String jobId;
+
+
+        public PolicyImportForm( String id )
+        {
+            super( id );
+            setMultiPart( true );
+            upload = new FileUploadField( UPLOAD );
+            upload.setRequired( true );
+            add( upload );
+            add( new CheckBox( "dryRun", new PropertyModel<Boolean>( this, "dryRun" ) ) );
+            add( new TextField<Integer>( "batchSize", new PropertyModel<Integer>( this, "batchSize" ) ).setRequired(
+                true ).add( new RangeValidator<>( 1, 10000 ) ) );
+            add( new TextField<Integer>( "parallelism", new PropertyModel<Integer>( this, "parallelism" ) )
+                .setRequired( true ).add( new RangeValidator<>( 1, BatchExecutor.MAX_PARALLELISM ) ) );
+            addButtons();
+        }
+
+
+        private void addButtons()
+        {
+            add( new SecureIndicatingAjaxButton( "import", GlobalIds.ROLE_IMPORTS )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target )
+                {
+                    String msg;
+                    PolicyImporter running = ( PolicyImporter ) BackgroundJob.find( jobId );
+                    FileUpload fileUpload = upload.getFileUpload();
+                    if ( running != null && !running.isFinished() )
+                    {
+                        msg = "An import is already running, cancel it or wait for it to finish";
+                    }
+                    else if ( fileUpload == null )
+                    {
+                        msg = "Select a policy file to import";
+                    }
+                    else
+                    {
+                        try
+                        {
+                            File file = File.createTempFile( "fortress-import-", ".xml" );
+                            fileUpload.writeTo( file );
+                            if ( Config.getInstance().getBoolean( org.apache.directory.fortress.core.GlobalIds
+                                .IS_ARBAC02 ) )
+                            {
+                                adminMgr.setAdmin( SecUtils.getSession( this ) );
+                                delAdminMgr.setAdmin( SecUtils.getSession( this ) );
+                                pwPolicyMgr.setAdmin( SecUtils.getSession( this ) );
+                            }
+                            jobId = BackgroundJob.start( new PolicyImporter( file, dryRun, batchSize, parallelism,
+                                adminMgr, delAdminMgr, pwPolicyMgr ) );
+                            detailPanel.start( jobId, target );
+                            msg = ( dryRun ? "Validating " : "Importing " ) + fileUpload.getClientFileName();
+                        }
+                        catch ( Exception e )
+                        {
+                            msg = "Import of " + fileUpload.getClientFileName() + " failed: " + e;
+                            LOG.error( msg );
+                        }
+                        finally
+                        {
+                            fileUpload.closeStreams();
+                        }
+                    }
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+
+
+                @Override
+                public void onError( AjaxRequestTarget target )
+                {
+                    LOG.warn( "import.onError" );
+                    display.setMessage( "Select a policy file, batch size and parallelism" );
+                    display.display( target );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            } );
+            add( new SecureIndicatingAjaxButton( GlobalIds.CANCEL, GlobalIds.ROLE_IMPORTS )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target )
+                {
+                    BackgroundJob job = BackgroundJob.find( jobId );
+                    String msg;
+                    if ( job != null && !job.isFinished() )
+                    {
+                        job.cancel();
+                        msg = "Import cancel requested, the current batch will complete first";
+                    }
+                    else
+                    {
+                        msg = "No import running";
+                    }
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            }.setDefaultFormProcessing( false ) );
+        }
+    }
+}
@@ -38,8 +38,10 @@ import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.GridRows;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.PwPolicyListModel;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.core.model.FortEntity;
@@ -262,6 +264,13 @@ public class PwPolicyListPanel extends FormComponentPanel
     }
 
 
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+        EventSubscriptions.subscribe( this, SaveModelEvent.class, PwPolicy.class );
+    }
+
     @Override
     public void onEvent( IEvent event )
     {
@@ -274,16 +283,17 @@ public class PwPolicyListPanel extends FormComponentPanel
                     add( modelEvent.getEntity() );
                     break;
                 case UPDATE:
-                    modelChanged();
+                    update( modelEvent.getEntity() );
                     break;
                 case DELETE:
-                    prune();
+                    prune( modelEvent.getEntity() );
                     break;
                 default:
                     break;
             }
             AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
-            target.add( grid );
+            // only the rows touched above
+            GridRows.send( grid, target );
             log.debug( ".onEvent SaveModelEvent: " + target.toString() );
         }
     }
@@ -321,13 +331,25 @@ public class PwPolicyListPanel extends FormComponentPanel
     }
 
 
+    /**
+     * Show the saved entity in its rows, only those are sent back.
+     *
+     * @param entity as saved.
+     */
+    public void update( FortEntity entity )
+    {
+        GridRows.replace( ( List<PwPolicy> ) getDefaultModelObject(), ( PwPolicy ) entity );
+        GridRows.replace( treeModel, rootNode, entity );
+    }
+
+
     public void add( FortEntity entity )
     {
         if ( getDefaultModelObject() != null )
         {
             List<PwPolicy> policies = ( ( List<PwPolicy> ) getDefaultModelObject() );
             policies.add( ( PwPolicy ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, policies.size() );
+            GridRows.prepend( treeModel, rootNode, entity );
         }
     }
 
@@ -336,4 +358,16 @@ public class PwPolicyListPanel extends FormComponentPanel
     {
         removeSelectedItems( grid );
     }
+
+
+    /**
+     * Remove the rows of a deleted entity, other rows may be selected too.
+     *
+     * @param entity as deleted.
+     */
+    public void prune( FortEntity entity )
+    {
+        GridRows.remove( treeModel, rootNode, entity );
+        GridRows.remove( ( List<PwPolicy> ) getDefaultModelObject(), entity );
+    }
 }
@@ -45,12 +45,16 @@ import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.RoleClosure;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.core.AdminMgr;
 import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.model.AdminRole;
 import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.directory.fortress.core.model.Role;
@@ -73,6 +77,10 @@ public class RoleDetailPanel extends Panel
     private AdminMgr adminMgr;
     @SpringBean
     private DelAdminMgr delAdminMgr;
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
     private static final Logger log = Logger.getLogger( RoleDetailPanel.class.getName() );
     private static final String PARENTS_SELECTION = "parentsSelection";
     private Form editForm;
@@ -95,6 +103,8 @@ public class RoleDetailPanel extends Panel
         {
             this.adminMgr.setAdmin(SecUtils.getSession(this));
             this.delAdminMgr.setAdmin(SecUtils.getSession(this));
+            this.reviewMgr.setAdmin(SecUtils.getSession(this));
+            this.delReviewMgr.setAdmin(SecUtils.getSession(this));
         }
         if ( isAdmin )
         {
@@ -170,6 +180,18 @@ public class RoleDetailPanel extends Panel
                     log.debug( ".onSubmit Add" );
                     T role = ( T ) getForm().getModel().getObject();
                     updateEntityWithComboData( ( Role ) role );
+                    String cycle = getCycle( ( Role ) role );
+                    if ( cycle != null )
+                    {
+                        String error = "Role: " + ( ( Role ) role ).getName() + " can't have parent " + cycle +
+                            " because it would create a cycle in the hierarchy";
+                        log.warn( error );
+                        ( ( Role ) role ).delParent( cycle );
+                        parents.remove( cycle );
+                        display.setMessage( error );
+                        display.display();
+                        return;
+                    }
                     try
                     {
                         String szRoleName;
@@ -241,6 +263,18 @@ public class RoleDetailPanel extends Panel
                     log.debug( ".onSubmit Commit" );
                     T role = ( T ) getForm().getModel().getObject();
                     updateEntityWithComboData( ( Role ) role );
+                    String cycle = getCycle( ( Role ) role );
+                    if ( cycle != null )
+                    {
+                        String error = "Role: " + ( ( Role ) role ).getName() + " can't have parent " + cycle +
+                            " because it would create a cycle in the hierarchy";
+                        log.warn( error );
+                        ( ( Role ) role ).delParent( cycle );
+                        parents.remove( cycle );
+                        display.setMessage( error );
+                        display.display();
+                        return;
+                    }
                     try
                     {
                         String szRoleName;
@@ -473,6 +507,48 @@ public class RoleDetailPanel extends Panel
         }
 
 
+        /**
+         * Check the parents of the role against the cached hierarchy rather than waiting for the server to reject a
+         * cycle.
+         *
+         * @param role to be added or updated.
+         * @return name of the first parent that would create a cycle, null if none.
+         */
+        private String getCycle( Role role )
+        {
+            if ( CollectionUtils.isNotEmpty( role.getParents() ) )
+            {
+                for ( String parent : role.getParents() )
+                {
+                    if ( isCycle( role.getName(), parent ) )
+                    {
+                        return parent;
+                    }
+                }
+            }
+            return null;
+        }
+
+
+        private boolean isCycle( String child, String parent )
+        {
+            if ( StringUtils.isEmpty( child ) )
+            {
+                return false;
+            }
+            try
+            {
+                return RoleClosure.getInstance( isAdmin, reviewMgr, delReviewMgr ).createsCycle( child, parent );
+            }
+            catch ( org.apache.directory.fortress.core.SecurityException se )
+            {
+                // leave the check to the server
+                log.warn( ".isCycle caught SecurityException=" + se );
+                return false;
+            }
+        }
+
+
         private void updateEntityWithComboData( Role role )
         {
             if ( StringUtils.isNotEmpty( parentsSelection ) )
@@ -499,10 +575,18 @@ public class RoleDetailPanel extends Panel
                 public void onClose( AjaxRequestTarget target )
                 {
                     parentConstraint = roleSearchModalPanel.getRoleSelection();
-                    if ( parentConstraint != null )
+                    Role role = ( Role ) getDefaultModelObject();
+                    if ( parentConstraint != null && StringUtils.isNotEmpty( parentConstraint.getName() ) &&
+                        isCycle( role.getName(), parentConstraint.getName() ) )
+                    {
+                        String error = "Role: " + parentConstraint.getName() + " is a descendant of " + role
+                            .getName() + " and can't be its parent";
+                        display.setMessage( error );
+                        display.display( target );
+                    }
+                    else if ( parentConstraint != null )
                     {
                         parentsSelection = parentConstraint.getName();
-                        Role role = ( Role ) getDefaultModelObject();
                         role.setParent( parentsSelection );
                         target.add( parentsCB );
                         component = editForm;
@@ -563,6 +647,13 @@ public class RoleDetailPanel extends Panel
             rolesModalWindow.setCookieName( "role-assign-modal" );
         }
 
+        @Override
+        protected void onInitialize()
+        {
+            super.onInitialize();
+            EventSubscriptions.subscribe( this, SelectModelEvent.class, Role.class );
+        }
+
         @Override
         public void onEvent( final IEvent event )
         {
@@ -22,23 +22,41 @@ package org.apache.directory.fortress.web.panel;
 
 
 import com.inmethod.grid.IGridColumn;
+import com.inmethod.grid.column.CheckBoxColumn;
 import com.inmethod.grid.column.PropertyColumn;
+import com.inmethod.grid.column.tree.PropertyTreeColumn;
 import com.inmethod.grid.treegrid.TreeGrid;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.util.Config;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
 import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.form.CheckBox;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.BatchExecutor;
+import org.apache.directory.fortress.web.control.BatchResult;
+import org.apache.directory.fortress.web.control.BulkDeleter;
+import org.apache.directory.fortress.web.control.GridRows;
+import org.apache.directory.fortress.web.control.PermissionClosure;
+import org.apache.directory.fortress.web.control.RoleClosure;
+import org.apache.directory.fortress.web.control.RoleGraph;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.RoleListModel;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
@@ -53,7 +71,9 @@ import javax.swing.tree.DefaultTreeModel;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -72,17 +92,35 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
     private DefaultMutableTreeNode rootNode;
     private String searchVal;
     private boolean isAdmin;
+    private boolean selectingAll;
+    private boolean hierarchy;
+    @SpringBean
+    private AdminMgr adminMgr;
+    @SpringBean
+    private DelAdminMgr delAdminMgr;
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
 
 
     public RoleListPanel( String id, final boolean isAdmin )
     {
         super( id );
         this.isAdmin = isAdmin;
+        if ( Config.getInstance().getBoolean( org.apache.directory.fortress.core.GlobalIds.IS_ARBAC02 ) )
+        {
+            adminMgr.setAdmin( SecUtils.getSession( this ) );
+            delAdminMgr.setAdmin( SecUtils.getSession( this ) );
+            reviewMgr.setAdmin( SecUtils.getSession( this ) );
+            delReviewMgr.setAdmin( SecUtils.getSession( this ) );
+        }
         RoleListModel roleListModel = new RoleListModel( createRole( "" ), isAdmin, SecUtils.getSession( this ) );
         setDefaultModel( roleListModel );
         List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
             new ArrayList<>();
-        columns.add( new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String, String>(
+        columns.add( new CheckBoxColumn<DefaultTreeModel, DefaultMutableTreeNode, String>( "select" ) );
+        columns.add( new PropertyTreeColumn<DefaultTreeModel, DefaultMutableTreeNode, String, String>(
             Model.of( "Name" ), "userObject.name" ) );
 
         PropertyColumn description = new PropertyColumn<>(
@@ -145,23 +183,45 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
                 if ( !node.isRoot() )
                 {
                     T role = ( T ) node.getUserObject();
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        log.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
+                    super.selectItem( itemModel, selected );
+                    if ( selected && !selectingAll )
                     {
-                        super.selectItem( itemModel, true );
                         SelectModelEvent.send( getPage(), this, ( FortEntity ) role );
                     }
                 }
             }
+
+
+            @Override
+            protected void onJunctionLinkClicked( AjaxRequestTarget target, Object node )
+            {
+                super.onJunctionLinkClicked( target, node );
+                // called once the node was expanded, before the tree is rendered again
+                if ( getTreeState().isNodeExpanded( node ) )
+                {
+                    loadChildren( ( DefaultMutableTreeNode ) node );
+                }
+            }
+
+
+            @Override
+            public void selectAllVisibleItems()
+            {
+                selectingAll = true;
+                try
+                {
+                    super.selectAllVisibleItems();
+                }
+                finally
+                {
+                    selectingAll = false;
+                }
+            }
         };
         //grid.setContentHeight( 50, SizeUnit.EM );
-        grid.setAllowSelectMultiple( false );
+        grid.setAllowSelectMultiple( true );
         grid.setClickRowToSelect( true );
-        grid.setClickRowToDeselect( false );
+        grid.setClickRowToDeselect( true );
         grid.setSelectToEdit( false );
         // expand the root node
         grid.getTreeState().expandAll();
@@ -171,6 +231,7 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
         TextField searchValFld = new TextField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this,
             GlobalIds.SEARCH_VAL ) );
         listForm.add( searchValFld );
+        listForm.add( new CheckBox( "hierarchy", new PropertyModel<Boolean>( this, "hierarchy" ) ) );
 
         listForm.add( new SecureIndicatingAjaxButton( GlobalIds.SEARCH, GlobalIds.REVIEW_MGR, "findRoles" )
         {
@@ -178,8 +239,8 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
             private static final long serialVersionUID = 1L;
 
 
-            //@Override
-            protected void onSubmit(AjaxRequestTarget target, Form form)
+            @Override
+            protected void onSubmit(AjaxRequestTarget target)
             {
                 log.debug( ".search onSubmit" );
                 info( "Searching Roles..." );
@@ -187,7 +248,15 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
                 {
                     searchVal = "";
                 }
+                if ( hierarchy )
+                {
+                    loadHierarchy();
+                    target.add( grid );
+                    return;
+                }
 
+                treeModel.setAsksAllowsChildren( false );
+                grid.getTreeState().expandAll();
                 Role srchRole = createRole( searchVal );
                 setDefaultModel( new RoleListModel( srchRole, isAdmin, SecUtils.getSession( this ) ) );
                 treeModel.reload();
@@ -234,44 +303,104 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
                 attributes.getAjaxCallListeners().add( ajaxCallListener );
             }
         } );
+        listForm.add( new SecureIndicatingAjaxButton( GlobalIds.BULK_DELETE, isAdmin ? GlobalIds.DEL_ADMIN_MGR :
+            GlobalIds.ADMIN_MGR, GlobalIds.DELETE_ROLE )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target )
+            {
+                log.debug( ".bulkdelete onSubmit" );
+                deleteSelectedItems();
+                target.add( grid );
+            }
+
+
+            @Override
+            protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+            {
+                super.updateAjaxAttributes( attributes );
+                AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public CharSequence getFailureHandler( Component component )
+                    {
+                        return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                    }
+                };
+                attributes.getAjaxCallListeners().add( ajaxCallListener );
+            }
+        } );
         add( listForm );
     }
 
 
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+        EventSubscriptions.subscribe( this, SaveModelEvent.class, Role.class );
+    }
+
     @Override
     public void onEvent( IEvent event )
     {
         if ( event.getPayload() instanceof SaveModelEvent )
         {
             SaveModelEvent modelEvent = ( SaveModelEvent ) event.getPayload();
+            if ( modelEvent.getEntity() instanceof Role )
+            {
+                RoleGraph.invalidate( isAdmin );
+                updateClosure( ( Role ) modelEvent.getEntity(), modelEvent.getOperation() );
+            }
             switch ( modelEvent.getOperation() )
             {
                 case ADD:
                     add( modelEvent.getEntity() );
                     break;
                 case UPDATE:
-                    modelChanged();
+                    update( modelEvent.getEntity() );
                     break;
                 case DELETE:
-                    prune();
+                    prune( modelEvent.getEntity() );
                     break;
                 default:
                     break;
             }
             AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
-            target.add( grid );
+            // only the rows touched above
+            GridRows.send( grid, target );
             log.debug( ".onEvent SaveModelEvent: " + target.toString() );
         }
     }
 
 
+    /**
+     * Show the saved entity in its rows, only those are sent back.
+     *
+     * @param entity as saved.
+     */
+    public void update( FortEntity entity )
+    {
+        GridRows.replace( ( List<Role> ) getDefaultModelObject(), ( Role ) entity );
+        GridRows.replace( treeModel, rootNode, entity );
+    }
+
+
     public void add( FortEntity entity )
     {
         if ( getDefaultModelObject() != null )
         {
             List<Role> roles = ( ( List<Role> ) getDefaultModelObject() );
             roles.add( ( Role ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, roles.size() );
+            GridRows.prepend( treeModel, rootNode, entity );
         }
     }
 
@@ -282,6 +411,240 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
     }
 
 
+    /**
+     * Remove a single role from the list.  Used instead of {@link #prune()} since other rows may also be selected.
+     *
+     * @param entity the role that was deleted.
+     */
+    public void prune( FortEntity entity )
+    {
+        String name = ( ( Role ) entity ).getName();
+        // In hierarchy mode a role is shown once under each of its expanded parents.
+        List<DefaultMutableTreeNode> matches = new ArrayList<>();
+        for ( DefaultMutableTreeNode child : getLoadedNodes() )
+        {
+            Role role = ( Role ) child.getUserObject();
+            if ( role.getName().equalsIgnoreCase( name ) )
+            {
+                matches.add( child );
+            }
+        }
+        for ( DefaultMutableTreeNode match : matches )
+        {
+            log.debug( ".prune role node: " + name );
+            treeModel.removeNodeFromParent( match );
+            ( ( List<Role> ) getDefaultModel().getObject() ).remove( match.getUserObject() );
+        }
+    }
+
+
+    /**
+     * Apply a change to the cached hierarchy and permission indexes, if they have been loaded, so they don't need to
+     * be rebuilt.
+     *
+     * @param role      that was changed.
+     * @param operation that was performed.
+     */
+    private void updateClosure( Role role, SaveModelEvent.Operations operation )
+    {
+        RoleClosure closure = RoleClosure.getLoaded( isAdmin );
+        PermissionClosure permClosure = PermissionClosure.getLoaded( isAdmin );
+        if ( permClosure != null && operation == SaveModelEvent.Operations.DELETE )
+        {
+            // before the role leaves the hierarchy so its descendants can still be found
+            permClosure.deleteRole( role.getName(), closure );
+        }
+        if ( closure != null )
+        {
+            switch ( operation )
+            {
+                case ADD:
+                    closure.addRole( role.getName(), role.getParents() );
+                    break;
+                case UPDATE:
+                    closure.setParents( role.getName(), role.getParents() );
+                    break;
+                case DELETE:
+                    closure.deleteRole( role.getName() );
+                    break;
+                default:
+                    break;
+            }
+        }
+        if ( permClosure != null && operation != SaveModelEvent.Operations.DELETE )
+        {
+            permClosure.updateRole( role.getName(), closure );
+        }
+    }
+
+
+    /**
+     * Replace the contents of the grid with the top of the role hierarchy, or with the roles matching the search
+     * value.  Children are added as each node is expanded, see {@link #loadChildren}.
+     */
+    private void loadHierarchy()
+    {
+        RoleGraph graph = getGraph();
+        if ( graph == null )
+        {
+            return;
+        }
+        treeModel.setAsksAllowsChildren( true );
+        rootNode.removeAllChildren();
+        List<Role> roles = StringUtils.isEmpty( searchVal ) ? graph.getRoots() : graph.find( searchVal );
+        for ( Role role : roles )
+        {
+            rootNode.add( new DefaultMutableTreeNode( role, graph.hasChildren( role.getName() ) ) );
+        }
+        treeModel.reload();
+        grid.resetSelectedItems();
+        grid.getTreeState().collapseAll();
+        grid.getTreeState().expandNode( rootNode );
+        info( "Hierarchy contains " + graph.size() + " roles, showing " + roles.size() );
+    }
+
+
+    /**
+     * Add the immediate children of a role the first time its node is expanded.
+     *
+     * @param parent node that was expanded.
+     */
+    private void loadChildren( DefaultMutableTreeNode parent )
+    {
+        if ( !hierarchy || parent.isRoot() || parent.getChildCount() > 0 || !parent.getAllowsChildren() )
+        {
+            return;
+        }
+        RoleGraph graph = getGraph();
+        if ( graph == null )
+        {
+            return;
+        }
+        Role role = ( Role ) parent.getUserObject();
+        List<Role> children = graph.getChildren( role.getName() );
+        log.debug( ".loadChildren role: " + role.getName() + " children: " + children.size() );
+        for ( Role child : children )
+        {
+            treeModel.insertNodeInto( new DefaultMutableTreeNode( child, graph.hasChildren( child.getName() ) ),
+                parent, parent.getChildCount() );
+        }
+        if ( children.isEmpty() )
+        {
+            parent.setAllowsChildren( false );
+            treeModel.nodeChanged( parent );
+        }
+    }
+
+
+    private RoleGraph getGraph()
+    {
+        try
+        {
+            return RoleGraph.getInstance( isAdmin, reviewMgr, delReviewMgr );
+        }
+        catch ( SecurityException se )
+        {
+            log.warn( ".getGraph caught SecurityException=" + se );
+            error( "Unable to load the role hierarchy: " + se.getMessage() );
+            return null;
+        }
+    }
+
+
+    /**
+     * @return every node currently in the tree, not including the root.
+     */
+    private List<DefaultMutableTreeNode> getLoadedNodes()
+    {
+        List<DefaultMutableTreeNode> nodes = new ArrayList<>();
+        Enumeration<?> enumeration = rootNode.breadthFirstEnumeration();
+        while ( enumeration.hasMoreElements() )
+        {
+            DefaultMutableTreeNode child = ( DefaultMutableTreeNode ) enumeration.nextElement();
+            if ( !child.isRoot() )
+            {
+                nodes.add( child );
+            }
+        }
+        return nodes;
+    }
+
+
+    /**
+     * Delete every selected role.  Roles in a hierarchy are deleted descendants first, the rest in parallel batches.
+     * Roles that could not be deleted stay in the list, the grid is refreshed once by the caller.
+     */
+    private void deleteSelectedItems()
+    {
+        List<DefaultMutableTreeNode> nodes = new ArrayList<>();
+        List<Role> selected = new ArrayList<>();
+        for ( IModel<DefaultMutableTreeNode> model : grid.getSelectedItems() )
+        {
+            nodes.add( model.getObject() );
+            selected.add( ( Role ) model.getObject().getUserObject() );
+        }
+        if ( selected.isEmpty() )
+        {
+            info( "Select one or more roles to delete" );
+            return;
+        }
+        List<Role> loaded = new ArrayList<>();
+        for ( DefaultMutableTreeNode loadedNode : getLoadedNodes() )
+        {
+            loaded.add( ( Role ) loadedNode.getUserObject() );
+        }
+        BatchResult<Role> result = BulkDeleter.delete( selected, loaded, new BulkDeleter.Hierarchy<Role>()
+        {
+            @Override
+            public String getName( Role role )
+            {
+                return role.getName();
+            }
+
+
+            @Override
+            public Set<String> getParents( Role role )
+            {
+                return role.getParents();
+            }
+        }, new BatchExecutor.Operation<Role>()
+        {
+            @Override
+            public void execute( Role role ) throws SecurityException
+            {
+                if ( isAdmin )
+                {
+                    delAdminMgr.deleteRole( ( AdminRole ) role );
+                }
+                else
+                {
+                    adminMgr.deleteRole( role );
+                }
+            }
+        } );
+        for ( DefaultMutableTreeNode selectedNode : nodes )
+        {
+            Role role = ( Role ) selectedNode.getUserObject();
+            // skip nodes already detached along with a deleted ascendant
+            if ( !result.isFailed( role ) )
+            {
+                updateClosure( role, SaveModelEvent.Operations.DELETE );
+            }
+            if ( !result.isFailed( role ) && selectedNode.getRoot() == rootNode )
+            {
+                treeModel.removeNodeFromParent( selectedNode );
+                ( ( List<Role> ) getDefaultModel().getObject() ).remove( role );
+            }
+        }
+        grid.resetSelectedItems();
+        if ( result.getSucceeded() > 0 )
+        {
+            RoleGraph.invalidate( isAdmin );
+        }
+        info( BulkDeleter.getMessage( result, selected.size(), "roles" ) );
+    }
+
+
     private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
     {
         Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
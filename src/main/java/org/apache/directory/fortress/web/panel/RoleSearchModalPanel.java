@@ -40,6 +40,8 @@ import org.apache.wicket.markup.html.panel.Panel;
 import org.apache.wicket.model.LoadableDetachableModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.directory.fortress.web.control.RoleClosure;
+import org.apache.directory.fortress.web.control.RoleGraph;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.core.DelReviewMgr;
 import org.apache.directory.fortress.core.ReviewMgr;
@@ -155,17 +157,16 @@ public class RoleSearchModalPanel extends Panel
 
                     if ( isParentSearch )
                     {
-                        Role childRole = reviewMgr.readRole( new Role( roleSearchVal ) );
-                        if ( childRole != null )
+                        // served from the cached hierarchy instead of reading every ascendant
+                        RoleGraph graph = RoleGraph.getInstance( false, reviewMgr, delReviewMgr );
+                        List<Role> parentRoles = new ArrayList<>();
+                        for ( String name : RoleClosure.getInstance( false, reviewMgr, delReviewMgr )
+                            .getAscendants( roleSearchVal ) )
                         {
-                            List<Role> parentRoles = new ArrayList<>();
-                            for ( String role : childRole.getParents() )
-                            {
-                                Role parent = reviewMgr.readRole( new Role( role ) );
-                                parentRoles.add( parent );
-                            }
-                            roles = parentRoles;
+                            Role parent = graph.getRole( name );
+                            parentRoles.add( parent != null ? parent : reviewMgr.readRole( new Role( name ) ) );
                         }
+                        roles = parentRoles;
                     }
                     else if ( isAdmin )
                     {
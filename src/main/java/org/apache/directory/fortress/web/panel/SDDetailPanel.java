@@ -44,9 +44,12 @@ import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.LazyModalWindow;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.directory.fortress.web.control.SsdIndex;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.core.AdminMgr;
 import org.apache.directory.fortress.core.model.SDSet;
@@ -142,6 +145,7 @@ public class SDDetailPanel extends FormComponentPanel
                         if ( isStatic )
                         {
                             adminMgr.createSsdSet( sdSet );
+                            SsdIndex.setSet( sdSet );
                         }
                         else
                         {
@@ -204,7 +208,10 @@ public class SDDetailPanel extends FormComponentPanel
                     {
                         updateEntityWithComboData( sdSet );
                         if ( isStatic )
+                        {
                             adminMgr.updateSsdSet( sdSet );
+                            SsdIndex.setSet( sdSet );
+                        }
                         else
                             adminMgr.updateDsdSet( sdSet );
                         String msg = "SDSet: " + sdSet.getName() + " has been updated";
@@ -267,6 +274,7 @@ public class SDDetailPanel extends FormComponentPanel
                         if ( isStatic )
                         {
                             adminMgr.deleteSsdSet( sdSet );
+                            SsdIndex.deleteSet( sdSet.getName() );
                         }
                         else
                         {
@@ -439,11 +447,19 @@ public class SDDetailPanel extends FormComponentPanel
 
         private void addRoleSearchModal()
         {
-            final ModalWindow rolesModalWindow;
-            add( rolesModalWindow = new ModalWindow( "rolesmodal" ) );
-            final RoleSearchModalPanel roleSearchModalPanel = new RoleSearchModalPanel(
-                rolesModalWindow.getContentId(), rolesModalWindow, false );
-            rolesModalWindow.setContent( roleSearchModalPanel );
+            final LazyModalWindow<RoleSearchModalPanel> rolesModalWindow;
+            add( rolesModalWindow = new LazyModalWindow<RoleSearchModalPanel>( "rolesmodal" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected RoleSearchModalPanel newPanel( String contentId )
+                {
+                    return new RoleSearchModalPanel( contentId, this, false );
+                }
+            } );
             rolesModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
             {
                 /** Default serialVersionUID */
@@ -453,7 +469,7 @@ public class SDDetailPanel extends FormComponentPanel
                 @Override
                 public void onClose( AjaxRequestTarget target )
                 {
-                    roleConstraint = roleSearchModalPanel.getRoleSelection();
+                    roleConstraint = rolesModalWindow.getPanel().getRoleSelection();
                     if ( roleConstraint != null )
                     {
                         membersSelection = roleConstraint.getName();
@@ -473,7 +489,7 @@ public class SDDetailPanel extends FormComponentPanel
                 {
                     String msg = "clicked on roles search";
                     msg += membersSelection != null ? ": " + membersSelection : "";
-                    roleSearchModalPanel.setRoleSearchVal( membersSelection );
+                    rolesModalWindow.getPanel().setRoleSearchVal( membersSelection );
                     display.setMessage( msg );
                     log.debug( msg );
                     target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
@@ -518,6 +534,13 @@ public class SDDetailPanel extends FormComponentPanel
         }
 
 
+        @Override
+        protected void onInitialize()
+        {
+            super.onInitialize();
+            EventSubscriptions.subscribe( this, SelectModelEvent.class, SDSet.class );
+        }
+
         @Override
         public void onEvent( final IEvent event )
         {
@@ -0,0 +1,171 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directory.fortress.web.control.BackgroundJob;
+import org.apache.directory.fortress.web.control.SsdScanner;
+import org.apache.log4j.Logger;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
+import org.apache.wicket.ajax.markup.html.navigation.paging.AjaxPagingNavigator;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.PageableListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.util.time.Duration;
+
+
+/**
+ * Shows the progress of a running {@link SsdScanner} and the violations found so far, a page at a time.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class SsdScanDetailPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( SsdScanDetailPanel.class.getName() );
+    private static final int POLL_SECONDS = 2;
+    private static final int ROWS_PER_PAGE = 25;
+    private final Displayable display;
+    private final WebMarkupContainer progress;
+    private final PageableListView<SsdScanner.Violation> violationView;
+    private AjaxSelfUpdatingTimerBehavior timer;
+    private String jobId;
+
+
+    public SsdScanDetailPanel( String id, Displayable display )
+    {
+        super( id );
+        this.display = display;
+        progress = new WebMarkupContainer( "progress" );
+        progress.setOutputMarkupId( true );
+        progress.add( new Label( "status", new PropertyModel<String>( this, "status" ) ) );
+        progress.add( new Label( "counts", new PropertyModel<String>( this, "counts" ) ) );
+        violationView = new PageableListView<SsdScanner.Violation>( "violations",
+            new PropertyModel<List<SsdScanner.Violation>>( this, "violations" ), ROWS_PER_PAGE )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<SsdScanner.Violation> item )
+            {
+                SsdScanner.Violation violation = item.getModelObject();
+                item.add( new Label( "userId", violation.getUserId() ) );
+                item.add( new Label( "setName", violation.getSetName() ) );
+                item.add( new Label( "cardinality", violation.getCardinality() ) );
+                item.add( new Label( "roles", violation.getRoles() ) );
+            }
+        };
+        progress.add( violationView );
+        progress.add( new AjaxPagingNavigator( "navigator", violationView ) );
+        add( progress );
+    }
+
+
+    /**
+     * Begin polling the given scan job.
+     *
+     * @param jobId  returned by {@link BackgroundJob#start(BackgroundJob)}.
+     * @param target ajax target of the request that started the job.
+     */
+    public void start( String jobId, AjaxRequestTarget target )
+    {
+        this.jobId = jobId;
+        violationView.setCurrentPage( 0 );
+        if ( timer != null )
+        {
+            progress.remove( timer );
+        }
+        timer = new AjaxSelfUpdatingTimerBehavior( Duration.seconds( POLL_SECONDS ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onPostProcessTarget( AjaxRequestTarget target )
+            {
+                SsdScanner job = getJob();
+                if ( job == null || job.isFinished() )
+                {
+                    stop( target );
+                    String msg = job != null ? "SSD scan " + job.getState() + ": " + job.getStatus() :
+                        "SSD scan job no longer available";
+                    LOG.info( msg );
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+            }
+        };
+        progress.add( timer );
+        target.add( progress );
+    }
+
+
+    public SsdScanner getJob()
+    {
+        return ( SsdScanner ) BackgroundJob.find( jobId );
+    }
+
+
+    public String getStatus()
+    {
+        SsdScanner job = getJob();
+        if ( job == null )
+        {
+            return "No scan running";
+        }
+        return job.getState() + ": " + job.getStatus();
+    }
+
+
+    public String getCounts()
+    {
+        SsdScanner job = getJob();
+        if ( job == null )
+        {
+            return "";
+        }
+        String counts = job.getScanned() + " users scanned against " + job.getSetCount() + " SSD sets (" + job
+            .getPercent() + "%), " + job.getViolationCount() + " violations, elapsed=" + job.getElapsed() + "ms";
+        if ( job.getViolationCount() > SsdScanner.MAX_VIOLATIONS )
+        {
+            counts += ", only the first " + SsdScanner.MAX_VIOLATIONS + " are listed";
+        }
+        return counts;
+    }
+
+
+    public List<SsdScanner.Violation> getViolations()
+    {
+        SsdScanner job = getJob();
+        return job != null ? job.getViolations() : Collections.<SsdScanner.Violation>emptyList();
+    }
+}
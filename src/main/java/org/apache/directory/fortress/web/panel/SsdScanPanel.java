@@ -0,0 +1,207 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.BackgroundJob;
+import org.apache.directory.fortress.web.control.BatchExecutor;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.directory.fortress.web.control.SsdScanner;
+import org.apache.log4j.Logger;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxCallListener;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.markup.html.form.CheckBox;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.FormComponentPanel;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.validation.validator.RangeValidator;
+
+
+/**
+ * Starts an {@link SsdScanner} over every user of the directory.  Progress and the violations found are shown on the
+ * {@link SsdScanDetailPanel}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class SsdScanPanel extends FormComponentPanel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( SsdScanPanel.class.getName() );
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
+    private final Displayable display;
+    private final SsdScanDetailPanel detailPanel;
+
+
+    public SsdScanPanel( String id, Displayable display, SsdScanDetailPanel detailPanel )
+    {
+        super( id );
+        this.display = display;
+        this.detailPanel = detailPanel;
+        add( new SsdScanForm( GlobalIds.EDIT_FIELDS ) );
+    }
+
+
+    public class SsdScanForm extends Form
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private boolean resume = true;
+        private Long pauseMillis = SsdScanner.DEFAULT_PAUSE_MILLIS;
+        private Integer parallelism = BatchExecutor.DEFAULT_PARALLELISM;
+        private String jobId;
+
+
+        public SsdScanForm( String id )
+        {
+            super( id );
+            add( new CheckBox( "resume", new PropertyModel<Boolean>( this, "resume" ) ) );
+            add( new TextField<Long>( "pauseMillis", new PropertyModel<Long>( this, "pauseMillis" ) ).setRequired(
+                true ).add( new RangeValidator<>( 0L, 60000L ) ) );
+            add( new TextField<Integer>( "parallelism", new PropertyModel<Integer>( this, "parallelism" ) )
+                .setRequired( true ).add( new RangeValidator<>( 1, BatchExecutor.MAX_PARALLELISM ) ) );
+            addButtons();
+        }
+
+
+        private void addButtons()
+        {
+            add( new SecureIndicatingAjaxButton( "scan", GlobalIds.ROLE_SSDS )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target )
+                {
+                    String msg;
+                    BackgroundJob running = BackgroundJob.find( jobId );
+                    if ( running != null && !running.isFinished() )
+                    {
+                        msg = "A scan is already running, cancel it or wait for it to finish";
+                    }
+                    else
+                    {
+                        if ( Config.getInstance().getBoolean( org.apache.directory.fortress.core.GlobalIds
+                            .IS_ARBAC02 ) )
+                        {
+                            reviewMgr.setAdmin( SecUtils.getSession( this ) );
+                            delReviewMgr.setAdmin( SecUtils.getSession( this ) );
+                        }
+                        jobId = BackgroundJob.start( new SsdScanner( resume, pauseMillis, parallelism, reviewMgr,
+                            delReviewMgr ) );
+                        detailPanel.start( jobId, target );
+                        msg = resume ? "SSD scan started, resuming from the last checkpoint if any" :
+                            "SSD scan started";
+                    }
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+
+
+                @Override
+                public void onError( AjaxRequestTarget target )
+                {
+                    LOG.warn( "scan.onError" );
+                    display.setMessage( "Enter the pause between searches and the parallelism" );
+                    display.display( target );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            } );
+            add( new SecureIndicatingAjaxButton( GlobalIds.CANCEL, GlobalIds.ROLE_SSDS )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onSubmit( AjaxRequestTarget target )
+                {
+                    BackgroundJob job = BackgroundJob.find( jobId );
+                    String msg;
+                    if ( job != null && !job.isFinished() )
+                    {
+                        job.cancel();
+                        msg = "Scan cancel requested, it can be resumed from the last completed checkpoint";
+                    }
+                    else
+                    {
+                        msg = "No scan running";
+                    }
+                    display.setMessage( msg );
+                    display.display( target );
+                }
+
+
+                @Override
+                protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+                {
+                    super.updateAjaxAttributes( attributes );
+                    AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        public CharSequence getFailureHandler( Component component )
+                        {
+                            return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                        }
+                    };
+                    attributes.getAjaxCallListeners().add( ajaxCallListener );
+                }
+            }.setDefaultFormProcessing( false ) );
+        }
+    }
+}
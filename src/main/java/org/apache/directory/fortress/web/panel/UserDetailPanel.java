@@ -51,12 +51,18 @@ import org.apache.wicket.model.Model;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.LazyModalWindow;
+import org.apache.directory.fortress.web.control.RoleClosure;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.directory.fortress.web.control.SsdIndex;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.core.AdminMgr;
 import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.model.PwPolicy;
 import org.apache.directory.fortress.core.model.User;
@@ -69,6 +75,7 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -83,6 +90,10 @@ public class UserDetailPanel extends FormComponentPanel
     private AdminMgr adminMgr;
     @SpringBean
     private DelAdminMgr delAdminMgr;
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
     private static final Logger log = Logger.getLogger( UserDetailPanel.class.getName() );
     private Form editForm;
     private Displayable display;
@@ -96,6 +107,8 @@ public class UserDetailPanel extends FormComponentPanel
         {
             this.adminMgr.setAdmin(SecUtils.getSession(this));
             this.delAdminMgr.setAdmin(SecUtils.getSession(this));
+            this.reviewMgr.setAdmin(SecUtils.getSession(this));
+            this.delReviewMgr.setAdmin(SecUtils.getSession(this));
         }
         add( editForm );
     }
@@ -1157,11 +1170,19 @@ public class UserDetailPanel extends FormComponentPanel
 
         private void addRoleSearchModal()
         {
-            final ModalWindow rolesModalWindow;
-            add( rolesModalWindow = new ModalWindow( "rolesmodal" ) );
-            final RoleSearchModalPanel roleSearchModalPanel = new RoleSearchModalPanel(
-                rolesModalWindow.getContentId(), rolesModalWindow, false );
-            rolesModalWindow.setContent( roleSearchModalPanel );
+            final LazyModalWindow<RoleSearchModalPanel> rolesModalWindow;
+            add( rolesModalWindow = new LazyModalWindow<RoleSearchModalPanel>( "rolesmodal" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected RoleSearchModalPanel newPanel( String contentId )
+                {
+                    return new RoleSearchModalPanel( contentId, this, false );
+                }
+            } );
             rolesModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
             {
                 /** Default serialVersionUID */
@@ -1171,7 +1192,7 @@ public class UserDetailPanel extends FormComponentPanel
                 @Override
                 public void onClose( AjaxRequestTarget target )
                 {
-                    roleConstraint = roleSearchModalPanel.getRoleSelection();
+                    roleConstraint = rolesModalWindow.getPanel().getRoleSelection();
                     newUserRole = roleConstraint.getName();
                     target.add( roleConstraintPanel );
                     target.add( newUserRoleTF );
@@ -1188,7 +1209,7 @@ public class UserDetailPanel extends FormComponentPanel
                 {
                     String msg = "clicked on roles search";
                     msg += userRoleSelection != null ? ": " + newUserRole : "";
-                    roleSearchModalPanel.setRoleSearchVal( newUserRole );
+                    rolesModalWindow.getPanel().setRoleSearchVal( newUserRole );
                     display.setMessage( msg );
                     log.debug( msg );
                     target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
@@ -1225,11 +1246,19 @@ public class UserDetailPanel extends FormComponentPanel
 
         private void addAdminRoleSearchModal()
         {
-            final ModalWindow adminRolesModalWindow;
-            add( adminRolesModalWindow = new ModalWindow( "adminrolesmodal" ) );
-            final RoleSearchModalPanel adminRoleSearchModalPanel = new RoleSearchModalPanel(
-                adminRolesModalWindow.getContentId(), adminRolesModalWindow, true );
-            adminRolesModalWindow.setContent( adminRoleSearchModalPanel );
+            final LazyModalWindow<RoleSearchModalPanel> adminRolesModalWindow;
+            add( adminRolesModalWindow = new LazyModalWindow<RoleSearchModalPanel>( "adminrolesmodal" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected RoleSearchModalPanel newPanel( String contentId )
+                {
+                    return new RoleSearchModalPanel( contentId, this, true );
+                }
+            } );
             adminRolesModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
             {
                 /** Default serialVersionUID */
@@ -1239,7 +1268,7 @@ public class UserDetailPanel extends FormComponentPanel
                 @Override
                 public void onClose( AjaxRequestTarget target )
                 {
-                    adminRoleConstraint = adminRoleSearchModalPanel.getAdminRoleSelection();
+                    adminRoleConstraint = adminRolesModalWindow.getPanel().getAdminRoleSelection();
                     newUserAdminRole = adminRoleConstraint.getName();
                     target.add( adminRoleConstraintPanel );
                     target.add( newUserAdminRoleTF );
@@ -1256,7 +1285,7 @@ public class UserDetailPanel extends FormComponentPanel
                 {
                     String msg = "clicked on roles search";
                     msg += userAdminRoleSelection.getName() != null ? ": " + newUserAdminRole : "";
-                    adminRoleSearchModalPanel.setRoleSearchVal( newUserAdminRole );
+                    adminRolesModalWindow.getPanel().setRoleSearchVal( newUserAdminRole );
                     display.setMessage( msg );
                     log.debug( msg );
                     target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
@@ -1293,11 +1322,19 @@ public class UserDetailPanel extends FormComponentPanel
 
         private void addPolicySearchModal()
         {
-            final ModalWindow policiesModalWindow;
-            add( policiesModalWindow = new ModalWindow( "policiesmodal" ) );
-            final PwPolicySearchModalPanel policySearchModalPanel = new PwPolicySearchModalPanel(
-                policiesModalWindow.getContentId(), policiesModalWindow );
-            policiesModalWindow.setContent( policySearchModalPanel );
+            final LazyModalWindow<PwPolicySearchModalPanel> policiesModalWindow;
+            add( policiesModalWindow = new LazyModalWindow<PwPolicySearchModalPanel>( "policiesmodal" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected PwPolicySearchModalPanel newPanel( String contentId )
+                {
+                    return new PwPolicySearchModalPanel( contentId, this );
+                }
+            } );
             policiesModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
             {
                 /** Default serialVersionUID */
@@ -1307,7 +1344,7 @@ public class UserDetailPanel extends FormComponentPanel
                 @Override
                 public void onClose( AjaxRequestTarget target )
                 {
-                    PwPolicy pwPolicy = policySearchModalPanel.getPolicySelection();
+                    PwPolicy pwPolicy = policiesModalWindow.getPanel().getPolicySelection();
                     if ( pwPolicy != null )
                     {
                         User user = ( User ) editForm.getModel().getObject();
@@ -1328,7 +1365,7 @@ public class UserDetailPanel extends FormComponentPanel
                     String msg = "clicked on policies search";
                     User user = ( User ) editForm.getModel().getObject();
                     msg += user.getPwPolicy() != null ? ": " + user.getPwPolicy() : "";
-                    policySearchModalPanel.setSearchVal( user.getPwPolicy() );
+                    policiesModalWindow.getPanel().setSearchVal( user.getPwPolicy() );
                     display.setMessage( msg );
                     log.debug( msg );
                     target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
@@ -1365,11 +1402,19 @@ public class UserDetailPanel extends FormComponentPanel
 
         private void addOUSearchModal()
         {
-            final ModalWindow ousModalWindow;
-            add( ousModalWindow = new ModalWindow( "ousmodal" ) );
-            final OUSearchModalPanel ouSearchModalPanel = new OUSearchModalPanel( ousModalWindow.getContentId(),
-                ousModalWindow, true );
-            ousModalWindow.setContent( ouSearchModalPanel );
+            final LazyModalWindow<OUSearchModalPanel> ousModalWindow;
+            add( ousModalWindow = new LazyModalWindow<OUSearchModalPanel>( "ousmodal" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected OUSearchModalPanel newPanel( String contentId )
+                {
+                    return new OUSearchModalPanel( contentId, this, true );
+                }
+            } );
             ousModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
             {
                 /** Default serialVersionUID */
@@ -1379,7 +1424,7 @@ public class UserDetailPanel extends FormComponentPanel
                 @Override
                 public void onClose( AjaxRequestTarget target )
                 {
-                    OrgUnit ou = ouSearchModalPanel.getSelection();
+                    OrgUnit ou = ousModalWindow.getPanel().getSelection();
                     if ( ou != null )
                     {
                         User user = ( User ) editForm.getModel().getObject();
@@ -1399,7 +1444,7 @@ public class UserDetailPanel extends FormComponentPanel
                     String msg = "clicked on OrgUnits search";
                     User user = ( User ) editForm.getModel().getObject();
                     msg += user.getOu() != null ? ": " + user.getOu() : "";
-                    ouSearchModalPanel.setSearchVal( user.getOu() );
+                    ousModalWindow.getPanel().setSearchVal( user.getOu() );
                     display.setMessage( msg );
                     log.debug( msg );
                     target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
@@ -1578,19 +1623,32 @@ public class UserDetailPanel extends FormComponentPanel
                 userRole.setName( szRoleName );
                 if ( !user.getRoles().contains( userRole ) )
                 {
-                    try
-                    {
-                        adminMgr.assignUser( userRole );
-                        success = true;
-                        user.setRole( userRole );
-                    }
-                    catch ( org.apache.directory.fortress.core.SecurityException se )
+                    List<String> conflicts = checkSsd( user, szRoleName );
+                    if ( !conflicts.isEmpty() )
                     {
-                        String warning = "AssignUser caught SecurityException=" + se;
+                        // the directory would reject it anyway, don't spend a write on it
+                        String warning = ".assignUser user [" + user.getUserId() + "] role [" + szRoleName +
+                            "] violates " + conflicts;
                         log.warn( warning );
-                        error( "Error assigning role: " + szRoleName + " error id: " + se.getErrorId() );
+                        error( "Role: " + szRoleName + " not assigned, " + StringUtils.join( conflicts, "; " ) );
                         component = editForm;
                     }
+                    else
+                    {
+                        try
+                        {
+                            adminMgr.assignUser( userRole );
+                            success = true;
+                            user.setRole( userRole );
+                        }
+                        catch ( org.apache.directory.fortress.core.SecurityException se )
+                        {
+                            String warning = "AssignUser caught SecurityException=" + se;
+                            log.warn( warning );
+                            error( "Error assigning role: " + szRoleName + " error id: " + se.getErrorId() );
+                            component = editForm;
+                        }
+                    }
                 }
                 else
                 {
@@ -1605,6 +1663,29 @@ public class UserDetailPanel extends FormComponentPanel
         }
 
 
+        /**
+         * Check the assignment against the cached SSD index before the round trip to the directory.  If the index or
+         * the role hierarchy can't be loaded the check is left to the directory.
+         */
+        private List<String> checkSsd( User user, String szRoleName )
+        {
+            try
+            {
+                SsdIndex index = SsdIndex.getInstance( reviewMgr );
+                if ( index.isConstrained( szRoleName ) )
+                {
+                    return index.check( user.getRoles(), szRoleName, RoleClosure.getInstance( false, reviewMgr,
+                        delReviewMgr ) );
+                }
+            }
+            catch ( org.apache.directory.fortress.core.SecurityException se )
+            {
+                log.warn( "checkSsd skipped, caught SecurityException=" + se );
+            }
+            return new ArrayList<>();
+        }
+
+
         private boolean deassignRole( User user, UserRole userRole )
         {
             boolean success = false;
@@ -1686,6 +1767,13 @@ public class UserDetailPanel extends FormComponentPanel
             return success;
         }
 
+        @Override
+        protected void onInitialize()
+        {
+            super.onInitialize();
+            EventSubscriptions.subscribe( this, SelectModelEvent.class, User.class );
+        }
+
         @Override
         public void onEvent( final IEvent event )
         {
@@ -22,20 +22,32 @@ package org.apache.directory.fortress.web.panel;
 
 
 import com.inmethod.grid.IGridColumn;
+import com.inmethod.grid.column.CheckBoxColumn;
 import com.inmethod.grid.column.PropertyColumn;
 import com.inmethod.grid.treegrid.TreeGrid;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.BackgroundJob;
+import org.apache.directory.fortress.web.control.BatchResult;
+import org.apache.directory.fortress.web.control.BulkRoleAssigner;
+import org.apache.directory.fortress.web.control.FormState;
+import org.apache.directory.fortress.web.control.GridRows;
+import org.apache.directory.fortress.web.control.LazyModalWindow;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
+import org.apache.directory.fortress.web.event.EventSubscriptions;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.web.model.UserListModel;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
 import org.apache.wicket.ajax.form.AjaxFormChoiceComponentUpdatingBehavior;
@@ -45,14 +57,19 @@ import org.apache.wicket.event.IEvent;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.CheckBox;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.Radio;
 import org.apache.wicket.markup.html.form.RadioGroup;
 import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.util.time.Duration;
 import org.apache.directory.fortress.web.UserPage;
 import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.directory.fortress.core.model.OrgUnit;
@@ -66,6 +83,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -104,11 +122,30 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     private String field2Label;
     private String searchFieldsLabel = USER_SEARCH_LABEL;
     private static final String USER_SEARCH_LABEL = "Search By User";
+    @SpringBean
+    private AdminMgr adminMgr;
+    @SpringBean
+    private DelAdminMgr delAdminMgr;
+    private WebMarkupContainer bulkFields;
+    private UserRole bulkConstraint = new UserRole();
+    private boolean bulkAdmin;
+    private boolean bulkAllMatching;
+    private List<String> bulkReport = new ArrayList<>();
+    private WebMarkupContainer bulkProgress;
+    private AjaxSelfUpdatingTimerBehavior bulkTimer;
+    private String bulkJobId;
+    private static final int BULK_POLL_SECONDS = 1;
+    private boolean selectingAll;
 
 
     public UserListPanel( String id )
     {
         super( id );
+        if ( Config.getInstance().getBoolean( org.apache.directory.fortress.core.GlobalIds.IS_ARBAC02 ) )
+        {
+            adminMgr.setAdmin( SecUtils.getSession( this ) );
+            delAdminMgr.setAdmin( SecUtils.getSession( this ) );
+        }
         UserListModel userListModel = new UserListModel( new User(), SecUtils.getSession( this ) );
         setDefaultModel( userListModel );
         addGrid();
@@ -118,6 +155,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
         addRadioButtons();
         addSearchFields();
         addButtons();
+        addBulkFields();
     }
 
 
@@ -173,38 +211,13 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
 
         f1Fld = new TextField( GlobalIds.FIELD_1, new PropertyModel<String>( this, "searchData.field1" ) );
         f1Fld.setOutputMarkupId( true );
-        AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( f1Fld );
-            }
-        };
-        f1Fld.add( ajaxUpdater );
         searchFields.add( f1Fld );
 
         f2Fld = new TextField( GlobalIds.FIELD_2, new PropertyModel<String>( this, "searchData.field2" ) );
         f2Fld.setOutputMarkupId( true );
-        ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
-
-
-            @Override
-            protected void onUpdate( final AjaxRequestTarget target )
-            {
-                target.add( f2Fld );
-            }
-        };
-        f2Fld.add( ajaxUpdater );
         f2Fld.setVisible( false );
         searchFields.add( f2Fld );
+        this.listForm.add( new FormState().watch( f1Fld, f2Fld ) );
         searchFields.setOutputMarkupId( true );
         userformsearchfields.add( searchFields );
     }
@@ -342,13 +355,275 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     }
 
 
+    /**
+     * Fields and buttons for assigning, or deassigning, a role to the selected users, or every user matching the
+     * search, in one operation.
+     */
+    private void addBulkFields()
+    {
+        bulkFields = new WebMarkupContainer( "bulkfields" );
+        bulkFields.setOutputMarkupId( true );
+        bulkFields.add( new TextField<String>( "bulkRoleName", new PropertyModel<String>( this,
+            "bulkConstraint.name" ) ) );
+        bulkFields.add( new CheckBox( "bulkAdmin", new PropertyModel<Boolean>( this, "bulkAdmin" ) ) );
+        bulkFields.add( new CheckBox( "bulkAllMatching", new PropertyModel<Boolean>( this, "bulkAllMatching" ) ) );
+        bulkFields.add( new TextField<String>( "bulkBeginDate", new PropertyModel<String>( this,
+            "bulkConstraint.beginDate" ) ) );
+        bulkFields.add( new TextField<String>( "bulkEndDate", new PropertyModel<String>( this,
+            "bulkConstraint.endDate" ) ) );
+        bulkFields.add( new TextField<String>( "bulkBeginTime", new PropertyModel<String>( this,
+            "bulkConstraint.beginTime" ) ) );
+        bulkFields.add( new TextField<String>( "bulkEndTime", new PropertyModel<String>( this,
+            "bulkConstraint.endTime" ) ) );
+        bulkFields.add( new TextField<String>( "bulkDayMask", new PropertyModel<String>( this,
+            "bulkConstraint.dayMask" ) ) );
+        bulkFields.add( new TextField<Integer>( "bulkTimeout", new PropertyModel<Integer>( this,
+            "bulkConstraint.timeout" ) ) );
+        bulkProgress = new WebMarkupContainer( "bulkprogress" );
+        bulkProgress.setOutputMarkupId( true );
+        bulkProgress.add( new Label( "bulkstatus", new PropertyModel<String>( this, "bulkStatus" ) ) );
+        bulkProgress.add( new ListView<String>( "bulkresults", new PropertyModel<List<String>>( this, "bulkReport" ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<String> item )
+            {
+                item.add( new Label( "bulkresult", item.getModelObject() ) );
+            }
+        } );
+        bulkFields.add( bulkProgress );
+        bulkFields.add( new SecureIndicatingAjaxButton( "bulkAssign", GlobalIds.ADMIN_MGR, GlobalIds.ASSIGN_USER )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target )
+            {
+                bulkUpdate( true, target );
+            }
+
+
+            @Override
+            protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+            {
+                super.updateAjaxAttributes( attributes );
+                AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public CharSequence getFailureHandler( Component component )
+                    {
+                        return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                    }
+                };
+                attributes.getAjaxCallListeners().add( ajaxCallListener );
+            }
+        } );
+        bulkFields.add( new SecureIndicatingAjaxButton( "bulkDeassign", GlobalIds.ADMIN_MGR, GlobalIds.DEASSIGN_USER )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target )
+            {
+                bulkUpdate( false, target );
+            }
+
+
+            @Override
+            protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+            {
+                super.updateAjaxAttributes( attributes );
+                AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public CharSequence getFailureHandler( Component component )
+                    {
+                        return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                    }
+                };
+                attributes.getAjaxCallListeners().add( ajaxCallListener );
+            }
+        } );
+        listForm.add( bulkFields );
+    }
+
+
+    private void bulkUpdate( boolean isAssign, AjaxRequestTarget target )
+    {
+        List<User> users = getBulkUsers();
+        String roleName = bulkConstraint.getName();
+        BulkRoleAssigner.Job running = getBulkJob();
+        if ( StringUtils.isEmpty( roleName ) )
+        {
+            info( "Enter the name of the role" );
+        }
+        else if ( users.isEmpty() )
+        {
+            info( "Select one or more users, or select all matching" );
+        }
+        else if ( running != null && !running.isFinished() )
+        {
+            info( "A bulk role operation is already running" );
+        }
+        else
+        {
+            LOG.debug( ".bulkUpdate role: " + roleName + ", users: " + users.size() + ", assign: " + isAssign );
+            bulkReport = new ArrayList<>();
+            // every matching user may be thousands of calls, the job runs them off the request and the timer polls it
+            bulkJobId = BackgroundJob.start( new BulkRoleAssigner.Job( users, bulkConstraint, bulkAdmin, isAssign,
+                adminMgr, delAdminMgr ) );
+            if ( bulkTimer != null )
+            {
+                bulkProgress.remove( bulkTimer );
+            }
+            bulkTimer = new AjaxSelfUpdatingTimerBehavior( Duration.seconds( BULK_POLL_SECONDS ) )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                protected void onPostProcessTarget( AjaxRequestTarget target )
+                {
+                    BulkRoleAssigner.Job job = getBulkJob();
+                    if ( job == null || job.isFinished() )
+                    {
+                        stop( target );
+                        bulkFinished( job, target );
+                    }
+                }
+            };
+            bulkProgress.add( bulkTimer );
+        }
+        target.add( bulkFields );
+    }
+
+
+    /**
+     * Apply the outcome of the finished job to the users of the grid.
+     */
+    private void bulkFinished( BulkRoleAssigner.Job job, AjaxRequestTarget target )
+    {
+        if ( job == null )
+        {
+            info( "Bulk role job no longer available" );
+            return;
+        }
+        if ( job.getState() == BackgroundJob.State.FAILED )
+        {
+            info( "Bulk role operation failed: " + job.getStatus() );
+            return;
+        }
+        // the page was serialized while the job ran, so its users are not the instances the job was given
+        Set<String> userIds = job.getUserIds();
+        List<User> users = new ArrayList<>();
+        for ( int i = 0; i < rootNode.getChildCount(); i++ )
+        {
+            Object userObject = ( ( DefaultMutableTreeNode ) rootNode.getChildAt( i ) ).getUserObject();
+            if ( userObject instanceof User && userIds.contains( ( ( User ) userObject ).getUserId() ) )
+            {
+                users.add( ( User ) userObject );
+            }
+        }
+        BatchResult<UserRole> result = job.getResult();
+        UserRole constraint = job.getConstraint();
+        bulkReport = BulkRoleAssigner.apply( users, constraint, job.isAdmin(), job.isAssign(), result );
+        String msg = ( job.isAdmin() ? "Admin role: " : "Role: " ) + constraint.getName() + ( job.isAssign() ?
+            " assigned to " : " deassigned from " ) + result.getSucceeded() + " of " + job.getTotal() + " users";
+        int ssdViolations = BulkRoleAssigner.getSsdViolations( result );
+        if ( ssdViolations > 0 )
+        {
+            msg += ", " + ssdViolations + " rejected by SSD";
+        }
+        info( msg + " in " + result.getElapsed() + "ms" );
+        target.add( grid );
+    }
+
+
+    private BulkRoleAssigner.Job getBulkJob()
+    {
+        return ( BulkRoleAssigner.Job ) BackgroundJob.find( bulkJobId );
+    }
+
+
+    /**
+     * @return progress of the running bulk role job, empty if none.
+     */
+    public String getBulkStatus()
+    {
+        BulkRoleAssigner.Job job = getBulkJob();
+        if ( job == null )
+        {
+            return "";
+        }
+        BatchResult<UserRole> result = job.getResult();
+        return job.getState() + ": " + result.getProcessed() + " of " + job.getTotal() + " users processed, " + result
+            .getFailed() + " failed";
+    }
+
+
+    /**
+     * @return every user in the search results if select all matching is checked, otherwise the selected users.
+     */
+    private List<User> getBulkUsers()
+    {
+        List<User> users = new ArrayList<>();
+        if ( bulkAllMatching )
+        {
+            for ( int i = 0; i < rootNode.getChildCount(); i++ )
+            {
+                Object userObject = ( ( DefaultMutableTreeNode ) rootNode.getChildAt( i ) ).getUserObject();
+                if ( userObject instanceof User )
+                {
+                    users.add( ( User ) userObject );
+                }
+            }
+        }
+        else
+        {
+            for ( IModel<DefaultMutableTreeNode> model : grid.getSelectedItems() )
+            {
+                Object userObject = model.getObject().getUserObject();
+                if ( userObject instanceof User )
+                {
+                    users.add( ( User ) userObject );
+                }
+            }
+        }
+        return users;
+    }
+
+
     private void addRoleSearchModal( Radio roleRb )
     {
-        final ModalWindow rolesModalWindow;
-        userformsearchfields.add( rolesModalWindow = new ModalWindow( "rolesearchmodal" ) );
-        final RoleSearchModalPanel roleSearchModalPanel = new RoleSearchModalPanel( rolesModalWindow.getContentId(),
-            rolesModalWindow, false );
-        rolesModalWindow.setContent( roleSearchModalPanel );
+        final LazyModalWindow<RoleSearchModalPanel> rolesModalWindow;
+        userformsearchfields.add( rolesModalWindow = new LazyModalWindow<RoleSearchModalPanel>( "rolesearchmodal" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected RoleSearchModalPanel newPanel( String contentId )
+            {
+                return new RoleSearchModalPanel( contentId, this, false );
+            }
+        } );
         rolesModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
         {
             /** Default serialVersionUID */
@@ -358,7 +633,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
             @Override
             public void onClose( AjaxRequestTarget target )
             {
-                UserRole roleConstraint = roleSearchModalPanel.getRoleSelection();
+                UserRole roleConstraint = rolesModalWindow.getPanel().getRoleSelection();
                 if ( roleConstraint != null )
                 {
                     LOG.debug( "modal selected:" + roleConstraint.getName() );
@@ -378,8 +653,8 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
 
             public void onClick( AjaxRequestTarget target )
             {
-                roleSearchModalPanel.setRoleSearchVal( searchData.getField1() );
-                roleSearchModalPanel.setAdmin( false );
+                rolesModalWindow.getPanel().setRoleSearchVal( searchData.getField1() );
+                rolesModalWindow.getPanel().setAdmin( false );
                 target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
                 rolesModalWindow.show( target );
             }
@@ -412,11 +687,20 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
 
     private void addAdminRoleSearchModal( Radio adminRoleRb )
     {
-        final ModalWindow adminRolesModalWindow;
-        userformsearchfields.add( adminRolesModalWindow = new ModalWindow( "adminrolesearchmodal" ) );
-        final RoleSearchModalPanel adminRoleSearchModalPanel = new RoleSearchModalPanel( adminRolesModalWindow
-            .getContentId(), adminRolesModalWindow, true );
-        adminRolesModalWindow.setContent( adminRoleSearchModalPanel );
+        final LazyModalWindow<RoleSearchModalPanel> adminRolesModalWindow;
+        userformsearchfields.add( adminRolesModalWindow = new LazyModalWindow<RoleSearchModalPanel>(
+            "adminrolesearchmodal" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected RoleSearchModalPanel newPanel( String contentId )
+            {
+                return new RoleSearchModalPanel( contentId, this, true );
+            }
+        } );
         adminRolesModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
         {
             /** Default serialVersionUID */
@@ -426,7 +710,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
             @Override
             public void onClose( AjaxRequestTarget target )
             {
-                UserRole roleConstraint = adminRoleSearchModalPanel.getRoleSelection();
+                UserRole roleConstraint = adminRolesModalWindow.getPanel().getRoleSelection();
                 if ( roleConstraint != null )
                 {
                     searchData.setField1( roleConstraint.getName() );
@@ -449,8 +733,8 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
             {
                 String msg = "clicked on admin roles search";
                 msg += "adminRoleSelection: " + searchData.getField1();
-                adminRoleSearchModalPanel.setRoleSearchVal( searchData.getField1() );
-                adminRoleSearchModalPanel.setAdmin( true );
+                adminRolesModalWindow.getPanel().setRoleSearchVal( searchData.getField1() );
+                adminRolesModalWindow.getPanel().setAdmin( true );
                 LOG.debug( msg );
                 target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
                 adminRolesModalWindow.show( target );
@@ -485,11 +769,19 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
 
     private void addOUSearchModal( Radio ouRb )
     {
-        final ModalWindow ousModalWindow;
-        userformsearchfields.add( ousModalWindow = new ModalWindow( "ousearchmodal" ) );
-        final OUSearchModalPanel ouSearchModalPanel = new OUSearchModalPanel( ousModalWindow.getContentId(),
-            ousModalWindow, true );
-        ousModalWindow.setContent( ouSearchModalPanel );
+        final LazyModalWindow<OUSearchModalPanel> ousModalWindow;
+        userformsearchfields.add( ousModalWindow = new LazyModalWindow<OUSearchModalPanel>( "ousearchmodal" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected OUSearchModalPanel newPanel( String contentId )
+            {
+                return new OUSearchModalPanel( contentId, this, true );
+            }
+        } );
         ousModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
         {
             /** Default serialVersionUID */
@@ -499,7 +791,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
             @Override
             public void onClose( AjaxRequestTarget target )
             {
-                OrgUnit ou = ouSearchModalPanel.getSelection();
+                OrgUnit ou = ousModalWindow.getPanel().getSelection();
                 if ( ou != null )
                 {
                     searchData.setField1( ou.getName() );
@@ -517,7 +809,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
 
             public void onClick( AjaxRequestTarget target )
             {
-                ouSearchModalPanel.setSearchVal( searchData.getField1() );
+                ousModalWindow.getPanel().setSearchVal( searchData.getField1() );
                 target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
                 ousModalWindow.show( target );
             }
@@ -549,6 +841,13 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     }
 
 
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+        EventSubscriptions.subscribe( this, SaveModelEvent.class, User.class );
+    }
+
     @Override
     public void onEvent( IEvent event )
     {
@@ -561,17 +860,18 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
                     add( modelEvent.getEntity() );
                     break;
                 case UPDATE:
-                    modelChanged();
+                    update( modelEvent.getEntity() );
                     break;
                 case DELETE:
-                    prune();
+                    prune( modelEvent.getEntity() );
                     break;
                 default:
                     LOG.error( "onEvent caught invalid operation" );
                     break;
             }
             AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
-            target.add(grid);
+            // only the rows touched above
+            GridRows.send( grid, target );
             LOG.debug( ".onEvent AJAX - UserListPanel - SaveModelEvent: " + target.toString() );
         }
     }
@@ -579,11 +879,19 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
 
     private void addPermSearchModal( Radio permRb )
     {
-        final ModalWindow permsModalWindow;
-        userformsearchfields.add( permsModalWindow = new ModalWindow( "permsearchmodal" ) );
-        final PermSearchModalPanel permSearchModalPanel = new PermSearchModalPanel( permsModalWindow.getContentId(),
-            permsModalWindow, false );
-        permsModalWindow.setContent( permSearchModalPanel );
+        final LazyModalWindow<PermSearchModalPanel> permsModalWindow;
+        userformsearchfields.add( permsModalWindow = new LazyModalWindow<PermSearchModalPanel>( "permsearchmodal" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected PermSearchModalPanel newPanel( String contentId )
+            {
+                return new PermSearchModalPanel( contentId, this, false );
+            }
+        } );
         permsModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
         {
             /** Default serialVersionUID */
@@ -593,7 +901,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
             @Override
             public void onClose( AjaxRequestTarget target )
             {
-                Permission permSelection = permSearchModalPanel.getSelection();
+                Permission permSelection = permsModalWindow.getPanel().getSelection();
                 if ( permSelection != null )
                 {
                     searchData.setField1( permSelection.getObjName() );
@@ -620,7 +928,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
                 {
                     objectSearchVal = searchData.getField1();
                 }
-                permSearchModalPanel.setSearchVal( objectSearchVal );
+                permsModalWindow.getPanel().setSearchVal( objectSearchVal );
                 LOG.debug( msg );
                 target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
                 permsModalWindow.show( target );
@@ -692,6 +1000,8 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     private void addGrid()
     {
         List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns = new ArrayList<>();
+        // Selects rows for the bulk role operations, the header checkbox selects every visible row:
+        columns.add( new CheckBoxColumn<DefaultTreeModel, DefaultMutableTreeNode, String>( "select" ) );
         columns.add( new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String,
             String>( Model.of( "UserId" ), "userObject.UserId" ) );
         /*
@@ -744,23 +1054,34 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
                 {
                     T user = ( T ) node.getUserObject();
                     //LOG.debug( "TreeGrid.addGrid.selectItem selected user =" + user.getUserId() );
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        LOG.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
+                    super.selectItem( itemModel, selected );
+                    // Don't flood the detail panel with every row when they are selected all at once:
+                    if ( selected && !selectingAll )
                     {
-                        super.selectItem( itemModel, true );
                         SelectModelEvent.send( getPage(), this, ( FortEntity ) user );
                     }
                 }
             }
+
+
+            @Override
+            public void selectAllVisibleItems()
+            {
+                selectingAll = true;
+                try
+                {
+                    super.selectAllVisibleItems();
+                }
+                finally
+                {
+                    selectingAll = false;
+                }
+            }
         };
         //grid.setContentHeight( 60, SizeUnit.EM );
-        grid.setAllowSelectMultiple( false );
+        grid.setAllowSelectMultiple( true );
         grid.setClickRowToSelect( true );
-        grid.setClickRowToDeselect( false );
+        grid.setClickRowToDeselect( true );
         grid.setSelectToEdit( false );
         // expand the root node
         grid.getTreeState().expandAll();
@@ -771,6 +1092,18 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     }
 
 
+    /**
+     * Show the saved entity in its rows, only those are sent back.
+     *
+     * @param entity as saved.
+     */
+    public void update( FortEntity entity )
+    {
+        GridRows.replace( ( List<User> ) getDefaultModelObject(), ( User ) entity );
+        GridRows.replace( treeModel, rootNode, entity );
+    }
+
+
     public void add( FortEntity entity )
     {
         if ( getDefaultModelObject() != null )
@@ -778,8 +1111,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
             List<User> users = ( ( List<User> ) getDefaultModelObject() );
             users.add( ( User ) entity );
             LOG.debug( "UserListPanel.add tree depth: " + rootNode.getChildCount() );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, rootNode.getChildCount() );
-            //treeModel.insertNodeInto(new DefaultMutableTreeNode(entity), rootNode, users.size());
+            GridRows.prepend( treeModel, rootNode, entity );
         }
     }
 
@@ -790,6 +1122,32 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     }
 
 
+    /**
+     * Remove a single user from the list.  Used instead of {@link #prune()} since other rows may also be selected.
+     *
+     * @param entity the user that was deleted.
+     */
+    public void prune( FortEntity entity )
+    {
+        String userId = ( ( User ) entity ).getUserId();
+        for ( int i = 0; i < rootNode.getChildCount(); i++ )
+        {
+            DefaultMutableTreeNode child = ( DefaultMutableTreeNode ) rootNode.getChildAt( i );
+            User user = ( User ) child.getUserObject();
+            if ( user != null && user.getUserId().equalsIgnoreCase( userId ) )
+            {
+                LOG.debug( ".prune user node: " + userId );
+                treeModel.removeNodeFromParent( child );
+                if ( getDefaultModelObject() != null )
+                {
+                    ( ( List<User> ) getDefaultModelObject() ).remove( user );
+                }
+                break;
+            }
+        }
+    }
+
+
     private void enableOuSearch()
     {
         f2Fld.setVisible( false );
@@ -0,0 +1,158 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.User;
+
+
+/**
+ * Standalone benchmark of {@link AccessMatrix} over synthetic users, roles and permissions, no directory server
+ * required.  By default it reviews 100,000 users holding five roles each out of a 5,000 role hierarchy against 5,000
+ * permissions, the operations of 500 objects out of 5,000, then times writing the result as CSV.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.AccessMatrixBenchmark [users] [objects] [parallelism]
+ */
+public class AccessMatrixBenchmark
+{
+    private static final int ROLES = 5000;
+    private static final int ALL_OBJECTS = 5000;
+    private static final int OPERATIONS = 10;
+    private static final int ROLES_PER_USER = 5;
+    private static final int GRANTS_PER_PERM = 3;
+
+
+    public static void main( String[] args ) throws IOException
+    {
+        int size = args.length > 0 ? Integer.parseInt( args[0] ) : 100000;
+        int objects = args.length > 1 ? Integer.parseInt( args[1] ) : 500;
+        int parallelism = args.length > 2 ? Integer.parseInt( args[2] ) : Runtime.getRuntime()
+            .availableProcessors();
+        Random random = new Random( 42 );
+        List<Role> roles = new ArrayList<>( ROLES );
+        for ( int i = 0; i < ROLES; i++ )
+        {
+            Role role = new Role( "role" + i );
+            if ( i > 0 )
+            {
+                role.setParent( "role" + ( ( i - 1 ) / 10 ) );
+            }
+            roles.add( role );
+        }
+        List<Permission> perms = new ArrayList<>( ALL_OBJECTS * OPERATIONS );
+        for ( int i = 0; i < ALL_OBJECTS; i++ )
+        {
+            for ( int j = 0; j < OPERATIONS; j++ )
+            {
+                Permission perm = new Permission( "obj" + i, "op" + j );
+                Set<String> grantees = new HashSet<>();
+                for ( int k = 0; k < GRANTS_PER_PERM; k++ )
+                {
+                    grantees.add( "role" + random.nextInt( ROLES ) );
+                }
+                perm.setRoles( grantees );
+                perms.add( perm );
+            }
+        }
+        List<User> users = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            User user = new User( "user" + i );
+            for ( int k = 0; k < ROLES_PER_USER; k++ )
+            {
+                user.setRoleName( "role" + random.nextInt( ROLES ) );
+            }
+            users.add( user );
+        }
+        Set<String> names = new HashSet<>();
+        for ( int i = 0; i < objects; i++ )
+        {
+            names.add( "obj" + i );
+        }
+        RoleClosure roleIndex = new RoleClosure( roles );
+        PermissionClosure permIndex = new PermissionClosure( perms );
+
+        // the first run warms up the closures and the JIT
+        AccessMatrix matrix = new AccessMatrix( null, null, null, parallelism, null, null );
+        matrix.evaluate( users, names, roleIndex, permIndex );
+        long start = System.nanoTime();
+        matrix.evaluate( users, names, roleIndex, permIndex );
+        long elapsed = System.nanoTime() - start;
+        long cells = 0;
+        for ( int row = 0; row < matrix.getRowCount(); row++ )
+        {
+            cells += matrix.getRow( row ).cardinality();
+        }
+        System.out.println( "evaluate " + size + " users x " + matrix.getColumns().size() + " permissions, parallelism "
+            + parallelism + ": " + elapsed / 1000000 + " ms, " + cells + " grants" );
+
+        CountingWriter writer = new CountingWriter();
+        start = System.nanoTime();
+        matrix.writeCsv( writer );
+        elapsed = System.nanoTime() - start;
+        System.out.println( "writeCsv " + writer.count / ( 1024 * 1024 ) + " MB: " + elapsed / 1000000 + " ms" );
+    }
+
+
+    /**
+     * Discards the output, only counting it, so the benchmark measures the encoding rather than the disk.
+     */
+    private static final class CountingWriter extends Writer
+    {
+        private long count;
+
+
+        @Override
+        public void write( char[] buffer, int offset, int length )
+        {
+            count += length;
+        }
+
+
+        @Override
+        public void write( String value )
+        {
+            count += value.length();
+        }
+
+
+        @Override
+        public void flush()
+        {
+        }
+
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+
+
+/**
+ * Standalone check of {@link CacheConsole} against the caches of ehcache.xml, no directory server required.  Each
+ * cache is loaded the way fortress-core does, a get followed by a put on a miss, with more distinct keys than
+ * ehcache.xml allows for: the org units and role graphs of several tenants.  The hit ratio is measured before and
+ * after applying the suggested sizes.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.CacheConsoleBenchmark [tenants] [reads]
+ */
+public class CacheConsoleBenchmark
+{
+    private static final String[] CACHES = { "fortress.ous", "fortress.roles" };
+
+
+    public static void main( String[] args )
+    {
+        int tenants = args.length > 0 ? Integer.parseInt( args[0] ) : 12;
+        int reads = args.length > 1 ? Integer.parseInt( args[1] ) : 100000;
+        System.setProperty( "net.sf.ehcache.skipUpdateCheck", "true" );
+        CacheManager manager = CacheManager.newInstance( CacheConsoleBenchmark.class.getClassLoader().getResource(
+            "ehcache.xml" ) );
+        int failures = 0;
+        try
+        {
+            CacheConsole.install( manager );
+            // two org unit entries and one role graph per tenant, see ehcache.xml
+            int[] keys = { 2 * tenants, tenants };
+            for ( int i = 0; i < CACHES.length; i++ )
+            {
+                long before = load( manager.getEhcache( CACHES[i] ), keys[i], reads );
+                CacheConsole.Region region = CacheConsole.getRegion( CACHES[i] );
+                System.out.println( "as configured: " + region );
+                boolean suggested = region.getWorkingSet() == keys[i] && region.getSuggestedSize() == ( long ) Math
+                    .ceil( keys[i] * 1.25 );
+                failures += suggested ? 0 : 1;
+                System.out.println( "working set of " + keys[i] + " keys suggested: " + ( suggested ? "ok" :
+                    "FAILED" ) );
+            }
+            int resized = CacheConsole.applySuggestedSizes();
+            System.out.println( resized + " caches resized" );
+            CacheConsole.clearStatistics();
+            for ( int i = 0; i < CACHES.length; i++ )
+            {
+                long after = load( manager.getEhcache( CACHES[i] ), keys[i], reads );
+                CacheConsole.Region region = CacheConsole.getRegion( CACHES[i] );
+                System.out.println( "resized: " + region );
+                boolean evictionFree = region.getEvictions() == 0 && after == 100;
+                failures += evictionFree ? 0 : 1;
+                System.out.println( "no evictions once resized: " + ( evictionFree ? "ok" : "FAILED" ) );
+            }
+
+            CacheConsole.resize( "fortress.ous", 50 );
+            CacheConsole.setTimeToLive( "fortress.ous", 120 );
+            CacheConsole.setTimeToIdle( "fortress.ous", 60 );
+            CacheConsole.Region region = CacheConsole.getRegion( "fortress.ous" );
+            boolean changed = region.getMaxEntries() == 50 && region.getTimeToLive() == 120 && region
+                .getTimeToIdle() == 60;
+            failures += changed ? 0 : 1;
+            System.out.println( "size and time to live changed at runtime: " + ( changed ? "ok" : "FAILED" ) );
+            boolean rejected = false;
+            try
+            {
+                CacheConsole.resize( "not.a.fortress.cache", 10 );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                rejected = true;
+            }
+            failures += rejected ? 0 : 1;
+            System.out.println( "unknown cache rejected: " + ( rejected ? "ok" : "FAILED" ) );
+        }
+        finally
+        {
+            manager.shutdown();
+        }
+        System.out.println( failures == 0 ? "all checks passed" : failures + " checks FAILED" );
+        if ( failures > 0 )
+        {
+            System.exit( 1 );
+        }
+    }
+
+
+    /**
+     * @return hit ratio in percent of the reads, the first of each key excluded.
+     */
+    private static long load( Ehcache cache, int keys, int reads )
+    {
+        long hits = 0;
+        for ( int i = 0; i < reads; i++ )
+        {
+            // the tenants take turns, as their users' requests interleave
+            String key = "tenant" + i % keys;
+            if ( cache.get( key ) != null )
+            {
+                hits++;
+            }
+            else
+            {
+                cache.put( new Element( key, new Object() ) );
+            }
+        }
+        long ratio = Math.round( 100.0 * hits / ( reads - keys ) );
+        System.out.println( String.format( "%-16s %d keys over %d reads: %d%% hits", cache.getName(), keys, reads,
+            ratio ) );
+        return ratio;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+
+/**
+ * Names rebuilt by {@link CompactDn} and the sharing of their suffixes.  Every test uses a tenant of its own since the
+ * suffix tables are static.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class CompactDnTest
+{
+    private static final String PEOPLE = "ou=People,dc=example,dc=com";
+
+
+    @Test
+    public void roundTrip()
+    {
+        CompactDn dn = CompactDn.valueOf( "roundTrip", "uid=jdoe," + PEOPLE );
+        assertEquals( "uid=jdoe," + PEOPLE, dn.toString() );
+        assertEquals( "uid=jdoe", dn.getLeaf() );
+        assertEquals( "jdoe", dn.getLeafValue() );
+        assertEquals( PEOPLE, dn.getSuffix() );
+    }
+
+
+    @Test
+    public void singleRdn()
+    {
+        CompactDn dn = CompactDn.valueOf( "singleRdn", "dc=com" );
+        assertEquals( "dc=com", dn.toString() );
+        assertNull( dn.getSuffix() );
+        assertEquals( 0, CompactDn.getSuffixCount( "singleRdn" ) );
+        assertNull( CompactDn.valueOf( "singleRdn", null ) );
+    }
+
+
+    @Test
+    public void escapedCommaStaysInTheLeaf()
+    {
+        CompactDn dn = CompactDn.valueOf( "escaped", "cn=Doe\\, John," + PEOPLE );
+        assertEquals( "cn=Doe\\, John", dn.getLeaf() );
+        assertEquals( "Doe\\, John", dn.getLeafValue() );
+        assertEquals( PEOPLE, dn.getSuffix() );
+        assertEquals( "cn=Doe\\, John," + PEOPLE, dn.toString() );
+    }
+
+
+    @Test
+    public void nonAsciiLeaf()
+    {
+        String name = "cn=J\u00fcrgen M\u00fcller," + PEOPLE;
+        assertEquals( name, CompactDn.valueOf( "nonAscii", name ).toString() );
+    }
+
+
+    @Test
+    public void suffixIsSharedPerTenant()
+    {
+        CompactDn first = CompactDn.valueOf( "shared", "uid=first," + PEOPLE );
+        CompactDn second = CompactDn.valueOf( "shared", "uid=second," + new String( PEOPLE ) );
+        assertSame( first.getSuffix(), second.getSuffix() );
+        assertEquals( 1, CompactDn.getSuffixCount( "shared" ) );
+
+        CompactDn other = CompactDn.valueOf( "sharedOther", "uid=first," + PEOPLE );
+        assertEquals( first, other );
+        assertEquals( 1, CompactDn.getSuffixCount( "sharedOther" ) );
+    }
+
+
+    @Test
+    public void suffixTableIsCapped()
+    {
+        for ( int i = 0; i < CompactDn.MAX_SUFFIXES + 10; i++ )
+        {
+            CompactDn dn = CompactDn.valueOf( "capped", "uid=user,ou=" + i + ",dc=example,dc=com" );
+            assertEquals( "uid=user,ou=" + i + ",dc=example,dc=com", dn.toString() );
+        }
+        assertEquals( CompactDn.MAX_SUFFIXES, CompactDn.getSuffixCount( "capped" ) );
+    }
+
+
+    @Test
+    public void equalsHashCodeAndOrder()
+    {
+        CompactDn dn = CompactDn.valueOf( "equals", "uid=jdoe," + PEOPLE );
+        CompactDn same = CompactDn.valueOf( "equals", "uid=jdoe," + PEOPLE );
+        assertEquals( dn, same );
+        assertEquals( dn.hashCode(), same.hashCode() );
+        assertFalse( dn.equals( CompactDn.valueOf( "equals", "uid=jdoe,ou=Other,dc=example,dc=com" ) ) );
+        assertFalse( dn.equals( CompactDn.valueOf( "equals", "uid=jdoe" ) ) );
+        assertTrue( CompactDn.valueOf( "equals", "uid=Adam," + PEOPLE ).compareTo( CompactDn.valueOf( "equals",
+            "uid=bob," + PEOPLE ) ) < 0 );
+        assertEquals( 0, dn.compareTo( CompactDn.valueOf( "equals", "UID=JDOE," + PEOPLE.toUpperCase() ) ) );
+    }
+
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deserializedNamesShareTheSuffix() throws Exception
+    {
+        List<CompactDn> list = new ArrayList<>();
+        list.add( CompactDn.valueOf( "serialized", "uid=first," + PEOPLE ) );
+        list.add( CompactDn.valueOf( "serialized", "uid=second," + PEOPLE ) );
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream( buffer ) )
+        {
+            out.writeObject( list );
+        }
+        List<CompactDn> copy;
+        try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( buffer.toByteArray() ) ) )
+        {
+            copy = ( List<CompactDn> ) in.readObject();
+        }
+        assertEquals( list, copy );
+        assertSame( list.get( 0 ).getSuffix(), copy.get( 1 ).getSuffix() );
+        assertEquals( 1, CompactDn.getSuffixCount( "serialized" ) );
+    }
+}
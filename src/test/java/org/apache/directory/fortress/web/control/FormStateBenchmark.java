@@ -0,0 +1,223 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
+import org.apache.wicket.markup.IMarkupCacheKeyProvider;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+
+
+/**
+ * Standalone count of the requests it takes to edit a form and then open a search modal, with a blur updater on
+ * every field as the list panels had and with a {@link FormState}, no directory server or spring context required.
+ * The real panels can't be built without them, so the page is a form of text fields and a link reading their values
+ * the way UserListPanel's role search link reads field1.  The buffered changes are sent the way FormState.js does,
+ * as post parameters of the link's request.
+ * <p>
+ * Every field is edited once per form, so the blur version makes one request per field plus the click while the
+ * buffered one only makes the click.  Each request locks the page and stores it again; the server time per edited
+ * form is shown too, the browser's round trips come on top of it.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.FormStateBenchmark [forms]
+ */
+public class FormStateBenchmark
+{
+    private static final int[] FIELDS = { 2, 7, 12 };
+
+
+    public static void main( String[] args )
+    {
+        int forms = args.length > 0 ? Integer.parseInt( args[0] ) : 200;
+        WicketTester tester = new WicketTester();
+        tester.getApplication().getRequestCycleListeners().add( new FormState.Listener() );
+        int failures = 0;
+        try
+        {
+            for ( int fields : FIELDS )
+            {
+                for ( boolean buffered : new boolean[] { false, true } )
+                {
+                    // warm up with the same number of forms
+                    edit( tester, fields, forms, buffered );
+                    Result result = edit( tester, fields, forms, buffered );
+                    failures += result.ok ? 0 : 1;
+                    System.out.println( String.format( "%2d fields %-8s %5.1f requests/form %6d us/form   %s",
+                        fields, buffered ? "buffered" : "blur", ( double ) result.requests / forms, result.elapsed /
+                        forms / 1000, result.ok ? "ok" : "WRONG VALUES" ) );
+                }
+            }
+        }
+        finally
+        {
+            tester.destroy();
+        }
+        System.out.println( failures == 0 ? "link saw the edited values every time" : failures + " runs FAILED" );
+        if ( failures > 0 )
+        {
+            System.exit( 1 );
+        }
+    }
+
+
+    private static Result edit( WicketTester tester, int fields, int forms, boolean buffered )
+    {
+        Result result = new Result();
+        result.ok = true;
+        tester.startPage( new EditPage( fields, buffered ) );
+        long start = System.nanoTime();
+        for ( int form = 0; form < forms; form++ )
+        {
+            // the tester hands out the stored instance of the page
+            EditPage page = ( EditPage ) tester.getLastRenderedPage();
+            for ( int i = 0; i < fields; i++ )
+            {
+                TextField<String> field = page.fields.get( i );
+                String value = "form" + form + "field" + i;
+                tester.getRequest().getPostParameters().setParameterValue( field.getInputName(), value );
+                if ( !buffered )
+                {
+                    // executeAjaxEvent would post the value the field was rendered with
+                    tester.executeBehavior( field.getBehaviors( AjaxFormComponentUpdatingBehavior.class ).get( 0 ) );
+                    result.requests++;
+                }
+            }
+            if ( buffered )
+            {
+                tester.getRequest().getPostParameters().setParameterValue( FormState.PARAMETER,
+                    page.form.getMarkupId() );
+            }
+            tester.clickLink( "form:open", true );
+            result.requests++;
+            for ( int i = 0; i < fields; i++ )
+            {
+                result.ok &= ( "form" + form + "field" + i ).equals( page.seen.get( i ) );
+            }
+        }
+        result.elapsed = System.nanoTime() - start;
+        return result;
+    }
+
+
+    private static class Result
+    {
+        private int requests;
+        private long elapsed;
+        private boolean ok;
+    }
+
+
+    /**
+     * A form of text fields and a link that copies their models the way a search modal link does.
+     */
+    private static class EditPage extends WebPage implements IMarkupResourceStreamProvider,
+        IMarkupCacheKeyProvider
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final Form<Void> form = new Form<>( "form" );
+        private final List<TextField<String>> fields = new ArrayList<>();
+        private final List<String> seen = new ArrayList<>();
+        private final int size;
+
+
+        EditPage( int size, boolean buffered )
+        {
+            this.size = size;
+            add( form );
+            for ( int i = 0; i < size; i++ )
+            {
+                final TextField<String> field = new TextField<>( "field" + i, Model.of( "" ) );
+                field.setOutputMarkupId( true );
+                if ( !buffered )
+                {
+                    field.add( new AjaxFormComponentUpdatingBehavior( "blur" )
+                    {
+                        /** Default serialVersionUID */
+                        private static final long serialVersionUID = 1L;
+
+
+                        @Override
+                        protected void onUpdate( final AjaxRequestTarget target )
+                        {
+                            target.add( field );
+                        }
+                    } );
+                }
+                fields.add( field );
+                form.add( field );
+            }
+            if ( buffered )
+            {
+                form.add( new FormState().watch( fields.toArray( new TextField<?>[0] ) ) );
+            }
+            form.add( new AjaxLink<Void>( "open" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                public void onClick( AjaxRequestTarget target )
+                {
+                    seen.clear();
+                    for ( TextField<String> field : fields )
+                    {
+                        seen.add( field.getModelObject() );
+                    }
+                }
+            } );
+        }
+
+
+        @Override
+        public String getCacheKey( MarkupContainer container, Class<?> containerClass )
+        {
+            return containerClass.getName() + size;
+        }
+
+
+        @Override
+        public IResourceStream getMarkupResourceStream( MarkupContainer container, Class<?> containerClass )
+        {
+            StringBuilder markup = new StringBuilder( "<html><body><form wicket:id=\"form\">" );
+            for ( int i = 0; i < size; i++ )
+            {
+                markup.append( "<input type=\"text\" wicket:id=\"field" ).append( i ).append( "\"/>" );
+            }
+            markup.append( "<a wicket:id=\"open\">open</a></form></body></html>" );
+            return new StringResourceStream( markup );
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.Mod;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.web.model.SerializableList;
+import org.apache.wicket.model.CompoundPropertyModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.serialize.java.JavaSerializer;
+
+
+/**
+ * Standalone round trip and benchmark of {@link FortressSerializer} against the {@link JavaSerializer}, no directory
+ * server or servlet container required.  The pages can't be built without both, so each page is represented by the
+ * state it keeps between requests: the list model behind its grid holding a page of search results and the
+ * compound property model of its detail form.
+ * <p>
+ * Every graph is written by both serializers, read back by the fortress one and written again by the java one; the
+ * bytes must match the first java result.  Data written by the java serializer and a class that isn't registered
+ * are checked the same way.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.FortressSerializerBenchmark [rows]
+ */
+public class FortressSerializerBenchmark
+{
+    private static final int ROUNDS = 200;
+    private static final String KEY = "fortress-web";
+
+
+    public static void main( String[] args )
+    {
+        int rows = args.length > 0 ? Integer.parseInt( args[0] ) : 50;
+        JavaSerializer java = new JavaSerializer( KEY );
+        FortressSerializer fortress = new FortressSerializer( KEY );
+        Map<String, Object> pages = getPages( rows );
+        int failures = 0;
+        long javaBytes = 0;
+        long fortressBytes = 0;
+        for ( Map.Entry<String, Object> page : pages.entrySet() )
+        {
+            byte[] expected = java.serialize( page.getValue() );
+            byte[] compact = fortress.serialize( page.getValue() );
+            boolean same = Arrays.equals( reread( java, expected ), java.serialize( fortress.deserialize( compact ) ) );
+            failures += same ? 0 : 1;
+            long javaTime = time( java, page.getValue() );
+            long fortressTime = time( fortress, page.getValue() );
+            javaBytes += expected.length;
+            fortressBytes += compact.length;
+            System.out.println( String.format( "%-16s java %7d bytes %5d us   fortress %6d bytes %5d us   %s",
+                page.getKey(), expected.length, javaTime, compact.length, fortressTime, same ? "ok" : "MISMATCH" ) );
+        }
+        System.out.println( "total: java " + javaBytes + " bytes, fortress " + fortressBytes + " bytes" );
+
+        // pages stored by the java serializer before the switch must still be readable
+        Object legacy = pages.get( "UserPage" );
+        byte[] expected = java.serialize( legacy );
+        boolean same = Arrays.equals( reread( java, expected ), java.serialize( fortress.deserialize( expected ) ) );
+        failures += same ? 0 : 1;
+        System.out.println( "java serialized data read back: " + ( same ? "ok" : "MISMATCH" ) );
+
+        Unregistered unregistered = new Unregistered( "not registered", pages.get( "RolePage" ) );
+        expected = java.serialize( unregistered );
+        same = Arrays.equals( reread( java, expected ), java.serialize( fortress.deserialize( fortress.serialize(
+            unregistered ) ) ) );
+        failures += same ? 0 : 1;
+        System.out.println( "unregistered class round trip: " + ( same ? "ok" : "MISMATCH" ) );
+
+        System.out.println( failures == 0 ? "all round trips passed" : failures + " round trips FAILED" );
+        if ( failures > 0 )
+        {
+            System.exit( 1 );
+        }
+    }
+
+
+    /**
+     * Some model classes normalize their state when read, e.g. role parents, so the bytes of a page are only stable
+     * after one round trip through the java serializer.
+     */
+    private static byte[] reread( JavaSerializer java, byte[] data )
+    {
+        return java.serialize( java.deserialize( data ) );
+    }
+
+
+    private static long time( JavaSerializer serializer, Object page )
+    {
+        for ( int i = 0; i < ROUNDS; i++ )
+        {
+            serializer.deserialize( serializer.serialize( page ) );
+        }
+        long start = System.nanoTime();
+        for ( int i = 0; i < ROUNDS; i++ )
+        {
+            serializer.deserialize( serializer.serialize( page ) );
+        }
+        return ( System.nanoTime() - start ) / ROUNDS / 1000;
+    }
+
+
+    private static Map<String, Object> getPages( int rows )
+    {
+        Map<String, Object> pages = new LinkedHashMap<>();
+        List<User> users = new ArrayList<>();
+        List<Role> roles = new ArrayList<>();
+        List<Permission> perms = new ArrayList<>();
+        List<PermObj> objects = new ArrayList<>();
+        List<OrgUnit> ous = new ArrayList<>();
+        List<SDSet> sets = new ArrayList<>();
+        List<PwPolicy> policies = new ArrayList<>();
+        List<AuthZ> authzs = new ArrayList<>();
+        List<Bind> binds = new ArrayList<>();
+        List<Mod> mods = new ArrayList<>();
+        for ( int i = 0; i < rows; i++ )
+        {
+            User user = new User( "user" + i );
+            user.setOu( "dev" + i % 5 );
+            user.setCn( "First" + i + " Last" + i );
+            user.setSn( "Last" + i );
+            user.setDescription( "help desk user" );
+            user.setInternalId( "5d1e3c2a-0000-0000-0000-" + String.format( "%012d", i ) );
+            for ( int j = 0; j < 5; j++ )
+            {
+                UserRole userRole = new UserRole( user.getUserId(), "role" + ( i + j ) % rows );
+                userRole.setBeginTime( "0000" );
+                userRole.setEndTime( "2359" );
+                userRole.setDayMask( "1234567" );
+                user.setRole( userRole );
+            }
+            UserAdminRole adminRole = new UserAdminRole( user.getUserId(), "adminrole" + i % 3 );
+            adminRole.setOsU( "dev" + i % 5 );
+            user.setAdminRole( adminRole );
+            users.add( user );
+
+            Role role = new Role( "role" + i );
+            role.setDescription( "role for department " + i % 5 );
+            role.setBeginTime( "0000" );
+            role.setEndTime( "2359" );
+            role.setDayMask( "1234567" );
+            if ( i > 0 )
+            {
+                role.setParent( "role" + ( i - 1 ) / 3 );
+            }
+            roles.add( role );
+
+            Permission perm = new Permission( "org.apache.directory.fortress.core.impl.AdminMgrImpl" + i % 10,
+                "op" + i );
+            perm.setRole( "role" + i );
+            perm.setRole( "role" + ( i + 1 ) % rows );
+            perm.setDescription( "operation " + i );
+            perms.add( perm );
+
+            PermObj obj = new PermObj( "org.apache.directory.fortress.core.impl.AdminMgrImpl" + i );
+            obj.setOu( "app" + i % 5 );
+            obj.setDescription( "object " + i );
+            objects.add( obj );
+
+            OrgUnit ou = new OrgUnit( "dev" + i, OrgUnit.Type.USER );
+            ou.setDescription( "department " + i );
+            ou.setParent( "dev" + i / 5 );
+            ous.add( ou );
+
+            SDSet set = new SDSet();
+            set.setName( "ssd" + i );
+            set.setType( SDSet.SDType.STATIC );
+            set.setCardinality( 2 );
+            set.setMember( "role" + i );
+            set.setMember( "role" + ( i + 1 ) % rows );
+            sets.add( set );
+
+            PwPolicy policy = new PwPolicy( "policy" + i );
+            policy.setMinAge( 0 );
+            policy.setMaxAge( 2000000L );
+            policy.setInHistory( ( short ) 5 );
+            policies.add( policy );
+
+            AuthZ authz = new AuthZ();
+            authz.setReqDN( "uid=user" + i + ",ou=People,dc=example,dc=com" );
+            authz.setReqAttr( "ftOpNm" );
+            authz.setReqResult( "0" );
+            authz.setReqStart( "20200101000000.000000Z" );
+            authzs.add( authz );
+
+            Bind bind = new Bind();
+            bind.setReqDN( "uid=user" + i + ",ou=People,dc=example,dc=com" );
+            bind.setReqResult( "0" );
+            bind.setReqStart( "20200101000000.000000Z" );
+            binds.add( bind );
+
+            Mod mod = new Mod();
+            mod.setReqDN( "uid=user" + i + ",ou=People,dc=example,dc=com" );
+            mod.setReqAuthzID( "uid=admin,ou=People,dc=example,dc=com" );
+            mod.setReqMod( Arrays.asList( "ftRA:+ role" + i, "ftRC:+ role" + i + "$0000$2359$$$$$1234567" ) );
+            mod.setReqStart( "20200101000000.000000Z" );
+            mods.add( mod );
+        }
+        pages.put( "UserPage", page( users ) );
+        pages.put( "RolePage", page( roles ) );
+        pages.put( "PermPage", page( perms ) );
+        pages.put( "ObjectPage", page( objects ) );
+        pages.put( "OuUserPage", page( ous ) );
+        pages.put( "SdStaticPage", page( sets ) );
+        pages.put( "PwPolicyPage", page( policies ) );
+        pages.put( "AuditAuthzPage", page( authzs ) );
+        pages.put( "AuditBindPage", page( binds ) );
+        pages.put( "AuditModPage", page( mods ) );
+        return pages;
+    }
+
+
+    /**
+     * @return the grid's list model along with the form model of its first row.
+     */
+    private static <T extends Serializable> Object page( List<T> rows )
+    {
+        List<Object> state = new ArrayList<>();
+        state.add( new Model<>( new SerializableList<>( rows ) ) );
+        state.add( new CompoundPropertyModel<>( rows.get( 0 ) ) );
+        return state;
+    }
+
+
+    private static class Unregistered implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+        private final String name;
+        private final Object payload;
+
+
+        Unregistered( String name, Object payload )
+        {
+            this.name = name;
+            this.payload = payload;
+        }
+    }
+}
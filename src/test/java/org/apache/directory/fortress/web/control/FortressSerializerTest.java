@@ -0,0 +1,165 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.junit.Test;
+
+
+/**
+ * Round trips through {@link FortressSerializer}, compared byte for byte with what the {@link JavaSerializer} writes
+ * for the same objects.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class FortressSerializerTest
+{
+    private static final String KEY = "fortressSerializerTest";
+    private final JavaSerializer java = new JavaSerializer( KEY );
+
+
+    @Test
+    public void registeredClassesRoundTrip()
+    {
+        List<User> users = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            User user = new User( "user" + i );
+            user.setOu( "dev" );
+            user.setCn( "user " + i );
+            UserRole role = new UserRole( user.getUserId(), "role" + i % 3 );
+            role.setBeginTime( "0000" );
+            user.getRoles().add( role );
+            users.add( user );
+        }
+        assertRoundTrip( new FortressSerializer( KEY ), users );
+    }
+
+
+    @Test
+    public void unregisteredClassRoundTrip()
+    {
+        assertRoundTrip( new FortressSerializer( KEY ), new Sample( "unregistered", 1 ) );
+    }
+
+
+    @Test
+    public void readsJavaSerializedData()
+    {
+        Role role = new Role( "legacy" );
+        byte[] expected = java.serialize( role );
+        assertArrayEquals( java.serialize( java.deserialize( expected ) ), java.serialize( new FortressSerializer(
+            KEY ).deserialize( expected ) ) );
+    }
+
+
+    @Test
+    public void sameFingerprintReadsById()
+    {
+        FortressSerializer writer = new FortressSerializer( KEY, Sample.class.getName() );
+        FortressSerializer reader = new FortressSerializer( KEY, Sample.class.getName() );
+        Sample sample = ( Sample ) reader.deserialize( writer.serialize( new Sample( "same", 2 ) ) );
+        assertEquals( "same", sample.name );
+        assertEquals( 2, sample.count );
+    }
+
+
+    /**
+     * The reader has another class at the id the writer used, as a node running a release whose registered class
+     * changed its serialVersionUID or fields would.
+     */
+    @Test
+    public void mismatchedFingerprintIsRejected()
+    {
+        FortressSerializer writer = new FortressSerializer( KEY, Sample.class.getName() );
+        FortressSerializer reader = new FortressSerializer( KEY, ChangedSample.class.getName() );
+        assertNull( reader.deserialize( writer.serialize( new Sample( "changed", 3 ) ) ) );
+    }
+
+
+    @Test
+    public void mismatchedSerialVersionUidIsRejected()
+    {
+        FortressSerializer writer = new FortressSerializer( KEY, Sample.class.getName() );
+        FortressSerializer reader = new FortressSerializer( KEY, OtherUidSample.class.getName() );
+        assertNull( reader.deserialize( writer.serialize( new Sample( "other", 4 ) ) ) );
+    }
+
+
+    private void assertRoundTrip( FortressSerializer fortress, Object object )
+    {
+        byte[] expected = java.serialize( object );
+        assertArrayEquals( java.serialize( java.deserialize( expected ) ), java.serialize( fortress.deserialize(
+            fortress.serialize( object ) ) ) );
+    }
+
+
+    static class Sample implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        String name;
+        int count;
+
+
+        Sample( String name, int count )
+        {
+            this.name = name;
+            this.count = count;
+        }
+    }
+
+
+    /**
+     * Same serialVersionUID as {@link Sample}, another field.
+     */
+    static class ChangedSample implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        String name;
+        long count;
+    }
+
+
+    /**
+     * Same fields as {@link Sample}, another serialVersionUID.
+     */
+    static class OtherUidSample implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 2L;
+        String name;
+        int count;
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+import org.apache.directory.fortress.core.model.Relationship;
+import org.jgrapht.graph.SimpleDirectedGraph;
+
+
+/**
+ * Standalone measurement of the {@link OffHeapCaches} tier on a synthetic load, no directory server required.  Each
+ * tenant has a role hierarchy of the given size shaped like a deep org chart, a role has one parent and one in ten a
+ * second.  Requests take turns among the tenants and walk the ascendants of a random role, as a permission check
+ * does.  A miss rebuilds the graph from its relationships, which is what fortress-core does after reading them from
+ * the directory, so the rebuild times below leave out the directory itself.  Three set-ups of fortress.roles:
+ * <ul>
+ * <li>heap, sized for every tenant,</li>
+ * <li>heap, of two entries as in ehcache.xml,</li>
+ * <li>heap of two entries over the off-heap tier.</li>
+ * </ul>
+ * Reported are the collector pauses during the requests, then the heap and direct memory held by the cache.
+ * Run with a fixed heap for comparable numbers: java -Xms1g -Xmx1g -cp target/classes:target/test-classes:
+ * &lt;dependencies&gt; org.apache.directory.fortress.web.control.OffHeapCacheBenchmark [tenants] [roles] [requests]
+ */
+public class OffHeapCacheBenchmark
+{
+    private static final String CACHE = "fortress.roles";
+    private static final GcLog GC_LOG = new GcLog();
+    private static int rebuilds;
+
+
+    public static void main( String[] args ) throws Exception
+    {
+        int tenants = args.length > 0 ? Integer.parseInt( args[0] ) : 12;
+        int roles = args.length > 1 ? Integer.parseInt( args[1] ) : 20000;
+        int requests = args.length > 2 ? Integer.parseInt( args[2] ) : 600;
+        System.setProperty( "net.sf.ehcache.skipUpdateCheck", "true" );
+        for ( GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans() )
+        {
+            ( ( NotificationEmitter ) collector ).addNotificationListener( GC_LOG, null, null );
+        }
+        int failures = check();
+
+        List<List<Relationship>> hierarchies = new ArrayList<>();
+        for ( int t = 0; t < tenants; t++ )
+        {
+            hierarchies.add( getRelationships( roles, t ) );
+        }
+        SimpleDirectedGraph<String, Relationship> sample = build( hierarchies.get( 0 ) );
+        byte[] compact = OffHeapCaches.encode( sample );
+        long rebuild = 0;
+        long decode = 0;
+        // the second round is measured
+        for ( int round = 0; round < 2; round++ )
+        {
+            long start = System.nanoTime();
+            for ( int i = 0; i < 20; i++ )
+            {
+                build( hierarchies.get( 0 ) );
+            }
+            rebuild = ( System.nanoTime() - start ) / 20 / 1000;
+            start = System.nanoTime();
+            for ( int i = 0; i < 20; i++ )
+            {
+                OffHeapCaches.decode( compact );
+            }
+            decode = ( System.nanoTime() - start ) / 20 / 1000;
+        }
+        System.out.println( String.format( "%d tenants of %d roles, %d edges: rebuild %d us, decode %d us, %d "
+            + "compact bytes", tenants, roles, sample.edgeSet().size(), rebuild, decode, compact.length ) );
+        sample = null;
+
+        run( "heap, " + tenants + " entries", tenants, false, hierarchies, roles, requests );
+        run( "heap, 2 entries", 2, false, hierarchies, roles, requests );
+        run( "heap 2 + off-heap", 2, true, hierarchies, roles, requests );
+
+        System.out.println( failures == 0 ? "all checks passed" : failures + " checks FAILED" );
+        if ( failures > 0 )
+        {
+            System.exit( 1 );
+        }
+    }
+
+
+    private static void run( String label, int heapEntries, boolean tiered, List<List<Relationship>> hierarchies,
+        int roles, int requests )
+    {
+        CacheManager manager = newManager( label, heapEntries, 600 );
+        try
+        {
+            OffHeapCaches.configure( Collections.singleton( CACHE ), 256L * 1024 * 1024 );
+            Ehcache cache = tiered ? OffHeapCaches.install( manager, manager.getEhcache( CACHE ) ) : manager
+                .getEhcache( CACHE );
+            rebuilds = 0;
+            Random random = new Random( 7 );
+            GC_LOG.reset();
+            long start = System.nanoTime();
+            long walked = 0;
+            for ( int i = 0; i < requests; i++ )
+            {
+                int tenant = i % hierarchies.size();
+                SimpleDirectedGraph<String, Relationship> graph = get( cache, tenant, hierarchies.get( tenant ) );
+                walked += ascendants( graph, "role" + random.nextInt( roles ) );
+            }
+            long elapsed = ( System.nanoTime() - start ) / 1000000;
+            String pauses = GC_LOG.toString();
+            long retained = settle();
+            // freed direct buffers are only returned once collected
+            long direct = getDirect();
+            String offHeap = "";
+            if ( cache instanceof OffHeapCaches.TieredCache )
+            {
+                OffHeapCaches.TieredCache tieredCache = ( OffHeapCaches.TieredCache ) cache;
+                offHeap = String.format( ", off-heap %d entries %d KB, %d hits", tieredCache.getOffHeapSize(),
+                    tieredCache.getOffHeapBytes() / 1024, tieredCache.getOffHeapHits() );
+            }
+            cache.removeAll();
+            retained -= settle();
+            System.out.println( String.format( "%-20s %5d ms, %4d rebuilds, gc %s, heap retained %d MB, direct %d "
+                + "KB%s (%d walked)", label, elapsed, rebuilds, pauses, retained / 1024 / 1024, direct / 1024,
+                offHeap, walked ) );
+        }
+        finally
+        {
+            manager.shutdown();
+        }
+    }
+
+
+    private static int check() throws Exception
+    {
+        int failures = 0;
+        List<Relationship> relationships = getRelationships( 2000, 0 );
+        SimpleDirectedGraph<String, Relationship> graph = build( relationships );
+        @SuppressWarnings("unchecked")
+        SimpleDirectedGraph<String, Relationship> copy = ( SimpleDirectedGraph<String, Relationship> ) OffHeapCaches
+            .decode( OffHeapCaches.encode( graph ) );
+        boolean same = graph.vertexSet().equals( copy.vertexSet() ) && edges( graph ).equals( edges( copy ) );
+        failures += same ? 0 : 1;
+        System.out.println( "graph round trip: " + ( same ? "ok" : "FAILED" ) );
+
+        Set<String> ous = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        ous.add( "Dev" );
+        ous.add( "qa" );
+        @SuppressWarnings("unchecked")
+        Set<String> ousCopy = ( Set<String> ) OffHeapCaches.decode( OffHeapCaches.encode( ous ) );
+        same = ous.equals( ousCopy ) && ousCopy.contains( "DEV" );
+        failures += same ? 0 : 1;
+        System.out.println( "org unit set round trip: " + ( same ? "ok" : "FAILED" ) );
+
+        // a change made in place while on the heap survives the trip through the second tier
+        CacheManager manager = newManager( "check", 1, 1 );
+        try
+        {
+            OffHeapCaches.configure( Collections.singleton( CACHE ), 1024 * 1024 );
+            Ehcache cache = OffHeapCaches.install( manager, manager.getEhcache( CACHE ) );
+            cache.put( new Element( "a", graph ) );
+            graph.addVertex( "added" );
+            graph.addEdge( "added", "role0", new Relationship( "added", "role0" ) );
+            cache.put( new Element( "b", build( relationships ) ) );
+            Element promoted = cache.get( "a" );
+            same = promoted != null && edges( ( SimpleDirectedGraph<?, ?> ) promoted.getObjectValue() ).equals(
+                edges( graph ) ) && cache.get( "b" ) != null;
+            failures += same ? 0 : 1;
+            System.out.println( "evicted graph read back with its changes: " + ( same ? "ok" : "FAILED" ) );
+
+            cache.put( new Element( "c", build( relationships ) ) );
+            Thread.sleep( 1100 );
+            same = cache.get( "b" ) == null;
+            failures += same ? 0 : 1;
+            System.out.println( "expired off-heap entry dropped: " + ( same ? "ok" : "FAILED" ) );
+        }
+        finally
+        {
+            manager.shutdown();
+        }
+        return failures;
+    }
+
+
+    private static CacheManager newManager( String name, int heapEntries, int timeToLive )
+    {
+        Configuration configuration = new Configuration();
+        configuration.setName( name.replaceAll( "\\W", "" ) );
+        configuration.setUpdateCheck( false );
+        // as declared in ehcache.xml, but for the size
+        configuration.addCache( new CacheConfiguration( CACHE, heapEntries ).eternal( false ).timeToLiveSeconds(
+            timeToLive ).timeToIdleSeconds( timeToLive ).memoryStoreEvictionPolicy( "LFU" ) );
+        return CacheManager.newInstance( configuration );
+    }
+
+
+    /**
+     * The cache lookup of fortress-core: build the graph on a miss and put it.
+     */
+    @SuppressWarnings("unchecked")
+    private static SimpleDirectedGraph<String, Relationship> get( Ehcache cache, int tenant, List<Relationship>
+        relationships )
+    {
+        String key = "roles:tenant" + tenant;
+        Element element = cache.get( key );
+        if ( element != null )
+        {
+            return ( SimpleDirectedGraph<String, Relationship> ) element.getObjectValue();
+        }
+        rebuilds++;
+        SimpleDirectedGraph<String, Relationship> graph = build( relationships );
+        cache.put( new Element( key, graph ) );
+        return graph;
+    }
+
+
+    /**
+     * @return a tree four wide, deeper than any real one, with a second parent for one role in ten.
+     */
+    private static List<Relationship> getRelationships( int roles, int tenant )
+    {
+        Random random = new Random( tenant );
+        List<Relationship> relationships = new ArrayList<>();
+        for ( int i = 1; i < roles; i++ )
+        {
+            relationships.add( new Relationship( "role" + i, "role" + ( i - 1 ) / 4 ) );
+            if ( i % 10 == 0 && i > 8 )
+            {
+                int parent = random.nextInt( i / 4 );
+                if ( parent != ( i - 1 ) / 4 )
+                {
+                    relationships.add( new Relationship( "role" + i, "role" + parent ) );
+                }
+            }
+        }
+        return relationships;
+    }
+
+
+    /**
+     * As HierUtil builds them.
+     */
+    private static SimpleDirectedGraph<String, Relationship> build( List<Relationship> relationships )
+    {
+        SimpleDirectedGraph<String, Relationship> graph = new SimpleDirectedGraph<>( Relationship.class );
+        for ( Relationship relationship : relationships )
+        {
+            // names are read from the directory, new strings each time
+            String child = new String( relationship.getChild() );
+            String parent = new String( relationship.getParent() );
+            graph.addVertex( child );
+            graph.addVertex( parent );
+            graph.addEdge( child, parent, new Relationship( child, parent ) );
+        }
+        return graph;
+    }
+
+
+    private static int ascendants( SimpleDirectedGraph<String, Relationship> graph, String role )
+    {
+        Set<String> seen = new HashSet<>();
+        List<String> pending = new ArrayList<>();
+        pending.add( role );
+        while ( !pending.isEmpty() )
+        {
+            String vertex = pending.remove( pending.size() - 1 );
+            for ( Relationship edge : graph.outgoingEdgesOf( vertex ) )
+            {
+                if ( seen.add( graph.getEdgeTarget( edge ) ) )
+                {
+                    pending.add( graph.getEdgeTarget( edge ) );
+                }
+            }
+        }
+        return seen.size();
+    }
+
+
+    private static Set<String> edges( SimpleDirectedGraph<?, ?> graph )
+    {
+        Set<String> edges = new HashSet<>();
+        for ( Object edge : graph.edgeSet() )
+        {
+            Relationship relationship = ( Relationship ) edge;
+            edges.add( relationship.getChild() + ">" + relationship.getParent() );
+        }
+        return edges;
+    }
+
+
+    /**
+     * @return heap used after collecting everything unreachable.
+     */
+    private static long settle()
+    {
+        for ( int i = 0; i < 3; i++ )
+        {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+
+    private static long getDirect()
+    {
+        for ( BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans( BufferPoolMXBean.class ) )
+        {
+            if ( "direct".equals( pool.getName() ) )
+            {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * Collector pauses, explicit ones left out.
+     */
+    private static class GcLog implements NotificationListener
+    {
+        private int count;
+        private long total;
+        private long max;
+
+
+        synchronized void reset()
+        {
+            count = 0;
+            total = 0;
+            max = 0;
+        }
+
+
+        @Override
+        public synchronized void handleNotification( Notification notification, Object handback )
+        {
+            if ( !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals( notification.getType() ) )
+            {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from( ( CompositeData )
+                notification.getUserData() );
+            if ( "System.gc()".equals( info.getGcCause() ) )
+            {
+                return;
+            }
+            long duration = info.getGcInfo().getDuration();
+            count++;
+            total += duration;
+            max = Math.max( max, duration );
+        }
+
+
+        @Override
+        public synchronized String toString()
+        {
+            return count + " pauses " + total + " ms max " + max + " ms";
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Closures of {@link PermissionClosure} over a Top &lt;- Middle &lt;- Bottom chain of roles, before and after grants,
+ * permissions and roles change.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PermissionClosureTest
+{
+    private RoleClosure roles;
+    private PermissionClosure closure;
+
+
+    @Before
+    public void setUp()
+    {
+        List<Role> list = new ArrayList<>();
+        list.add( new Role( "Top" ) );
+        Role middle = new Role( "Middle" );
+        middle.setParent( "Top" );
+        list.add( middle );
+        Role bottom = new Role( "Bottom" );
+        bottom.setParent( "Middle" );
+        list.add( bottom );
+        list.add( new Role( "Other" ) );
+        roles = new RoleClosure( list );
+        closure = new PermissionClosure( Arrays.asList(
+            perm( "Account", "read", "Top" ),
+            perm( "Account", "write", "Middle" ),
+            perm( "Ledger", "read", "Bottom", "Other" ),
+            perm( "Ledger", "close" ) ) );
+    }
+
+
+    @Test
+    public void closureHoldsTheGrantsOfEveryAscendant()
+    {
+        assertEquals( 4, closure.size() );
+        assertEquals( ops( "Account.read" ), ops( closure.getClosure( "Top", roles ) ) );
+        assertEquals( ops( "Account.read", "Account.write" ), ops( closure.getClosure( "Middle", roles ) ) );
+        assertEquals( ops( "Account.read", "Account.write", "Ledger.read" ),
+            ops( closure.getClosure( "bottom", roles ) ) );
+        assertEquals( ops( "Ledger.read" ), ops( closure.getClosure( "Other", roles ) ) );
+        assertEquals( ops(), ops( closure.getClosure( "Missing", roles ) ) );
+    }
+
+
+    @Test
+    public void directGrants()
+    {
+        assertEquals( ops( "Account.write" ), ops( closure.getGrants( "Middle" ) ) );
+        assertEquals( ops(), ops( closure.getGrants( "Missing" ) ) );
+        // a copy, the index is left alone
+        closure.getGrants( "Middle" ).clear();
+        assertEquals( ops( "Account.write" ), ops( closure.getGrants( "Middle" ) ) );
+    }
+
+
+    @Test
+    public void grantToAnAscendantReachesTheDescendants()
+    {
+        closure.getClosure( "Bottom", roles );
+        closure.setPermission( perm( "Ledger", "close", "Top" ), roles );
+        assertEquals( ops( "Account.read", "Account.write", "Ledger.read", "Ledger.close" ),
+            ops( closure.getClosure( "Bottom", roles ) ) );
+        assertEquals( ops( "Ledger.read" ), ops( closure.getClosure( "Other", roles ) ) );
+    }
+
+
+    @Test
+    public void revokeFromAnAscendant()
+    {
+        closure.getClosure( "Bottom", roles );
+        closure.setPermission( perm( "Account", "write" ), roles );
+        assertEquals( ops( "Account.read", "Ledger.read" ), ops( closure.getClosure( "Bottom", roles ) ) );
+    }
+
+
+    @Test
+    public void newPermission()
+    {
+        closure.setPermission( perm( "Report", "print", "Middle" ), roles );
+        assertEquals( 5, closure.size() );
+        assertEquals( ops( "Account.read", "Account.write", "Ledger.read", "Report.print" ),
+            ops( closure.getClosure( "Bottom", roles ) ) );
+    }
+
+
+    @Test
+    public void deletePermission()
+    {
+        BitSet before = closure.getClosure( "Bottom", roles );
+        int id = closure.findPermissions( Collections.singleton( "account" ) ).keySet().iterator().next();
+        closure.deletePermission( perm( "Account", "read" ) );
+        assertNull( closure.getPermission( id ) );
+        assertEquals( ops( "Account.write", "Ledger.read" ), ops( closure.getClosure( "Bottom", roles ) ) );
+        // the deleted id is left out of closures still held by readers
+        assertEquals( ops( "Account.write", "Ledger.read" ), ops( before ) );
+    }
+
+
+    @Test
+    public void hierarchyChange()
+    {
+        closure.getClosure( "Bottom", roles );
+        roles.setParents( "Middle", new HashSet<>( Collections.singleton( "Other" ) ) );
+        closure.updateRole( "Middle", roles );
+        assertEquals( ops( "Account.write", "Ledger.read" ), ops( closure.getClosure( "Bottom", roles ) ) );
+    }
+
+
+    @Test
+    public void deleteRole()
+    {
+        closure.getClosure( "Bottom", roles );
+        closure.deleteRole( "Middle", roles );
+        roles.deleteRole( "Middle" );
+        assertEquals( ops( "Ledger.read" ), ops( closure.getClosure( "Bottom", roles ) ) );
+    }
+
+
+    @Test
+    public void withoutHierarchyEveryClosureIsDiscarded()
+    {
+        closure.getClosure( "Bottom", roles );
+        closure.setPermission( perm( "Ledger", "close", "Top" ), null );
+        assertTrue( ops( closure.getClosure( "Bottom", roles ) ).contains( "Ledger.close" ) );
+    }
+
+
+    @Test
+    public void findPermissions()
+    {
+        assertEquals( ops( "Ledger.read", "Ledger.close" ),
+            names( closure.findPermissions( Collections.singleton( "LEDGER" ) ).values() ) );
+    }
+
+
+    private Set<String> ops( BitSet set )
+    {
+        return names( closure.getPermissions( set ).values() );
+    }
+
+
+    private static Set<String> names( Iterable<Permission> perms )
+    {
+        Set<String> result = new HashSet<>();
+        for ( Permission perm : perms )
+        {
+            result.add( perm.getObjName() + "." + perm.getOpName() );
+        }
+        return result;
+    }
+
+
+    private static Set<String> ops( String... names )
+    {
+        return new HashSet<>( Arrays.asList( names ) );
+    }
+
+
+    private static Permission perm( String objName, String opName, String... roles )
+    {
+        Permission perm = new Permission( objName, opName );
+        for ( String role : roles )
+        {
+            perm.setRole( role );
+        }
+        return perm;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.fortress.core.model.Permission;
+
+
+/**
+ * Standalone heap benchmark of {@link PermissionSet}, no directory server required.  By default it simulates 2,000
+ * sessions spread over 10 distinct combinations of active roles, each combination granting 300 permissions, and
+ * compares the heap held by one private copy per session, as returned by sessionPermissions, with the heap held once
+ * the copies are interned.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.PermissionSetBenchmark [sessions] [combinations] [permissions]
+ */
+public class PermissionSetBenchmark
+{
+    public static void main( String[] args )
+    {
+        int sessions = args.length > 0 ? Integer.parseInt( args[0] ) : 2000;
+        int combinations = args.length > 1 ? Integer.parseInt( args[1] ) : 10;
+        int size = args.length > 2 ? Integer.parseInt( args[2] ) : 300;
+
+        // the shared sets are measured first, garbage left behind by the copies would skew the baseline
+        long start = System.nanoTime();
+        List<PermissionSet> interned = new ArrayList<>( sessions );
+        long shared = measureShared( interned, sessions, combinations, size );
+        long elapsed = System.nanoTime() - start;
+        System.out.println( sessions + " sessions with shared sets: " + shared / 1024 + " KB, " + shared /
+            sessions + " bytes/session, " + PermissionSet.getRegistered() + " sets registered" );
+        System.out.println( "intern: " + elapsed / sessions / 1000 + " us/session including building the list" );
+
+        long copied = measureCopies( sessions, combinations, size );
+        System.out.println( sessions + " sessions with private copies: " + copied / 1024 + " KB, " + copied /
+            sessions + " bytes/session" );
+
+        start = System.nanoTime();
+        int hits = 0;
+        Permission probe = new Permission( "obj" + size / 2, "op" );
+        for ( int i = 0; i < 1000000; i++ )
+        {
+            if ( interned.get( i % sessions ).contains( probe ) )
+            {
+                hits++;
+            }
+        }
+        System.out.println( "contains: " + ( System.nanoTime() - start ) / 1000000 + " ns/op, hits=" + hits );
+
+        interned = null;
+        usedHeap();
+        System.out.println( "sets registered after the sessions are gone: " + PermissionSet.getRegistered() );
+    }
+
+
+    private static long measureShared( List<PermissionSet> interned, int sessions, int combinations, int size )
+    {
+        long heap = usedHeap();
+        for ( int i = 0; i < sessions; i++ )
+        {
+            // every login still receives a fresh list, only the interned set is kept
+            interned.add( PermissionSet.intern( "bench|combination" + i % combinations, load( i % combinations,
+                size ) ) );
+        }
+        return usedHeap() - heap;
+    }
+
+
+    private static long measureCopies( int sessions, int combinations, int size )
+    {
+        long heap = usedHeap();
+        List<List<Permission>> copies = new ArrayList<>( sessions );
+        for ( int i = 0; i < sessions; i++ )
+        {
+            copies.add( load( i % combinations, size ) );
+        }
+        long used = usedHeap() - heap;
+        // keeps the copies reachable until measured
+        return copies.size() > 0 ? used : 0;
+    }
+
+
+    private static List<Permission> load( int combination, int size )
+    {
+        List<Permission> list = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            Permission perm = new Permission( "obj" + ( combination * size / 2 + i ), "op" );
+            perm.setDescription( "permission " + i + " of combination " + combination );
+            list.add( perm );
+        }
+        return list;
+    }
+
+
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for ( int i = 0; i < 3; i++ )
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
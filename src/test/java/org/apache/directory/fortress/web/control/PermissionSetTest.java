@@ -0,0 +1,181 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.junit.Test;
+
+
+/**
+ * Interning, lookups and the replicated forms of {@link PermissionSet}.  The registry is static so every test uses
+ * keys of its own.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PermissionSetTest
+{
+    @Test
+    public void sameContentIsShared()
+    {
+        PermissionSet first = PermissionSet.intern( "shared", perms( "Account.read", "Account.write" ) );
+        PermissionSet second = PermissionSet.intern( "shared", perms( "account.WRITE", "Account.read" ) );
+        assertSame( first, second );
+    }
+
+
+    @Test
+    public void differentContentIsPrivate()
+    {
+        PermissionSet shared = PermissionSet.intern( "private", perms( "Account.read" ) );
+        PermissionSet other = PermissionSet.intern( "private", perms( "Account.read", "Ledger.close" ) );
+        assertNotSame( shared, other );
+        assertEquals( 2, other.size() );
+        // the registered set stays the shared one
+        assertSame( shared, PermissionSet.intern( "private", perms( "Account.read" ) ) );
+    }
+
+
+    @Test
+    public void contains()
+    {
+        PermissionSet set = PermissionSet.intern( "contains", perms( "Account.read", "Ledger.close" ) );
+        assertTrue( set.contains( new Permission( "Account", "read" ) ) );
+        assertTrue( set.contains( new Permission( "LEDGER", "Close" ) ) );
+        assertFalse( set.contains( new Permission( "Account", "write" ) ) );
+        Permission withObjId = new Permission( "Account", "read" );
+        withObjId.setObjId( "42" );
+        assertFalse( set.contains( withObjId ) );
+    }
+
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void permissionsAreUnmodifiable()
+    {
+        PermissionSet.intern( "unmodifiable", perms( "Account.read" ) ).getPermissions().add( new Permission(
+            "Account", "write" ) );
+    }
+
+
+    @Test
+    public void decodeInternsTheSet() throws IOException
+    {
+        List<Permission> list = perms( "Account.read", "Account.write", "Ledger.read" );
+        list.get( 2 ).setObjId( "42" );
+        PermissionSet set = PermissionSet.intern( "decode", list );
+        assertSame( set, PermissionSet.decode( set.encode() ) );
+    }
+
+
+    @Test
+    public void decodeKeepsTheContent() throws IOException
+    {
+        PermissionSet.intern( "content", perms( "Account.read" ) );
+        List<Permission> list = perms( "Account.read", "Account.write", "Ledger.read" );
+        list.get( 2 ).setObjId( "42" );
+        PermissionSet set = PermissionSet.intern( "content", list );
+        PermissionSet decoded = PermissionSet.decode( set.encode() );
+        assertEquals( names( set.getPermissions() ), names( decoded.getPermissions() ) );
+        assertEquals( "42", decoded.getPermissions().get( 2 ).getObjId() );
+    }
+
+
+    @Test
+    public void readResolveInternsTheSet() throws Exception
+    {
+        PermissionSet set = PermissionSet.intern( "readResolve", perms( "Account.read", "Account.write" ) );
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream( buffer ) )
+        {
+            out.writeObject( set );
+        }
+        try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( buffer.toByteArray() ) ) )
+        {
+            assertSame( set, in.readObject() );
+        }
+    }
+
+
+    @Test
+    public void keyIgnoresRoleOrderAndCase()
+    {
+        String previous = Tenants.set( "permissionSetTest" );
+        try
+        {
+            Session first = new Session( new User( "first" ) );
+            first.setRole( new UserRole( "first", "Teller" ) );
+            first.setRole( new UserRole( "first", "Auditor" ) );
+            Session second = new Session( new User( "second" ) );
+            second.setRole( new UserRole( "second", "auditor" ) );
+            second.setRole( new UserRole( "second", "TELLER" ) );
+            assertEquals( PermissionSet.getKey( first ), PermissionSet.getKey( second ) );
+            assertEquals( "permissionSetTest|auditor,teller|", PermissionSet.getKey( first ) );
+
+            second.getUser().setAdminRole( new UserAdminRole( "second", "Helpdesk" ) );
+            assertEquals( "permissionSetTest|auditor,teller|helpdesk", PermissionSet.getKey( second ) );
+        }
+        finally
+        {
+            Tenants.set( previous );
+        }
+    }
+
+
+    private static List<Permission> perms( String... names )
+    {
+        List<Permission> list = new ArrayList<>();
+        for ( String name : names )
+        {
+            String[] parts = name.split( "\\." );
+            list.add( new Permission( parts[0], parts[1] ) );
+        }
+        return list;
+    }
+
+
+    private static List<String> names( List<Permission> perms )
+    {
+        List<String> result = new ArrayList<>();
+        for ( Permission perm : perms )
+        {
+            result.add( perm.getObjName() + "." + perm.getOpName() + "." + perm.getObjId() );
+        }
+        return result;
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.FinderException;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.web.common.GlobalIds;
+
+
+/**
+ * Standalone benchmark of {@link Resilience}, no directory server required: the managers are stand-ins whose calls
+ * take as long, and fail the way, the benchmark asks.  It measures the cost of a wrapped call while the directory
+ * answers, then, with the directory stalled, how long callers wait unwrapped and wrapped, how many calls reach it at
+ * once and how many are answered from a copy.  It also checks the breaker closes again once the directory recovers,
+ * a user that isn't found doesn't open it, a copy can't be changed by its caller and a write is waited for and fails
+ * as it did instead of being answered from a copy.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.ResilienceBenchmark [threads] [stall ms]
+ */
+public class ResilienceBenchmark
+{
+    private static final long TIMEOUT = 200;
+    private static final int BULKHEAD = 10;
+    private static final long OPEN = 1000;
+    private static final String OPERATION = "ReviewMgr.findUsers";
+    private static volatile long latency;
+    private static volatile Exception failure;
+    private static final AtomicInteger IN_PROGRESS = new AtomicInteger();
+    private static final AtomicInteger MAX_IN_PROGRESS = new AtomicInteger();
+    private static int failures;
+
+
+    public static void main( String[] args ) throws Exception
+    {
+        int threads = args.length > 0 ? Integer.parseInt( args[0] ) : 50;
+        long stall = args.length > 1 ? Long.parseLong( args[1] ) : 2000;
+        System.setProperty( Resilience.ENABLE_PROPERTY, "true" );
+        System.setProperty( Resilience.TIMEOUT_PROPERTY, String.valueOf( TIMEOUT ) );
+        System.setProperty( Resilience.BULKHEAD_PROPERTY, String.valueOf( BULKHEAD ) );
+        System.setProperty( Resilience.BULKHEAD_WAIT_PROPERTY, "100" );
+        System.setProperty( Resilience.FAILURES_PROPERTY, "5" );
+        System.setProperty( Resilience.OPEN_PROPERTY, String.valueOf( OPEN ) );
+        System.setProperty( Resilience.STALE_PROPERTY, "900" );
+        Resilience.reset();
+        Tenants.set( "HOME" );
+        final ReviewMgr direct = manager( ReviewMgr.class );
+        final ReviewMgr wrapped = Resilience.wrap( ReviewMgr.class, direct );
+        final User query = new User( "user" );
+
+        // healthy directory
+        long plain = time( direct, query, 20000 );
+        long guarded = time( wrapped, query, 20000 );
+        System.out.println( String.format( "healthy: direct %d us/call, wrapped %d us/call", plain, guarded ) );
+        check( "healthy call is fresh", Resilience.getOutcome() == Resilience.Outcome.FRESH );
+
+        // stalled directory, every thread asks for the same search as a page of the user list would
+        latency = stall;
+        long[] unwrapped = storm( direct, query, threads, 1 );
+        System.out.println( String.format( "stalled, direct: %d calls, mean %d ms, max %d ms, %d at once", unwrapped[0],
+            unwrapped[1], unwrapped[2], MAX_IN_PROGRESS.get() ) );
+        MAX_IN_PROGRESS.set( 0 );
+        long[] stalled = storm( wrapped, query, threads, 5 );
+        System.out.println( String.format( "stalled, wrapped: %d calls, mean %d ms, max %d ms (first of each thread "
+            + "%d ms, others %d ms), %d at once, %d stale, %d unavailable, breaker %s", stalled[0], stalled[1],
+            stalled[2], stalled[5], stalled[6], MAX_IN_PROGRESS.get(), stalled[3], stalled[4], Resilience.getState(
+            OPERATION ) ) );
+        // a caller waits for a permit, then for the deadline, the first calls also pay for the cold jvm
+        check( "callers wait no longer than the bulkhead and deadline", stalled[6] < TIMEOUT + 100 + 100 );
+        check( "no more calls reach the directory than the bulkhead", MAX_IN_PROGRESS.get() <= BULKHEAD );
+        check( "every call is answered from the copy", stalled[3] == stalled[0] );
+        check( "breaker open", "OPEN".equals( Resilience.getState( OPERATION ) ) );
+
+        // a copy can't be changed by the caller, and the request is told it is stale
+        Resilience.clear();
+        List<User> copy = wrapped.findUsers( query );
+        int size = copy.size();
+        copy.clear();
+        check( "copy isolated", wrapped.findUsers( query ).size() == size && size > 0 );
+        check( "stale outcome", Resilience.getOutcome() == Resilience.Outcome.STALE );
+        System.out.println( "notice: " + Resilience.getNotice() );
+        Resilience.clear();
+        boolean unavailable = false;
+        try
+        {
+            wrapped.findUsers( new User( "never searched" ) );
+        }
+        catch ( SecurityException e )
+        {
+            unavailable = e.getErrorId() == GlobalIds.MANAGER_UNAVAILABLE;
+        }
+        check( "search without a copy unavailable", unavailable );
+
+        // recovery: once the abandoned calls are over and the breaker was open long enough a trial call closes it
+        latency = 0;
+        Thread.sleep( Math.max( stall, OPEN ) + 200 );
+        Resilience.clear();
+        wrapped.findUsers( query );
+        check( "breaker closed after recovery", "CLOSED".equals( Resilience.getState( OPERATION ) )
+            && Resilience.getOutcome() == Resilience.Outcome.FRESH );
+
+        // a user that doesn't exist is an answer
+        failure = new FinderException( 1001, "not found" );
+        int notFound = 0;
+        for ( int i = 0; i < 20; i++ )
+        {
+            try
+            {
+                wrapped.readUser( query );
+            }
+            catch ( FinderException e )
+            {
+                notFound++;
+            }
+        }
+        check( "not found rethrown, breaker closed", notFound == 20 && "CLOSED".equals( Resilience.getState(
+            "ReviewMgr.readUser" ) ) );
+        failure = new SecurityException( 1002, "connection lost", new java.io.IOException( "reset" ) );
+        for ( int i = 0; i < 5; i++ )
+        {
+            try
+            {
+                wrapped.readUser( query );
+            }
+            catch ( SecurityException e )
+            {
+                // expected
+            }
+        }
+        check( "lost connection opens the breaker", "OPEN".equals( Resilience.getState( "ReviewMgr.readUser" ) ) );
+        failure = null;
+
+        // a slow write is waited for rather than reported as failed while it may still complete
+        latency = TIMEOUT * 2;
+        AdminMgr admin = Resilience.wrap( AdminMgr.class, manager( AdminMgr.class ) );
+        Resilience.clear();
+        long start = System.currentTimeMillis();
+        admin.addUser( query );
+        long waited = System.currentTimeMillis() - start;
+        System.out.println( "slow write completed after " + waited + " ms" );
+        check( "slow write completes past the deadline", waited >= latency && Resilience.getOutcome() == Resilience
+            .Outcome.FRESH );
+
+        // a write that fails fails as it did, nothing is made up for it, and once the breaker opens it isn't called
+        latency = 0;
+        failure = new SecurityException( 1002, "connection lost", new java.io.IOException( "reset" ) );
+        int lost = 0;
+        for ( int i = 0; i < 5; i++ )
+        {
+            try
+            {
+                admin.addUser( query );
+            }
+            catch ( SecurityException e )
+            {
+                lost += e.getErrorId() == 1002 ? 1 : 0;
+            }
+        }
+        int id = 0;
+        try
+        {
+            admin.addUser( query );
+        }
+        catch ( SecurityException e )
+        {
+            id = e.getErrorId();
+        }
+        failure = null;
+        check( "failed write rethrown, then unavailable", lost == 5 && id == GlobalIds.MANAGER_UNAVAILABLE
+            && Resilience.getOutcome() == Resilience.Outcome.UNAVAILABLE );
+
+        System.out.println( failures == 0 ? "all checks passed" : failures + " checks FAILED" );
+        System.exit( failures == 0 ? 0 : 1 );
+    }
+
+
+    private static void check( String name, boolean ok )
+    {
+        System.out.println( name + ": " + ( ok ? "ok" : "FAILED" ) );
+        failures += ok ? 0 : 1;
+    }
+
+
+    private static long time( ReviewMgr manager, User query, int calls ) throws SecurityException
+    {
+        for ( int round = 0; round < 2; round++ )
+        {
+            long start = System.nanoTime();
+            for ( int i = 0; i < calls; i++ )
+            {
+                manager.findUsers( query );
+            }
+            if ( round == 1 )
+            {
+                return ( System.nanoTime() - start ) / calls / 1000;
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * @return calls, mean and max ms per call, calls answered from a copy, calls unavailable, max ms of the first call
+     * of each thread and of the others.
+     */
+    private static long[] storm( final ReviewMgr manager, final User query, int threads, final int calls )
+        throws InterruptedException
+    {
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong first = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+        final AtomicInteger stale = new AtomicInteger();
+        final AtomicInteger unavailable = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch( threads );
+        for ( int t = 0; t < threads; t++ )
+        {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    Tenants.set( "HOME" );
+                    for ( int i = 0; i < calls; i++ )
+                    {
+                        Resilience.clear();
+                        long start = System.currentTimeMillis();
+                        try
+                        {
+                            manager.findUsers( query );
+                            if ( Resilience.getOutcome() == Resilience.Outcome.STALE )
+                            {
+                                stale.incrementAndGet();
+                            }
+                        }
+                        catch ( SecurityException e )
+                        {
+                            unavailable.incrementAndGet();
+                        }
+                        long elapsed = System.currentTimeMillis() - start;
+                        total.addAndGet( elapsed );
+                        AtomicLong slowest = i == 0 ? first : max;
+                        long previous = slowest.get();
+                        while ( elapsed > previous && !slowest.compareAndSet( previous, elapsed ) )
+                        {
+                            previous = slowest.get();
+                        }
+                    }
+                    done.countDown();
+                }
+            };
+            thread.start();
+        }
+        done.await();
+        long count = ( long ) threads * calls;
+        return new long[] { count, total.get() / count, Math.max( first.get(), max.get() ), stale.get(),
+            unavailable.get(), first.get(), max.get() };
+    }
+
+
+    /**
+     * @return a stand-in for the manager, its searches return 50 users after {@link #latency} ms or throw
+     * {@link #failure}.
+     */
+    private static <T> T manager( Class<T> type )
+    {
+        return type.cast( Proxy.newProxyInstance( type.getClassLoader(), new Class<?>[] { type },
+            new InvocationHandler()
+        {
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+            {
+                if ( method.getDeclaringClass() == Object.class )
+                {
+                    return method.getName().equals( "hashCode" ) ? System.identityHashCode( proxy ) : method
+                        .getName().equals( "equals" ) ? proxy == args[0] : "stand-in";
+                }
+                if ( method.getReturnType() == void.class )
+                {
+                    return null;
+                }
+                int now = IN_PROGRESS.incrementAndGet();
+                int previous = MAX_IN_PROGRESS.get();
+                while ( now > previous && !MAX_IN_PROGRESS.compareAndSet( previous, now ) )
+                {
+                    previous = MAX_IN_PROGRESS.get();
+                }
+                try
+                {
+                    if ( latency > 0 )
+                    {
+                        Thread.sleep( latency );
+                    }
+                    if ( failure != null )
+                    {
+                        throw failure;
+                    }
+                    if ( method.getReturnType() == List.class )
+                    {
+                        List<User> users = new ArrayList<>();
+                        for ( int i = 0; i < 50; i++ )
+                        {
+                            User user = new User( "user" + i );
+                            user.setOu( "dev" + i % 5 );
+                            user.setDescription( "help desk user" );
+                            users.add( user );
+                        }
+                        return users;
+                    }
+                    return method.getReturnType() == User.class ? new User( "user" ) : null;
+                }
+                finally
+                {
+                    IN_PROGRESS.decrementAndGet();
+                }
+            }
+        } ) );
+    }
+}
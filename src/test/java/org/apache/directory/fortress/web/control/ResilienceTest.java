@@ -0,0 +1,429 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directory.fortress.core.AccessMgr;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.FinderException;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * {@link Resilience} breaker states, copies, writes and the calls of the access manager, with stub managers.  Every property is set as a system
+ * property so fortress.properties and the remote configuration aren't read.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class ResilienceTest
+{
+    private static final long TIMEOUT = 200;
+    private static final long OPEN = 300;
+    private static final int FAILURES = 3;
+    private static final String FIND = "ReviewMgr.findUsers";
+    private static final String ADD = "AdminMgr.addUser";
+    private static final String ACTIVATE = "AccessMgr.addActiveRole";
+    private static final String CHECK = "AccessMgr.checkAccess";
+    private final Map<String, String> previous = new HashMap<>();
+    private volatile long latency;
+    private volatile Exception failure;
+    private int calls;
+    private volatile Thread caller;
+    private String previousTenant;
+    private ReviewMgr reviewMgr;
+    private AdminMgr adminMgr;
+    private AccessMgr accessMgr;
+
+
+    @Before
+    public void setUp()
+    {
+        set( Resilience.ENABLE_PROPERTY, "true" );
+        set( Resilience.TIMEOUT_PROPERTY, String.valueOf( TIMEOUT ) );
+        for ( String name : new String[]
+            { "ReviewMgr", FIND, "AdminMgr", ADD, "AccessMgr", ACTIVATE, CHECK } )
+        {
+            set( Resilience.TIMEOUT_PROPERTY + "." + name, String.valueOf( TIMEOUT ) );
+        }
+        set( Resilience.BULKHEAD_PROPERTY, String.valueOf( FAILURES * 2 ) );
+        set( Resilience.BULKHEAD_WAIT_PROPERTY, "50" );
+        set( Resilience.WORKERS_PROPERTY, String.valueOf( FAILURES * 2 ) );
+        set( Resilience.FAILURES_PROPERTY, String.valueOf( FAILURES ) );
+        set( Resilience.OPEN_PROPERTY, String.valueOf( OPEN ) );
+        set( Resilience.STALE_PROPERTY, "900" );
+        set( Resilience.STALE_REFRESH_PROPERTY, "60" );
+        set( Resilience.STALE_BYTES_PROPERTY, "1048576" );
+        Resilience.reset();
+        previousTenant = Tenants.set( "resilienceTest" );
+        reviewMgr = Resilience.wrap( ReviewMgr.class, stub( ReviewMgr.class ) );
+        adminMgr = Resilience.wrap( AdminMgr.class, stub( AdminMgr.class ) );
+        accessMgr = Resilience.wrap( AccessMgr.class, stub( AccessMgr.class ) );
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        for ( Map.Entry<String, String> entry : previous.entrySet() )
+        {
+            if ( entry.getValue() != null )
+            {
+                System.setProperty( entry.getKey(), entry.getValue() );
+            }
+            else
+            {
+                System.clearProperty( entry.getKey() );
+            }
+        }
+        Resilience.reset();
+        Tenants.set( previousTenant );
+    }
+
+
+    @Test
+    public void testClosedUntilThreshold() throws Exception
+    {
+        failure = lostConnection();
+        for ( int i = 0; i < FAILURES - 1; i++ )
+        {
+            assertUnavailable( FIND );
+            assertEquals( "CLOSED", Resilience.getState( FIND ) );
+        }
+        failure = null;
+        reviewMgr.findUsers( new User( "user" ) );
+        failure = lostConnection();
+        // the success started the count over
+        for ( int i = 0; i < FAILURES - 1; i++ )
+        {
+            assertUnavailable( FIND );
+        }
+        assertEquals( "CLOSED", Resilience.getState( FIND ) );
+        assertUnavailable( FIND );
+        assertEquals( "OPEN", Resilience.getState( FIND ) );
+    }
+
+
+    @Test
+    public void testOpenDoesNotCall() throws Exception
+    {
+        open();
+        int before = calls;
+        assertUnavailable( FIND );
+        assertEquals( before, calls );
+        assertEquals( Resilience.Outcome.UNAVAILABLE, Resilience.getOutcome() );
+    }
+
+
+    @Test
+    public void testTrialCallCloses() throws Exception
+    {
+        open();
+        failure = null;
+        Thread.sleep( OPEN + 50 );
+        reviewMgr.findUsers( new User( "user" ) );
+        assertEquals( "CLOSED", Resilience.getState( FIND ) );
+    }
+
+
+    @Test
+    public void testFailedTrialCallOpensAgain() throws Exception
+    {
+        open();
+        Thread.sleep( OPEN + 50 );
+        int before = calls;
+        assertUnavailable( FIND );
+        assertEquals( before + 1, calls );
+        assertEquals( "OPEN", Resilience.getState( FIND ) );
+        assertUnavailable( FIND );
+        assertEquals( before + 1, calls );
+    }
+
+
+    @Test
+    public void testMissedDeadlineFails() throws Exception
+    {
+        latency = TIMEOUT * 2;
+        for ( int i = 0; i < FAILURES; i++ )
+        {
+            assertUnavailable( FIND );
+        }
+        assertEquals( "OPEN", Resilience.getState( FIND ) );
+    }
+
+
+    @Test
+    public void testAnswerIsNotFailure() throws Exception
+    {
+        failure = new FinderException( 1001, "not found" );
+        for ( int i = 0; i < FAILURES * 2; i++ )
+        {
+            try
+            {
+                reviewMgr.findUsers( new User( "user" ) );
+                fail( "not found" );
+            }
+            catch ( FinderException e )
+            {
+                assertSame( failure, e );
+            }
+        }
+        assertEquals( "CLOSED", Resilience.getState( FIND ) );
+    }
+
+
+    @Test
+    public void testOpenAnswersFromCopy() throws Exception
+    {
+        User query = new User( "user" );
+        List<User> fresh = reviewMgr.findUsers( query );
+        assertEquals( Resilience.Outcome.FRESH, Resilience.getOutcome() );
+        open();
+        Resilience.clear();
+        int before = calls;
+        List<User> copy = reviewMgr.findUsers( query );
+        assertEquals( before, calls );
+        assertEquals( fresh.size(), copy.size() );
+        assertEquals( fresh.get( 0 ).getUserId(), copy.get( 0 ).getUserId() );
+        assertEquals( Resilience.Outcome.STALE, Resilience.getOutcome() );
+    }
+
+
+    @Test
+    public void testWriteHasNoDeadline() throws Exception
+    {
+        latency = TIMEOUT * 2;
+        long start = System.currentTimeMillis();
+        assertNull( adminMgr.addUser( new User( "user" ) ) );
+        assertEquals( true, System.currentTimeMillis() - start >= latency );
+        assertEquals( "CLOSED", Resilience.getState( ADD ) );
+        assertEquals( Resilience.Outcome.FRESH, Resilience.getOutcome() );
+    }
+
+
+    @Test
+    public void testFailedWriteRethrown() throws Exception
+    {
+        failure = lostConnection();
+        for ( int i = 0; i < FAILURES; i++ )
+        {
+            try
+            {
+                adminMgr.addUser( new User( "user" ) );
+                fail( "lost connection" );
+            }
+            catch ( SecurityException e )
+            {
+                assertSame( failure, e );
+            }
+        }
+        assertEquals( "OPEN", Resilience.getState( ADD ) );
+        int before = calls;
+        assertUnavailable( ADD );
+        assertEquals( before, calls );
+    }
+
+
+    @Test
+    public void testSessionChangeOnRequestThread() throws Exception
+    {
+        latency = TIMEOUT * 2;
+        Session session = new Session();
+        accessMgr.addActiveRole( session, new UserRole( "role1" ) );
+        // done by the time it returns, on this thread, nothing left running to change the session later
+        assertSame( Thread.currentThread(), caller );
+        assertEquals( 1, session.getRoles().size() );
+        assertEquals( "CLOSED", Resilience.getState( ACTIVATE ) );
+        assertEquals( Resilience.Outcome.FRESH, Resilience.getOutcome() );
+    }
+
+
+    @Test
+    public void testAccessCheckNotAnsweredFromCopy() throws Exception
+    {
+        Session session = new Session();
+        Permission permission = new Permission( "Account", "read" );
+        assertEquals( true, accessMgr.checkAccess( session, permission ) );
+        assertSame( Thread.currentThread(), caller );
+        failure = lostConnection();
+        for ( int i = 0; i < FAILURES; i++ )
+        {
+            try
+            {
+                accessMgr.checkAccess( session, permission );
+                fail( "lost connection" );
+            }
+            catch ( SecurityException e )
+            {
+                assertSame( failure, e );
+            }
+        }
+        assertEquals( "OPEN", Resilience.getState( CHECK ) );
+        try
+        {
+            accessMgr.checkAccess( session, permission );
+            fail( "breaker open" );
+        }
+        catch ( SecurityException e )
+        {
+            assertEquals( GlobalIds.MANAGER_UNAVAILABLE, e.getErrorId() );
+        }
+    }
+
+
+    @Test
+    public void testLoginHasNoBreaker() throws Exception
+    {
+        failure = lostConnection();
+        for ( int i = 0; i < FAILURES * 2; i++ )
+        {
+            try
+            {
+                accessMgr.createSession( new User( "user" ), true );
+                fail( "lost connection" );
+            }
+            catch ( SecurityException e )
+            {
+                assertSame( failure, e );
+            }
+        }
+        assertEquals( FAILURES * 2, calls );
+        assertEquals( "CLOSED", Resilience.getState( "AccessMgr.createSession" ) );
+        assertEquals( "CLOSED", Resilience.getState( CHECK ) );
+    }
+
+
+    /**
+     * Fail the search until its breaker opens, the failure is left in place.
+     */
+    private void open() throws Exception
+    {
+        failure = lostConnection();
+        for ( int i = 0; i < FAILURES; i++ )
+        {
+            assertUnavailable( FIND );
+        }
+        assertEquals( "OPEN", Resilience.getState( FIND ) );
+    }
+
+
+    /**
+     * Call the operation with arguments it never answered, so there is no copy to fall back on.
+     */
+    private void assertUnavailable( String operation ) throws Exception
+    {
+        try
+        {
+            if ( operation.equals( ADD ) )
+            {
+                adminMgr.addUser( new User( "uncopied" ) );
+            }
+            else
+            {
+                reviewMgr.findUsers( new User( "uncopied" ) );
+            }
+            fail( operation + " answered" );
+        }
+        catch ( SecurityException e )
+        {
+            assertEquals( GlobalIds.MANAGER_UNAVAILABLE, e.getErrorId() );
+        }
+    }
+
+
+    private static SecurityException lostConnection()
+    {
+        return new SecurityException( 1002, "connection lost", new IOException( "reset" ) );
+    }
+
+
+    private void set( String name, String value )
+    {
+        if ( !previous.containsKey( name ) )
+        {
+            previous.put( name, System.getProperty( name ) );
+        }
+        System.setProperty( name, value );
+    }
+
+
+    private <T> T stub( Class<T> type )
+    {
+        return type.cast( Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[]
+            { type }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args ) throws Exception
+                {
+                    if ( method.getDeclaringClass() == Object.class )
+                    {
+                        return method.getName().equals( "hashCode" ) ? System.identityHashCode( proxy ) : method
+                            .getName().equals( "equals" ) ? proxy == args[0] : type.getSimpleName();
+                    }
+                    synchronized ( ResilienceTest.this )
+                    {
+                        calls++;
+                    }
+                    caller = Thread.currentThread();
+                    if ( latency > 0 )
+                    {
+                        Thread.sleep( latency );
+                    }
+                    if ( failure != null )
+                    {
+                        throw failure;
+                    }
+                    if ( method.getName().equals( "addActiveRole" ) )
+                    {
+                        ( ( Session ) args[0] ).setRole( ( UserRole ) args[1] );
+                    }
+                    if ( method.getReturnType() == List.class )
+                    {
+                        return new ArrayList<>( Collections.singletonList( new User( "user0" ) ) );
+                    }
+                    return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+                }
+            } ) );
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.directory.fortress.core.model.Role;
+
+
+/**
+ * Standalone benchmark of {@link RoleClosure} over a synthetic hierarchy, no directory server required.  By default
+ * it builds 100,000 roles as a tree with a fan out of ten where one role in twenty has a second parent, then times the
+ * build, the queries and the incremental updates.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.RoleClosureBenchmark [roles] [fanout]
+ */
+public class RoleClosureBenchmark
+{
+    private static final int QUERIES = 1000000;
+    private static final int UPDATES = 1000;
+
+
+    public static void main( String[] args )
+    {
+        int size = args.length > 0 ? Integer.parseInt( args[0] ) : 100000;
+        int fanout = args.length > 1 ? Integer.parseInt( args[1] ) : 10;
+        Random random = new Random( 42 );
+        List<Role> roles = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            Role role = new Role( "role" + i );
+            if ( i > 0 )
+            {
+                role.setParent( "role" + ( ( i - 1 ) / fanout ) );
+                if ( i % 20 == 0 )
+                {
+                    // a second parent with a lower number keeps the hierarchy acyclic
+                    role.setParent( "role" + random.nextInt( i ) );
+                }
+            }
+            roles.add( role );
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        RoleClosure closure = new RoleClosure( roles );
+        long elapsed = System.nanoTime() - start;
+        System.gc();
+        heap = runtime.totalMemory() - runtime.freeMemory() - heap;
+        print( "build " + size + " roles, fanout " + fanout, elapsed, 1 );
+        System.out.println( "approximate heap used by the index: " + heap / 1024 + " KB" );
+
+        // warm up before timing the queries
+        query( closure, size, random, QUERIES );
+        start = System.nanoTime();
+        int hits = query( closure, size, random, QUERIES );
+        print( "isAscendant, " + hits + " hits", System.nanoTime() - start, QUERIES );
+
+        start = System.nanoTime();
+        int cycles = 0;
+        for ( int i = 0; i < QUERIES; i++ )
+        {
+            if ( closure.createsCycle( "role" + random.nextInt( size ), "role" + random.nextInt( size ) ) )
+            {
+                cycles++;
+            }
+        }
+        print( "createsCycle, " + cycles + " cycles", System.nanoTime() - start, QUERIES );
+
+        start = System.nanoTime();
+        long total = 0;
+        for ( int i = 0; i < UPDATES; i++ )
+        {
+            total += closure.getAscendants( "role" + random.nextInt( size ) ).size();
+        }
+        print( "getAscendants, " + total / UPDATES + " on average", System.nanoTime() - start, UPDATES );
+
+        start = System.nanoTime();
+        total = 0;
+        for ( int i = 0; i < UPDATES; i++ )
+        {
+            total += closure.getDescendants( "role" + random.nextInt( size / fanout ) ).size();
+        }
+        print( "getDescendants of inner roles, " + total / UPDATES + " on average", System.nanoTime() - start,
+            UPDATES );
+
+        start = System.nanoTime();
+        for ( int i = 0; i < UPDATES; i++ )
+        {
+            int child = size / 2 + random.nextInt( size / 2 );
+            String parent = "role" + random.nextInt( size / 2 );
+            closure.addParent( "role" + child, parent );
+            closure.removeParent( "role" + child, parent );
+        }
+        print( "addParent + removeParent on a leaf", System.nanoTime() - start, UPDATES );
+
+        start = System.nanoTime();
+        for ( int i = 0; i < UPDATES; i++ )
+        {
+            String name = "bench" + i;
+            closure.addRole( name, roles.get( random.nextInt( size ) ).getParents() );
+            closure.deleteRole( name );
+        }
+        print( "addRole + deleteRole", System.nanoTime() - start, UPDATES );
+    }
+
+
+    private static int query( RoleClosure closure, int size, Random random, int count )
+    {
+        int hits = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( closure.isAscendant( "role" + random.nextInt( size ), "role" + random.nextInt( size ) ) )
+            {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+
+    private static void print( String label, long nanos, int count )
+    {
+        System.out.println( label + ": " + nanos / 1000000 + " ms total, " + nanos / count + " ns/op" );
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.directory.fortress.core.model.Role;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Ascendants and descendants of {@link RoleClosure} over a small hierarchy, before and after incremental updates:
+ * <pre>
+ *       Top
+ *      /   \
+ *   Left   Right
+ *      \   /
+ *      Bottom
+ *        |
+ *       Leaf     Other
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class RoleClosureTest
+{
+    private RoleClosure closure;
+
+
+    @Before
+    public void setUp()
+    {
+        List<Role> roles = new ArrayList<>();
+        roles.add( role( "Top" ) );
+        roles.add( role( "Left", "Top" ) );
+        roles.add( role( "Right", "Top" ) );
+        roles.add( role( "Bottom", "Left", "Right" ) );
+        roles.add( role( "Leaf", "Bottom" ) );
+        roles.add( role( "Other" ) );
+        closure = new RoleClosure( roles );
+    }
+
+
+    @Test
+    public void ascendantsAndDescendants()
+    {
+        assertEquals( 6, closure.size() );
+        assertEquals( names( "Left", "Right", "Top", "Bottom" ), closure.getAscendants( "Leaf" ) );
+        assertEquals( names( "Left", "Right", "Bottom", "Leaf" ), closure.getDescendants( "Top" ) );
+        assertEquals( names( "Left", "Right" ), closure.getParents( "Bottom" ) );
+        assertEquals( names( "Bottom" ), closure.getChildren( "Right" ) );
+        assertEquals( names(), closure.getAscendants( "Other" ) );
+        assertEquals( names(), closure.getDescendants( "Leaf" ) );
+    }
+
+
+    @Test
+    public void namesAreCaseInsensitive()
+    {
+        assertTrue( closure.contains( "LEAF" ) );
+        assertTrue( closure.isAscendant( "top", "leaf" ) );
+        assertEquals( names( "Bottom", "Leaf" ), closure.getDescendants( "RIGHT" ) );
+    }
+
+
+    @Test
+    public void isAscendant()
+    {
+        assertTrue( closure.isAscendant( "Top", "Leaf" ) );
+        assertTrue( closure.isAscendant( "Left", "Bottom" ) );
+        assertFalse( closure.isAscendant( "Leaf", "Top" ) );
+        assertFalse( closure.isAscendant( "Left", "Right" ) );
+        assertFalse( closure.isAscendant( "Top", "Top" ) );
+        assertFalse( closure.isAscendant( "Other", "Leaf" ) );
+        assertFalse( closure.isAscendant( "Missing", "Leaf" ) );
+    }
+
+
+    @Test
+    public void createsCycle()
+    {
+        assertTrue( closure.createsCycle( "Top", "Leaf" ) );
+        assertTrue( closure.createsCycle( "Left", "Left" ) );
+        assertFalse( closure.createsCycle( "Leaf", "Top" ) );
+        assertFalse( closure.createsCycle( "Other", "Leaf" ) );
+        assertFalse( closure.addParent( "Top", "Bottom" ) );
+        assertEquals( names(), closure.getAscendants( "Top" ) );
+    }
+
+
+    @Test
+    public void removeOneOfTwoPaths()
+    {
+        closure.removeParent( "Bottom", "Left" );
+        assertEquals( names( "Right", "Top", "Bottom" ), closure.getAscendants( "Leaf" ) );
+        assertEquals( names(), closure.getDescendants( "Left" ) );
+        assertTrue( closure.isAscendant( "Top", "Leaf" ) );
+
+        closure.removeParent( "Bottom", "Right" );
+        assertEquals( names( "Bottom" ), closure.getAscendants( "Leaf" ) );
+        assertEquals( names( "Left", "Right" ), closure.getDescendants( "Top" ) );
+    }
+
+
+    @Test
+    public void addParent()
+    {
+        assertTrue( closure.addParent( "Top", "Other" ) );
+        assertEquals( names( "Top", "Left", "Right", "Bottom", "Leaf" ), closure.getDescendants( "Other" ) );
+        assertTrue( closure.isAscendant( "Other", "Leaf" ) );
+    }
+
+
+    @Test
+    public void addAndDeleteRole()
+    {
+        closure.addRole( "New", names( "Leaf", "Other" ) );
+        assertEquals( 7, closure.size() );
+        assertEquals( names( "Left", "Right", "Top", "Bottom", "Leaf", "Other" ), closure.getAscendants( "New" ) );
+        assertTrue( closure.getDescendants( "Top" ).contains( "New" ) );
+
+        closure.deleteRole( "Bottom" );
+        assertFalse( closure.contains( "Bottom" ) );
+        assertEquals( names( "Leaf", "Other" ), closure.getAscendants( "New" ) );
+        assertEquals( names( "Left", "Right" ), closure.getDescendants( "Top" ) );
+    }
+
+
+    @Test
+    public void setParents()
+    {
+        assertTrue( closure.setParents( "Bottom", names( "Other" ) ) );
+        assertEquals( names( "Other", "Bottom" ), closure.getAscendants( "Leaf" ) );
+        assertEquals( names( "Left", "Right" ), closure.getDescendants( "Top" ) );
+        assertFalse( closure.setParents( "Missing", names( "Top" ) ) );
+    }
+
+
+    private static Role role( String name, String... parents )
+    {
+        Role role = new Role( name );
+        for ( String parent : parents )
+        {
+            role.setParent( parent );
+        }
+        return role;
+    }
+
+
+    private static Set<String> names( String... names )
+    {
+        Set<String> result = new HashSet<>();
+        Collections.addAll( result, names );
+        return result;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.directory.fortress.core.AccessMgr;
+import org.apache.directory.fortress.core.DelAccessMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.wicket.Component;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ * {@link SecUtils} role activation changes to the permissions cached in the wicket session: merged from the indexes
+ * while they are unchanged since the permissions were read, read again from the directory once they changed.  The
+ * directory is a stub answering from the same roles and permissions the indexes are loaded from.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class SecUtilsTest
+{
+    private final List<Role> roles = new ArrayList<>();
+    private final List<Permission> perms = new ArrayList<>();
+    private int reads;
+    private String previousTenant;
+    private WicketTester tester;
+    private Component component;
+    private AccessMgr accessMgr;
+
+
+    @BeforeClass
+    public static void loadLocalConfig() throws Exception
+    {
+        // Config.getInstance always reads the remote config from the directory, make it skip that
+        Constructor<Config> constructor = Config.class.getDeclaredConstructor();
+        constructor.setAccessible( true );
+        Config config = constructor.newInstance();
+        Field field = Config.class.getDeclaredField( "remoteConfigLoaded" );
+        field.setAccessible( true );
+        field.set( config, true );
+        field = Config.class.getDeclaredField( "sINSTANCE" );
+        field.setAccessible( true );
+        field.set( null, config );
+        config.setProperty( "perms.cached", "true" );
+    }
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        assertTrue( SecUtils.IS_PERM_CACHED );
+        previousTenant = Tenants.set( "secUtilsTest" );
+        PermissionClosure.invalidate( false );
+        RoleClosure.invalidate( false );
+        roles.add( new Role( "Teller" ) );
+        roles.add( new Role( "Washer" ) );
+        perms.add( perm( "Account", "deposit", "Teller" ) );
+        perms.add( perm( "Currency", "wash", "Washer" ) );
+        perms.add( perm( "Account", "inquiry", "Teller", "Washer" ) );
+        ReviewMgr reviewMgr = stub( ReviewMgr.class );
+        accessMgr = stub( AccessMgr.class );
+        RoleClosure.getInstance( false, reviewMgr, null );
+        PermissionClosure.getInstance( false, reviewMgr );
+
+        tester = new WicketTester( new MockApplication()
+        {
+            @Override
+            public org.apache.wicket.Session newSession( Request request, Response response )
+            {
+                return new WicketSession( request );
+            }
+        } );
+        component = new WebMarkupContainer( "component" );
+        Session session = new Session();
+        session.setUserId( "user" );
+        session.setRole( new UserRole( "user", "Teller" ) );
+        SecUtils.loadPermissionsIntoSession( stub( DelAccessMgr.class ), session );
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        tester.destroy();
+        PermissionClosure.invalidate( false );
+        RoleClosure.invalidate( false );
+        Tenants.set( previousTenant );
+    }
+
+
+    @Test
+    public void toggleMergesFromIndexes()
+    {
+        assertEquals( 1, reads );
+        assertEquals( names( "Account.deposit", "Account.inquiry" ), cached() );
+        assertTrue( SecUtils.addActiveRole( component, null, accessMgr, "Washer" ) );
+        assertEquals( names( "Account.deposit", "Account.inquiry", "Currency.wash" ), cached() );
+        assertTrue( SecUtils.dropActiveRole( component, null, accessMgr, "Teller" ) );
+        assertEquals( names( "Account.inquiry", "Currency.wash" ), cached() );
+        assertTrue( SecUtils.addActiveRole( component, null, accessMgr, "Teller" ) );
+        assertEquals( names( "Account.deposit", "Account.inquiry", "Currency.wash" ), cached() );
+        // nothing read from the directory after login
+        assertEquals( 1, reads );
+    }
+
+
+    @Test
+    public void changedIndexReadsOnceThenMerges()
+    {
+        Permission granted = perm( "Currency", "count", "Washer" );
+        perms.add( granted );
+        PermissionClosure.getLoaded( false ).setPermission( granted, RoleClosure.getLoaded( false ) );
+        assertTrue( SecUtils.addActiveRole( component, null, accessMgr, "Washer" ) );
+        assertEquals( 2, reads );
+        assertEquals( names( "Account.deposit", "Account.inquiry", "Currency.count", "Currency.wash" ), cached() );
+        assertTrue( SecUtils.dropActiveRole( component, null, accessMgr, "Washer" ) );
+        assertEquals( names( "Account.deposit", "Account.inquiry" ), cached() );
+        assertEquals( 2, reads );
+    }
+
+
+    @Test
+    public void unloadedIndexesRead()
+    {
+        PermissionClosure.invalidate( false );
+        assertTrue( SecUtils.addActiveRole( component, null, accessMgr, "Washer" ) );
+        assertTrue( SecUtils.dropActiveRole( component, null, accessMgr, "Washer" ) );
+        assertEquals( 3, reads );
+        assertEquals( names( "Account.deposit", "Account.inquiry" ), cached() );
+    }
+
+
+    private Set<String> cached()
+    {
+        Set<String> names = new TreeSet<>();
+        for ( Permission perm : SecUtils.getPermissions( component ) )
+        {
+            names.add( perm.getObjName() + "." + perm.getOpName() );
+        }
+        return names;
+    }
+
+
+    private static Set<String> names( String... names )
+    {
+        Set<String> set = new TreeSet<>();
+        for ( String name : names )
+        {
+            set.add( name );
+        }
+        return set;
+    }
+
+
+    private static Permission perm( String objName, String opName, String... roleNames )
+    {
+        Permission perm = new Permission( objName, opName );
+        for ( String roleName : roleNames )
+        {
+            perm.setRole( roleName );
+        }
+        return perm;
+    }
+
+
+    /**
+     * @return the permissions granted to the active roles of the session.
+     */
+    private List<Permission> sessionPermissions( Session session )
+    {
+        reads++;
+        List<Permission> granted = new ArrayList<>();
+        for ( Permission perm : perms )
+        {
+            for ( UserRole role : session.getRoles() )
+            {
+                if ( perm.getRoles().contains( role.getName() ) )
+                {
+                    granted.add( perm );
+                    break;
+                }
+            }
+        }
+        return granted;
+    }
+
+
+    private <T> T stub( Class<T> type )
+    {
+        return type.cast( Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[]
+            { type }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    switch ( method.getName() )
+                    {
+                        case "findRoles":
+                            return new ArrayList<>( roles );
+                        case "findPermissions":
+                            return new ArrayList<>( perms );
+                        case "sessionPermissions":
+                            return sessionPermissions( ( Session ) args[0] );
+                        case "addActiveRole":
+                            ( ( Session ) args[0] ).setRole( ( UserRole ) args[1] );
+                            return null;
+                        case "dropActiveRole":
+                            Iterator<UserRole> active = ( ( Session ) args[0] ).getRoles().iterator();
+                            while ( active.hasNext() )
+                            {
+                                if ( active.next().getName().equals( ( ( UserRole ) args[1] ).getName() ) )
+                                {
+                                    active.remove();
+                                }
+                            }
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException( method.getName() );
+                    }
+                }
+            } ) );
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * {@link SessionBootstrap} runs the loader once per wicket session, and again after it failed or loaded nothing.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class SessionBootstrapTest
+{
+    private WicketTester tester;
+    private WicketSession wicketSession;
+
+
+    @Before
+    public void setUp()
+    {
+        tester = new WicketTester();
+        wicketSession = new WicketSession( tester.getRequestCycle().getRequest() );
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        tester.destroy();
+    }
+
+
+    @Test
+    public void loadedSessionIsShared() throws SecurityException
+    {
+        Session session = new Session();
+        Counter first = new Counter( session );
+        Counter second = new Counter( new Session() );
+        assertSame( session, SessionBootstrap.initialize( wicketSession, first ) );
+        assertSame( session, SessionBootstrap.initialize( wicketSession, second ) );
+        assertEquals( 1, first.loads );
+        assertEquals( 0, second.loads );
+    }
+
+
+    @Test
+    public void nothingLoadedIsTriedAgain() throws SecurityException
+    {
+        Counter empty = new Counter( null );
+        assertNull( SessionBootstrap.initialize( wicketSession, empty ) );
+        Session session = new Session();
+        Counter loaded = new Counter( session );
+        assertSame( session, SessionBootstrap.initialize( wicketSession, loaded ) );
+        assertEquals( 1, empty.loads );
+        assertEquals( 1, loaded.loads );
+    }
+
+
+    @Test
+    public void failureIsTriedAgain() throws SecurityException
+    {
+        try
+        {
+            SessionBootstrap.initialize( wicketSession, new SessionBootstrap.Loader()
+            {
+                @Override
+                public Session load() throws SecurityException
+                {
+                    throw new SecurityException( 1, "directory down" );
+                }
+            } );
+            fail( "directory down" );
+        }
+        catch ( SecurityException e )
+        {
+            assertEquals( "directory down", e.getMessage() );
+        }
+        Session session = new Session();
+        assertSame( session, SessionBootstrap.initialize( wicketSession, new Counter( session ) ) );
+    }
+
+
+    private static final class Counter implements SessionBootstrap.Loader
+    {
+        private final Session session;
+        private int loads;
+
+
+        Counter( Session session )
+        {
+            this.session = session;
+        }
+
+
+        @Override
+        public Session load()
+        {
+            loads++;
+            return session;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+
+
+/**
+ * Standalone benchmark of the replicated form of {@link WicketSession}, no directory server required.  It compares
+ * default serialization of a fortress session along with its permission list, as written before, with the compact
+ * form: the deflated session plus the encoded {@link PermissionSet}.  By default the user holds 20 roles and 5 admin
+ * roles with temporal constraints and 300 permissions.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.SessionSerializationBenchmark [roles] [permissions]
+ */
+public class SessionSerializationBenchmark
+{
+    private static final int ROUNDS = 2000;
+
+
+    public static void main( String[] args ) throws Exception
+    {
+        int roles = args.length > 0 ? Integer.parseInt( args[0] ) : 20;
+        int size = args.length > 1 ? Integer.parseInt( args[1] ) : 300;
+        Session session = createSession( roles );
+        List<Permission> perms = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            Permission perm = new Permission( "org.apache.directory.fortress.core.impl.Obj" + i / 10, "op" + i % 10 );
+            perm.setInternalId( "b7c1a3f0-0000-0000-0000-" + String.format( "%012d", i ) );
+            perm.setDescription( "permission " + i );
+            perm.setRole( "role" + i % roles );
+            perms.add( perm );
+        }
+        PermissionSet set = PermissionSet.intern( "bench|roles", perms );
+
+        // warm up
+        for ( int i = 0; i < ROUNDS; i++ )
+        {
+            writeDefault( session, perms );
+            WicketSession.encodeSession( session );
+        }
+
+        long start = System.nanoTime();
+        int bytes = 0;
+        for ( int i = 0; i < ROUNDS; i++ )
+        {
+            bytes = writeDefault( session, perms );
+        }
+        print( "default serialization", bytes, System.nanoTime() - start );
+
+        start = System.nanoTime();
+        int first = set.encode().length;
+        long encodeSet = System.nanoTime() - start;
+        start = System.nanoTime();
+        for ( int i = 0; i < ROUNDS; i++ )
+        {
+            // the set is encoded once and shared by every session holding it
+            bytes = WicketSession.encodeSession( session ).length + set.encode().length;
+        }
+        print( "compact form", bytes, System.nanoTime() - start );
+        System.out.println( "  of which permissions: " + first + " bytes, encoded once in " + encodeSet / 1000 +
+            " us" );
+
+        byte[] encoded = WicketSession.encodeSession( session );
+        byte[] encodedSet = set.encode();
+        for ( int i = 0; i < ROUNDS; i++ )
+        {
+            WicketSession.decodeSession( encoded );
+            PermissionSet.decode( encodedSet );
+        }
+        start = System.nanoTime();
+        for ( int i = 0; i < ROUNDS; i++ )
+        {
+            WicketSession.decodeSession( encoded );
+        }
+        long decodeSession = System.nanoTime() - start;
+        start = System.nanoTime();
+        for ( int i = 0; i < ROUNDS; i++ )
+        {
+            PermissionSet.decode( encodedSet );
+        }
+        System.out.println( "rehydrate on first use: session " + decodeSession / ROUNDS / 1000 +
+            " us, permissions " + ( System.nanoTime() - start ) / ROUNDS / 1000 + " us" );
+        Session decoded = WicketSession.decodeSession( encoded );
+        PermissionSet decodedSet = PermissionSet.decode( encodedSet );
+        System.out.println( "round trip: user=" + decoded.getUserId() + " roles=" + decoded.getRoles().size() +
+            " adminRoles=" + decoded.getAdminRoles().size() + " perms=" + decodedSet.size() + " shared=" + (
+            decodedSet == set ) );
+    }
+
+
+    private static Session createSession( int roles )
+    {
+        User user = new User( "bench.user" );
+        user.setInternalId( "4c9b2b8e-1f2d-4d1c-9a51-7d2f3c4b5a69" );
+        user.setOu( "dev0" );
+        user.setCn( "Bench User" );
+        user.setSn( "User" );
+        for ( int i = 0; i < roles; i++ )
+        {
+            UserRole role = new UserRole( user.getUserId(), "role" + i );
+            role.setBeginTime( "0000" );
+            role.setEndTime( "2359" );
+            role.setBeginDate( "20200101" );
+            role.setEndDate( "none" );
+            role.setDayMask( "1234567" );
+            role.setTimeout( 0 );
+            user.setRole( role );
+        }
+        for ( int i = 0; i < 5; i++ )
+        {
+            UserAdminRole role = new UserAdminRole( user.getUserId(), "adminrole" + i );
+            role.setBeginTime( "0000" );
+            role.setEndTime( "2359" );
+            role.setDayMask( "1234567" );
+            role.setOsP( "dev" + i );
+            role.setOsU( "dev" + i );
+            user.setAdminRole( role );
+        }
+        Session session = new Session( user, "3f2504e0-4f89-11d3-9a0c-0305e82c3301" );
+        session.setAuthenticated( true );
+        session.setLastAccess();
+        return session;
+    }
+
+
+    private static int writeDefault( Session session, List<Permission> perms ) throws IOException
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream( buffer ) )
+        {
+            out.writeObject( session );
+            out.writeObject( perms );
+        }
+        return buffer.size();
+    }
+
+
+    private static void print( String label, int bytes, long nanos )
+    {
+        System.out.println( label + ": " + bytes + " bytes/session, " + nanos / ROUNDS / 1000 + " us/session" );
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * {@link SsdIndex} checks and cache updates, with the sets served by a stub {@link ReviewMgr}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class SsdIndexTest
+{
+    private final List<SDSet> sets = new ArrayList<>();
+    private int loads;
+    private ReviewMgr reviewMgr;
+    private String previousTenant;
+
+
+    @Before
+    public void setUp()
+    {
+        previousTenant = Tenants.set( "ssdIndexTest" );
+        SsdIndex.invalidate();
+        sets.add( set( "Payments", 2, "Requester", "Approver" ) );
+        sets.add( set( "Audit", 3, "Auditor", "Accountant", "Approver" ) );
+        reviewMgr = ( ReviewMgr ) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[]
+            { ReviewMgr.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    if ( !method.getName().equals( "ssdSets" ) )
+                    {
+                        throw new UnsupportedOperationException( method.getName() );
+                    }
+                    loads++;
+                    return new ArrayList<>( sets );
+                }
+            } );
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        SsdIndex.invalidate();
+        Tenants.set( previousTenant );
+    }
+
+
+    @Test
+    public void directConflict() throws SecurityException
+    {
+        SsdIndex index = SsdIndex.getInstance( reviewMgr );
+        assertEquals( 2, index.size() );
+        List<String> conflicts = index.check( assigned( "Requester" ), "approver", null );
+        assertEquals( 1, conflicts.size() );
+        assertTrue( conflicts.get( 0 ).startsWith( "SSD set Payments" ) );
+        assertTrue( conflicts.get( 0 ).endsWith( "Requester" ) );
+    }
+
+
+    @Test
+    public void cardinality() throws SecurityException
+    {
+        SsdIndex index = SsdIndex.getInstance( reviewMgr );
+        // a user may hold two of the three audit roles
+        assertEquals( Collections.emptyList(), index.check( assigned( "Auditor" ), "Accountant", null ) );
+        assertEquals( 1, index.check( assigned( "Auditor", "Accountant" ), "Approver", null ).size() );
+        assertEquals( 2, index.check( assigned( "Auditor", "Accountant", "Requester" ), "Approver", null ).size() );
+    }
+
+
+    @Test
+    public void inheritedConflict() throws SecurityException
+    {
+        Role requester = new Role( "Requester" );
+        Role clerk = new Role( "Clerk" );
+        clerk.setParent( "Requester" );
+        RoleClosure roles = new RoleClosure( Arrays.asList( requester, clerk, new Role( "Approver" ) ) );
+        SsdIndex index = SsdIndex.getInstance( reviewMgr );
+        assertEquals( Collections.emptyList(), index.check( assigned( "Clerk" ), "Approver", null ) );
+        assertEquals( 1, index.check( assigned( "Clerk" ), "Approver", roles ).size() );
+    }
+
+
+    @Test
+    public void unconstrainedRole() throws SecurityException
+    {
+        SsdIndex index = SsdIndex.getInstance( reviewMgr );
+        assertFalse( index.isConstrained( "Clerk" ) );
+        assertTrue( index.isConstrained( "AUDITOR" ) );
+        assertEquals( Collections.emptyList(), index.check( assigned( "Requester" ), "Clerk", null ) );
+        assertEquals( Collections.emptyList(), index.check( assigned(), "Approver", null ) );
+    }
+
+
+    @Test
+    public void cachedPerTenant() throws SecurityException
+    {
+        SsdIndex index = SsdIndex.getInstance( reviewMgr );
+        assertSame( index, SsdIndex.getInstance( reviewMgr ) );
+        assertEquals( 1, loads );
+        Tenants.set( "otherTenant" );
+        try
+        {
+            SsdIndex.getInstance( reviewMgr );
+            assertEquals( 2, loads );
+        }
+        finally
+        {
+            SsdIndex.invalidate();
+            Tenants.set( "ssdIndexTest" );
+        }
+    }
+
+
+    @Test
+    public void setAndDeleteSet() throws SecurityException
+    {
+        SsdIndex.getInstance( reviewMgr );
+        SsdIndex.setSet( set( "Payments", 3, "Requester", "Approver", "Clerk" ) );
+        SsdIndex index = SsdIndex.getInstance( reviewMgr );
+        assertEquals( 1, loads );
+        assertTrue( index.isConstrained( "Clerk" ) );
+        assertEquals( Collections.emptyList(), index.check( assigned( "Requester" ), "Approver", null ) );
+
+        SsdIndex.deleteSet( "payments" );
+        index = SsdIndex.getInstance( reviewMgr );
+        assertEquals( 1, loads );
+        assertEquals( 1, index.size() );
+        assertFalse( index.isConstrained( "Requester" ) );
+    }
+
+
+    @Test
+    public void incompleteSetReloads() throws SecurityException
+    {
+        SsdIndex.getInstance( reviewMgr );
+        SDSet partial = new SDSet();
+        partial.setName( "Payments" );
+        SsdIndex.setSet( partial );
+        SsdIndex.getInstance( reviewMgr );
+        assertEquals( 2, loads );
+    }
+
+
+    private static SDSet set( String name, int cardinality, String... members )
+    {
+        SDSet set = new SDSet();
+        set.setName( name );
+        set.setType( SDSet.SDType.STATIC );
+        set.setCardinality( cardinality );
+        for ( String member : members )
+        {
+            set.addMember( member );
+        }
+        return set;
+    }
+
+
+    private static List<UserRole> assigned( String... names )
+    {
+        List<UserRole> result = new ArrayList<>();
+        for ( String name : names )
+        {
+            result.add( new UserRole( "user", name ) );
+        }
+        return result;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupCacheKeyProvider;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+
+import com.googlecode.wicket.jquery.ui.settings.JQueryUILibrarySettings;
+import com.googlecode.wicket.kendo.ui.settings.KendoUILibrarySettings;
+
+
+/**
+ * Standalone count of the requests and bytes a page load takes for its scripts and style sheets, with the application's
+ * defaults and with {@link StaticResources} installed, no directory server or spring context required.  The real pages
+ * can't be built without them, so the page has the head of FortressWebBasePage and renders the libraries its panels
+ * use: jQuery, wicket ajax, jQuery UI and Kendo UI.  Style sheets linked from the markup are served by the servlet
+ * container, their size is taken from src/main/webapp.
+ * <p>
+ * Images the style sheets use are loaded as rules match, so they aren't counted; the check at the end makes sure
+ * their rewritten urls are served with a far future expiry.
+ * <p>
+ * Run from the project folder with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.StaticResourcesBenchmark
+ */
+public class StaticResourcesBenchmark
+{
+    private static final String WEBAPP = "src/main/webapp";
+    private static final Pattern SCRIPT = Pattern.compile( "<script[^>]* src=\"([^\"]+)\"" );
+    private static final Pattern STYLE_SHEET = Pattern.compile( "<link[^>]* href=\"([^\"]+\\.css)\"" );
+    private static final Pattern URL = Pattern.compile( "url\\(([^)]+)\\)" );
+    // wicket's maximum is a year, less a few seconds for the clock ticking between headers
+    private static final int YEAR = 364 * 24 * 60 * 60;
+
+
+    public static void main( String[] args ) throws IOException
+    {
+        Load before = load( new MockApplication(), false );
+        Load after = load( new MockApplication()
+        {
+            @Override
+            protected void init()
+            {
+                super.init();
+                StaticResources.install( this );
+            }
+        }, true );
+        System.out.println( String.format( "before: %d requests, %d bytes", before.requests, before.bytes ) );
+        System.out.println( String.format( "after:  %d requests, %d bytes, %d of them cached for a year",
+            after.requests, after.bytes, after.cached ) );
+        boolean ok = after.requests > 0 && after.cached == after.requests && after.images > 0 && after.imagesCached ==
+            after.images && after.relativeUrls == 0;
+        System.out.println( String.format( "style sheet images: %d versioned urls, %d served with a year's expiry, " +
+            "%d relative urls left", after.images, after.imagesCached, after.relativeUrls ) );
+        System.out.println( ok ? "static resources ok" : "static resources FAILED" );
+        if ( !ok )
+        {
+            System.exit( 1 );
+        }
+    }
+
+
+    private static Load load( MockApplication application, boolean bundled ) throws IOException
+    {
+        Load load = new Load();
+        WicketTester tester = new WicketTester( application, new File( WEBAPP ).getAbsolutePath() );
+        try
+        {
+            tester.startPage( new LoadPage( bundled ) );
+            String page = tester.getLastResponseAsString();
+            List<String> urls = new ArrayList<>();
+            for ( Pattern pattern : new Pattern[] { SCRIPT, STYLE_SHEET } )
+            {
+                Matcher matcher = pattern.matcher( page );
+                while ( matcher.find() )
+                {
+                    urls.add( matcher.group( 1 ) );
+                }
+            }
+            for ( String url : urls )
+            {
+                load.requests++;
+                if ( !url.contains( "wicket/resource" ) && !url.startsWith( "./resource" ) )
+                {
+                    long size = new File( WEBAPP, url.replaceFirst( "^(\\.\\./)+", "" ) ).length();
+                    load.bytes += size;
+                    System.out.println( String.format( "  %7d bytes  container default caching  %s", size, url ) );
+                    continue;
+                }
+                Fetched fetched = fetch( tester, url );
+                load.bytes += fetched.sent.length;
+                load.cached += fetched.maxAge >= YEAR ? 1 : 0;
+                System.out.println( String.format( "  %7d bytes%s  max-age %8d  %s", fetched.sent.length,
+                    fetched.gzipped ? " gzip of " + fetched.content.length : "", fetched.maxAge, url ) );
+                if ( url.contains( ".css" ) )
+                {
+                    checkImages( tester, load, new String( fetched.content, StandardCharsets.UTF_8 ) );
+                }
+            }
+        }
+        finally
+        {
+            tester.destroy();
+        }
+        return load;
+    }
+
+
+    private static void checkImages( WicketTester tester, Load load, String css ) throws IOException
+    {
+        Matcher matcher = URL.matcher( css );
+        while ( matcher.find() )
+        {
+            String url = matcher.group( 1 ).replace( "\"", "" ).replace( "'", "" );
+            if ( url.startsWith( "data:" ) )
+            {
+                continue;
+            }
+            if ( !url.startsWith( "/" ) )
+            {
+                load.relativeUrls++;
+            }
+            else if ( url.contains( "wicket/resource" ) )
+            {
+                load.images++;
+                load.imagesCached += fetch( tester, url ).maxAge >= YEAR ? 1 : 0;
+            }
+        }
+    }
+
+
+    private static Fetched fetch( WicketTester tester, String url ) throws IOException
+    {
+        tester.getRequest().addHeader( "Accept-Encoding", "gzip, deflate" );
+        tester.executeUrl( url.substring( url.indexOf( "wicket/resource" ) >= 0 ? url.indexOf( "wicket/resource" ) :
+            0 ).replaceFirst( "^\\./resource", "wicket/resource" ) );
+        MockHttpServletResponse response = tester.getLastResponse();
+        Fetched fetched = new Fetched();
+        fetched.sent = response.getBinaryContent();
+        fetched.gzipped = "gzip".equals( response.getHeader( "Content-Encoding" ) );
+        fetched.content = fetched.gzipped ? IOUtils.toByteArray( new GZIPInputStream( new ByteArrayInputStream(
+            fetched.sent ) ) ) : fetched.sent;
+        // the mock response keeps only the first cache control value, wicket sets both headers from one duration
+        String expires = response.getHeader( "Expires" );
+        String date = response.getHeader( "Date" );
+        fetched.maxAge = expires != null && date != null && String.valueOf( response.getHeader( "Cache-Control" ) )
+            .contains( "public" ) ? ( parse( expires ) - parse( date ) ) / 1000 : 0;
+        return fetched;
+    }
+
+
+    private static long parse( String date )
+    {
+        return ZonedDateTime.parse( date, DateTimeFormatter.RFC_1123_DATE_TIME ).toInstant().toEpochMilli();
+    }
+
+
+    private static class Load
+    {
+        private int requests;
+        private long bytes;
+        private int cached;
+        private int images;
+        private int imagesCached;
+        private int relativeUrls;
+    }
+
+
+    private static class Fetched
+    {
+        private byte[] sent;
+        private byte[] content;
+        private boolean gzipped;
+        private long maxAge;
+    }
+
+
+    /**
+     * Head of FortressWebBasePage before and after the style sheets moved into the bundle.
+     */
+    private static class LoadPage extends WebPage implements IMarkupResourceStreamProvider, IMarkupCacheKeyProvider
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private static final String[] LINKED = { "css/camo-style.css",
+            "css/ui-lightness/jquery-ui-1.10.2.custom.min.css", "css/kendo.common.min.css", "css/kendo.uniform.min.css",
+            "css/splitter-style.css" };
+        private final boolean bundled;
+
+
+        LoadPage( boolean bundled )
+        {
+            this.bundled = bundled;
+        }
+
+
+        @Override
+        public void renderHead( IHeaderResponse response )
+        {
+            super.renderHead( response );
+            response.render( JavaScriptHeaderItem.forReference( getApplication().getJavaScriptLibrarySettings()
+                .getWicketAjaxReference() ) );
+            response.render( JavaScriptHeaderItem.forReference( JQueryUILibrarySettings.get()
+                .getJavaScriptReference() ) );
+            response.render( JavaScriptHeaderItem.forReference( KendoUILibrarySettings.get()
+                .getJavaScriptReference() ) );
+            if ( bundled )
+            {
+                StaticResources.renderStyleSheets( response );
+            }
+        }
+
+
+        @Override
+        public String getCacheKey( MarkupContainer container, Class<?> containerClass )
+        {
+            return containerClass.getName() + bundled;
+        }
+
+
+        @Override
+        public IResourceStream getMarkupResourceStream( MarkupContainer container, Class<?> containerClass )
+        {
+            StringBuilder markup = new StringBuilder( "<html><head>" );
+            for ( int i = 0; !bundled && i < LINKED.length; i++ )
+            {
+                markup.append( "<link rel=\"stylesheet\" type=\"text/css\" href=\"" ).append( LINKED[i] ).append(
+                    "\" media=\"all\"/>" );
+            }
+            markup.append( "</head><body></body></html>" );
+            return new StringResourceStream( markup );
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.constructs.blocking.BlockingCache;
+
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.util.tester.WicketTester;
+
+
+/**
+ * Standalone benchmark of {@link Tenants} and {@link TenantCaches}, no directory server required.  The caches of
+ * ehcache.xml are used the way fortress-core does, each wrapped in a blocking cache and loaded on a miss.
+ * <p>
+ * A number of quiet tenants each read their role hierarchy and a set of dsd entries over and over, while one noisy
+ * tenant reads a stream of distinct dsd entries, e.g. a bulk import.  With the caches shared by all tenants, the
+ * noisy one evicts the entries of the others; partitioned, each tenant only ever evicts its own.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:src/main/resources:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.TenantRoutingBenchmark [tenants] [rounds]
+ */
+public class TenantRoutingBenchmark
+{
+    private static final String NOISY = "NOISY";
+    private static final int QUIET_KEYS = 50;
+    private static final int NOISY_KEYS_PER_ROUND = 2000;
+
+
+    public static void main( String[] args )
+    {
+        int count = args.length > 0 ? Integer.parseInt( args[0] ) : 40;
+        int rounds = args.length > 1 ? Integer.parseInt( args[1] ) : 20;
+        System.setProperty( "net.sf.ehcache.skipUpdateCheck", "true" );
+        List<String> quiet = new ArrayList<>();
+        StringBuilder tenants = new StringBuilder( NOISY );
+        for ( int i = 1; i < count; i++ )
+        {
+            quiet.add( "T" + i );
+            tenants.append( ",T" ).append( i );
+        }
+        System.setProperty( "contextId", "HOME" );
+        System.setProperty( Tenants.TENANTS_PROPERTY, tenants.toString() );
+        System.setProperty( Tenants.HOSTS_PROPERTY, "t1.example.com=T1,noisy.example.com=NOISY" );
+        Tenants.reset();
+
+        int failures = resolve();
+        double shared = run( quiet, rounds, false );
+        double partitioned = run( quiet, rounds, true );
+        System.out.println( String.format( "quiet tenants hit ratio: shared %.1f%%, partitioned %.1f%%", shared * 100,
+            partitioned * 100 ) );
+        failures += partitioned < 0.9 ? 1 : 0;
+        System.out.println( failures == 0 ? "all checks passed" : failures + " checks FAILED" );
+        if ( failures > 0 )
+        {
+            System.exit( 1 );
+        }
+    }
+
+
+    /**
+     * Check the order tenants are resolved in and time it.
+     */
+    private static int resolve()
+    {
+        WicketTester tester = new WicketTester( new MockApplication() );
+        int failures = 0;
+        try
+        {
+            ServletWebRequest host = request( tester, "http://t1.example.com/wicket/page?tenant=T7" );
+            ServletWebRequest parameter = request( tester, "http://www.example.com/wicket/page?tenant=t7" );
+            ServletWebRequest unknown = request( tester, "http://www.example.com/wicket/page?tenant=EVIL" );
+            failures += check( "host", "T1", Tenants.resolve( host, null ) );
+            failures += check( "pinned session", "T3", Tenants.resolve( host, "T3" ) );
+            failures += check( "parameter", "T7", Tenants.resolve( parameter, null ) );
+            failures += check( "unknown parameter", "HOME", Tenants.resolve( unknown, null ) );
+            failures += check( "unknown pinned", "T1", Tenants.resolve( host, "EVIL" ) );
+            int calls = 200000;
+            for ( int round = 0; round < 2; round++ )
+            {
+                long start = System.nanoTime();
+                for ( int i = 0; i < calls; i++ )
+                {
+                    Tenants.resolve( i % 2 == 0 ? host : parameter, null );
+                }
+                if ( round == 1 )
+                {
+                    System.out.println( "resolve: " + ( System.nanoTime() - start ) / calls + " ns/request" );
+                }
+            }
+        }
+        finally
+        {
+            tester.destroy();
+        }
+        return failures;
+    }
+
+
+    private static ServletWebRequest request( WicketTester tester, String url )
+    {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest( tester.getApplication(), tester
+            .getHttpSession(), tester.getServletContext() );
+        servletRequest.setURL( url );
+        return new ServletWebRequest( servletRequest, "" );
+    }
+
+
+    private static int check( String name, String expected, String actual )
+    {
+        boolean ok = expected.equals( actual );
+        System.out.println( String.format( "resolve by %-18s %-6s %s", name + ":", actual, ok ? "ok" : "FAILED" ) );
+        return ok ? 0 : 1;
+    }
+
+
+    /**
+     * @return the hit ratio of the quiet tenants.
+     */
+    private static double run( List<String> quiet, int rounds, boolean partition )
+    {
+        CacheManager manager = new CacheManager( TenantRoutingBenchmark.class.getResourceAsStream( "/ehcache.xml" ) );
+        try
+        {
+            if ( partition )
+            {
+                TenantCaches.install( manager );
+            }
+            // what fortress-core holds on to
+            BlockingCache roles = new BlockingCache( manager.getEhcache( "fortress.roles" ) );
+            BlockingCache dsd = new BlockingCache( manager.getEhcache( "fortress.dsd" ) );
+            long hits = 0;
+            long reads = 0;
+            long noisy = 0;
+            long start = System.nanoTime();
+            for ( int round = 0; round < rounds; round++ )
+            {
+                for ( String tenant : quiet )
+                {
+                    Tenants.set( tenant );
+                    hits += read( roles, "ROLE:" + tenant );
+                    reads++;
+                    for ( int key = 0; key < QUIET_KEYS; key++ )
+                    {
+                        hits += read( dsd, "role" + key + ":" + tenant );
+                        reads++;
+                    }
+                }
+                Tenants.set( NOISY );
+                for ( int key = 0; key < NOISY_KEYS_PER_ROUND; key++ )
+                {
+                    read( dsd, "role" + ( noisy++ ) + ":" + NOISY );
+                }
+                read( roles, "ROLE:" + NOISY );
+            }
+            long elapsed = System.nanoTime() - start;
+            Tenants.set( null );
+            int caches = 0;
+            for ( String name : manager.getCacheNames() )
+            {
+                caches += name.startsWith( "fortress.dsd" ) ? 1 : 0;
+            }
+            System.out.println( String.format( "%-11s %d dsd caches, %d ns/read, quiet tenants %d of %d reads hit",
+                partition ? "partitioned" : "shared", caches, elapsed / ( reads + rounds * ( NOISY_KEYS_PER_ROUND +
+                1 ) ), hits, reads ) );
+            return ( double ) hits / reads;
+        }
+        finally
+        {
+            manager.shutdown();
+        }
+    }
+
+
+    /**
+     * Read an entry, loading it on a miss as fortress-core does.
+     *
+     * @return 1 on a hit.
+     */
+    private static int read( BlockingCache cache, String key )
+    {
+        Element element = cache.get( key );
+        if ( element != null )
+        {
+            return 1;
+        }
+        cache.put( new Element( key, key ) );
+        return 0;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+
+
+/**
+ * Standalone benchmark of the index part of the tenant warm-up, {@link WarmUp#loadIndexes}, no directory server
+ * required.  The managers are stubs serving a synthetic tenant, by default 5,000 roles in a tree with a fan out of ten,
+ * 200 admin roles, 20,000 permissions granted to three roles each and 100 ssd sets, optionally waiting the given
+ * millis on every call the way a directory round trip would.  Creating the managers, which opens the connection pools
+ * and loads the password policies, needs a directory and isn't run.
+ * <p>
+ * A throwaway tenant is loaded first so the class loading and jit compilation is out of the way, then the indexes a
+ * first request uses are timed for a tenant that wasn't warmed and for one that was.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.TenantWarmUpBenchmark [roles] [permissions] [latency]
+ */
+public class TenantWarmUpBenchmark
+{
+    private static final int ADMIN_ROLES = 200;
+    private static final int SSD_SETS = 100;
+    private static final int OUS = 100;
+
+
+    public static void main( String[] args ) throws Exception
+    {
+        int size = args.length > 0 ? Integer.parseInt( args[0] ) : 5000;
+        int permissions = args.length > 1 ? Integer.parseInt( args[1] ) : 20000;
+        long latency = args.length > 2 ? Long.parseLong( args[2] ) : 0;
+        Tenant tenant = new Tenant( size, permissions, latency );
+        ReviewMgr reviewMgr = stub( ReviewMgr.class, tenant );
+        DelReviewMgr delReviewMgr = stub( DelReviewMgr.class, tenant );
+
+        String previous = Tenants.set( "jit" );
+        try
+        {
+            firstRequest( reviewMgr, delReviewMgr );
+
+            Tenants.set( "cold" );
+            long cold = firstRequest( reviewMgr, delReviewMgr );
+
+            Tenants.set( "warm" );
+            WarmUp.Timeline timeline = new WarmUp.Timeline();
+            WarmUp.loadIndexes( "tenant warm: ", reviewMgr, delReviewMgr, timeline );
+            for ( WarmUp.Step step : timeline.getSteps() )
+            {
+                System.out.println( step );
+            }
+            long warm = firstRequest( reviewMgr, delReviewMgr );
+            System.out.println( String.format( "%d roles, %d permissions, %dms latency: warm-up %dms, indexes of the " +
+                "first request %dms cold, %dms warm", size, permissions, latency, timeline.getElapsed(), cold,
+                warm ) );
+        }
+        finally
+        {
+            Tenants.set( previous );
+        }
+    }
+
+
+    /**
+     * @return millis taken to get the indexes the role, permission and user pages use.
+     */
+    private static long firstRequest( ReviewMgr reviewMgr, DelReviewMgr delReviewMgr ) throws Exception
+    {
+        long start = System.nanoTime();
+        RoleGraph.getInstance( false, reviewMgr, delReviewMgr );
+        RoleGraph.getInstance( true, reviewMgr, delReviewMgr );
+        RoleClosure.getInstance( false, reviewMgr, delReviewMgr );
+        RoleClosure.getInstance( true, reviewMgr, delReviewMgr );
+        PermissionClosure.getInstance( false, reviewMgr );
+        PermissionClosure.getInstance( true, reviewMgr );
+        SsdIndex.getInstance( reviewMgr );
+        return ( System.nanoTime() - start ) / 1000000;
+    }
+
+
+    private static <T> T stub( Class<T> type, InvocationHandler handler )
+    {
+        return type.cast( Proxy.newProxyInstance( TenantWarmUpBenchmark.class.getClassLoader(), new Class<?>[]
+            { type }, handler ) );
+    }
+
+
+    /**
+     * Answers the calls of the warm-up and the index loaders, each list is a fresh copy as read from a directory.
+     */
+    private static class Tenant implements InvocationHandler
+    {
+        private final List<Role> roles = new ArrayList<>();
+        private final List<AdminRole> adminRoles = new ArrayList<>();
+        private final List<Permission> permissions = new ArrayList<>();
+        private final List<SDSet> ssdSets = new ArrayList<>();
+        private final List<OrgUnit> ous = new ArrayList<>();
+        private final long latency;
+
+
+        Tenant( int size, int permissionCount, long latency )
+        {
+            this.latency = latency;
+            Random random = new Random( 42 );
+            for ( int i = 0; i < size; i++ )
+            {
+                Role role = new Role( "role" + i );
+                if ( i > 0 )
+                {
+                    role.setParent( "role" + ( ( i - 1 ) / 10 ) );
+                }
+                roles.add( role );
+            }
+            for ( int i = 0; i < ADMIN_ROLES; i++ )
+            {
+                AdminRole role = new AdminRole( "admin" + i );
+                if ( i > 0 )
+                {
+                    role.setParent( "admin" + ( ( i - 1 ) / 10 ) );
+                }
+                adminRoles.add( role );
+            }
+            for ( int i = 0; i < permissionCount; i++ )
+            {
+                Permission permission = new Permission( "object" + i / 10, "op" + i % 10 );
+                for ( int j = 0; j < 3; j++ )
+                {
+                    permission.setRole( "role" + random.nextInt( size ) );
+                }
+                permissions.add( permission );
+            }
+            for ( int i = 0; i < SSD_SETS; i++ )
+            {
+                SDSet set = new SDSet();
+                set.setName( "ssd" + i );
+                set.setType( SDSet.SDType.STATIC );
+                set.setCardinality( 2 );
+                set.addMember( "role" + random.nextInt( size ) );
+                set.addMember( "role" + random.nextInt( size ) );
+                ssdSets.add( set );
+            }
+            for ( int i = 0; i < OUS; i++ )
+            {
+                ous.add( new OrgUnit( "ou" + i ) );
+            }
+        }
+
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args ) throws Exception
+        {
+            if ( latency > 0 )
+            {
+                Thread.sleep( latency );
+            }
+            switch ( method.getName() )
+            {
+                case "findRoles":
+                    return proxy instanceof DelReviewMgr ? new ArrayList<>( adminRoles ) : new ArrayList<>( roles );
+                case "findPermissions":
+                    return ( ( Permission ) args[0] ).isAdmin() ? new ArrayList<Permission>() : new ArrayList<>(
+                        permissions );
+                case "ssdSets":
+                    return new ArrayList<>( ssdSets );
+                case "search":
+                    return new ArrayList<>( ous );
+                case "assignedUsers":
+                    return Collections.singletonList( "user0" );
+                case "authorizedRoles":
+                    return new HashSet<>( Collections.singleton( "role0" ) );
+                default:
+                    throw new UnsupportedOperationException( method.getName() );
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * {@link Tenants} configuration of the tenants requests are routed to and the one the realm authenticates in, read
+ * from system properties so fortress.properties and the remote configuration aren't needed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class TenantsTest
+{
+    private static final String[] PROPERTIES =
+        { GlobalIds.CONTEXT_ID_PROPERTY, Tenants.TENANTS_PROPERTY, Tenants.HOSTS_PROPERTY, Tenants.REALM_PROPERTY };
+    private final Map<String, String> previous = new HashMap<>();
+
+
+    @Before
+    public void setUp()
+    {
+        for ( String name : PROPERTIES )
+        {
+            previous.put( name, System.getProperty( name ) );
+        }
+        System.setProperty( GlobalIds.CONTEXT_ID_PROPERTY, "HOME" );
+        System.setProperty( Tenants.TENANTS_PROPERTY, "ACME,BETA" );
+        System.setProperty( Tenants.HOSTS_PROPERTY, "gamma.example.com=GAMMA" );
+        System.clearProperty( Tenants.REALM_PROPERTY );
+        Tenants.reset();
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        for ( String name : PROPERTIES )
+        {
+            if ( previous.get( name ) != null )
+            {
+                System.setProperty( name, previous.get( name ) );
+            }
+            else
+            {
+                System.clearProperty( name );
+            }
+        }
+        Tenants.reset();
+    }
+
+
+    @Test
+    public void testTenants()
+    {
+        assertTrue( Tenants.isRouted() );
+        assertEquals( "HOME", Tenants.getDefault() );
+        assertEquals( Arrays.asList( "HOME", "ACME", "BETA", "GAMMA" ), Tenants.getTenants() );
+    }
+
+
+    @Test
+    public void testRealmDefaultsToContextId()
+    {
+        assertEquals( "HOME", Tenants.getRealmTenant() );
+        assertTrue( Tenants.isRealmTenant( "HOME" ) );
+        assertTrue( Tenants.isRealmTenant( "home" ) );
+        assertFalse( Tenants.isRealmTenant( "ACME" ) );
+        assertFalse( Tenants.isRealmTenant( "GAMMA" ) );
+        assertFalse( Tenants.isRealmTenant( null ) );
+    }
+
+
+    @Test
+    public void testRealmOfRoutedTenant()
+    {
+        System.setProperty( Tenants.REALM_PROPERTY, "acme" );
+        Tenants.reset();
+        assertEquals( "ACME", Tenants.getRealmTenant() );
+        assertTrue( Tenants.isRealmTenant( "ACME" ) );
+        assertFalse( Tenants.isRealmTenant( "HOME" ) );
+        assertFalse( Tenants.isRealmTenant( "BETA" ) );
+    }
+
+
+    @Test
+    public void testRealmOfOtherTenant()
+    {
+        // no request is routed to it, so no principal is ever loaded
+        System.setProperty( Tenants.REALM_PROPERTY, "DELTA" );
+        Tenants.reset();
+        assertEquals( "DELTA", Tenants.getRealmTenant() );
+        for ( String tenant : Tenants.getTenants() )
+        {
+            assertFalse( Tenants.isRealmTenant( tenant ) );
+        }
+    }
+}
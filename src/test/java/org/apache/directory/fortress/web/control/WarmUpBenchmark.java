@@ -0,0 +1,111 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.lang.LocaleUtils;
+import org.apache.wicket.Session;
+import org.apache.wicket.markup.Markup;
+import org.apache.wicket.markup.MarkupFactory;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.util.tester.WicketTester;
+
+
+/**
+ * Standalone benchmark of the markup part of {@link WarmUp}, no directory server required.  The tenant part needs
+ * one and isn't run.  The real pages can't be created without it either, so the markup of every page and panel is
+ * looked up the way their first rendering does, in the locale of a browser that differs from the one warmed up.
+ * <p>
+ * The user's locale is en_US.  A cold JVM is what a deploy starts with, so run it once per mode, each in its own JVM:
+ * <ul>
+ * <li>cold: the first lookups parse everything, as for the first user without the warm-up,</li>
+ * <li>warm: the warm-up runs first, in the given locales, and the first lookups must find every markup cached.</li>
+ * </ul>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.control.WarmUpBenchmark cold|warm [locale,...]
+ */
+public class WarmUpBenchmark
+{
+    public static void main( String[] args ) throws Exception
+    {
+        boolean warm = args.length > 0 && "warm".equals( args[0] );
+        WicketTester tester = new WicketTester( new MockApplication() );
+        try
+        {
+            List<Locale> locales = new ArrayList<>();
+            for ( String name : ( args.length > 1 ? args[1] : "en" ).split( "," ) )
+            {
+                locales.add( LocaleUtils.toLocale( name ) );
+            }
+            WarmUp.Timeline timeline = new WarmUp.Timeline();
+            List<Class<?>> classes = new ArrayList<>();
+            long warmUp = 0;
+            if ( warm )
+            {
+                long start = System.nanoTime();
+                WarmUp.loadMarkup( locales, timeline );
+                warmUp = ( System.nanoTime() - start ) / 1000000;
+                for ( WarmUp.Step step : timeline.getSteps() )
+                {
+                    System.out.println( step );
+                }
+            }
+            classes.addAll( WarmUp.findMarkupContainers() );
+            int cached = MarkupFactory.get().getMarkupCache().size();
+
+            tester.getSession().setLocale( Locale.US );
+            long first = lookup( classes );
+            int parsed = MarkupFactory.get().getMarkupCache().size() - cached;
+            long steady = lookup( classes );
+            System.out.println( String.format( "%s: warm-up %dms, first lookup of %d pages and panels %dms parsing %d" +
+                " markups, steady state %dms", warm ? "warm " + locales : "cold", warmUp, classes.size(), first,
+                parsed, steady ) );
+            boolean ok = classes.size() > 60 && ( !warm || parsed == 0 ) && ( warm || parsed > 0 );
+            System.out.println( "markup " + ( ok ? "ok" : "FAILED" ) );
+            if ( !ok )
+            {
+                System.exit( 1 );
+            }
+        }
+        finally
+        {
+            tester.destroy();
+        }
+    }
+
+
+    private static long lookup( List<Class<?>> classes ) throws ReflectiveOperationException
+    {
+        long start = System.nanoTime();
+        for ( Class<?> clazz : classes )
+        {
+            Markup markup = WarmUp.getMarkup( clazz );
+            if ( markup == null || markup == Markup.NO_MARKUP || !Locale.US.equals( Session.get().getLocale() ) )
+            {
+                throw new IllegalStateException( "no markup for " + clazz + " in " + Session.get().getLocale() );
+            }
+        }
+        return ( System.nanoTime() - start ) / 1000000;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.event;
+
+
+import org.apache.directory.fortress.core.model.User;
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.event.Broadcast;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.util.tester.WicketTester;
+
+
+/**
+ * Standalone benchmark of delivering a {@link SaveModelEvent} by breadth first broadcast and through
+ * {@link EventSubscriptions}, no directory server or spring context required.  The real pages can't be built without
+ * them, so the page is a synthetic tree shaped like UserPage: a grid of 50 rows by 8 columns, a detail form with its
+ * fields and constraint panels, and the search modals.  Two panels listen, as the list and detail panel do.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.event.EventDispatchBenchmark [rows] [events]
+ */
+public class EventDispatchBenchmark
+{
+    private static int received;
+
+
+    public static void main( String[] args )
+    {
+        int rows = args.length > 0 ? Integer.parseInt( args[0] ) : 50;
+        int events = args.length > 1 ? Integer.parseInt( args[1] ) : 20000;
+        WicketTester tester = new WicketTester();
+        try
+        {
+            WebPage page = new WebPage()
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+            };
+            int size = build( page, rows );
+            page.internalInitialize();
+            Component source = page.get( "list:grid:0:0" );
+            User user = new User( "bench" );
+            System.out.println( "page of " + size + " components, " + EventSubscriptions.size( page ) +
+                " subscriptions" );
+
+            long broadcast = time( page, source, user, events, true );
+            long subscribed = time( page, source, user, events, false );
+            System.out.println( String.format( "broadcast: %d ns/event, subscriptions: %d ns/event", broadcast,
+                subscribed ) );
+
+            received = 0;
+            EventSubscriptions.send( page, source, new SelectModelEvent( null, user ), user );
+            int select = received;
+            received = 0;
+            EventSubscriptions.send( page, source, new SaveModelEvent( null, user ), user );
+            boolean ok = select == 1 && received == 1;
+            System.out.println( "each event reaches its one listener: " + ( ok ? "ok" : "FAILED" ) );
+            if ( !ok )
+            {
+                System.exit( 1 );
+            }
+        }
+        finally
+        {
+            tester.destroy();
+        }
+    }
+
+
+    private static long time( WebPage page, Component source, User user, int events, boolean broadcast )
+    {
+        // warm up with the same number of events
+        for ( int round = 0; round < 2; round++ )
+        {
+            long start = System.nanoTime();
+            for ( int i = 0; i < events; i++ )
+            {
+                SaveModelEvent event = new SaveModelEvent( null, user, SaveModelEvent.Operations.UPDATE );
+                if ( broadcast )
+                {
+                    source.send( page, Broadcast.BREADTH, event );
+                }
+                else
+                {
+                    EventSubscriptions.send( page, source, event, user );
+                }
+            }
+            if ( round == 1 )
+            {
+                return ( System.nanoTime() - start ) / events;
+            }
+        }
+        return 0;
+    }
+
+
+    private static int build( WebPage page, int rows )
+    {
+        int size = 1;
+        WebMarkupContainer list = new Listener( "list", SaveModelEvent.class );
+        page.add( list );
+        WebMarkupContainer grid = new WebMarkupContainer( "grid" );
+        list.add( grid );
+        size += 2;
+        for ( int row = 0; row < rows; row++ )
+        {
+            WebMarkupContainer item = new WebMarkupContainer( String.valueOf( row ) );
+            grid.add( item );
+            size++;
+            for ( int column = 0; column < 8; column++ )
+            {
+                WebMarkupContainer cell = new WebMarkupContainer( String.valueOf( column ) );
+                cell.add( new Label( "label", "value" ) );
+                item.add( cell );
+                size += 2;
+            }
+        }
+        WebMarkupContainer detail = new Listener( "detail", SelectModelEvent.class );
+        page.add( detail );
+        size++;
+        size += fill( detail, "field", 120 );
+        for ( int i = 0; i < 12; i++ )
+        {
+            WebMarkupContainer constraint = new WebMarkupContainer( "constraint" + i );
+            detail.add( constraint );
+            size += 1 + fill( constraint, "field", 14 );
+        }
+        for ( int i = 0; i < 4; i++ )
+        {
+            WebMarkupContainer modal = new WebMarkupContainer( "modal" + i );
+            page.add( modal );
+            size += 1 + fill( modal, "row", 40 );
+        }
+        return size;
+    }
+
+
+    private static int fill( MarkupContainer container, String prefix, int count )
+    {
+        for ( int i = 0; i < count; i++ )
+        {
+            container.add( new Label( prefix + i, "value" ) );
+        }
+        return count;
+    }
+
+
+    private static class Listener extends WebMarkupContainer
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final Class<? extends AjaxUpdateEvent> eventType;
+
+
+        Listener( String id, Class<? extends AjaxUpdateEvent> eventType )
+        {
+            super( id );
+            this.eventType = eventType;
+        }
+
+
+        @Override
+        protected void onInitialize()
+        {
+            super.onInitialize();
+            EventSubscriptions.subscribe( this, eventType, User.class );
+        }
+
+
+        @Override
+        public void onEvent( IEvent<?> event )
+        {
+            if ( eventType.isInstance( event.getPayload() ) )
+            {
+                received++;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.event;
+
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.wicket.Component;
+import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Delivery of events through {@link EventSubscriptions} on a page of plain containers.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class EventSubscriptionsTest
+{
+    private WicketTester tester;
+    private WebPage page;
+    private Component source;
+
+
+    @Before
+    public void setUp()
+    {
+        tester = new WicketTester();
+        page = new WebPage()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+        };
+        source = new WebMarkupContainer( "source" );
+        page.add( source );
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        tester.destroy();
+    }
+
+
+    @Test
+    public void withoutSubscriptionsTheEventIsBroadcast()
+    {
+        Listener list = add( new Listener( "list" ) );
+        Listener detail = add( new Listener( "detail" ) );
+        assertEquals( -1, EventSubscriptions.send( page, source, new SaveModelEvent( null ), null ) );
+        assertEquals( 1, list.received );
+        assertEquals( 1, detail.received );
+    }
+
+
+    @Test
+    public void deliveredByEventType()
+    {
+        Listener list = add( new Listener( "list" ) );
+        Listener detail = add( new Listener( "detail" ) );
+        Listener bystander = add( new Listener( "bystander" ) );
+        EventSubscriptions.subscribe( list, SaveModelEvent.class, User.class );
+        EventSubscriptions.subscribe( detail, SelectModelEvent.class, User.class );
+        User user = new User( "jdoe" );
+
+        assertEquals( 1, EventSubscriptions.send( page, source, new SaveModelEvent( null, user ), user ) );
+        assertEquals( 1, list.received );
+        assertEquals( 0, detail.received );
+        assertEquals( 1, EventSubscriptions.send( page, source, new SelectModelEvent( null, user ), user ) );
+        assertEquals( 1, list.received );
+        assertEquals( 1, detail.received );
+        assertEquals( 0, bystander.received );
+    }
+
+
+    @Test
+    public void deliveredByEntityType()
+    {
+        Listener users = add( new Listener( "users" ) );
+        Listener roles = add( new Listener( "roles" ) );
+        Listener any = add( new Listener( "any" ) );
+        EventSubscriptions.subscribe( users, SaveModelEvent.class, User.class );
+        EventSubscriptions.subscribe( roles, SaveModelEvent.class, Role.class );
+        EventSubscriptions.subscribe( any, SaveModelEvent.class, null );
+        Role role = new Role( "teller" );
+
+        assertEquals( 2, EventSubscriptions.send( page, source, new SaveModelEvent( null, role ), role ) );
+        assertEquals( 0, users.received );
+        assertEquals( 1, roles.received );
+        assertEquals( 1, any.received );
+        // without an entity every listener of the event type gets it
+        assertEquals( 3, EventSubscriptions.send( page, source, new SaveModelEvent( null ), null ) );
+    }
+
+
+    @Test
+    public void subscribingTwiceDeliversOnce()
+    {
+        Listener list = add( new Listener( "list" ) );
+        EventSubscriptions.subscribe( list, SaveModelEvent.class, User.class );
+        EventSubscriptions.subscribe( list, SaveModelEvent.class, User.class );
+        EventSubscriptions.subscribe( list, SaveModelEvent.class, null );
+        assertEquals( 2, EventSubscriptions.size( page ) );
+        assertEquals( 1, EventSubscriptions.send( page, source, new SaveModelEvent( null ), null ) );
+        assertEquals( 1, list.received );
+    }
+
+
+    @Test
+    public void listenersThatLeftThePageAreDropped()
+    {
+        Listener list = add( new Listener( "list" ) );
+        Listener detail = add( new Listener( "detail" ) );
+        EventSubscriptions.subscribe( list, SaveModelEvent.class, null );
+        EventSubscriptions.subscribe( detail, SaveModelEvent.class, null );
+        page.replace( new Listener( "detail" ) );
+
+        assertEquals( 1, EventSubscriptions.send( page, source, new SaveModelEvent( null ), null ) );
+        assertEquals( 1, EventSubscriptions.size( page ) );
+        assertEquals( 1, list.received );
+        assertEquals( 0, detail.received );
+    }
+
+
+    private Listener add( Listener listener )
+    {
+        page.add( listener );
+        return listener;
+    }
+
+
+    private static class Listener extends WebMarkupContainer
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private int received;
+
+
+        Listener( String id )
+        {
+            super( id );
+        }
+
+
+        @Override
+        public void onEvent( IEvent<?> event )
+        {
+            if ( event.getPayload() instanceof AjaxUpdateEvent )
+            {
+                received++;
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.web.control.FortressSerializer;
+import org.apache.wicket.Component;
+import org.apache.wicket.Page;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.apache.wicket.util.tester.WicketTester;
+import org.apache.wicket.util.visit.IVisit;
+import org.apache.wicket.util.visit.IVisitor;
+
+
+/**
+ * Standalone measurement of the detail panels holding search modals, no directory server or spring context required.
+ * The panels are built in a {@link PanelTesters} tester whose managers find nothing, the way they are for an empty
+ * form.  For each panel it reports the number of components on the page, the time to construct it and the size of
+ * the page as written by the java and the fortress serializers.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.panel.DetailPanelBenchmark [rounds]
+ */
+public class DetailPanelBenchmark
+{
+    private static final String KEY = "detailPanelBenchmark";
+
+
+    public static void main( String[] args ) throws Exception
+    {
+        int rounds = args.length > 0 ? Integer.parseInt( args[0] ) : 3000;
+        WicketTester tester = PanelTesters.create();
+        try
+        {
+            for ( String name : new String[] { "user", "perm", "sd", "ou" } )
+            {
+                // warm up with the same number of rounds
+                build( name, rounds );
+                long nanos = build( name, rounds );
+                Page page = tester.startComponentInPage( create( name ) ).getPage();
+                page.detach();
+                byte[] java = new JavaSerializer( KEY ).serialize( page );
+                byte[] compact = new FortressSerializer( KEY ).serialize( page );
+                System.out.println( String.format( "%s: %d components, %d us to construct, %d bytes java, %d bytes " +
+                    "fortress", create( name ).getClass().getSimpleName(), count( page ), nanos / rounds / 1000,
+                    java.length, compact.length ) );
+            }
+        }
+        finally
+        {
+            tester.destroy();
+        }
+    }
+
+
+    private static Component create( String name )
+    {
+        Displayable display = new PanelTesters.Display();
+        switch ( name )
+        {
+            case "user":
+                return new UserDetailPanel( "detail", display );
+            case "perm":
+                return new PermDetailPanel( "detail", display, false );
+            case "sd":
+                return new SDDetailPanel( "detail", display, true );
+            default:
+                return new OUDetailPanel( "detail", display, true );
+        }
+    }
+
+
+    private static long build( String name, int rounds )
+    {
+        long start = System.nanoTime();
+        for ( int i = 0; i < rounds; i++ )
+        {
+            create( name );
+        }
+        return System.nanoTime() - start;
+    }
+
+
+    private static int count( Page page )
+    {
+        final int[] count = { 0 };
+        page.visitChildren( new IVisitor<Component, Void>()
+        {
+            @Override
+            public void component( Component component, IVisit<Void> visit )
+            {
+                count[0]++;
+            }
+        } );
+        return count[0];
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.web.control.CompactDn;
+
+
+/**
+ * Standalone measurement of the heap held by a group member list and an audit page, no directory server required.
+ * Every name is a fresh string the way the ldap client returns them.  By default the group has 100,000 members and the
+ * audit page 1,000,000 authorization records over 500 permissions and 2,000 users.
+ * <p>
+ * Run with: java -Xmx4g -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.panel.DnMemoryBenchmark [members] [records]
+ */
+public class DnMemoryBenchmark
+{
+    private static final String TENANT = "bench";
+    private static final String PEOPLE = ",ou=People,dc=example,dc=com";
+    private static final String PERMS = ",ou=Permissions,ou=RBAC,dc=example,dc=com";
+    private static final int PERMISSIONS = 500;
+    private static final int USERS = 2000;
+
+
+    public static void main( String[] args )
+    {
+        int members = args.length > 0 ? Integer.parseInt( args[0] ) : 100000;
+        int records = args.length > 1 ? Integer.parseInt( args[1] ) : 1000000;
+
+        long strings = measureStrings( members );
+        long compact = measureCompact( members );
+        System.out.println( String.format( "group of %d members: strings %d KB, compact %d KB, %d suffix shared",
+            members, strings / 1024, compact / 1024, CompactDn.getSuffixCount( TENANT ) ) );
+
+        long decoded = measureAudit( records, false );
+        long shared = measureAudit( records, true );
+        System.out.println( String.format( "audit page of %d records: decoded %d MB, shared %d MB", records,
+            decoded / 1024 / 1024, shared / 1024 / 1024 ) );
+
+        CompactDn dn = CompactDn.valueOf( TENANT, "uid=a\\,b" + PEOPLE );
+        boolean ok = dn.toString().equals( "uid=a\\,b" + PEOPLE ) && dn.getLeafValue().equals( "a\\,b" );
+        System.out.println( "escaped leaf round trip: " + ( ok ? "ok" : "FAILED" ) );
+        if ( !ok )
+        {
+            System.exit( 1 );
+        }
+    }
+
+
+    private static long measureStrings( int count )
+    {
+        long heap = used();
+        List<String> list = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            list.add( "uid=user" + i + PEOPLE );
+        }
+        heap = used() - heap;
+        System.out.println( "kept " + list.size() );
+        return heap;
+    }
+
+
+    private static long measureCompact( int count )
+    {
+        long heap = used();
+        List<CompactDn> list = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            list.add( CompactDn.valueOf( TENANT, "uid=user" + i + PEOPLE ) );
+        }
+        heap = used() - heap;
+        System.out.println( "kept " + list.size() );
+        return heap;
+    }
+
+
+    private static long measureAudit( int count, boolean share )
+    {
+        long heap = used();
+        List<AuthZ> list = new ArrayList<>( count );
+        Map<String, String> userIds = new HashMap<>();
+        Map<String, AuthZ> perms = new HashMap<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            int perm = i % PERMISSIONS;
+            AuthZ authZ = new AuthZ();
+            authZ.setReqDN( "ftObjId=" + perm + "+ftOpNm=op" + perm % 7 + ",ftObjNm=obj" + perm + PERMS );
+            authZ.setReqAuthzID( "uid=user" + i % USERS + PEOPLE );
+            if ( share )
+            {
+                authZ.setReqAuthzID( AuditUtils.getAuthZId( authZ.getReqAuthzID(), userIds ) );
+                AuditUtils.mapAuthZPerm( authZ, perms );
+            }
+            else
+            {
+                authZ.setReqAuthzID( AuditUtils.getAuthZId( authZ.getReqAuthzID() ) );
+                AuditUtils.mapAuthZPerm( authZ );
+            }
+            list.add( authZ );
+        }
+        // dropped at the end of loadTree, only the records stay
+        userIds = null;
+        perms = null;
+        heap = used() - heap;
+        System.out.println( "kept " + list.size() );
+        return heap;
+    }
+
+
+    private static long used()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for ( int i = 0; i < 3; i++ )
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
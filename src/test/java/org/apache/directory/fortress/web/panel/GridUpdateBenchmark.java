@@ -0,0 +1,151 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
+import org.apache.wicket.event.Broadcast;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+
+
+/**
+ * Standalone measurement of the ajax response sent after a detail panel saves, no directory server or spring context
+ * required.  A {@link PwPolicyListPanel} is filled with a search result of the given sizes by a stub manager, then a
+ * {@link SaveModelEvent} is broadcast the way the detail panel does for an add, an update and a delete, and the size
+ * of each response is reported.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.apache.directory.fortress.web.panel.GridUpdateBenchmark [rows,...]
+ */
+public class GridUpdateBenchmark
+{
+    private static int rows;
+
+
+    public static void main( String[] args ) throws Exception
+    {
+        PwPolicyMgr pwPolicyMgr = PanelTesters.stub( PwPolicyMgr.class, new InvocationHandler()
+        {
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args )
+            {
+                if ( !method.getName().equals( "search" ) )
+                {
+                    return null;
+                }
+                List<PwPolicy> policies = new ArrayList<>();
+                for ( int i = 0; i < rows; i++ )
+                {
+                    PwPolicy policy = new PwPolicy( "policy" + i );
+                    policy.setMinAge( 0 );
+                    policy.setMaxAge( 7776000L );
+                    policy.setInHistory( ( short ) 5 );
+                    policy.setMinLength( ( short ) 8 );
+                    policies.add( policy );
+                }
+                return policies;
+            }
+        } );
+        WicketTester tester = PanelTesters.create( pwPolicyMgr );
+        try
+        {
+            for ( String size : ( args.length > 0 ? args[0] : "10,100,1000" ).split( "," ) )
+            {
+                rows = Integer.parseInt( size );
+                tester.startPage( new SavePage() );
+                int page = tester.getLastResponseAsString().length();
+                int add = save( tester, new PwPolicy( "added" ), SaveModelEvent.Operations.ADD );
+                PwPolicy updated = new PwPolicy( "policy1" );
+                updated.setMinLength( ( short ) 12 );
+                int update = save( tester, updated, SaveModelEvent.Operations.UPDATE );
+                int delete = save( tester, new PwPolicy( "policy2" ), SaveModelEvent.Operations.DELETE );
+                System.out.println( String.format( "%d rows, page %d bytes: add %d bytes, update %d bytes, delete %d " +
+                    "bytes", rows, page, add, update, delete ) );
+            }
+        }
+        finally
+        {
+            tester.destroy();
+        }
+    }
+
+
+    private static int save( WicketTester tester, FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        SavePage page = ( SavePage ) tester.getLastRenderedPage();
+        page.entity = entity;
+        page.operation = operation;
+        tester.clickLink( "save", true );
+        return tester.getLastResponseAsString().length();
+    }
+
+
+    /**
+     * The list panel next to a link sending what a detail panel sends after it saved.
+     */
+    public static class SavePage extends WebPage implements IMarkupResourceStreamProvider
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private FortEntity entity;
+        private SaveModelEvent.Operations operation;
+
+
+        public SavePage()
+        {
+            add( new PwPolicyListPanel( "list" ) );
+            add( new AjaxLink<Void>( "save" )
+            {
+                /** Default serialVersionUID */
+                private static final long serialVersionUID = 1L;
+
+
+                @Override
+                public void onClick( AjaxRequestTarget target )
+                {
+                    send( getPage(), Broadcast.BREADTH, new SaveModelEvent( target, entity, operation ) );
+                }
+            } );
+        }
+
+
+        @Override
+        public IResourceStream getMarkupResourceStream( MarkupContainer container, Class<?> containerClass )
+        {
+            return new StringResourceStream( "<html><body><div wicket:id=\"list\"></div><a wicket:id=\"save\">save" +
+                "</a></body></html>" );
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.panel;
+
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.apache.directory.fortress.core.AccessMgr;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.AuditMgr;
+import org.apache.directory.fortress.core.DelAccessMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.GroupMgr;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.web.control.WicketSession;
+import org.apache.wicket.Session;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.spring.injection.annot.SpringComponentInjector;
+import org.apache.wicket.spring.test.ApplicationContextMock;
+import org.apache.wicket.util.tester.WicketTester;
+
+
+/**
+ * Builds a {@link WicketTester} the panels can be created in without a directory server or spring context: the
+ * fortress config is created without its remote part, the session is a {@link WicketSession} and the managers are
+ * stubs injected through a mocked spring context.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class PanelTesters
+{
+    private static final Class<?>[] MANAGERS = { AccessMgr.class, AdminMgr.class, AuditMgr.class, DelAccessMgr.class,
+        DelAdminMgr.class, DelReviewMgr.class, GroupMgr.class, PwPolicyMgr.class, ReviewMgr.class };
+
+
+    private PanelTesters()
+    {
+    }
+
+
+    /**
+     * @param managers stubs to inject instead of the default ones, which find nothing.
+     * @return the tester, to be destroyed by the caller.
+     */
+    static WicketTester create( Object... managers ) throws Exception
+    {
+        loadLocalConfig();
+        MockApplication application = new MockApplication()
+        {
+            @Override
+            public Session newSession( Request request, Response response )
+            {
+                return new WicketSession( request );
+            }
+        };
+        WicketTester tester = new WicketTester( application );
+        ApplicationContextMock context = new ApplicationContextMock();
+        for ( Class<?> type : MANAGERS )
+        {
+            Object manager = null;
+            for ( Object candidate : managers )
+            {
+                manager = type.isInstance( candidate ) ? candidate : manager;
+            }
+            context.putBean( type.getSimpleName(), manager != null ? manager : stub( type, null ) );
+        }
+        application.getComponentInstantiationListeners().add( new SpringComponentInjector( application, context ) );
+        return tester;
+    }
+
+
+    /**
+     * @param type    of the manager.
+     * @param handler answers the calls it knows by returning non null, may be null.
+     * @return a manager returning the handler's answer, or null, false or 0 when there is none.
+     */
+    static <T> T stub( final Class<T> type, final InvocationHandler handler )
+    {
+        return type.cast( Proxy.newProxyInstance( PanelTesters.class.getClassLoader(), new Class<?>[] { type },
+            new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+                {
+                    Object answer = handler != null ? handler.invoke( proxy, method, args ) : null;
+                    if ( answer != null )
+                    {
+                        return answer;
+                    }
+                    Class<?> result = method.getReturnType();
+                    if ( result == boolean.class )
+                    {
+                        return method.getName().equals( "equals" ) && proxy == args[0];
+                    }
+                    if ( result == int.class )
+                    {
+                        return 0;
+                    }
+                    return method.getName().equals( "toString" ) ? type.getSimpleName() : null;
+                }
+            } ) );
+    }
+
+
+    /**
+     * Config.getInstance always reads the remote config from the directory, make it skip that.
+     */
+    private static void loadLocalConfig() throws Exception
+    {
+        Constructor<Config> constructor = Config.class.getDeclaredConstructor();
+        constructor.setAccessible( true );
+        Config config = constructor.newInstance();
+        Field field = Config.class.getDeclaredField( "remoteConfigLoaded" );
+        field.setAccessible( true );
+        field.set( config, true );
+        field = Config.class.getDeclaredField( "sINSTANCE" );
+        field.setAccessible( true );
+        field.set( null, config );
+    }
+
+
+    /**
+     * The info panel of a page, messages are dropped.
+     */
+    static class Display implements Displayable, Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        public void setMessage( String message )
+        {
+        }
+
+
+        @Override
+        public void display( AjaxRequestTarget target )
+        {
+        }
+
+
+        @Override
+        public void display()
+        {
+        }
+    }
+}